@@ -11,6 +11,8 @@ import android.view.View;
 import android.view.WindowManager;
 import android.widget.Chronometer;
 import android.widget.Toast;
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 
 /**
  * 悬浮窗Service
@@ -38,28 +40,55 @@ public class FloatingViewService extends Service implements FloatingViewListener
 
         Log.d(TAG, "悬浮窗Service已启动");
 
-        View floatView = LayoutInflater.from(this).inflate(R.layout.call_float_view, null, false);
-        Chronometer ch = (Chronometer) floatView.findViewById(R.id.call_time_ch);
-        ch.start();
-        floatView.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View v) {
-                Toast.makeText(FloatingViewService.this, "点击了悬浮窗", Toast.LENGTH_SHORT).show();
-            }
-        });
-
         DisplayMetrics dm = new DisplayMetrics();
         WindowManager windowManager = (WindowManager) getSystemService(Context.WINDOW_SERVICE);
         windowManager.getDefaultDisplay().getMetrics(dm);
 
         this.mFloatingViewManager = new FloatingViewManager(this, this);
+        this.mFloatingViewManager.setMetricsEnabled(BuildConfig.DEBUG);
+        this.mFloatingViewManager.setSystemInsetsTracking(true);
 
         FloatingViewManager.Configs configs = new FloatingViewManager.Configs();
         configs.floatingViewX = dm.widthPixels / 2;
         configs.floatingViewY = dm.heightPixels / 4;
         configs.overMargin = -(int) (8 * dm.density);
+        // 拖动时计时器不再重绘整个窗口
+        configs.contentSnapshot = true;
+        // 完全不可见时不再重绘（API 26以上硬件加速时不起作用）
+        configs.pauseContentWhenHidden = true;
+        // 完全不可见（隐藏或屏幕关闭）时停止计时器，从源头停止更新
+        configs.visibilityListener = new FloatingViewVisibilityListener() {
+            @Override
+            public void onVisibilityStateChanged(FloatingView floatingView, int state, float visibleFraction) {
+                Chronometer ch = (Chronometer) floatingView.findViewById(R.id.call_time_ch);
+                if (state == FloatingView.VISIBILITY_STATE_HIDDEN) {
+                    ch.stop();
+                }
+                else {
+                    ch.start();
+                }
+            }
+        };
 
-        this.mFloatingViewManager.addFloatingView(floatView, configs);
+        // 内容视图在后台线程创建，不阻塞Service的启动
+        this.mFloatingViewManager.addFloatingView(new FloatingViewContentFactory() {
+            @Override
+            public View onCreateContentView(LayoutInflater inflater) {
+                return inflater.inflate(R.layout.call_float_view, null, false);
+            }
+
+            @Override
+            public void onContentViewReady(int id, View contentView) {
+                Chronometer ch = (Chronometer) contentView.findViewById(R.id.call_time_ch);
+                ch.start();
+                contentView.setOnClickListener(new View.OnClickListener() {
+                    @Override
+                    public void onClick(View v) {
+                        Toast.makeText(FloatingViewService.this, "点击了悬浮窗", Toast.LENGTH_SHORT).show();
+                    }
+                });
+            }
+        }, configs);
 
         return START_REDELIVER_INTENT;
     }
@@ -73,6 +102,17 @@ public class FloatingViewService extends Service implements FloatingViewListener
         super.onDestroy();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (this.mFloatingViewManager != null) {
+            this.mFloatingViewManager.onTrimMemory(level);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -81,6 +121,19 @@ public class FloatingViewService extends Service implements FloatingViewListener
         return null;
     }
 
+    /**
+     * 输出悬浮窗的运行时统计：adb shell dumpsys activity service com.pzj.floatingview/.FloatingViewService
+     */
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        if (this.mFloatingViewManager != null) {
+            this.mFloatingViewManager.dump(writer);
+        }
+        else {
+            writer.println("FloatingViewManager: not started");
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,86 @@
+package com.pzj.floatingview.benchmark;
+
+import com.pzj.floatingview.core.CollisionGrid;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link CollisionGrid} 的基准测试：大量悬浮窗停靠在画面两端时，拖动结束后的重叠检测和挪开
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionGridBenchmark {
+
+    private static final int SCREEN_WIDTH = 1080;
+
+    private static final int SCREEN_HEIGHT = 1920;
+
+    private static final int VIEW_SIZE = 56;
+
+    private static final int SPACING = 8;
+
+    private static final int CELL_SIZE = 96;
+
+    private static final int BUBBLE_COUNT = 64;
+
+    private CollisionGrid mGrid;
+
+    private int mId;
+
+    private int mY;
+
+    @Setup
+    public void setUp() {
+        this.mGrid = new CollisionGrid(CELL_SIZE);
+        // 左右两端各一列，和停靠在画面端的悬浮窗相同
+        for (int id = 1; id <= BUBBLE_COUNT; id++) {
+            int x = id % 2 == 0 ? 0 : SCREEN_WIDTH - VIEW_SIZE;
+            int y = (id / 2) * (VIEW_SIZE + SPACING);
+            this.mGrid.set(id, x, y, VIEW_SIZE, VIEW_SIZE);
+        }
+        this.mId = 0;
+        this.mY = 0;
+    }
+
+    /**
+     * 每次调用换一个悬浮窗和停下的位置，避免结果被常量折叠
+     */
+    private int nextId() {
+        this.mId = this.mId % BUBBLE_COUNT + 1;
+        return this.mId;
+    }
+
+    private int nextY() {
+        this.mY = (this.mY + 53) % (SCREEN_HEIGHT - VIEW_SIZE);
+        return this.mY;
+    }
+
+    @Benchmark
+    public int set() {
+        int id = nextId();
+        CollisionGrid.Item item = this.mGrid.get(id);
+        this.mGrid.set(id, item.getX(), nextY(), VIEW_SIZE, VIEW_SIZE);
+        return item.getY();
+    }
+
+    @Benchmark
+    public int resolve() {
+        int id = nextId();
+        CollisionGrid.Item item = this.mGrid.get(id);
+        this.mGrid.set(id, item.getX(), nextY(), VIEW_SIZE, VIEW_SIZE);
+        return this.mGrid.resolve(id, 0, SCREEN_HEIGHT - VIEW_SIZE, SPACING).size();
+    }
+}
@@ -0,0 +1,153 @@
+package com.pzj.floatingview.benchmark;
+
+import com.pzj.floatingview.core.GestureTracker;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link GestureTracker} 的基准测试：单指拖动的移动事件、双指缩放的移动事件、抛出时的速度拟合
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GestureTrackerBenchmark {
+
+    /**
+     * 每个事件的时间间隔(ms)
+     */
+    private static final long EVENT_INTERVAL = 8;
+
+    /**
+     * 每个手势的移动事件数，之后重新按下，避免坐标无限增长
+     */
+    private static final int MOVES_PER_GESTURE = 100;
+
+    private GestureTracker mTracker;
+
+    private BlackholeListener mListener;
+
+    private long mTime;
+
+    private int mMoves;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        this.mListener = new BlackholeListener(blackhole);
+        this.mTracker = new GestureTracker(this.mListener, 16, 100, 8000);
+        this.mTracker.setPinchEnabled(true);
+        this.mTracker.setLongPressTimeout(500);
+        this.mTime = 0;
+        this.mMoves = MOVES_PER_GESTURE;
+    }
+
+    /**
+     * 到了手势的最后一个事件时重新按下
+     */
+    private void nextGesture(boolean pinch) {
+        if (this.mMoves < MOVES_PER_GESTURE) {
+            return;
+        }
+        this.mTracker.cancel();
+        this.mTracker.onDown(this.mTime, 0, 0, 0);
+        if (pinch) {
+            this.mTracker.onPointerDown(this.mTime, 1, 100, 0);
+        }
+        this.mMoves = 0;
+    }
+
+    @Benchmark
+    public void drag() {
+        nextGesture(false);
+        this.mTime += EVENT_INTERVAL;
+        this.mMoves++;
+        this.mTracker.addMovement(this.mTime, 0, this.mMoves * 3, this.mMoves * 2);
+        this.mTracker.onMove(this.mTime);
+    }
+
+    @Benchmark
+    public void pinch() {
+        nextGesture(true);
+        this.mTime += EVENT_INTERVAL;
+        this.mMoves++;
+        this.mTracker.addMovement(this.mTime, 0, -this.mMoves, 0);
+        this.mTracker.addMovement(this.mTime, 1, 100 + this.mMoves, this.mMoves);
+        this.mTracker.onMove(this.mTime);
+    }
+
+    @Benchmark
+    public void fling() {
+        long time = this.mTime;
+        this.mTracker.onDown(time, 0, 0, 0);
+        for (int i = 1; i <= 20; i++) {
+            this.mTracker.addMovement(time + i * EVENT_INTERVAL, 0, i * 20, i * 10);
+        }
+        this.mTracker.onMove(time + 20 * EVENT_INTERVAL);
+        this.mTracker.onUp(time + 21 * EVENT_INTERVAL, 0, 420, 210);
+        this.mTime = time + 1000;
+        this.mMoves = MOVES_PER_GESTURE;
+    }
+
+    /**
+     * 把回调的参数交给Blackhole，避免被优化掉
+     */
+    private static final class BlackholeListener implements GestureTracker.Listener {
+
+        private final Blackhole mBlackhole;
+
+        BlackholeListener(Blackhole blackhole) {
+            this.mBlackhole = blackhole;
+        }
+
+        @Override
+        public void onTap(float x, float y) {
+            this.mBlackhole.consume(x);
+        }
+
+        @Override
+        public void onLongPress(float x, float y) {
+            this.mBlackhole.consume(x);
+        }
+
+        @Override
+        public void onDragStart() {
+        }
+
+        @Override
+        public void onDrag(float x, float y) {
+            this.mBlackhole.consume(x);
+            this.mBlackhole.consume(y);
+        }
+
+        @Override
+        public void onDragEnd(float x, float y, float velocityX, float velocityY, boolean isFling) {
+            this.mBlackhole.consume(velocityX);
+            this.mBlackhole.consume(velocityY);
+        }
+
+        @Override
+        public void onPinchStart(float focusX, float focusY) {
+        }
+
+        @Override
+        public void onPinch(float scale, float focusX, float focusY) {
+            this.mBlackhole.consume(scale);
+        }
+
+        @Override
+        public void onPinchEnd(float scale) {
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.pzj.floatingview.benchmark;
+
+import com.pzj.floatingview.core.PositionEngine;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link PositionEngine} 的基准测试：画面端判定、界限限制、屏幕旋转时的位置换算
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PositionEngineBenchmark {
+
+    private static final int SCREEN_WIDTH = 1080;
+
+    private static final int SCREEN_HEIGHT = 1920;
+
+    private static final int VIEW_SIZE = 168;
+
+    private PositionEngine mEngine;
+
+    private int mX;
+
+    private int mY;
+
+    @Setup
+    public void setUp() {
+        this.mEngine = new PositionEngine();
+        this.mEngine.updateLimits(SCREEN_WIDTH, SCREEN_HEIGHT, VIEW_SIZE, VIEW_SIZE, -24, 72, 0, 0);
+        this.mX = 0;
+        this.mY = 0;
+    }
+
+    /**
+     * 每次调用换一个坐标，避免结果被常量折叠
+     */
+    private int nextX() {
+        this.mX = (this.mX + 37) % (SCREEN_WIDTH + 2 * VIEW_SIZE) - VIEW_SIZE;
+        return this.mX;
+    }
+
+    private int nextY() {
+        this.mY = (this.mY + 53) % (SCREEN_HEIGHT + 2 * VIEW_SIZE) - VIEW_SIZE;
+        return this.mY;
+    }
+
+    @Benchmark
+    public int snap() {
+        return this.mEngine.getEdgeGoalX(nextX(), PositionEngine.MOVE_DIRECTION_DEFAULT);
+    }
+
+    @Benchmark
+    public int clamp() {
+        return this.mEngine.clampX(nextX()) + this.mEngine.clampY(nextY());
+    }
+
+    @Benchmark
+    public int rotate() {
+        int oldWidth = this.mEngine.getPositionLimit().width();
+        int oldHeight = this.mEngine.getPositionLimit().height();
+        int x = nextX();
+        int y = nextY();
+        // 竖屏和横屏交替
+        if (oldWidth < oldHeight) {
+            this.mEngine.updateLimits(SCREEN_HEIGHT, SCREEN_WIDTH, VIEW_SIZE, VIEW_SIZE, -24, 72, 0, 0);
+        }
+        else {
+            this.mEngine.updateLimits(SCREEN_WIDTH, SCREEN_HEIGHT, VIEW_SIZE, VIEW_SIZE, -24, 72, 0, 0);
+        }
+        return this.mEngine.repositionX(x, PositionEngine.MOVE_DIRECTION_NONE, oldWidth) + this.mEngine.repositionY(y, oldHeight);
+    }
+}
@@ -0,0 +1,378 @@
+package com.pzj.floatingview.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 悬浮窗位置的空间哈希，用于避免悬浮窗互相重叠
+ * <p>
+ * 悬浮窗停止移动后调用 {@link #resolve(int, int, int, int)}：停下的悬浮窗保持位置，
+ * 与它重叠的悬浮窗沿各自所在的边缘（x不变）挪到最近的空位，已经挪开的悬浮窗不会再引起其他悬浮窗移动。
+ * 每次只检查重叠的悬浮窗和它们附近的格子，悬浮窗很多时也只有位置变化的悬浮窗需要更新。
+ * 悬浮窗和格子都保存在按key排序的基本类型数组中（与 android.util.SparseArray 相同），查找时不装箱；
+ * 空的格子保留下来重复使用，预热后 {@link #set(int, int, int, int, int)} 和 {@link #resolve(int, int, int, int)} 不分配内存。
+ * 只能在主线程使用。
+ */
+public final class CollisionGrid {
+
+    /**
+     * 悬浮窗的位置和大小
+     */
+    public static final class Item {
+
+        public final int id;
+
+        int x, y, width, height;
+
+        Item(int id) {
+            this.id = id;
+        }
+
+        public int getX() {
+            return this.x;
+        }
+
+        public int getY() {
+            return this.y;
+        }
+
+        public int getWidth() {
+            return this.width;
+        }
+
+        public int getHeight() {
+            return this.height;
+        }
+
+        boolean intersects(int x, int y, int width, int height, int spacing) {
+            return x < this.x + this.width + spacing && this.x < x + width + spacing && y < this.y + this.height + spacing && this.y < y + height + spacing;
+        }
+    }
+
+    /**
+     * 格子的边长
+     */
+    private final int mCellSize;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * 所有悬浮窗的ID（升序）
+     */
+    private int[] mItemIds;
+
+    /**
+     * 与 {@link #mItemIds} 对应的悬浮窗
+     */
+    private Item[] mItems;
+
+    /**
+     * 悬浮窗的数量
+     */
+    private int mItemCount;
+
+    /**
+     * 格子坐标（升序）
+     */
+    private long[] mCellKeys;
+
+    /**
+     * 与 {@link #mCellKeys} 对应的格子中的悬浮窗
+     */
+    private ArrayList<Item>[] mCells;
+
+    /**
+     * 格子的数量（包括空的格子）
+     */
+    private int mCellCount;
+
+    /**
+     * 查询用的临时列表
+     */
+    private final ArrayList<Item> mQueryResult;
+
+    /**
+     * 与停下的悬浮窗重叠的悬浮窗（{@link #resolve(int, int, int, int)} 中重复使用）
+     */
+    private final ArrayList<Item> mOverlapped;
+
+    /**
+     * {@link #resolve(int, int, int, int)} 的返回值（重复使用）
+     */
+    private final ArrayList<Item> mMoved;
+
+    /**
+     * 构造方法
+     *
+     * @param cellSize 格子的边长，通常为悬浮窗的大小
+     */
+    public CollisionGrid(int cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("cellSize must be positive: " + cellSize);
+        }
+        this.mCellSize = cellSize;
+        this.mItemIds = new int[INITIAL_CAPACITY];
+        this.mItems = new Item[INITIAL_CAPACITY];
+        this.mCellKeys = new long[INITIAL_CAPACITY];
+        this.mCells = newCells(INITIAL_CAPACITY);
+        this.mQueryResult = new ArrayList<>();
+        this.mOverlapped = new ArrayList<>();
+        this.mMoved = new ArrayList<>();
+    }
+
+    /**
+     * 添加悬浮窗或更新位置和大小
+     *
+     * @param id
+     * @param x
+     * @param y
+     * @param width
+     * @param height
+     */
+    public void set(int id, int x, int y, int width, int height) {
+        int index = Arrays.binarySearch(this.mItemIds, 0, this.mItemCount, id);
+        Item item;
+        if (index < 0) {
+            item = new Item(id);
+            insertItem(~index, item);
+        }
+        else {
+            item = this.mItems[index];
+            if (item.x == x && item.y == y && item.width == width && item.height == height) {
+                return;
+            }
+            unlink(item);
+        }
+        item.x = x;
+        item.y = y;
+        item.width = width;
+        item.height = height;
+        link(item);
+    }
+
+    /**
+     * 移除悬浮窗
+     *
+     * @param id
+     */
+    public void remove(int id) {
+        int index = Arrays.binarySearch(this.mItemIds, 0, this.mItemCount, id);
+        if (index < 0) {
+            return;
+        }
+        Item item = this.mItems[index];
+        int count = --this.mItemCount;
+        System.arraycopy(this.mItemIds, index + 1, this.mItemIds, index, count - index);
+        System.arraycopy(this.mItems, index + 1, this.mItems, index, count - index);
+        this.mItems[count] = null;
+        unlink(item);
+    }
+
+    /**
+     * 移除所有悬浮窗
+     */
+    public void clear() {
+        Arrays.fill(this.mItems, 0, this.mItemCount, null);
+        this.mItemCount = 0;
+        Arrays.fill(this.mCells, 0, this.mCellCount, null);
+        this.mCellCount = 0;
+    }
+
+    /**
+     * 获取悬浮窗
+     *
+     * @param id
+     *
+     * @return 不存在时返回null
+     */
+    public Item get(int id) {
+        int index = Arrays.binarySearch(this.mItemIds, 0, this.mItemCount, id);
+        return index >= 0 ? this.mItems[index] : null;
+    }
+
+    /**
+     * 悬浮窗的数量
+     *
+     * @return
+     */
+    public int size() {
+        return this.mItemCount;
+    }
+
+    /**
+     * 让停下的悬浮窗保持位置，把与它重叠的悬浮窗沿y方向挪到最近的空位
+     *
+     * @param id      停下的悬浮窗ID（需要先调用 {@link #set(int, int, int, int, int)}）
+     * @param minY    y坐标的下限
+     * @param maxY    y坐标的上限
+     * @param spacing 悬浮窗之间的最小间距
+     *
+     * @return 位置发生了变化的悬浮窗（新的位置已经更新到索引中），找不到空位的悬浮窗保持原位；
+     * 列表在下次调用之前有效
+     */
+    public List<Item> resolve(int id, int minY, int maxY, int spacing) {
+        ArrayList<Item> moved = this.mMoved;
+        moved.clear();
+        Item settled = get(id);
+        if (settled == null) {
+            return moved;
+        }
+        query(settled.x, settled.y, settled.width, settled.height, spacing, id, this.mQueryResult);
+        if (this.mQueryResult.isEmpty()) {
+            return moved;
+        }
+        // 查找空位时会重复使用mQueryResult，先复制出来
+        ArrayList<Item> overlapped = this.mOverlapped;
+        overlapped.clear();
+        for (int i = 0, size = this.mQueryResult.size(); i < size; i++) {
+            overlapped.add(this.mQueryResult.get(i));
+        }
+        for (int i = 0, size = overlapped.size(); i < size; i++) {
+            Item item = overlapped.get(i);
+            int y = findFreeY(item, settled, minY, maxY, spacing);
+            if (y != item.y) {
+                set(item.id, item.x, y, item.width, item.height);
+                moved.add(item);
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * 从停下的悬浮窗的上方和下方分别查找空位，取离原位置近的一个
+     */
+    private int findFreeY(Item item, Item settled, int minY, int maxY, int spacing) {
+        int step = item.height + spacing;
+        int upY = Integer.MIN_VALUE;
+        for (int y = settled.y - step; y >= minY; y -= step) {
+            if (isFree(item.x, y, item.width, item.height, spacing, item.id)) {
+                upY = y;
+                break;
+            }
+        }
+        int downY = Integer.MIN_VALUE;
+        for (int y = settled.y + settled.height + spacing; y <= maxY; y += step) {
+            if (isFree(item.x, y, item.width, item.height, spacing, item.id)) {
+                downY = y;
+                break;
+            }
+        }
+        if (upY == Integer.MIN_VALUE && downY == Integer.MIN_VALUE) {
+            return item.y;
+        }
+        if (upY == Integer.MIN_VALUE) {
+            return downY;
+        }
+        if (downY == Integer.MIN_VALUE) {
+            return upY;
+        }
+        return Math.abs(upY - item.y) <= Math.abs(downY - item.y) ? upY : downY;
+    }
+
+    /**
+     * 指定的区域是否没有其他悬浮窗
+     *
+     * @param x
+     * @param y
+     * @param width
+     * @param height
+     * @param spacing  最小间距
+     * @param ignoreId 不检查的悬浮窗ID
+     *
+     * @return
+     */
+    public boolean isFree(int x, int y, int width, int height, int spacing, int ignoreId) {
+        query(x, y, width, height, spacing, ignoreId, this.mQueryResult);
+        return this.mQueryResult.isEmpty();
+    }
+
+    private void query(int x, int y, int width, int height, int spacing, int ignoreId, ArrayList<Item> result) {
+        result.clear();
+        int firstColumn = cell(x - spacing);
+        int lastColumn = cell(x + width + spacing);
+        int firstRow = cell(y - spacing);
+        int lastRow = cell(y + height + spacing);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int index = Arrays.binarySearch(this.mCellKeys, 0, this.mCellCount, key(column, row));
+                if (index < 0) {
+                    continue;
+                }
+                ArrayList<Item> items = this.mCells[index];
+                for (int i = 0, size = items.size(); i < size; i++) {
+                    Item item = items.get(i);
+                    if (item.id != ignoreId && !result.contains(item) && item.intersects(x, y, width, height, spacing)) {
+                        result.add(item);
+                    }
+                }
+            }
+        }
+    }
+
+    private void link(Item item) {
+        for (int row = cell(item.y), lastRow = cell(item.y + item.height); row <= lastRow; row++) {
+            for (int column = cell(item.x), lastColumn = cell(item.x + item.width); column <= lastColumn; column++) {
+                long key = key(column, row);
+                int index = Arrays.binarySearch(this.mCellKeys, 0, this.mCellCount, key);
+                if (index < 0) {
+                    index = ~index;
+                    insertCell(index, key);
+                }
+                this.mCells[index].add(item);
+            }
+        }
+    }
+
+    private void unlink(Item item) {
+        for (int row = cell(item.y), lastRow = cell(item.y + item.height); row <= lastRow; row++) {
+            for (int column = cell(item.x), lastColumn = cell(item.x + item.width); column <= lastColumn; column++) {
+                int index = Arrays.binarySearch(this.mCellKeys, 0, this.mCellCount, key(column, row));
+                if (index >= 0) {
+                    // 空的格子保留，悬浮窗移回来时不需要再创建
+                    this.mCells[index].remove(item);
+                }
+            }
+        }
+    }
+
+    private void insertItem(int index, Item item) {
+        int count = this.mItemCount;
+        if (count == this.mItemIds.length) {
+            this.mItemIds = Arrays.copyOf(this.mItemIds, count * 2);
+            this.mItems = Arrays.copyOf(this.mItems, count * 2);
+        }
+        System.arraycopy(this.mItemIds, index, this.mItemIds, index + 1, count - index);
+        System.arraycopy(this.mItems, index, this.mItems, index + 1, count - index);
+        this.mItemIds[index] = item.id;
+        this.mItems[index] = item;
+        this.mItemCount = count + 1;
+    }
+
+    private void insertCell(int index, long key) {
+        int count = this.mCellCount;
+        if (count == this.mCellKeys.length) {
+            this.mCellKeys = Arrays.copyOf(this.mCellKeys, count * 2);
+            this.mCells = Arrays.copyOf(this.mCells, count * 2);
+        }
+        System.arraycopy(this.mCellKeys, index, this.mCellKeys, index + 1, count - index);
+        System.arraycopy(this.mCells, index, this.mCells, index + 1, count - index);
+        this.mCellKeys[index] = key;
+        this.mCells[index] = new ArrayList<>(2);
+        this.mCellCount = count + 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArrayList<Item>[] newCells(int capacity) {
+        return new ArrayList[capacity];
+    }
+
+    private int cell(int coordinate) {
+        // 向下取整，负坐标也落在正确的格子
+        return (int) Math.floor((double) coordinate / this.mCellSize);
+    }
+
+    private static long key(int column, int row) {
+        return ((long) column << 32) | (row & 0xffffffffL);
+    }
+}
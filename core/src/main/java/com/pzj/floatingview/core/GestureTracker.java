@@ -0,0 +1,630 @@
+package com.pzj.floatingview.core;
+
+/**
+ * 悬浮窗的手势状态机：点击、长按、拖动、抛出和双指缩放
+ * <p>
+ * 输入是按动作拆分后的触摸事件（按下、其他手指按下、移动采样、抬起、取消），坐标为屏幕坐标，不依赖Android，可以直接在JVM上运行。
+ * 最多追踪两根手指，更多的手指被忽略。拖动点单指时跟随主手指，双指缩放时跟随两指的中点；
+ * 参考的手指变化时（第二根手指按下、主手指抬起）调整偏移量，拖动点不会跳变。
+ * 抬起时用拖动点最近的采样拟合速度，超过最小速度时视为抛出。
+ * 长按没有自己的计时器，由调用方在超时后调用 {@link #checkLongPress(long)}，移动事件也会检查。
+ * 处理事件时不分配内存，只能在主线程使用。
+ */
+public final class GestureTracker {
+
+    /**
+     * 没有手指按下
+     */
+    public static final int STATE_IDLE = 0;
+
+    /**
+     * 已按下，还没有超出移动的阈值
+     */
+    public static final int STATE_PRESSED = 1;
+
+    /**
+     * 已触发长按，超出移动的阈值后仍然可以拖动，抬起时不再触发点击
+     */
+    public static final int STATE_LONG_PRESSED = 2;
+
+    /**
+     * 拖动中
+     */
+    public static final int STATE_DRAGGING = 3;
+
+    /**
+     * 双指缩放中（同时拖动）
+     */
+    public static final int STATE_PINCHING = 4;
+
+    /**
+     * 手势的回调，坐标都是屏幕坐标
+     */
+    public interface Listener {
+
+        /**
+         * 点击（没有超出移动的阈值，也没有触发长按）
+         *
+         * @param x 抬起时的x坐标
+         * @param y 抬起时的y坐标
+         */
+        void onTap(float x, float y);
+
+        /**
+         * 长按
+         *
+         * @param x 按下时的x坐标
+         * @param y 按下时的y坐标
+         */
+        void onLongPress(float x, float y);
+
+        /**
+         * 开始拖动（超出移动的阈值，或者开始双指缩放）
+         */
+        void onDragStart();
+
+        /**
+         * 拖动，每个移动事件最多回调一次
+         *
+         * @param x 拖动点的x坐标
+         * @param y 拖动点的y坐标
+         */
+        void onDrag(float x, float y);
+
+        /**
+         * 结束拖动（抬起或取消）
+         *
+         * @param x         拖动点的x坐标
+         * @param y         拖动点的y坐标
+         * @param velocityX x方向的速度(px/s)，取消时为0
+         * @param velocityY y方向的速度(px/s)，取消时为0
+         * @param isFling   速度是否超过了最小的抛出速度
+         */
+        void onDragEnd(float x, float y, float velocityX, float velocityY, boolean isFling);
+
+        /**
+         * 开始双指缩放
+         *
+         * @param focusX 两指中点的x坐标
+         * @param focusY 两指中点的y坐标
+         */
+        void onPinchStart(float focusX, float focusY);
+
+        /**
+         * 双指缩放，比例变化时回调
+         *
+         * @param scale  两指距离相对开始时的比例
+         * @param focusX 两指中点的x坐标
+         * @param focusY 两指中点的y坐标
+         */
+        void onPinch(float scale, float focusX, float focusY);
+
+        /**
+         * 结束双指缩放（任意一根手指抬起，剩下的手指继续拖动）
+         *
+         * @param scale 最终的比例
+         */
+        void onPinchEnd(float scale);
+    }
+
+    /**
+     * 最多追踪的手指数
+     */
+    private static final int MAX_POINTERS = 2;
+
+    /**
+     * 最多保留的速度采样数
+     */
+    private static final int MAX_SAMPLES = 20;
+
+    /**
+     * 计算速度使用的最近一段时间(ms)
+     */
+    private static final long VELOCITY_WINDOW_MILLIS = 100;
+
+    /**
+     * 最后一个采样到抬起的最大间隔(ms)，超过时认为手指已经停下，速度为0
+     */
+    private static final long ASSUME_STOPPED_MILLIS = 40;
+
+    private final Listener mListener;
+
+    /**
+     * 移动的阈值(px)
+     */
+    private final float mTouchSlop;
+
+    /**
+     * 最小的抛出速度和最大速度(px/s)
+     */
+    private final float mMinFlingVelocity, mMaxFlingVelocity;
+
+    /**
+     * 长按的超时时间(ms)，0表示不检测长按
+     */
+    private long mLongPressTimeout;
+
+    /**
+     * 是否允许双指缩放，不允许时第二根手指只在主手指抬起后接替拖动
+     */
+    private boolean mIsPinchEnabled;
+
+    private int mState = STATE_IDLE;
+
+    /**
+     * 追踪的手指，下标0是主手指
+     */
+    private final int[] mPointerIds;
+
+    private final float[] mPointerX, mPointerY;
+
+    private int mPointerCount;
+
+    /**
+     * 按下的时间和位置
+     */
+    private long mDownTime;
+
+    private float mDownX, mDownY;
+
+    /**
+     * 是否有采样超出了移动的阈值
+     */
+    private boolean mIsBeyondSlop;
+
+    /**
+     * 拖动点相对参考点（主手指或者两指中点）的偏移
+     */
+    private float mOffsetX, mOffsetY;
+
+    /**
+     * 拖动点
+     */
+    private float mDragX, mDragY;
+
+    /**
+     * 开始缩放时的两指距离和当前的比例
+     */
+    private float mStartSpan, mScale = 1f;
+
+    /**
+     * 拖动点的采样（环形缓冲）
+     */
+    private final long[] mSampleTimes;
+
+    private final float[] mSampleX, mSampleY;
+
+    private int mSampleHead, mSampleCount;
+
+    /**
+     * 拟合用的临时数组和结果
+     */
+    private final float[] mFitT, mFitX, mFitY, mCoefficients;
+
+    /**
+     * 最近一次计算的速度(px/s)
+     */
+    private float mVelocityX, mVelocityY;
+
+    /**
+     * 构造方法
+     *
+     * @param listener         手势的回调
+     * @param touchSlop        移动的阈值(px)
+     * @param minFlingVelocity 最小的抛出速度(px/s)
+     * @param maxFlingVelocity 最大速度(px/s)，每个方向分别限制
+     */
+    public GestureTracker(Listener listener, float touchSlop, float minFlingVelocity, float maxFlingVelocity) {
+        this.mListener = listener;
+        this.mTouchSlop = touchSlop;
+        this.mMinFlingVelocity = minFlingVelocity;
+        this.mMaxFlingVelocity = maxFlingVelocity;
+        this.mPointerIds = new int[MAX_POINTERS];
+        this.mPointerX = new float[MAX_POINTERS];
+        this.mPointerY = new float[MAX_POINTERS];
+        this.mSampleTimes = new long[MAX_SAMPLES];
+        this.mSampleX = new float[MAX_SAMPLES];
+        this.mSampleY = new float[MAX_SAMPLES];
+        this.mFitT = new float[MAX_SAMPLES];
+        this.mFitX = new float[MAX_SAMPLES];
+        this.mFitY = new float[MAX_SAMPLES];
+        this.mCoefficients = new float[3];
+    }
+
+    /**
+     * 设置长按的超时时间，对下一次按下生效
+     *
+     * @param timeoutMillis 超时时间(ms)，0表示不检测长按
+     */
+    public void setLongPressTimeout(long timeoutMillis) {
+        this.mLongPressTimeout = Math.max(0, timeoutMillis);
+    }
+
+    /**
+     * 设置是否允许双指缩放
+     *
+     * @param pinchEnabled
+     */
+    public void setPinchEnabled(boolean pinchEnabled) {
+        this.mIsPinchEnabled = pinchEnabled;
+    }
+
+    public int getState() {
+        return this.mState;
+    }
+
+    /**
+     * 是否正在拖动（包括双指缩放）
+     *
+     * @return
+     */
+    public boolean isDragging() {
+        return this.mState == STATE_DRAGGING || this.mState == STATE_PINCHING;
+    }
+
+    public float getDragX() {
+        return this.mDragX;
+    }
+
+    public float getDragY() {
+        return this.mDragY;
+    }
+
+    /**
+     * 获取最近一次抬起时计算的速度(px/s)
+     *
+     * @return
+     */
+    public float getVelocityX() {
+        return this.mVelocityX;
+    }
+
+    public float getVelocityY() {
+        return this.mVelocityY;
+    }
+
+    /**
+     * 第一根手指按下，未结束的手势先取消
+     *
+     * @param timeMillis 事件时间(ms)
+     * @param pointerId  手指的ID
+     * @param x          x坐标
+     * @param y          y坐标
+     */
+    public void onDown(long timeMillis, int pointerId, float x, float y) {
+        if (this.mState != STATE_IDLE) {
+            cancel();
+        }
+        this.mPointerIds[0] = pointerId;
+        this.mPointerX[0] = x;
+        this.mPointerY[0] = y;
+        this.mPointerCount = 1;
+        this.mState = STATE_PRESSED;
+        this.mDownTime = timeMillis;
+        this.mDownX = x;
+        this.mDownY = y;
+        this.mIsBeyondSlop = false;
+        this.mOffsetX = 0;
+        this.mOffsetY = 0;
+        this.mDragX = x;
+        this.mDragY = y;
+        this.mScale = 1f;
+        this.mVelocityX = 0;
+        this.mVelocityY = 0;
+        this.mSampleCount = 0;
+        addSample(timeMillis, x, y);
+    }
+
+    /**
+     * 其他手指按下，允许双指缩放时开始缩放
+     *
+     * @param timeMillis 事件时间(ms)
+     * @param pointerId  手指的ID
+     * @param x          x坐标
+     * @param y          y坐标
+     */
+    public void onPointerDown(long timeMillis, int pointerId, float x, float y) {
+        if (this.mState == STATE_IDLE || this.mPointerCount >= MAX_POINTERS || indexOf(pointerId) >= 0) {
+            return;
+        }
+        this.mPointerIds[1] = pointerId;
+        this.mPointerX[1] = x;
+        this.mPointerY[1] = y;
+        this.mPointerCount = 2;
+        if (!this.mIsPinchEnabled) {
+            return;
+        }
+        if (this.mState != STATE_DRAGGING) {
+            this.mState = STATE_DRAGGING;
+            this.mListener.onDragStart();
+        }
+        this.mState = STATE_PINCHING;
+        this.mStartSpan = getSpan();
+        this.mScale = 1f;
+        anchor();
+        this.mListener.onPinchStart(getFocusX(), getFocusY());
+    }
+
+    /**
+     * 添加一根手指的移动采样（包括批量送达的历史采样），之后调用 {@link #onMove(long)} 处理
+     *
+     * @param timeMillis 采样时间(ms)，必须按顺序
+     * @param pointerId  手指的ID，没有追踪的手指被忽略
+     * @param x          x坐标
+     * @param y          y坐标
+     */
+    public void addMovement(long timeMillis, int pointerId, float x, float y) {
+        if (this.mState == STATE_IDLE) {
+            return;
+        }
+        int index = indexOf(pointerId);
+        if (index < 0) {
+            return;
+        }
+        this.mPointerX[index] = x;
+        this.mPointerY[index] = y;
+        this.mDragX = getReferenceX() + this.mOffsetX;
+        this.mDragY = getReferenceY() + this.mOffsetY;
+        if (!this.mIsBeyondSlop && (Math.abs(this.mDragX - this.mDownX) >= this.mTouchSlop || Math.abs(this.mDragY - this.mDownY) >= this.mTouchSlop)) {
+            this.mIsBeyondSlop = true;
+        }
+        addSample(timeMillis, this.mDragX, this.mDragY);
+    }
+
+    /**
+     * 处理一个移动事件的所有采样
+     *
+     * @param timeMillis 事件时间(ms)
+     */
+    public void onMove(long timeMillis) {
+        if (this.mState == STATE_PRESSED) {
+            checkLongPress(timeMillis);
+        }
+        if (this.mState == STATE_PRESSED || this.mState == STATE_LONG_PRESSED) {
+            if (!this.mIsBeyondSlop) {
+                return;
+            }
+            this.mState = STATE_DRAGGING;
+            this.mListener.onDragStart();
+        }
+        if (this.mState == STATE_PINCHING) {
+            float scale = this.mStartSpan > 0 ? getSpan() / this.mStartSpan : 1f;
+            if (scale != this.mScale) {
+                this.mScale = scale;
+                this.mListener.onPinch(scale, getFocusX(), getFocusY());
+            }
+        }
+        if (this.mState == STATE_DRAGGING || this.mState == STATE_PINCHING) {
+            this.mListener.onDrag(this.mDragX, this.mDragY);
+        }
+    }
+
+    /**
+     * 检查是否到了长按的时间
+     *
+     * @param timeMillis 当前时间(ms)
+     *
+     * @return 触发了长按时返回true
+     */
+    public boolean checkLongPress(long timeMillis) {
+        if (this.mState != STATE_PRESSED || this.mLongPressTimeout <= 0 || this.mIsBeyondSlop || timeMillis - this.mDownTime < this.mLongPressTimeout) {
+            return false;
+        }
+        this.mState = STATE_LONG_PRESSED;
+        this.mListener.onLongPress(this.mDownX, this.mDownY);
+        return true;
+    }
+
+    /**
+     * 其他手指抬起，缩放中时结束缩放，剩下的手指继续拖动
+     *
+     * @param timeMillis 事件时间(ms)
+     * @param pointerId  手指的ID
+     */
+    public void onPointerUp(long timeMillis, int pointerId) {
+        int index = indexOf(pointerId);
+        if (this.mState == STATE_IDLE || index < 0) {
+            return;
+        }
+        if (index == 0 && this.mPointerCount > 1) {
+            this.mPointerIds[0] = this.mPointerIds[1];
+            this.mPointerX[0] = this.mPointerX[1];
+            this.mPointerY[0] = this.mPointerY[1];
+        }
+        this.mPointerCount--;
+        if (this.mPointerCount == 0) {
+            // 追踪的手指都已抬起，忽略剩下的手指
+            finish(timeMillis);
+            return;
+        }
+        if (this.mState == STATE_PINCHING) {
+            this.mState = STATE_DRAGGING;
+            this.mListener.onPinchEnd(this.mScale);
+        }
+        anchor();
+    }
+
+    /**
+     * 最后一根手指抬起
+     *
+     * @param timeMillis 事件时间(ms)
+     * @param pointerId  手指的ID
+     * @param x          x坐标
+     * @param y          y坐标
+     */
+    public void onUp(long timeMillis, int pointerId, float x, float y) {
+        if (this.mState == STATE_IDLE) {
+            return;
+        }
+        addMovement(timeMillis, pointerId, x, y);
+        finish(timeMillis);
+    }
+
+    /**
+     * 取消手势，拖动中时以速度0结束拖动，不会触发点击
+     */
+    public void cancel() {
+        int state = this.mState;
+        this.mState = STATE_IDLE;
+        this.mPointerCount = 0;
+        this.mVelocityX = 0;
+        this.mVelocityY = 0;
+        if (state == STATE_PINCHING) {
+            this.mListener.onPinchEnd(this.mScale);
+        }
+        if (state == STATE_DRAGGING || state == STATE_PINCHING) {
+            this.mListener.onDragEnd(this.mDragX, this.mDragY, 0, 0, false);
+        }
+    }
+
+    /**
+     * 直接回到没有手指按下的状态，不回调
+     */
+    public void reset() {
+        this.mState = STATE_IDLE;
+        this.mPointerCount = 0;
+        this.mSampleCount = 0;
+    }
+
+    /**
+     * 结束手势
+     *
+     * @param timeMillis 抬起的时间(ms)
+     */
+    private void finish(long timeMillis) {
+        int state = this.mState;
+        this.mState = STATE_IDLE;
+        this.mPointerCount = 0;
+        if ((state == STATE_PRESSED || state == STATE_LONG_PRESSED) && this.mIsBeyondSlop) {
+            // 超出阈值的采样和抬起在同一个事件中
+            this.mListener.onDragStart();
+            this.mListener.onDrag(this.mDragX, this.mDragY);
+            state = STATE_DRAGGING;
+        }
+        if (state == STATE_PRESSED) {
+            this.mListener.onTap(this.mDragX, this.mDragY);
+        }
+        else if (state == STATE_DRAGGING || state == STATE_PINCHING) {
+            if (state == STATE_PINCHING) {
+                this.mListener.onPinchEnd(this.mScale);
+            }
+            computeVelocity(timeMillis);
+            boolean isFling = this.mVelocityX * this.mVelocityX + this.mVelocityY * this.mVelocityY >= this.mMinFlingVelocity * this.mMinFlingVelocity;
+            this.mListener.onDragEnd(this.mDragX, this.mDragY, this.mVelocityX, this.mVelocityY, isFling);
+        }
+    }
+
+    /**
+     * 参考点变化后重新计算偏移，保持拖动点不变
+     */
+    private void anchor() {
+        this.mOffsetX = this.mDragX - getReferenceX();
+        this.mOffsetY = this.mDragY - getReferenceY();
+    }
+
+    private float getReferenceX() {
+        return this.mState == STATE_PINCHING ? getFocusX() : this.mPointerX[0];
+    }
+
+    private float getReferenceY() {
+        return this.mState == STATE_PINCHING ? getFocusY() : this.mPointerY[0];
+    }
+
+    private float getFocusX() {
+        return (this.mPointerX[0] + this.mPointerX[1]) * 0.5f;
+    }
+
+    private float getFocusY() {
+        return (this.mPointerY[0] + this.mPointerY[1]) * 0.5f;
+    }
+
+    private float getSpan() {
+        float dx = this.mPointerX[0] - this.mPointerX[1];
+        float dy = this.mPointerY[0] - this.mPointerY[1];
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private int indexOf(int pointerId) {
+        for (int i = 0; i < this.mPointerCount; i++) {
+            if (this.mPointerIds[i] == pointerId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 添加拖动点的采样，与最新采样同一时间时替换它
+     */
+    private void addSample(long timeMillis, float x, float y) {
+        if (this.mSampleCount > 0) {
+            long lastTime = this.mSampleTimes[this.mSampleHead];
+            if (timeMillis < lastTime) {
+                return;
+            }
+            if (timeMillis > lastTime) {
+                this.mSampleHead = (this.mSampleHead + 1) % MAX_SAMPLES;
+                if (this.mSampleCount < MAX_SAMPLES) {
+                    this.mSampleCount++;
+                }
+            }
+        }
+        else {
+            this.mSampleCount = 1;
+        }
+        this.mSampleTimes[this.mSampleHead] = timeMillis;
+        this.mSampleX[this.mSampleHead] = x;
+        this.mSampleY[this.mSampleHead] = y;
+    }
+
+    /**
+     * 用最近的采样拟合抬起时的速度，采样不足时用首尾两点的平均速度
+     *
+     * @param timeMillis 抬起的时间(ms)
+     */
+    private void computeVelocity(long timeMillis) {
+        this.mVelocityX = 0;
+        this.mVelocityY = 0;
+        if (this.mSampleCount < 2) {
+            return;
+        }
+        long lastTime = this.mSampleTimes[this.mSampleHead];
+        if (timeMillis - lastTime > ASSUME_STOPPED_MILLIS) {
+            return;
+        }
+        int count = 0;
+        for (int i = 0; i < this.mSampleCount; i++) {
+            int index = (this.mSampleHead - i + MAX_SAMPLES) % MAX_SAMPLES;
+            long time = this.mSampleTimes[index];
+            if (lastTime - time > VELOCITY_WINDOW_MILLIS) {
+                break;
+            }
+            this.mFitT[count] = time - lastTime;
+            this.mFitX[count] = this.mSampleX[index];
+            this.mFitY[count] = this.mSampleY[index];
+            count++;
+        }
+        float span = -this.mFitT[count - 1];
+        if (count < 2 || span <= 0) {
+            return;
+        }
+        float[] c = this.mCoefficients;
+        float velocityX, velocityY;
+        if (count >= 3 && LeastSquares.fitQuadratic(this.mFitT, this.mFitX, count, c)) {
+            velocityX = c[1];
+            LeastSquares.fitQuadratic(this.mFitT, this.mFitY, count, c);
+            velocityY = c[1];
+        }
+        else {
+            velocityX = (this.mFitX[0] - this.mFitX[count - 1]) / span;
+            velocityY = (this.mFitY[0] - this.mFitY[count - 1]) / span;
+        }
+        // px/ms换算为px/s
+        this.mVelocityX = clampVelocity(velocityX * 1000f);
+        this.mVelocityY = clampVelocity(velocityY * 1000f);
+    }
+
+    private float clampVelocity(float velocity) {
+        return Math.max(-this.mMaxFlingVelocity, Math.min(velocity, this.mMaxFlingVelocity));
+    }
+}
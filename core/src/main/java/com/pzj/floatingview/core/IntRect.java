@@ -0,0 +1,68 @@
+package com.pzj.floatingview.core;
+
+/**
+ * 整数坐标的矩形（不依赖 android.graphics.Rect，可以在JVM上运行）
+ */
+public final class IntRect {
+
+    public int left;
+
+    public int top;
+
+    public int right;
+
+    public int bottom;
+
+    public IntRect() {
+    }
+
+    public IntRect(int left, int top, int right, int bottom) {
+        set(left, top, right, bottom);
+    }
+
+    public void set(int left, int top, int right, int bottom) {
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    public int width() {
+        return this.right - this.left;
+    }
+
+    public int height() {
+        return this.bottom - this.top;
+    }
+
+    public boolean isEmpty() {
+        return this.left >= this.right || this.top >= this.bottom;
+    }
+
+    /**
+     * 把x坐标限制在左右边界之间
+     *
+     * @param x
+     *
+     * @return
+     */
+    public int clampX(int x) {
+        return Math.min(Math.max(this.left, x), this.right);
+    }
+
+    /**
+     * 把y坐标限制在上下边界之间
+     *
+     * @param y
+     *
+     * @return
+     */
+    public int clampY(int y) {
+        return Math.min(Math.max(this.top, y), this.bottom);
+    }
+
+    @Override
+    public String toString() {
+        return "IntRect(" + this.left + ", " + this.top + ", " + this.right + ", " + this.bottom + ")";
+    }
+}
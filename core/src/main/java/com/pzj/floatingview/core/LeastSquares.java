@@ -0,0 +1,55 @@
+package com.pzj.floatingview.core;
+
+/**
+ * 触摸采样的最小二乘拟合，{@link TouchPredictor} 和 {@link GestureTracker} 共用
+ */
+final class LeastSquares {
+
+    private LeastSquares() {
+    }
+
+    /**
+     * 最小二乘拟合 p = c0 + c1 * t + c2 * t²
+     *
+     * @return 无法求解时返回false
+     */
+    static boolean fitQuadratic(float[] t, float[] p, int count, float[] out) {
+        double s0 = count, s1 = 0, s2 = 0, s3 = 0, s4 = 0;
+        double p0 = 0, p1 = 0, p2 = 0;
+        for (int i = 0; i < count; i++) {
+            double ti = t[i];
+            double ti2 = ti * ti;
+            s1 += ti;
+            s2 += ti2;
+            s3 += ti2 * ti;
+            s4 += ti2 * ti2;
+            p0 += p[i];
+            p1 += p[i] * ti;
+            p2 += p[i] * ti2;
+        }
+        // 克莱姆法则求解3x3的正规方程
+        double det = s0 * (s2 * s4 - s3 * s3) - s1 * (s1 * s4 - s3 * s2) + s2 * (s1 * s3 - s2 * s2);
+        if (Math.abs(det) < 1e-9) {
+            return false;
+        }
+        double d0 = p0 * (s2 * s4 - s3 * s3) - s1 * (p1 * s4 - s3 * p2) + s2 * (p1 * s3 - s2 * p2);
+        double d1 = s0 * (p1 * s4 - p2 * s3) - p0 * (s1 * s4 - s3 * s2) + s2 * (s1 * p2 - p1 * s2);
+        double d2 = s0 * (s2 * p2 - s3 * p1) - s1 * (s1 * p2 - p1 * s2) + p0 * (s1 * s3 - s2 * s2);
+        out[0] = (float) (d0 / det);
+        out[1] = (float) (d1 / det);
+        out[2] = (float) (d2 / det);
+        return true;
+    }
+
+    /**
+     * 拟合误差的均方根
+     */
+    static float residual(float[] t, float[] p, int count, float[] c) {
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            double error = p[i] - (c[0] + c[1] * t[i] + c[2] * t[i] * t[i]);
+            sum += error * error;
+        }
+        return (float) Math.sqrt(sum / count);
+    }
+}
@@ -0,0 +1,210 @@
+package com.pzj.floatingview.core;
+
+/**
+ * 悬浮窗位置计算
+ * <p>
+ * 移动范围、显示位置的界限、画面端的判定以及屏幕旋转时的位置换算，
+ * 只使用基本类型，不依赖Android，可以在JVM上测试和做基准测试。
+ */
+public class PositionEngine {
+
+    /**
+     * 移动方向 - 默认（移动到较近的左右边缘）
+     */
+    public static final int MOVE_DIRECTION_DEFAULT = 0;
+
+    /**
+     * 移动方向 - 左移动
+     */
+    public static final int MOVE_DIRECTION_LEFT = 1;
+
+    /**
+     * 移动方向 - 右移动
+     */
+    public static final int MOVE_DIRECTION_RIGHT = 2;
+
+    /**
+     * 移动方向 - 不移动
+     */
+    public static final int MOVE_DIRECTION_NONE = 3;
+
+    /**
+     * 移动的界限
+     */
+    private final IntRect mMoveLimit;
+
+    /**
+     * 显示位置的界限
+     */
+    private final IntRect mPositionLimit;
+
+    /**
+     * 屏幕的宽度
+     */
+    private int mScreenWidth;
+
+    /**
+     * 屏幕的高度
+     */
+    private int mScreenHeight;
+
+    /**
+     * 悬浮窗的宽度
+     */
+    private int mViewWidth;
+
+    public PositionEngine() {
+        this.mMoveLimit = new IntRect();
+        this.mPositionLimit = new IntRect();
+    }
+
+    /**
+     * 重新计算移动范围和显示位置的界限
+     *
+     * @param screenWidth                   屏幕的宽度
+     * @param screenHeight                  屏幕的高度
+     * @param viewWidth                     悬浮窗的宽度
+     * @param viewHeight                    悬浮窗的高度
+     * @param overMargin                    悬浮窗边缘的外边距
+     * @param statusBarHeight               当前状态栏的高度
+     * @param navigationBarHorizontalOffset 当前导航条的水平尺寸
+     * @param navigationBarVerticalOffset   当前导航条的垂直尺寸
+     *
+     * @return 显示位置的界限是否有变化
+     */
+    public boolean updateLimits(int screenWidth, int screenHeight, int viewWidth, int viewHeight, int overMargin, int statusBarHeight, int navigationBarHorizontalOffset,
+                             int navigationBarVerticalOffset) {
+        IntRect positionLimit = this.mPositionLimit;
+        int oldLeft = positionLimit.left;
+        int oldTop = positionLimit.top;
+        int oldRight = positionLimit.right;
+        int oldBottom = positionLimit.bottom;
+        this.mScreenWidth = screenWidth;
+        this.mScreenHeight = screenHeight;
+        this.mViewWidth = viewWidth;
+        this.mMoveLimit.set(-viewWidth, -viewHeight * 2, screenWidth + viewWidth + navigationBarHorizontalOffset, screenHeight + viewHeight + navigationBarVerticalOffset);
+        this.mPositionLimit.set(-overMargin, 0, screenWidth - viewWidth + overMargin + navigationBarHorizontalOffset,
+                                screenHeight - statusBarHeight - viewHeight + navigationBarVerticalOffset);
+        return positionLimit.left != oldLeft || positionLimit.top != oldTop || positionLimit.right != oldRight || positionLimit.bottom != oldBottom;
+    }
+
+    /**
+     * 根据移动方向计算画面端的目标x坐标
+     *
+     * @param x             判断依据的x坐标
+     * @param moveDirection 移动方向
+     *
+     * @return 目标x坐标，{@link #MOVE_DIRECTION_NONE} 时返回原坐标
+     */
+    public int getEdgeGoalX(int x, int moveDirection) {
+        if (moveDirection == MOVE_DIRECTION_DEFAULT) {
+            boolean isMoveRightEdge = x > (this.mScreenWidth - this.mViewWidth) / 2;
+            return isMoveRightEdge ? this.mPositionLimit.right : this.mPositionLimit.left;
+        }
+        else if (moveDirection == MOVE_DIRECTION_LEFT) {
+            return this.mPositionLimit.left;
+        }
+        else if (moveDirection == MOVE_DIRECTION_RIGHT) {
+            return this.mPositionLimit.right;
+        }
+        return x;
+    }
+
+    /**
+     * 屏幕或悬浮窗大小变化后换算x坐标
+     *
+     * @param x                     变化前的x坐标
+     * @param moveDirection         移动方向
+     * @param oldPositionLimitWidth 变化前显示位置界限的宽度
+     *
+     * @return 变化后的x坐标
+     */
+    public int repositionX(int x, int moveDirection, int oldPositionLimitWidth) {
+        if (moveDirection != MOVE_DIRECTION_NONE) {
+            return getEdgeGoalX(x, moveDirection);
+        }
+        return this.mPositionLimit.clampX(scale(x, this.mPositionLimit.width(), oldPositionLimitWidth));
+    }
+
+    /**
+     * 屏幕或悬浮窗大小变化后按比例换算y坐标
+     *
+     * @param y                      变化前的y坐标
+     * @param oldPositionLimitHeight 变化前显示位置界限的高度
+     *
+     * @return 变化后的y坐标
+     */
+    public int repositionY(int y, int oldPositionLimitHeight) {
+        return this.mPositionLimit.clampY(scale(y, this.mPositionLimit.height(), oldPositionLimitHeight));
+    }
+
+    private static int scale(int value, int newSize, int oldSize) {
+        if (oldSize <= 0) {
+            // 还没有旧的界限（初次布局），不换算
+            return value;
+        }
+        return (int) (value * newSize / (float) oldSize + 0.5f);
+    }
+
+    /**
+     * 计算悬浮窗在屏幕内的面积比例
+     *
+     * @param x      悬浮窗的x坐标
+     * @param y      悬浮窗的y坐标
+     * @param width  悬浮窗的宽度
+     * @param height 悬浮窗的高度
+     *
+     * @return 0（完全在屏幕外）到1（完全在屏幕内）
+     */
+    public float getVisibleFraction(int x, int y, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            return 0f;
+        }
+        int visibleWidth = Math.min(x + width, this.mScreenWidth) - Math.max(x, 0);
+        int visibleHeight = Math.min(y + height, this.mScreenHeight) - Math.max(y, 0);
+        if (visibleWidth <= 0 || visibleHeight <= 0) {
+            return 0f;
+        }
+        return (visibleWidth * (float) visibleHeight) / (width * (float) height);
+    }
+
+    /**
+     * 把x坐标限制在显示位置的界限内
+     *
+     * @param x
+     *
+     * @return
+     */
+    public int clampX(int x) {
+        return this.mPositionLimit.clampX(x);
+    }
+
+    /**
+     * 把y坐标限制在显示位置的界限内
+     *
+     * @param y
+     *
+     * @return
+     */
+    public int clampY(int y) {
+        return this.mPositionLimit.clampY(y);
+    }
+
+    /**
+     * 获取移动的界限
+     *
+     * @return
+     */
+    public IntRect getMoveLimit() {
+        return this.mMoveLimit;
+    }
+
+    /**
+     * 获取显示位置的界限
+     *
+     * @return
+     */
+    public IntRect getPositionLimit() {
+        return this.mPositionLimit;
+    }
+}
@@ -0,0 +1,70 @@
+package com.pzj.floatingview.core;
+
+/**
+ * 磁吸目标（比如删除区域、角落、停靠位置）
+ * <p>
+ * 悬浮窗的位置进入 {@link #radius} 范围后吸附到 ({@link #x}, {@link #y})，坐标和悬浮窗的窗口坐标相同。
+ */
+public final class SnapTarget {
+
+    /**
+     * 调用者定义的ID
+     */
+    public final int id;
+
+    /**
+     * 吸附后悬浮窗的x坐标
+     */
+    public final int x;
+
+    /**
+     * 吸附后悬浮窗的y坐标
+     */
+    public final int y;
+
+    /**
+     * 吸附的半径
+     */
+    public final int radius;
+
+    public SnapTarget(int id, int x, int y, int radius) {
+        if (radius <= 0) {
+            throw new IllegalArgumentException("radius must be positive: " + radius);
+        }
+        this.id = id;
+        this.x = x;
+        this.y = y;
+        this.radius = radius;
+    }
+
+    /**
+     * 到指定位置距离的平方
+     *
+     * @param x
+     * @param y
+     *
+     * @return
+     */
+    public long distanceSquared(int x, int y) {
+        long dx = x - this.x;
+        long dy = y - this.y;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * 指定位置是否在吸附范围内
+     *
+     * @param x
+     * @param y
+     *
+     * @return
+     */
+    public boolean contains(int x, int y) {
+        return distanceSquared(x, y) <= (long) this.radius * this.radius;
+    }
+
+    @Override
+    public String toString() {
+        return "SnapTarget(" + this.id + ", " + this.x + ", " + this.y + ", r=" + this.radius + ")";
+    }
+}
@@ -0,0 +1,180 @@
+package com.pzj.floatingview.core;
+
+import java.util.ArrayList;
+
+/**
+ * 磁吸目标的空间索引（均匀网格）
+ * <p>
+ * 网格的边长不小于最大的吸附半径，查询时只需要检查所在格子和周围8个格子，
+ * 拖动时每帧的查询与目标总数无关。屏幕外的目标和查询位置归入边缘的格子，结果仍然准确。
+ * 只能在主线程使用。
+ */
+public final class SnapTargetIndex {
+
+    /**
+     * 所有的目标
+     */
+    private final ArrayList<SnapTarget> mTargets;
+
+    /**
+     * 每个格子中的目标（按行排列）
+     */
+    private final ArrayList<ArrayList<SnapTarget>> mCells;
+
+    /**
+     * 索引覆盖的范围
+     */
+    private int mWidth, mHeight;
+
+    /**
+     * 格子的边长，0表示还没有目标
+     */
+    private int mCellSize;
+
+    /**
+     * 格子的列数和行数
+     */
+    private int mColumns, mRows;
+
+    /**
+     * 构造方法
+     *
+     * @param width  索引覆盖的宽度（通常为屏幕宽度）
+     * @param height 索引覆盖的高度（通常为屏幕高度）
+     */
+    public SnapTargetIndex(int width, int height) {
+        this.mTargets = new ArrayList<>();
+        this.mCells = new ArrayList<>();
+        this.mWidth = Math.max(1, width);
+        this.mHeight = Math.max(1, height);
+    }
+
+    /**
+     * 修改索引覆盖的范围（屏幕旋转时），重新建立索引
+     *
+     * @param width
+     * @param height
+     */
+    public void setBounds(int width, int height) {
+        this.mWidth = Math.max(1, width);
+        this.mHeight = Math.max(1, height);
+        rebuild();
+    }
+
+    /**
+     * 添加目标，半径超过格子边长时重新建立索引
+     *
+     * @param target
+     */
+    public void add(SnapTarget target) {
+        this.mTargets.add(target);
+        if (target.radius > this.mCellSize) {
+            this.mCellSize = target.radius;
+            rebuild();
+        }
+        else {
+            insert(target);
+        }
+    }
+
+    /**
+     * 移除目标
+     *
+     * @param target
+     *
+     * @return 目标存在时返回true
+     */
+    public boolean remove(SnapTarget target) {
+        if (!this.mTargets.remove(target)) {
+            return false;
+        }
+        this.mCells.get(cellIndex(target.x, target.y)).remove(target);
+        return true;
+    }
+
+    /**
+     * 移除所有目标
+     */
+    public void clear() {
+        this.mTargets.clear();
+        this.mCellSize = 0;
+        rebuild();
+    }
+
+    /**
+     * 目标的数量
+     *
+     * @return
+     */
+    public int size() {
+        return this.mTargets.size();
+    }
+
+    /**
+     * 查找吸附范围包含指定位置的目标中最近的一个
+     *
+     * @param x 悬浮窗的x坐标
+     * @param y 悬浮窗的y坐标
+     *
+     * @return 没有时返回null
+     */
+    public SnapTarget findNearest(int x, int y) {
+        if (this.mCellSize == 0) {
+            return null;
+        }
+        int column = column(x);
+        int row = row(y);
+        SnapTarget nearest = null;
+        long nearestDistance = Long.MAX_VALUE;
+        for (int r = Math.max(0, row - 1), lastRow = Math.min(this.mRows - 1, row + 1); r <= lastRow; r++) {
+            for (int c = Math.max(0, column - 1), lastColumn = Math.min(this.mColumns - 1, column + 1); c <= lastColumn; c++) {
+                ArrayList<SnapTarget> cell = this.mCells.get(r * this.mColumns + c);
+                for (int i = 0, size = cell.size(); i < size; i++) {
+                    SnapTarget target = cell.get(i);
+                    long distance = target.distanceSquared(x, y);
+                    if (distance < nearestDistance && distance <= (long) target.radius * target.radius) {
+                        nearest = target;
+                        nearestDistance = distance;
+                    }
+                }
+            }
+        }
+        return nearest;
+    }
+
+    private void rebuild() {
+        int cellSize = Math.max(1, this.mCellSize);
+        this.mColumns = (this.mWidth + cellSize - 1) / cellSize;
+        this.mRows = (this.mHeight + cellSize - 1) / cellSize;
+        int count = this.mColumns * this.mRows;
+        ArrayList<ArrayList<SnapTarget>> cells = this.mCells;
+        for (int i = 0, size = Math.min(count, cells.size()); i < size; i++) {
+            cells.get(i).clear();
+        }
+        while (cells.size() > count) {
+            cells.remove(cells.size() - 1);
+        }
+        while (cells.size() < count) {
+            cells.add(new ArrayList<SnapTarget>(2));
+        }
+        for (int i = 0, size = this.mTargets.size(); i < size; i++) {
+            insert(this.mTargets.get(i));
+        }
+    }
+
+    private void insert(SnapTarget target) {
+        this.mCells.get(cellIndex(target.x, target.y)).add(target);
+    }
+
+    private int cellIndex(int x, int y) {
+        return row(y) * this.mColumns + column(x);
+    }
+
+    private int column(int x) {
+        return Math.min(Math.max(x / Math.max(1, this.mCellSize), 0), this.mColumns - 1);
+    }
+
+    private int row(int y) {
+        return Math.min(Math.max(y / Math.max(1, this.mCellSize), 0), this.mRows - 1);
+    }
+}
@@ -0,0 +1,281 @@
+package com.pzj.floatingview.core;
+
+/**
+ * 拖动时的触摸预测
+ * <p>
+ * 用最近的触摸采样（包括MotionEvent的历史采样）拟合速度和加速度，把位置外推到窗口实际显示的时间，
+ * 抵消WindowManager重新布局带来的一到数帧的延迟。外推时长可以固定，也可以使用测得的延迟（采样时间到提交的时间再加一帧）。
+ * 采样太少、停顿或者拟合误差太大（轨迹不平滑）时认为不可信，不做预测。
+ * 只能在主线程使用。
+ */
+public final class TouchPredictor {
+
+    /**
+     * 使用测得的延迟作为外推时长
+     */
+    public static final long HORIZON_AUTO = 0;
+
+    /**
+     * 外推时长的上限(ms)，更远的预测误差太大
+     */
+    public static final long MAX_HORIZON_MILLIS = 50;
+
+    /**
+     * 还没有测得延迟时的外推时长(ms)
+     */
+    private static final float DEFAULT_LATENCY_MILLIS = 16f;
+
+    /**
+     * 延迟的平滑系数
+     */
+    private static final float LATENCY_SMOOTHING = 0.2f;
+
+    /**
+     * 最多保留的采样数
+     */
+    private static final int MAX_SAMPLES = 8;
+
+    /**
+     * 拟合使用的最近一段时间(ms)
+     */
+    private static final long SAMPLE_WINDOW_MILLIS = 80;
+
+    /**
+     * 拟合需要的最少采样数
+     */
+    private static final int MIN_SAMPLES = 3;
+
+    /**
+     * 拟合需要的最短时间跨度(ms)
+     */
+    private static final long MIN_SPAN_MILLIS = 8;
+
+    /**
+     * 相邻采样的最大间隔(ms)，超过时视为停顿
+     */
+    private static final long MAX_SAMPLE_GAP_MILLIS = 40;
+
+    /**
+     * 采样（环形缓冲）
+     */
+    private final long[] mTimes;
+
+    private final float[] mX, mY;
+
+    /**
+     * 最新采样的位置和采样数
+     */
+    private int mHead, mCount;
+
+    /**
+     * 预测位置与最新采样的最大距离(px)
+     */
+    private final float mMaxDistance;
+
+    /**
+     * 视为可信的最大拟合误差（均方根，px）
+     */
+    private final float mMaxResidual;
+
+    /**
+     * 固定的外推时长(ms)，{@link #HORIZON_AUTO} 表示使用测得的延迟
+     */
+    private long mHorizonMillis;
+
+    /**
+     * 测得的延迟(ms)，没有测量时为负数
+     */
+    private float mLatencyMillis = -1f;
+
+    /**
+     * 预测的位置
+     */
+    private float mPredictedX, mPredictedY;
+
+    /**
+     * 拟合用的临时数组（时间、位置）
+     */
+    private final float[] mFitT, mFitX, mFitY;
+
+    /**
+     * 拟合的结果（位置、速度、加速度的一半）
+     */
+    private final float[] mCoefficients;
+
+    /**
+     * 构造方法
+     *
+     * @param maxDistance 预测位置与最新采样的最大距离(px)
+     * @param maxResidual 视为可信的最大拟合误差(px)
+     */
+    public TouchPredictor(float maxDistance, float maxResidual) {
+        this.mTimes = new long[MAX_SAMPLES];
+        this.mX = new float[MAX_SAMPLES];
+        this.mY = new float[MAX_SAMPLES];
+        this.mFitT = new float[MAX_SAMPLES];
+        this.mFitX = new float[MAX_SAMPLES];
+        this.mFitY = new float[MAX_SAMPLES];
+        this.mCoefficients = new float[3];
+        this.mMaxDistance = maxDistance;
+        this.mMaxResidual = maxResidual;
+    }
+
+    /**
+     * 设置外推时长
+     *
+     * @param horizonMillis 外推时长(ms)，{@link #HORIZON_AUTO} 表示使用测得的延迟，最大为 {@link #MAX_HORIZON_MILLIS}
+     */
+    public void setHorizonMillis(long horizonMillis) {
+        this.mHorizonMillis = Math.max(HORIZON_AUTO, Math.min(horizonMillis, MAX_HORIZON_MILLIS));
+    }
+
+    /**
+     * 获取当前使用的外推时长
+     *
+     * @return
+     */
+    public long getHorizonMillis() {
+        if (this.mHorizonMillis != HORIZON_AUTO) {
+            return this.mHorizonMillis;
+        }
+        float latency = this.mLatencyMillis < 0 ? DEFAULT_LATENCY_MILLIS : this.mLatencyMillis;
+        return Math.min(Math.round(latency), MAX_HORIZON_MILLIS);
+    }
+
+    /**
+     * 记录一次测得的延迟（采样时间到位置显示的时间）
+     *
+     * @param latencyMillis
+     */
+    public void recordLatency(long latencyMillis) {
+        if (latencyMillis < 0) {
+            return;
+        }
+        if (this.mLatencyMillis < 0) {
+            this.mLatencyMillis = latencyMillis;
+        }
+        else {
+            this.mLatencyMillis += (latencyMillis - this.mLatencyMillis) * LATENCY_SMOOTHING;
+        }
+    }
+
+    /**
+     * 清除采样（新的手势开始时），测得的延迟保留
+     */
+    public void reset() {
+        this.mCount = 0;
+    }
+
+    /**
+     * 添加采样，时间必须按顺序，与最新采样同一时间时替换它
+     *
+     * @param timeMillis 采样时间(ms)
+     * @param x          x坐标
+     * @param y          y坐标
+     */
+    public void addSample(long timeMillis, float x, float y) {
+        if (this.mCount > 0) {
+            long lastTime = this.mTimes[this.mHead];
+            if (timeMillis < lastTime) {
+                return;
+            }
+            if (timeMillis > lastTime) {
+                this.mHead = (this.mHead + 1) % MAX_SAMPLES;
+                if (this.mCount < MAX_SAMPLES) {
+                    this.mCount++;
+                }
+            }
+        }
+        else {
+            this.mCount = 1;
+        }
+        this.mTimes[this.mHead] = timeMillis;
+        this.mX[this.mHead] = x;
+        this.mY[this.mHead] = y;
+    }
+
+    /**
+     * 预测最新采样之后经过外推时长的位置
+     *
+     * @return 可信时返回true，位置通过 {@link #getPredictedX()} 和 {@link #getPredictedY()} 获取；
+     * 不可信时返回false，此时预测位置就是最新采样的位置
+     */
+    public boolean predict() {
+        if (this.mCount == 0) {
+            return false;
+        }
+        float lastX = this.mX[this.mHead];
+        float lastY = this.mY[this.mHead];
+        this.mPredictedX = lastX;
+        this.mPredictedY = lastY;
+        long horizon = getHorizonMillis();
+        if (horizon <= 0) {
+            return false;
+        }
+
+        // 收集最近的采样（时间相对于最新采样，<=0）
+        long lastTime = this.mTimes[this.mHead];
+        int count = 0;
+        long previousTime = lastTime;
+        for (int i = 0; i < this.mCount; i++) {
+            int index = (this.mHead - i + MAX_SAMPLES) % MAX_SAMPLES;
+            long time = this.mTimes[index];
+            if (lastTime - time > SAMPLE_WINDOW_MILLIS || previousTime - time > MAX_SAMPLE_GAP_MILLIS) {
+                break;
+            }
+            this.mFitT[count] = time - lastTime;
+            this.mFitX[count] = this.mX[index];
+            this.mFitY[count] = this.mY[index];
+            previousTime = time;
+            count++;
+        }
+        if (count < MIN_SAMPLES || -this.mFitT[count - 1] < MIN_SPAN_MILLIS) {
+            return false;
+        }
+
+        float[] c = this.mCoefficients;
+        if (!LeastSquares.fitQuadratic(this.mFitT, this.mFitX, count, c) || LeastSquares.residual(this.mFitT, this.mFitX, count, c) > this.mMaxResidual) {
+            return false;
+        }
+        float dx = extrapolate(c[1], 2f * c[2], horizon);
+        if (!LeastSquares.fitQuadratic(this.mFitT, this.mFitY, count, c) || LeastSquares.residual(this.mFitT, this.mFitY, count, c) > this.mMaxResidual) {
+            return false;
+        }
+        float dy = extrapolate(c[1], 2f * c[2], horizon);
+
+        float distance = (float) Math.sqrt(dx * dx + dy * dy);
+        if (distance > this.mMaxDistance) {
+            float scale = this.mMaxDistance / distance;
+            dx *= scale;
+            dy *= scale;
+        }
+        this.mPredictedX = lastX + dx;
+        this.mPredictedY = lastY + dy;
+        return true;
+    }
+
+    public float getPredictedX() {
+        return this.mPredictedX;
+    }
+
+    public float getPredictedY() {
+        return this.mPredictedY;
+    }
+
+    /**
+     * 按速度和加速度外推，减速时最多到速度为0的位置，不会反向
+     *
+     * @param velocity     速度(px/ms)
+     * @param acceleration 加速度(px/ms²)
+     * @param horizon      外推时长(ms)
+     *
+     * @return 位移
+     */
+    private static float extrapolate(float velocity, float acceleration, float horizon) {
+        float time = horizon;
+        if (velocity * acceleration < 0) {
+            time = Math.min(time, -velocity / acceleration);
+        }
+        return velocity * time + 0.5f * acceleration * time * time;
+    }
+}
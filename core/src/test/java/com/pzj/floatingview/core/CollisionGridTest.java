@@ -0,0 +1,152 @@
+package com.pzj.floatingview.core;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link CollisionGrid} 的单元测试
+ */
+public class CollisionGridTest {
+
+    private static final int SIZE = 100;
+
+    private static final int SPACING = 10;
+
+    private static final int ITERATIONS = 10000;
+
+    private CollisionGrid mGrid;
+
+    @Before
+    public void setUp() throws Exception {
+        this.mGrid = new CollisionGrid(SIZE);
+    }
+
+    @Test
+    public void resolve_stacksBubblesAtSamePosition() throws Exception {
+        this.mGrid.set(1, 0, 1000, SIZE, SIZE);
+        this.mGrid.set(2, 0, 1000, SIZE, SIZE);
+        List<CollisionGrid.Item> moved = this.mGrid.resolve(2, 0, 1000, SPACING);
+
+        assertEquals(1, moved.size());
+        assertEquals(1, moved.get(0).id);
+        assertEquals(1000 - SIZE - SPACING, this.mGrid.get(1).getY());
+        assertEquals(1000, this.mGrid.get(2).getY());
+
+        // 第三个悬浮窗停在同一位置，只有重叠的悬浮窗被挪开
+        this.mGrid.set(3, 0, 1000, SIZE, SIZE);
+        moved = this.mGrid.resolve(3, 0, 1000, SPACING);
+
+        assertEquals(1, moved.size());
+        assertEquals(2, moved.get(0).id);
+        assertEquals(1000 - (SIZE + SPACING) * 2, this.mGrid.get(2).getY());
+        assertEquals(1000 - SIZE - SPACING, this.mGrid.get(1).getY());
+    }
+
+    @Test
+    public void resolve_leavesSeparatedBubbles() throws Exception {
+        this.mGrid.set(1, 0, 0, SIZE, SIZE);
+        this.mGrid.set(2, 0, SIZE + SPACING, SIZE, SIZE);
+        this.mGrid.set(3, 500, 0, SIZE, SIZE);
+
+        assertTrue(this.mGrid.resolve(2, 0, 1000, SPACING).isEmpty());
+        assertTrue(this.mGrid.resolve(3, 0, 1000, SPACING).isEmpty());
+    }
+
+    @Test
+    public void resolve_picksNearestFreeSide() throws Exception {
+        this.mGrid.set(1, 0, 530, SIZE, SIZE);
+        this.mGrid.set(2, 0, 500, SIZE, SIZE);
+        List<CollisionGrid.Item> moved = this.mGrid.resolve(2, 0, 1000, SPACING);
+
+        // 下方更近
+        assertEquals(1, moved.size());
+        assertEquals(500 + SIZE + SPACING, this.mGrid.get(1).getY());
+    }
+
+    @Test
+    public void resolve_reusesResultList() throws Exception {
+        this.mGrid.set(1, 0, 1000, SIZE, SIZE);
+        this.mGrid.set(2, 0, 1000, SIZE, SIZE);
+        this.mGrid.set(3, 500, 0, SIZE, SIZE);
+        List<CollisionGrid.Item> moved = this.mGrid.resolve(2, 0, 1000, SPACING);
+        assertEquals(1, moved.size());
+
+        // 下次调用时清空上次的结果
+        assertSame(moved, this.mGrid.resolve(3, 0, 1000, SPACING));
+        assertTrue(moved.isEmpty());
+        assertTrue(this.mGrid.resolve(4, 0, 1000, SPACING).isEmpty());
+    }
+
+    @Test
+    public void resolve_keepsPositionWithoutFreeSlot() throws Exception {
+        this.mGrid.set(1, 0, 0, SIZE, SIZE);
+        this.mGrid.set(2, 0, 0, SIZE, SIZE);
+
+        assertTrue(this.mGrid.resolve(2, 0, 50, SPACING).isEmpty());
+        assertEquals(0, this.mGrid.get(1).getY());
+    }
+
+    @Test
+    public void resolve_manyBubblesOnlyMovesOverlapped() throws Exception {
+        // 左边缘排成一列的60个悬浮窗
+        for (int i = 0; i < 60; i++) {
+            this.mGrid.set(i, -SIZE / 2, i * (SIZE + SPACING), SIZE, SIZE);
+        }
+        // 新的悬浮窗停在右边缘的空位
+        this.mGrid.set(100, 1000, 0, SIZE, SIZE);
+        assertTrue(this.mGrid.resolve(100, 0, 60 * (SIZE + SPACING), SPACING).isEmpty());
+
+        // 移除一个后，另一个悬浮窗停在空出来的位置附近，只与下面的一个重叠
+        this.mGrid.remove(30);
+        this.mGrid.set(101, -SIZE / 2, 30 * (SIZE + SPACING) + 20, SIZE, SIZE);
+        List<CollisionGrid.Item> moved = this.mGrid.resolve(101, 0, 61 * (SIZE + SPACING), SPACING);
+        assertEquals(1, moved.size());
+        CollisionGrid.Item item = moved.get(0);
+        assertEquals(31, item.id);
+        assertTrue(this.mGrid.isFree(item.getX(), item.getY(), SIZE, SIZE, SPACING, item.id));
+        assertEquals(61, this.mGrid.size());
+    }
+
+    @Test
+    public void setAndResolve_doNotAllocate() throws Exception {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        // 左右两端各一列的64个悬浮窗
+        int maxY = 2000;
+        for (int id = 1; id <= 64; id++) {
+            this.mGrid.set(id, id % 2 == 0 ? 0 : 1000, (id / 2) * (SIZE + SPACING), SIZE, SIZE);
+        }
+        long sink = runSetAndResolve(maxY);
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        sink += runSetAndResolve(maxY);
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(sink != 0);
+        // 每次哪怕只装箱一个Long，也会远超这个上限
+        assertTrue("allocated " + allocated + " bytes", allocated < ITERATIONS);
+    }
+
+    private long runSetAndResolve(int maxY) {
+        long sink = 0;
+        int y = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            int id = i % 64 + 1;
+            y = (y + 53) % (maxY - SIZE);
+            CollisionGrid.Item item = this.mGrid.get(id);
+            this.mGrid.set(id, item.getX(), y, SIZE, SIZE);
+            sink += this.mGrid.resolve(id, 0, maxY - SIZE, SPACING).size() + 1;
+        }
+        return sink;
+    }
+}
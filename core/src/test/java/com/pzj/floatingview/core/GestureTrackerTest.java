@@ -0,0 +1,318 @@
+package com.pzj.floatingview.core;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link GestureTracker} 的单元测试
+ */
+public class GestureTrackerTest {
+
+    private static final float SLOP = 10;
+
+    private static final float MIN_FLING = 100;
+
+    private static final float MAX_FLING = 8000;
+
+    private static final float DELTA = 0.01f;
+
+    private RecordingListener mListener;
+
+    private GestureTracker mTracker;
+
+    @Before
+    public void setUp() throws Exception {
+        this.mListener = new RecordingListener();
+        this.mTracker = new GestureTracker(this.mListener, SLOP, MIN_FLING, MAX_FLING);
+    }
+
+    private void move(long time, int pointerId, float x, float y) {
+        this.mTracker.addMovement(time, pointerId, x, y);
+        this.mTracker.onMove(time);
+    }
+
+    @Test
+    public void tap_withinSlop() throws Exception {
+        this.mTracker.onDown(0, 0, 100, 100);
+        move(10, 0, 105, 95);
+        this.mTracker.onUp(20, 0, 105, 95);
+
+        assertEquals(1, this.mListener.taps);
+        assertEquals(0, this.mListener.dragStarts);
+        assertEquals(GestureTracker.STATE_IDLE, this.mTracker.getState());
+    }
+
+    @Test
+    public void longPress_suppressesTapButStillDrags() throws Exception {
+        this.mTracker.setLongPressTimeout(500);
+        this.mTracker.onDown(0, 0, 100, 100);
+        assertFalse(this.mTracker.checkLongPress(499));
+        assertTrue(this.mTracker.checkLongPress(500));
+        assertEquals(1, this.mListener.longPresses);
+        assertEquals(GestureTracker.STATE_LONG_PRESSED, this.mTracker.getState());
+
+        move(600, 0, 150, 100);
+        assertEquals(1, this.mListener.dragStarts);
+        this.mTracker.onUp(700, 0, 150, 100);
+        assertEquals(0, this.mListener.taps);
+        assertEquals(1, this.mListener.dragEnds);
+    }
+
+    @Test
+    public void longPress_notAfterLeavingSlop() throws Exception {
+        this.mTracker.setLongPressTimeout(500);
+        this.mTracker.onDown(0, 0, 100, 100);
+        move(100, 0, 100, 120);
+        assertFalse(this.mTracker.checkLongPress(600));
+        assertEquals(0, this.mListener.longPresses);
+    }
+
+    @Test
+    public void drag_slopCheckedOnEverySample() throws Exception {
+        this.mTracker.onDown(0, 0, 100, 100);
+        // 批量送达：中间的采样超出阈值，最新的采样回到阈值内
+        this.mTracker.addMovement(4, 0, 120, 100);
+        this.mTracker.addMovement(8, 0, 102, 100);
+        this.mTracker.onMove(8);
+
+        assertEquals(1, this.mListener.dragStarts);
+        assertEquals(102, this.mListener.dragX, DELTA);
+    }
+
+    @Test
+    public void drag_batchWithinSlopStaysTap() throws Exception {
+        this.mTracker.onDown(0, 0, 100, 100);
+        // 批量送达的采样都在阈值内
+        this.mTracker.addMovement(4, 0, 105, 100);
+        this.mTracker.addMovement(8, 0, 100, 109);
+        this.mTracker.addMovement(12, 0, 91, 100);
+        this.mTracker.onMove(12);
+        this.mTracker.onUp(20, 0, 91, 100);
+
+        assertEquals(0, this.mListener.dragStarts);
+        assertEquals(1, this.mListener.taps);
+    }
+
+    @Test
+    public void drag_untrackedPointerSamplesIgnored() throws Exception {
+        this.mTracker.onDown(0, 0, 100, 100);
+        // 同一批中没有按下过的手指的采样不影响判定，主手指的中间采样超出阈值
+        this.mTracker.addMovement(2, 1, 300, 300);
+        this.mTracker.onMove(2);
+        assertEquals(0, this.mListener.dragStarts);
+
+        this.mTracker.addMovement(4, 0, 100, 125);
+        this.mTracker.addMovement(4, 1, 300, 300);
+        this.mTracker.addMovement(8, 0, 100, 101);
+        this.mTracker.onMove(8);
+
+        assertEquals(1, this.mListener.dragStarts);
+        assertEquals(101, this.mListener.dragY, DELTA);
+    }
+
+    @Test
+    public void release_velocityUsesBatchedSamples() throws Exception {
+        // 所有采样在一个移动事件中送达，速度仍然基于每个采样：3px/ms = 3000px/s
+        this.mTracker.onDown(0, 0, 0, 0);
+        for (int t = 4; t <= 48; t += 4) {
+            this.mTracker.addMovement(t, 0, 3 * t, 0);
+        }
+        this.mTracker.onMove(48);
+        this.mTracker.onUp(52, 0, 156, 0);
+
+        assertTrue(this.mListener.isFling);
+        assertEquals(3000, this.mListener.velocityX, 30);
+    }
+
+    @Test
+    public void release_flingOnlyAboveMinimumVelocity() throws Exception {
+        // 2px/ms = 2000px/s
+        this.mTracker.onDown(0, 0, 0, 0);
+        for (int t = 8; t <= 80; t += 8) {
+            move(t, 0, 2 * t, t);
+        }
+        this.mTracker.onUp(88, 0, 176, 88);
+        assertTrue(this.mListener.isFling);
+        assertEquals(2000, this.mListener.velocityX, 20);
+        assertEquals(1000, this.mListener.velocityY, 20);
+
+        // 停顿之后抬起，速度为0
+        this.mTracker.onDown(200, 0, 0, 0);
+        for (int t = 208; t <= 280; t += 8) {
+            move(t, 0, 2 * (t - 200), 0);
+        }
+        this.mTracker.onUp(400, 0, 160, 0);
+        assertFalse(this.mListener.isFling);
+        assertEquals(0, this.mListener.velocityX, 0f);
+        assertEquals(2, this.mListener.dragEnds);
+    }
+
+    @Test
+    public void pinch_scalesAndKeepsDragPointContinuous() throws Exception {
+        this.mTracker.setPinchEnabled(true);
+        this.mTracker.onDown(0, 0, 100, 100);
+        this.mTracker.onPointerDown(10, 1, 200, 100);
+        assertEquals(GestureTracker.STATE_PINCHING, this.mTracker.getState());
+        assertEquals(1, this.mListener.dragStarts);
+        assertEquals(1, this.mListener.pinchStarts);
+        // 第二根手指按下时拖动点不跳变
+        assertEquals(100, this.mTracker.getDragX(), DELTA);
+
+        this.mTracker.addMovement(20, 0, 50, 100);
+        this.mTracker.addMovement(20, 1, 250, 100);
+        this.mTracker.onMove(20);
+        assertEquals(2f, this.mListener.scale, DELTA);
+        // 中点没有移动
+        assertEquals(100, this.mListener.dragX, DELTA);
+
+        // 主手指抬起，剩下的手指接替拖动
+        this.mTracker.onPointerUp(30, 0);
+        assertEquals(1, this.mListener.pinchEnds);
+        assertEquals(GestureTracker.STATE_DRAGGING, this.mTracker.getState());
+        move(40, 1, 260, 110);
+        assertEquals(110, this.mListener.dragX, DELTA);
+        assertEquals(110, this.mListener.dragY, DELTA);
+
+        this.mTracker.onUp(50, 1, 260, 110);
+        assertEquals(1, this.mListener.dragEnds);
+        assertEquals(0, this.mListener.taps);
+    }
+
+    @Test
+    public void secondPointer_ignoredWhenPinchDisabled() throws Exception {
+        this.mTracker.onDown(0, 0, 100, 100);
+        this.mTracker.onPointerDown(10, 1, 300, 300);
+        move(20, 1, 400, 400);
+        assertEquals(GestureTracker.STATE_PRESSED, this.mTracker.getState());
+
+        // 主手指抬起后由第二根手指接替，拖动点不跳变
+        this.mTracker.onPointerUp(30, 0);
+        move(40, 1, 430, 400);
+        assertEquals(1, this.mListener.dragStarts);
+        assertEquals(130, this.mListener.dragX, DELTA);
+        assertEquals(100, this.mListener.dragY, DELTA);
+        assertEquals(0, this.mListener.pinchStarts);
+    }
+
+    @Test
+    public void cancel_endsDragWithoutTap() throws Exception {
+        this.mTracker.onDown(0, 0, 100, 100);
+        this.mTracker.cancel();
+        assertEquals(0, this.mListener.taps);
+
+        this.mTracker.onDown(100, 0, 100, 100);
+        move(110, 0, 200, 100);
+        this.mTracker.cancel();
+        assertEquals(1, this.mListener.dragEnds);
+        assertFalse(this.mListener.isFling);
+        assertEquals(GestureTracker.STATE_IDLE, this.mTracker.getState());
+    }
+
+    @Test
+    public void events_doNotAllocate() throws Exception {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        this.mTracker.setPinchEnabled(true);
+        this.mTracker.setLongPressTimeout(500);
+
+        // 预热
+        gestures(100);
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        int events = gestures(1000);
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue("allocated " + allocated + " bytes", allocated < events);
+    }
+
+    /**
+     * 拖动、双指缩放、抛出的完整手势
+     *
+     * @return 事件数
+     */
+    private int gestures(int count) {
+        int events = 0;
+        long time = 0;
+        for (int i = 0; i < count; i++) {
+            this.mTracker.onDown(time, 0, 0, 0);
+            for (int j = 1; j <= 20; j++) {
+                time += 8;
+                if (j == 10) {
+                    this.mTracker.onPointerDown(time, 1, j * 10 + 100, 0);
+                }
+                this.mTracker.addMovement(time, 0, j * 10, j * 5);
+                this.mTracker.addMovement(time, 1, j * 10 + 100, 0);
+                this.mTracker.onMove(time);
+                if (j == 15) {
+                    this.mTracker.onPointerUp(time, 1);
+                }
+            }
+            time += 8;
+            this.mTracker.onUp(time, 0, 210, 105);
+            events += 24;
+            time += 100;
+        }
+        return events;
+    }
+
+    private static class RecordingListener implements GestureTracker.Listener {
+
+        int taps, longPresses, dragStarts, dragEnds, pinchStarts, pinchEnds;
+
+        float dragX, dragY, velocityX, velocityY, scale;
+
+        boolean isFling;
+
+        @Override
+        public void onTap(float x, float y) {
+            this.taps++;
+        }
+
+        @Override
+        public void onLongPress(float x, float y) {
+            this.longPresses++;
+        }
+
+        @Override
+        public void onDragStart() {
+            this.dragStarts++;
+        }
+
+        @Override
+        public void onDrag(float x, float y) {
+            this.dragX = x;
+            this.dragY = y;
+        }
+
+        @Override
+        public void onDragEnd(float x, float y, float velocityX, float velocityY, boolean isFling) {
+            this.dragEnds++;
+            this.velocityX = velocityX;
+            this.velocityY = velocityY;
+            this.isFling = isFling;
+        }
+
+        @Override
+        public void onPinchStart(float focusX, float focusY) {
+            this.pinchStarts++;
+        }
+
+        @Override
+        public void onPinch(float scale, float focusX, float focusY) {
+            this.scale = scale;
+        }
+
+        @Override
+        public void onPinchEnd(float scale) {
+            this.pinchEnds++;
+        }
+    }
+}
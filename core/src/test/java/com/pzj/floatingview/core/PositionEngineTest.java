@@ -0,0 +1,97 @@
+package com.pzj.floatingview.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link PositionEngine} 的单元测试
+ */
+public class PositionEngineTest {
+
+    private PositionEngine mEngine;
+
+    @Before
+    public void setUp() throws Exception {
+        this.mEngine = new PositionEngine();
+        // 1080x1920的屏幕，100x100的悬浮窗，外边距-10，状态栏50
+        this.mEngine.updateLimits(1080, 1920, 100, 100, -10, 50, 0, 0);
+    }
+
+    @Test
+    public void updateLimits_matchesScreenAndView() throws Exception {
+        IntRect positionLimit = this.mEngine.getPositionLimit();
+        assertEquals(10, positionLimit.left);
+        assertEquals(0, positionLimit.top);
+        assertEquals(970, positionLimit.right);
+        assertEquals(1770, positionLimit.bottom);
+
+        IntRect moveLimit = this.mEngine.getMoveLimit();
+        assertEquals(-100, moveLimit.left);
+        assertEquals(-200, moveLimit.top);
+        assertEquals(1180, moveLimit.right);
+        assertEquals(2020, moveLimit.bottom);
+    }
+
+    @Test
+    public void updateLimits_reportsPositionLimitChange() throws Exception {
+        assertFalse(this.mEngine.updateLimits(1080, 1920, 100, 100, -10, 50, 0, 0));
+        // 状态栏隐藏
+        assertTrue(this.mEngine.updateLimits(1080, 1920, 100, 100, -10, 0, 0, 0));
+        assertFalse(this.mEngine.updateLimits(1080, 1920, 100, 100, -10, 0, 0, 0));
+        // 导航条隐藏
+        assertTrue(this.mEngine.updateLimits(1080, 1920, 100, 100, -10, 0, 0, 144));
+    }
+
+    @Test
+    public void getEdgeGoalX_picksNearestEdge() throws Exception {
+        assertEquals(10, this.mEngine.getEdgeGoalX(100, PositionEngine.MOVE_DIRECTION_DEFAULT));
+        assertEquals(970, this.mEngine.getEdgeGoalX(600, PositionEngine.MOVE_DIRECTION_DEFAULT));
+        assertEquals(10, this.mEngine.getEdgeGoalX(600, PositionEngine.MOVE_DIRECTION_LEFT));
+        assertEquals(970, this.mEngine.getEdgeGoalX(100, PositionEngine.MOVE_DIRECTION_RIGHT));
+        assertEquals(600, this.mEngine.getEdgeGoalX(600, PositionEngine.MOVE_DIRECTION_NONE));
+    }
+
+    @Test
+    public void clamp_keepsInsidePositionLimit() throws Exception {
+        assertEquals(10, this.mEngine.clampX(-500));
+        assertEquals(970, this.mEngine.clampX(5000));
+        assertEquals(0, this.mEngine.clampY(-1));
+        assertEquals(1770, this.mEngine.clampY(1800));
+        assertEquals(300, this.mEngine.clampY(300));
+    }
+
+    @Test
+    public void reposition_scalesProportionallyOnRotation() throws Exception {
+        IntRect positionLimit = this.mEngine.getPositionLimit();
+        int oldWidth = positionLimit.width();
+        int oldHeight = positionLimit.height();
+
+        this.mEngine.updateLimits(1920, 1080, 100, 100, -10, 50, 0, 0);
+
+        assertEquals(900, this.mEngine.repositionX(480, PositionEngine.MOVE_DIRECTION_NONE, oldWidth));
+        assertEquals(465, this.mEngine.repositionY(885, oldHeight));
+        assertEquals(1810, this.mEngine.repositionX(1500, PositionEngine.MOVE_DIRECTION_DEFAULT, oldWidth));
+    }
+
+    @Test
+    public void reposition_withoutPreviousLimitKeepsPosition() throws Exception {
+        PositionEngine engine = new PositionEngine();
+        engine.updateLimits(1080, 1920, 100, 100, 0, 50, 0, 0);
+
+        assertEquals(200, engine.repositionX(200, PositionEngine.MOVE_DIRECTION_NONE, 0));
+        assertEquals(300, engine.repositionY(300, 0));
+    }
+
+    @Test
+    public void getVisibleFraction_clipsToScreen() throws Exception {
+        assertEquals(1f, this.mEngine.getVisibleFraction(10, 10, 100, 100), 0f);
+        // 左边缘超出屏幕40px
+        assertEquals(0.6f, this.mEngine.getVisibleFraction(-40, 10, 100, 100), 0.0001f);
+        // 右下角超出屏幕各50px
+        assertEquals(0.25f, this.mEngine.getVisibleFraction(1030, 1870, 100, 100), 0.0001f);
+        assertEquals(0f, this.mEngine.getVisibleFraction(1080, 10, 100, 100), 0f);
+        assertEquals(0f, this.mEngine.getVisibleFraction(10, 10, 0, 100), 0f);
+    }
+}
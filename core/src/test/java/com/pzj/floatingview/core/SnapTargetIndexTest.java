@@ -0,0 +1,95 @@
+package com.pzj.floatingview.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link SnapTargetIndex} 的单元测试
+ */
+public class SnapTargetIndexTest {
+
+    private SnapTargetIndex mIndex;
+
+    @Before
+    public void setUp() throws Exception {
+        this.mIndex = new SnapTargetIndex(1080, 1920);
+    }
+
+    @Test
+    public void findNearest_onlyInsideRadius() throws Exception {
+        assertNull(this.mIndex.findNearest(0, 0));
+
+        SnapTarget dismiss = new SnapTarget(1, 490, 1700, 150);
+        this.mIndex.add(dismiss);
+
+        assertSame(dismiss, this.mIndex.findNearest(500, 1600));
+        assertNull(this.mIndex.findNearest(500, 1500));
+    }
+
+    @Test
+    public void findNearest_picksClosestOfOverlapping() throws Exception {
+        SnapTarget left = new SnapTarget(1, 0, 0, 200);
+        SnapTarget right = new SnapTarget(2, 150, 0, 50);
+        this.mIndex.add(left);
+        this.mIndex.add(right);
+
+        assertSame(right, this.mIndex.findNearest(120, 0));
+        assertSame(left, this.mIndex.findNearest(60, 0));
+
+        assertTrue(this.mIndex.remove(right));
+        assertSame(left, this.mIndex.findNearest(120, 0));
+        assertFalse(this.mIndex.remove(right));
+    }
+
+    @Test
+    public void findNearest_targetsOutsideBounds() throws Exception {
+        // 一半在屏幕外的停靠位置
+        SnapTarget offScreen = new SnapTarget(1, -50, 2000, 100);
+        this.mIndex.add(offScreen);
+
+        assertSame(offScreen, this.mIndex.findNearest(-100, 1950));
+        assertSame(offScreen, this.mIndex.findNearest(20, 1990));
+        assertNull(this.mIndex.findNearest(100, 2000));
+    }
+
+    @Test
+    public void findNearest_matchesBruteForce() throws Exception {
+        Random random = new Random(1);
+        List<SnapTarget> targets = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            SnapTarget target = new SnapTarget(i, random.nextInt(1280) - 100, random.nextInt(2120) - 100, 20 + random.nextInt(120));
+            targets.add(target);
+            this.mIndex.add(target);
+        }
+        this.mIndex.setBounds(1920, 1080);
+
+        for (int i = 0; i < 2000; i++) {
+            int x = random.nextInt(1400) - 160;
+            int y = random.nextInt(2240) - 160;
+            SnapTarget expected = null;
+            for (SnapTarget target : targets) {
+                if (target.contains(x, y) && (expected == null || target.distanceSquared(x, y) < expected.distanceSquared(x, y))) {
+                    expected = target;
+                }
+            }
+            SnapTarget actual = this.mIndex.findNearest(x, y);
+            if (expected == null) {
+                assertNull(actual);
+            }
+            else {
+                assertNotNull(actual);
+                assertEquals(expected.distanceSquared(x, y), actual.distanceSquared(x, y));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void snapTarget_rejectsNonPositiveRadius() throws Exception {
+        new SnapTarget(1, 0, 0, 0);
+    }
+}
@@ -0,0 +1,106 @@
+package com.pzj.floatingview.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link TouchPredictor} 的单元测试
+ */
+public class TouchPredictorTest {
+
+    private static final float DELTA = 0.5f;
+
+    private TouchPredictor mPredictor;
+
+    @Before
+    public void setUp() throws Exception {
+        this.mPredictor = new TouchPredictor(200, 3);
+        this.mPredictor.setHorizonMillis(20);
+    }
+
+    @Test
+    public void predict_constantVelocity() throws Exception {
+        // 1px/ms向右，0.5px/ms向下
+        for (int t = 0; t <= 40; t += 4) {
+            this.mPredictor.addSample(t, 100 + t, 200 + t * 0.5f);
+        }
+
+        assertTrue(this.mPredictor.predict());
+        assertEquals(160, this.mPredictor.getPredictedX(), DELTA);
+        assertEquals(230, this.mPredictor.getPredictedY(), DELTA);
+    }
+
+    @Test
+    public void predict_acceleration() throws Exception {
+        // x = 0.01 * t²
+        for (int t = 0; t <= 40; t += 4) {
+            this.mPredictor.addSample(t, 0.01f * t * t, 0);
+        }
+
+        assertTrue(this.mPredictor.predict());
+        assertEquals(0.01f * 60 * 60, this.mPredictor.getPredictedX(), DELTA);
+    }
+
+    @Test
+    public void predict_decelerationStopsWithoutReversing() throws Exception {
+        // v = 1 - 0.025t，t = 40时停止
+        for (int t = 0; t <= 32; t += 4) {
+            this.mPredictor.addSample(t, t - 0.0125f * t * t, 0);
+        }
+
+        assertTrue(this.mPredictor.predict());
+        assertEquals(20, this.mPredictor.getPredictedX(), DELTA);
+    }
+
+    @Test
+    public void predict_limitsDistance() throws Exception {
+        TouchPredictor predictor = new TouchPredictor(10, 3);
+        predictor.setHorizonMillis(20);
+        for (int t = 0; t <= 40; t += 4) {
+            predictor.addSample(t, 10 * t, 0);
+        }
+
+        assertTrue(predictor.predict());
+        assertEquals(410, predictor.getPredictedX(), DELTA);
+    }
+
+    @Test
+    public void predict_fallsBackWhenNotConfident() throws Exception {
+        // 采样太少
+        this.mPredictor.addSample(0, 0, 0);
+        this.mPredictor.addSample(4, 10, 0);
+        assertFalse(this.mPredictor.predict());
+        assertEquals(10, this.mPredictor.getPredictedX(), 0f);
+
+        // 停顿之后
+        this.mPredictor.addSample(100, 20, 0);
+        this.mPredictor.addSample(104, 30, 0);
+        assertFalse(this.mPredictor.predict());
+
+        // 来回抖动
+        this.mPredictor.reset();
+        for (int t = 0; t <= 40; t += 4) {
+            this.mPredictor.addSample(t, (t / 4) % 2 == 0 ? 0 : 30, 0);
+        }
+        assertFalse(this.mPredictor.predict());
+        assertEquals(0, this.mPredictor.getPredictedX(), 0f);
+    }
+
+    @Test
+    public void horizon_usesMeasuredLatency() throws Exception {
+        this.mPredictor.setHorizonMillis(TouchPredictor.HORIZON_AUTO);
+        this.mPredictor.recordLatency(30);
+        assertEquals(30, this.mPredictor.getHorizonMillis());
+
+        this.mPredictor.recordLatency(1000);
+        assertEquals(TouchPredictor.MAX_HORIZON_MILLIS, this.mPredictor.getHorizonMillis());
+
+        for (int t = 0; t <= 40; t += 4) {
+            this.mPredictor.addSample(t, t, 0);
+        }
+        assertTrue(this.mPredictor.predict());
+        assertEquals(40 + TouchPredictor.MAX_HORIZON_MILLIS, this.mPredictor.getPredictedX(), DELTA);
+    }
+}
@@ -0,0 +1,160 @@
+package com.pzj.floatingview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * 在后台线程创建悬浮窗内容视图的线程（进程内共用一个）
+ * <p>
+ * 只在后台创建内容视图，回到主线程后再测量（View的测量不是线程安全的）。
+ * 线程没有Looper，创建时需要Handler的视图会抛出异常，此时在主线程重新创建。
+ * LayoutInflater不是线程安全的，后台线程可能同时在创建下一个请求，所以主线程使用另一个LayoutInflater。
+ */
+final class ContentInflateThread extends Thread {
+
+    private static final String TAG = "ContentInflateThread";
+
+    /**
+     * 共用的实例
+     */
+    private static ContentInflateThread sInstance;
+
+    /**
+     * 等待创建的请求
+     */
+    private final BlockingQueue<Request> mRequests = new LinkedBlockingQueue<>();
+
+    /**
+     * 主线程的Handler
+     */
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private ContentInflateThread() {
+        super(TAG);
+        setDaemon(true);
+    }
+
+    /**
+     * 获取共用的实例，第一次调用时启动线程
+     *
+     * @return
+     */
+    static synchronized ContentInflateThread getInstance() {
+        if (sInstance == null) {
+            sInstance = new ContentInflateThread();
+            sInstance.start();
+        }
+        return sInstance;
+    }
+
+    /**
+     * 添加创建请求
+     *
+     * @param request
+     */
+    void enqueue(Request request) {
+        this.mRequests.add(request);
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            Request request;
+            try {
+                request = this.mRequests.take();
+            }
+            catch (InterruptedException e) {
+                Log.w(TAG, e);
+                continue;
+            }
+            if (!request.mIsCancelled) {
+                try {
+                    request.mView = request.mFactory.onCreateContentView(request.mInflater);
+                }
+                catch (RuntimeException e) {
+                    // 在主线程重新创建
+                    Log.w(TAG, "Failed to create content view in the background, falling back to the main thread", e);
+                }
+            }
+            this.mMainHandler.post(request);
+        }
+    }
+
+    /**
+     * 创建完成的回调（主线程）
+     */
+    interface Callback {
+
+        /**
+         * 内容视图已创建
+         *
+         * @param request 请求，{@link Request#getView()} 为创建的内容视图
+         */
+        void onContentInflated(Request request);
+    }
+
+    /**
+     * 创建请求
+     */
+    static final class Request implements Runnable {
+
+        private final FloatingViewContentFactory mFactory;
+
+        private final LayoutInflater mInflater;
+
+        private final LayoutInflater mMainInflater;
+
+        private final Callback mCallback;
+
+        private volatile View mView;
+
+        private volatile boolean mIsCancelled;
+
+        /**
+         * 构造方法（主线程）
+         *
+         * @param factory      内容视图的工厂
+         * @param inflater     后台线程专用的LayoutInflater
+         * @param mainInflater 在主线程重新创建时使用的LayoutInflater
+         * @param callback     创建完成的回调
+         */
+        Request(FloatingViewContentFactory factory, LayoutInflater inflater, LayoutInflater mainInflater, Callback callback) {
+            this.mFactory = factory;
+            this.mInflater = inflater;
+            this.mMainInflater = mainInflater;
+            this.mCallback = callback;
+        }
+
+        /**
+         * 取消请求，之后不会再回调
+         */
+        void cancel() {
+            this.mIsCancelled = true;
+        }
+
+        FloatingViewContentFactory getFactory() {
+            return this.mFactory;
+        }
+
+        View getView() {
+            return this.mView;
+        }
+
+        @Override
+        public void run() {
+            if (this.mIsCancelled) {
+                return;
+            }
+            if (this.mView == null) {
+                // 后台创建失败，后台线程可能正在使用mInflater创建下一个请求
+                this.mView = this.mFactory.onCreateContentView(this.mMainInflater);
+            }
+            this.mCallback.onContentInflated(this);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.pzj.floatingview;
+
+import android.content.Context;
+import android.hardware.display.DisplayManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.RequiresApi;
+import android.util.DisplayMetrics;
+import android.util.SparseArray;
+import android.view.Display;
+
+/**
+ * 按显示器缓存的DisplayMetrics
+ * <p>
+ * 重新布局时不再每次向系统查询，监听期间显示器变化（旋转、分辨率变化、移除）时由DisplayListener（API 17以上）清除对应的缓存并回调，
+ * 更早的版本在配置变化时清除。
+ */
+class DisplayMetricsCache {
+
+    /**
+     * 显示器变化的回调（主线程）
+     */
+    interface Callback {
+
+        /**
+         * 显示器的大小或方向等发生了变化
+         *
+         * @param displayId
+         */
+        void onDisplayChanged(int displayId);
+
+        /**
+         * 显示器已移除
+         *
+         * @param displayId
+         */
+        void onDisplayRemoved(int displayId);
+    }
+
+    /**
+     * 缓存的DisplayMetrics（key为显示器ID）
+     */
+    private final SparseArray<DisplayMetrics> mMetrics;
+
+    /**
+     * 显示器变化的监听器，API 17以下为null
+     */
+    private final Object mDisplayListener;
+
+    /**
+     * DisplayManager，API 17以下为null
+     */
+    private final Object mDisplayManager;
+
+    /**
+     * 显示器变化的回调
+     */
+    private final Callback mCallback;
+
+    /**
+     * 是否正在监听显示器变化
+     */
+    private boolean mIsListening;
+
+    DisplayMetricsCache(Context context, Callback callback) {
+        this.mMetrics = new SparseArray<>();
+        this.mCallback = callback;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            this.mDisplayManager = context.getSystemService(Context.DISPLAY_SERVICE);
+            this.mDisplayListener = createDisplayListener();
+        }
+        else {
+            this.mDisplayManager = null;
+            this.mDisplayListener = null;
+        }
+    }
+
+    @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN_MR1)
+    private Object createDisplayListener() {
+        return new DisplayManager.DisplayListener() {
+            @Override
+            public void onDisplayAdded(int displayId) {
+            }
+
+            @Override
+            public void onDisplayRemoved(int displayId) {
+                invalidate(displayId);
+                mCallback.onDisplayRemoved(displayId);
+            }
+
+            @Override
+            public void onDisplayChanged(int displayId) {
+                invalidate(displayId);
+                mCallback.onDisplayChanged(displayId);
+            }
+        };
+    }
+
+    /**
+     * 开始或停止监听显示器变化（有悬浮窗时监听，避免DisplayManager一直持有）
+     * <p>
+     * 停止监听后缓存不再可靠，同时清除所有缓存
+     *
+     * @param listening
+     */
+    void setListening(boolean listening) {
+        if (listening == this.mIsListening) {
+            return;
+        }
+        this.mIsListening = listening;
+        if (!listening) {
+            this.mMetrics.clear();
+        }
+        if (this.mDisplayListener != null) {
+            if (listening) {
+                registerDisplayListener();
+            }
+            else {
+                unregisterDisplayListener();
+            }
+        }
+    }
+
+    @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN_MR1)
+    private void registerDisplayListener() {
+        ((DisplayManager) this.mDisplayManager).registerDisplayListener((DisplayManager.DisplayListener) this.mDisplayListener, new Handler(Looper.getMainLooper()));
+    }
+
+    /**
+     * 获取显示器的DisplayMetrics，没有监听显示器变化时直接查询
+     *
+     * @param display
+     * @param outMetrics 复制到这里
+     */
+    void getMetrics(Display display, DisplayMetrics outMetrics) {
+        int displayId = display.getDisplayId();
+        DisplayMetrics metrics = this.mIsListening ? this.mMetrics.get(displayId) : null;
+        if (metrics == null) {
+            display.getMetrics(outMetrics);
+            if (this.mIsListening) {
+                metrics = new DisplayMetrics();
+                metrics.setTo(outMetrics);
+                this.mMetrics.put(displayId, metrics);
+            }
+            return;
+        }
+        outMetrics.setTo(metrics);
+    }
+
+    /**
+     * 清除显示器的缓存
+     *
+     * @param displayId
+     */
+    void invalidate(int displayId) {
+        this.mMetrics.remove(displayId);
+    }
+
+    /**
+     * 获取显示器
+     *
+     * @param displayId
+     *
+     * @return 不存在或者API 17以下的非默认显示器时返回null
+     */
+    Display getDisplay(int displayId) {
+        if (this.mDisplayManager == null) {
+            return null;
+        }
+        return getDisplayCompat(displayId);
+    }
+
+    @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN_MR1)
+    private Display getDisplayCompat(int displayId) {
+        return ((DisplayManager) this.mDisplayManager).getDisplay(displayId);
+    }
+
+    @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN_MR1)
+    private void unregisterDisplayListener() {
+        ((DisplayManager) this.mDisplayManager).unregisterDisplayListener((DisplayManager.DisplayListener) this.mDisplayListener);
+    }
+}
@@ -0,0 +1,45 @@
+package com.pzj.floatingview;
+
+/**
+ * 画面端移动动画的坐标计算
+ * <p>
+ * 每次移动只修改起点和终点，动画每一帧只做基本类型运算，不产生任何对象。
+ */
+class EdgeSnapEvaluator {
+
+    /**
+     * 动画的起点坐标
+     */
+    private int mStartX;
+
+    /**
+     * 动画的终点坐标
+     */
+    private int mGoalX;
+
+    /**
+     * 重新设定起点和终点
+     *
+     * @param startX 起点坐标
+     * @param goalX  终点坐标
+     */
+    void retarget(int startX, int goalX) {
+        this.mStartX = startX;
+        this.mGoalX = goalX;
+    }
+
+    /**
+     * 计算动画进度对应的坐标
+     *
+     * @param fraction 插值后的动画进度（OvershootInterpolator 时可能超过1）
+     *
+     * @return 坐标
+     */
+    int evaluate(float fraction) {
+        return (int) (this.mStartX + fraction * (this.mGoalX - this.mStartX));
+    }
+
+    int getGoalX() {
+        return this.mGoalX;
+    }
+}
@@ -1,26 +1,37 @@
 package com.pzj.floatingview;
 
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
 import android.animation.TimeInterpolator;
 import android.animation.ValueAnimator;
 import android.content.Context;
 import android.content.res.Configuration;
-import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.PixelFormat;
 import android.graphics.Rect;
+import android.os.SystemClock;
 import android.support.annotation.IntDef;
 import android.support.annotation.NonNull;
+import android.support.v4.view.ViewCompat;
 import android.util.DisplayMetrics;
 import android.view.Gravity;
-import android.view.KeyCharacterMap;
-import android.view.KeyEvent;
 import android.view.MotionEvent;
 import android.view.View;
-import android.view.ViewConfiguration;
 import android.view.ViewGroup;
+import android.view.ViewConfiguration;
+import android.view.ViewParent;
 import android.view.ViewTreeObserver;
 import android.view.WindowManager;
 import android.view.animation.OvershootInterpolator;
 import android.widget.FrameLayout;
+import com.pzj.floatingview.core.GestureTracker;
+import com.pzj.floatingview.core.IntRect;
+import com.pzj.floatingview.core.PositionEngine;
+import com.pzj.floatingview.core.SnapTarget;
+import com.pzj.floatingview.core.SnapTargetIndex;
+import com.pzj.floatingview.core.TouchPredictor;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 
@@ -30,7 +41,7 @@ import java.lang.annotation.RetentionPolicy;
  * @author PengZhenjin
  * @date 2017-6-5
  */
-public class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawListener {
+public class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawListener, ValueAnimator.AnimatorUpdateListener {
 
     private static final String TAG = "FloatingView";
 
@@ -49,6 +60,51 @@ public class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreD
      */
     private static final float MOVE_TO_EDGE_OVERSHOOT_TENSION = 1.25f;
 
+    /**
+     * 释放速度的投影时间(s)，用于根据速度判断移动的目标位置
+     */
+    private static final float FLING_PROJECTION_SECONDS = 0.15f;
+
+    /**
+     * 弹簧动画单帧的最大时间(s)，避免掉帧后一次前进太多
+     */
+    private static final float MAX_FLING_FRAME_SECONDS = 0.05f;
+
+    /**
+     * 触摸预测的位置与手指的最大距离(dp)
+     */
+    private static final float TOUCH_PREDICTION_MAX_DISTANCE_DP = 48.0f;
+
+    /**
+     * 触摸预测视为可信的最大拟合误差(dp)
+     */
+    private static final float TOUCH_PREDICTION_MAX_RESIDUAL_DP = 2.0f;
+
+    /**
+     * 双指缩放时内容的最小尺寸(dp)
+     */
+    private static final float MIN_PINCH_SIZE_DP = 32.0f;
+
+    /**
+     * 重新布局的原因：悬浮窗大小变化
+     */
+    private static final int RELAYOUT_SIZE = 1;
+
+    /**
+     * 重新布局的原因：屏幕配置变化（旋转、分屏等）
+     */
+    private static final int RELAYOUT_DISPLAY = 1 << 1;
+
+    /**
+     * 重新布局的原因：状态栏或导航条变化
+     */
+    private static final int RELAYOUT_SYSTEM_LAYOUT = 1 << 2;
+
+    /**
+     * 窗口的默认flags
+     */
+    private static final int DEFAULT_WINDOW_FLAGS = WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE | WindowManager.LayoutParams.FLAG_LAYOUT_NO_LIMITS | WindowManager.LayoutParams.FLAG_NOT_TOUCH_MODAL;
+
     /**
      * 默认的X坐标值
      */
@@ -74,6 +130,11 @@ public class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreD
      */
     private WindowManager mWindowManager;
 
+    /**
+     * 按显示器缓存的DisplayMetrics，不使用时为null
+     */
+    private DisplayMetricsCache mDisplayMetricsCache;
+
     /**
      * LayoutParams
      */
@@ -95,20 +156,39 @@ public class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreD
     private float mViewTouchX, mViewTouchY;
 
     /**
-     * 屏幕的触摸坐标
+     * 屏幕的触摸坐标（拖动点）
      */
     private float mScreenTouchX, mScreenTouchY;
 
     /**
-     * 屏幕的触摸按下坐标（移动量判定用）
+     * 手势的状态机
      */
-    private float mScreenTouchDownX, mScreenTouchDownY;
+    private GestureTracker mGestureTracker;
+
+    /**
+     * 开始双指缩放时内容的大小和悬浮窗的触摸坐标
+     */
+    private int mPinchBaseWidth, mPinchBaseHeight;
+
+    private float mPinchViewTouchX, mPinchViewTouchY;
+
+    /**
+     * 悬浮窗ID（{@link FloatingViewManager} 分配）
+     */
+    private int mFloatingViewId;
 
     /**
      * 开始移动的标志
      */
     private boolean mIsMoveAccept;
 
+    /**
+     * 拖动中设置的位置，松开手指后再移动过去
+     */
+    private boolean mHasDeferredPosition;
+
+    private int mDeferredX, mDeferredY;
+
     /**
      * 动画初始移动时的标志
      */
@@ -147,24 +227,91 @@ public class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreD
     private int mNavigationBarHorizontalOffset;
 
     /**
-     * 移动动画
+     * 状态栏和导航条的尺寸是否来自实际的WindowInsets
+     */
+    private boolean mIsSystemInsetsTracked;
+
+    /**
+     * 窗口布局提交的脏检查
+     */
+    private LayoutCommitTracker mLayoutCommitTracker;
+
+    /**
+     * 释放后是否使用基于速度的弹簧动画
+     */
+    private boolean mIsFlingPhysics;
+
+    /**
+     * X轴和Y轴的弹簧
+     */
+    private SpringAxis mSpringX, mSpringY;
+
+    /**
+     * 弹簧动画是否正在进行
+     */
+    private boolean mIsFlinging;
+
+    /**
+     * 弹簧动画上一帧的时间(ns)
+     */
+    private long mFlingFrameTimeNanos;
+
+    /**
+     * 移动是否已经停止（停止回调只通知一次，取消动画和隐藏等多个途径都可能结束同一次移动）
+     */
+    private boolean mIsMoveSettled = true;
+
+    /**
+     * 弹簧动画的每一帧
+     */
+    private final Runnable mFlingFrameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            long now = System.nanoTime();
+            float seconds = Math.min((now - mFlingFrameTimeNanos) / 1000000000f, MAX_FLING_FRAME_SECONDS);
+            mFlingFrameTimeNanos = now;
+            if (mFloatingViewMetrics != null) {
+                recordAnimationFrame(now);
+            }
+            boolean isSettledX = mSpringX.step(seconds);
+            boolean isSettledY = mSpringY.step(seconds);
+            mParams.x = Math.round(mSpringX.getPosition());
+            mParams.y = Math.round(mSpringY.getPosition());
+            commitLayout();
+            if (isSettledX && isSettledY) {
+                mIsFlinging = false;
+                onMoveSettled();
+            }
+            else {
+                ViewCompat.postOnAnimation(FloatingView.this, this);
+            }
+        }
+    };
+
+    /**
+     * 共用的宿主窗口（不使用宿主窗口时为null）
+     */
+    private FloatingViewHost mHost;
+
+    /**
+     * 移动动画（创建一次，每次移动时重新设定起点和终点）
      */
     private ValueAnimator mMoveEdgeAnimator;
 
     /**
-     * TimeInterpolator
+     * 移动动画的坐标计算
      */
-    private TimeInterpolator mMoveEdgeInterpolator;
+    private EdgeSnapEvaluator mMoveEdgeEvaluator;
 
     /**
-     * 移动的界限Rect
+     * TimeInterpolator
      */
-    private Rect mMoveLimitRect;
+    private TimeInterpolator mMoveEdgeInterpolator;
 
     /**
-     * 显示位置的界限Rect
+     * 位置计算（移动的界限、显示位置的界限、画面端的判定）
      */
-    private Rect mPositionLimitRect;
+    private PositionEngine mPositionEngine;
 
     /**
      * 悬浮窗边缘的外边距
@@ -186,25 +333,248 @@ public class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreD
      */
     private boolean mIsTablet;
 
+    /**
+     * 拖动时是否按帧合并位置更新
+     */
+    private boolean mIsFrameCoalescedDrag;
+
+    /**
+     * 拖动位置的按帧合并器
+     */
+    private FramePositionCoalescer mDragCoalescer;
+
+    /**
+     * 拖动时的触摸预测，未开启时为null
+     */
+    private TouchPredictor mTouchPredictor;
+
+    /**
+     * 最新触摸采样的时间(ms)，用于测量从采样到显示的延迟
+     */
+    private long mTouchEventTime;
+
+    /**
+     * 所在显示器的帧间隔(ms)
+     */
+    private long mFrameIntervalMillis;
+
+    /**
+     * 长按的超时
+     */
+    private final Runnable mLongPressRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mGestureTracker.checkLongPress(SystemClock.uptimeMillis());
+        }
+    };
+
+    /**
+     * 手势的回调，坐标都是屏幕坐标
+     */
+    private final GestureTracker.Listener mGestureListener = new GestureTracker.Listener() {
+        @Override
+        public void onTap(float x, float y) {
+            View child = findChildUnder(mViewTouchX, mViewTouchY);
+            if (child != null) {
+                child.performClick();
+            }
+        }
+
+        @Override
+        public void onLongPress(float x, float y) {
+            View child = findChildUnder(mViewTouchX, mViewTouchY);
+            if (child != null) {
+                child.performLongClick();
+            }
+        }
+
+        @Override
+        public void onDragStart() {
+            removeCallbacks(mLongPressRunnable);
+            mIsMoveAccept = true;
+            onMoveStart();
+        }
+
+        @Override
+        public void onDrag(float x, float y) {
+            mScreenTouchX = x;
+            mScreenTouchY = y;
+            onTouchDrag();
+        }
+
+        @Override
+        public void onDragEnd(float x, float y, float velocityX, float velocityY, boolean isFling) {
+            mScreenTouchX = x;
+            mScreenTouchY = y;
+            onTouchRelease(isFling ? velocityX : 0, isFling ? velocityY : 0);
+        }
+
+        @Override
+        public void onPinchStart(float focusX, float focusY) {
+            View content = getChildAt(0);
+            mPinchBaseWidth = content != null ? content.getWidth() : 0;
+            mPinchBaseHeight = content != null ? content.getHeight() : 0;
+            mPinchViewTouchX = mViewTouchX;
+            mPinchViewTouchY = mViewTouchY;
+        }
+
+        @Override
+        public void onPinch(float scale, float focusX, float focusY) {
+            resizeContent(scale);
+        }
+
+        @Override
+        public void onPinchEnd(float scale) {
+        }
+    };
+
+    /**
+     * 拖动时每帧提交一次位置
+     */
+    private final Runnable mDragFrameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mDragCoalescer.onFrame()) {
+                updateViewPosition(mDragCoalescer.getPendingX(), mDragCoalescer.getPendingY());
+            }
+        }
+    };
+
+    /**
+     * 移动停止的监听器
+     */
+    interface OnMoveSettledListener {
+
+        /**
+         * 悬浮窗停止了移动（拖动后的动画结束，或者直接移动到了目标位置）
+         *
+         * @param floatingView
+         */
+        void onMoveSettled(FloatingView floatingView);
+    }
+
+    /**
+     * 移动停止的监听器（{@link FloatingViewManager} 避免悬浮窗重叠时使用）
+     */
+    private OnMoveSettledListener mOnMoveSettledListener;
+
+    /**
+     * 位置变化的监听器
+     */
+    interface OnPositionChangedListener {
+
+        /**
+         * 新的位置已经提交给了窗口
+         *
+         * @param floatingView
+         */
+        void onPositionChanged(FloatingView floatingView);
+    }
+
+    /**
+     * 位置变化的监听器（{@link FloatingViewManager} 带动跟随的悬浮窗时使用）
+     */
+    private OnPositionChangedListener mOnPositionChangedListener;
+
+    /**
+     * 磁吸目标的空间索引，没有时为null
+     */
+    private SnapTargetIndex mSnapTargets;
+
+    /**
+     * 磁吸目标的监听器
+     */
+    private FloatingViewSnapListener mSnapListener;
+
+    /**
+     * 拖动中当前所在的磁吸目标
+     */
+    private SnapTarget mSnapTarget;
+
+    /**
+     * 运行时统计（未开启时为null）
+     */
+    private FloatingViewMetrics mFloatingViewMetrics;
+
+    /**
+     * 拖动和动画期间是否使用内容的快照代替实时绘制
+     */
+    private boolean mIsContentSnapshot;
+
+    /**
+     * 内容的快照是否正在使用
+     */
+    private boolean mIsSnapshotActive;
+
+    /**
+     * 快照是否已经在按下时绘制好，开始拖动时直接使用
+     */
+    private boolean mIsSnapshotPrepared;
+
+    /**
+     * 内容的快照（大小不变时重复使用）
+     */
+    private Bitmap mSnapshotBitmap;
+
+    /**
+     * 绘制快照的Canvas
+     */
+    private Canvas mSnapshotCanvas;
+
+    /**
+     * 等待下一帧执行的重新布局的原因（RELAYOUT_*的组合），0表示没有
+     */
+    private int mPendingRelayout;
+
+    /**
+     * 屏幕旋转后是否以动画移动到新的位置
+     */
+    private boolean mIsAnimateRotation;
+
+    /**
+     * 系统ui实际占用的区域（{@link #mIsSystemInsetsTracked} 时有效）
+     */
+    private final Rect mSystemInsets = new Rect();
+
+    /**
+     * 接收系统ui占用区域的全屏窗口的大小
+     */
+    private int mSystemFrameWidth, mSystemFrameHeight;
+
+    /**
+     * 一帧内的多次大小、配置、系统ui变化合并为一次重新布局
+     */
+    private final Runnable mRelayoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            performRelayout(true);
+        }
+    };
+
+    /**
+     * 统计用：按下的时间、抬起的时间、动画上一帧的时间(ns)，0表示没有记录
+     */
+    private long mMetricsDownNanos, mMetricsUpNanos, mMetricsFrameNanos;
+
     /**
      * 移动方向 - 默认
      */
-    public static final int MOVE_DIRECTION_DEFAULT = 0;
+    public static final int MOVE_DIRECTION_DEFAULT = PositionEngine.MOVE_DIRECTION_DEFAULT;
 
     /**
      * 移动方向 - 左移动
      */
-    public static final int MOVE_DIRECTION_LEFT = 1;
+    public static final int MOVE_DIRECTION_LEFT = PositionEngine.MOVE_DIRECTION_LEFT;
 
     /**
      * 移动方向 - 右移动
      */
-    public static final int MOVE_DIRECTION_RIGHT = 2;
+    public static final int MOVE_DIRECTION_RIGHT = PositionEngine.MOVE_DIRECTION_RIGHT;
 
     /**
      * 移动方向 - 不移动
      */
-    public static final int MOVE_DIRECTION_NONE = 3;
+    public static final int MOVE_DIRECTION_NONE = PositionEngine.MOVE_DIRECTION_NONE;
 
     /**
      * 移动方向
@@ -213,6 +583,63 @@ public class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreD
     @Retention(RetentionPolicy.SOURCE)
     public @interface MoveDirection {}
 
+    /**
+     * 可见状态 - 完全在屏幕内
+     */
+    public static final int VISIBILITY_STATE_VISIBLE = 0;
+
+    /**
+     * 可见状态 - 部分在屏幕外
+     */
+    public static final int VISIBILITY_STATE_PARTIAL = 1;
+
+    /**
+     * 可见状态 - 不可见（完全在屏幕外、已隐藏、窗口已移除或屏幕关闭）
+     */
+    public static final int VISIBILITY_STATE_HIDDEN = 2;
+
+    /**
+     * 可见状态
+     */
+    @IntDef({ VISIBILITY_STATE_VISIBLE, VISIBILITY_STATE_PARTIAL, VISIBILITY_STATE_HIDDEN })
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface VisibilityState {}
+
+    /**
+     * 可见状态的监听器
+     */
+    private FloatingViewVisibilityListener mVisibilityListener;
+
+    /**
+     * 当前的可见状态
+     */
+    private int mVisibilityState = VISIBILITY_STATE_VISIBLE;
+
+    /**
+     * 当前在屏幕内的面积比例
+     */
+    private float mVisibleFraction = 1f;
+
+    /**
+     * 屏幕是否打开
+     */
+    private boolean mIsScreenOn = true;
+
+    /**
+     * 不可见时是否暂停内容
+     */
+    private boolean mIsPauseContentWhenHidden;
+
+    /**
+     * 内容是否已暂停
+     */
+    private boolean mIsContentPaused;
+
+    /**
+     * 暂停时设置为INVISIBLE的内容视图，恢复时设置回VISIBLE
+     */
+    private View mPausedContent;
+
     /**
      * 构造方法
      *
@@ -229,7 +656,7 @@ public class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreD
         this.mParams.width = ViewGroup.LayoutParams.WRAP_CONTENT;
         this.mParams.height = ViewGroup.LayoutParams.WRAP_CONTENT;
         this.mParams.type = WindowManager.LayoutParams.TYPE_PHONE;
-        this.mParams.flags = WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE | WindowManager.LayoutParams.FLAG_LAYOUT_NO_LIMITS | WindowManager.LayoutParams.FLAG_NOT_TOUCH_MODAL;
+        this.mParams.flags = DEFAULT_WINDOW_FLAGS;
         this.mParams.format = PixelFormat.TRANSLUCENT;
         this.mParams.gravity = Gravity.LEFT | Gravity.TOP;
 
@@ -237,65 +664,90 @@ public class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreD
         this.mInitY = y;
 
         this.mMoveEdgeInterpolator = new OvershootInterpolator(MOVE_TO_EDGE_OVERSHOOT_TENSION);
+        this.mMoveEdgeEvaluator = new EdgeSnapEvaluator();
+        this.mLayoutCommitTracker = new LayoutCommitTracker();
+        this.mMoveEdgeAnimator = ValueAnimator.ofFloat(0f, 1f);
+        this.mMoveEdgeAnimator.setDuration(MOVE_TO_EDGE_DURATION);
+        this.mMoveEdgeAnimator.setInterpolator(this.mMoveEdgeInterpolator);
+        this.mMoveEdgeAnimator.addUpdateListener(this);
+        this.mMoveEdgeAnimator.addListener(new AnimatorListenerAdapter() {
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                onMoveSettled();
+            }
+        });
         this.mMoveDirection = FloatingView.MOVE_DIRECTION_DEFAULT;
-
-        Resources resources = context.getResources();
-        this.mIsTablet = (resources.getConfiguration().screenLayout & Configuration.SCREENLAYOUT_SIZE_MASK) >= Configuration.SCREENLAYOUT_SIZE_LARGE;
-
-        this.mMoveLimitRect = new Rect();
-        this.mPositionLimitRect = new Rect();
-
-        this.mBaseStatusBarHeight = this.getSystemUiDimensionPixelSize(resources, "status_bar_height");
+        this.mIsAnimateRotation = false;
+        this.mIsFrameCoalescedDrag = true;
+        this.mDragCoalescer = new FramePositionCoalescer();
+        this.mSpringX = new SpringAxis();
+        this.mSpringY = new SpringAxis();
+        ViewConfiguration viewConfiguration = ViewConfiguration.get(context);
+        this.mGestureTracker = new GestureTracker(this.mGestureListener, MOVE_THRESHOLD_DP * this.mMetrics.density, viewConfiguration.getScaledMinimumFlingVelocity(),
+                                                  viewConfiguration.getScaledMaximumFlingVelocity());
+
+        this.mPositionEngine = new PositionEngine();
+
+        loadSystemUiDimensions(SystemUiDimensions.get(context));
         this.mStatusBarHeight = mBaseStatusBarHeight;
 
-        boolean hasMenuKey = ViewConfiguration.get(context).hasPermanentMenuKey();
-        boolean hasBackKey = KeyCharacterMap.deviceHasKey(KeyEvent.KEYCODE_BACK);
-        if (hasMenuKey || hasBackKey) {
-            this.mBaseNavigationBarHeight = 0;
-            this.mBaseNavigationBarRotatedHeight = 0;
-        }
-        else {
-            this.mBaseNavigationBarHeight = getSystemUiDimensionPixelSize(resources, "navigation_bar_height");
-            final String resName = mIsTablet ? "navigation_bar_height_landscape" : "navigation_bar_width";
-            this.mBaseNavigationBarRotatedHeight = getSystemUiDimensionPixelSize(resources, resName);
-        }
-
         getViewTreeObserver().addOnPreDrawListener(this);
     }
 
     /**
-     * 获得系统ui维度(像素)
-     *
-     * @param resources {@link Resources}
-     * @param resName   dimension resource name
+     * 读取系统ui尺寸和设备特性
      *
-     * @return pixel size
+     * @param dimensions 进程级缓存的系统ui尺寸
      */
-    private int getSystemUiDimensionPixelSize(Resources resources, String resName) {
-        int pixelSize = 0;
-        final int resId = resources.getIdentifier(resName, "dimen", "android");
-        if (resId > 0) {
-            pixelSize = resources.getDimensionPixelSize(resId);
-        }
-        return pixelSize;
+    private void loadSystemUiDimensions(SystemUiDimensions dimensions) {
+        this.mIsTablet = dimensions.isTablet;
+        this.mBaseStatusBarHeight = dimensions.statusBarHeight;
+        this.mBaseNavigationBarHeight = dimensions.navigationBarHeight;
+        this.mBaseNavigationBarRotatedHeight = dimensions.navigationBarRotatedHeight;
     }
 
     @Override
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
-        boolean isSizeChanged = w != oldw || h != oldh;
-        updateViewLayout(isSizeChanged);
+        requestRelayout(RELAYOUT_SIZE);
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        updateVisibilityState();
+    }
+
+    @Override
+    public void onScreenStateChanged(int screenState) {
+        super.onScreenStateChanged(screenState);
+        this.mIsScreenOn = screenState == SCREEN_STATE_ON;
+        updateVisibilityState();
     }
 
     @Override
     protected void onConfigurationChanged(Configuration newConfig) {
         super.onConfigurationChanged(newConfig);
-        updateViewLayout(false);
+        // 只有屏幕密度或尺寸类别变化时缓存才会重新查找
+        loadSystemUiDimensions(SystemUiDimensions.get(getContext()));
+        if (this.mDisplayMetricsCache != null) {
+            this.mDisplayMetricsCache.invalidate(getDisplayId());
+        }
+        if (!this.mIsSystemInsetsTracked) {
+            boolean isStatusBarShown = this.mStatusBarHeight != 0;
+            this.mStatusBarHeight = isStatusBarShown ? this.mBaseStatusBarHeight : 0;
+        }
+        requestRelayout(RELAYOUT_DISPLAY);
     }
 
     @Override
     public boolean onPreDraw() {
         getViewTreeObserver().removeOnPreDrawListener(this);
+        if (this.mPendingRelayout != 0) {
+            // 初始位置需要最新的移动范围，不等下一帧
+            removeCallbacks(this.mRelayoutRunnable);
+            performRelayout(false);
+        }
         if (this.mInitX == DEFAULT_X) {
             this.mInitX = 0;
         }
@@ -314,7 +766,7 @@ public class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreD
             moveToEdge(this.mInitX, this.mInitY, this.mAnimateInitialMove);
         }
 
-        this.mWindowManager.updateViewLayout(this, this.mParams);
+        commitLayout();
 
         return true;
     }
@@ -325,11 +777,18 @@ public class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreD
      * @param isHideStatusBar     If true, the status bar is hidden
      * @param isHideNavigationBar If true, the navigation bar is hidden
      * @param isPortrait          If true, the device orientation is portrait
+     *
+     * @deprecated 导航条的尺寸是根据资源推测的，手势导航和刘海屏上不准确，
+     * 使用 {@link FloatingViewManager#setSystemInsetsTracking(boolean)} 跟踪实际的占用区域，开启后调用此方法无效
      */
+    @Deprecated
     public void onUpdateSystemLayout(boolean isHideStatusBar, boolean isHideNavigationBar, boolean isPortrait) {
+        if (this.mIsSystemInsetsTracked) {
+            return;
+        }
         this.mStatusBarHeight = isHideStatusBar ? 0 : this.mBaseStatusBarHeight;
         updateNavigationBarOffset(isHideNavigationBar, isPortrait);
-        updateViewLayout(true);
+        requestRelayout(RELAYOUT_SYSTEM_LAYOUT);
     }
 
     /**
@@ -365,94 +824,309 @@ public class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreD
     }
 
     /**
-     * 更新悬浮窗布局
+     * 系统ui实际占用的区域发生了变化
+     * <p>
+     * 在下一帧的重新布局时换算成状态栏高度和导航条的偏移量，只有显示位置的界限变化时才重新定位并提交布局。
      *
-     * @param isSizeChanged 悬浮窗大小是否有变化
+     * @param frameWidth  全屏窗口的宽度
+     * @param frameHeight 全屏窗口的高度
+     * @param insets      状态栏、导航条在四个方向上占用的尺寸
      */
-    private void updateViewLayout(boolean isSizeChanged) {
-        cancelAnimation();
-
-        int oldScreenHeight = this.mMetrics.heightPixels;
-        int oldScreenWidth = this.mMetrics.widthPixels;
-        int oldPositionLimitWidth = this.mPositionLimitRect.width();
-        int oldPositionLimitHeight = this.mPositionLimitRect.height();
-
-        this.mWindowManager.getDefaultDisplay().getMetrics(mMetrics);
-        int width = getMeasuredWidth();
-        int height = getMeasuredHeight();
-        int newScreenWidth = this.mMetrics.widthPixels;
-        int newScreenHeight = this.mMetrics.heightPixels;
-
-        // 设定移动范围
-        this.mMoveLimitRect.set(-width, -height * 2, newScreenWidth + width + this.mNavigationBarHorizontalOffset, newScreenHeight + height + this.mNavigationBarVerticalOffset);
-        this.mPositionLimitRect.set(-this.mOverMargin, 0, newScreenWidth - width + this.mOverMargin + this.mNavigationBarHorizontalOffset, newScreenHeight - this.mStatusBarHeight - height + this.mNavigationBarVerticalOffset);
-
-        // FloatingView size changed or device rotating
-        if (isSizeChanged || oldScreenWidth != newScreenWidth || oldScreenHeight != newScreenHeight) {
-            if (this.mMoveDirection == FloatingView.MOVE_DIRECTION_DEFAULT) {
-                if (this.mParams.x > (newScreenWidth - width) / 2) {
-                    this.mParams.x = this.mPositionLimitRect.right;
-                }
-                else {
-                    this.mParams.x = this.mPositionLimitRect.left;
-                }
-            }
-            else if (this.mMoveDirection == FloatingView.MOVE_DIRECTION_LEFT) {
-                this.mParams.x = this.mPositionLimitRect.left;
-            }
-            else if (this.mMoveDirection == FloatingView.MOVE_DIRECTION_RIGHT) {
-                this.mParams.x = mPositionLimitRect.right;
-            }
-            else {
-                int newX = (int) (this.mParams.x * this.mPositionLimitRect.width() / (float) oldPositionLimitWidth + 0.5f);
-                this.mParams.x = Math.min(Math.max(this.mPositionLimitRect.left, newX), this.mPositionLimitRect.right);
-            }
-
-            int newY = (int) (this.mParams.y * this.mPositionLimitRect.height() / (float) oldPositionLimitHeight + 0.5f);
-            this.mParams.y = Math.min(Math.max(this.mPositionLimitRect.top, newY), this.mPositionLimitRect.bottom);
-            this.mWindowManager.updateViewLayout(this, this.mParams);
+    void onSystemInsetsChanged(int frameWidth, int frameHeight, Rect insets) {
+        if (this.mIsSystemInsetsTracked && this.mSystemFrameWidth == frameWidth && this.mSystemFrameHeight == frameHeight && this.mSystemInsets.equals(insets)) {
+            return;
         }
+        this.mIsSystemInsetsTracked = true;
+        this.mSystemFrameWidth = frameWidth;
+        this.mSystemFrameHeight = frameHeight;
+        this.mSystemInsets.set(insets);
+        requestRelayout(RELAYOUT_SYSTEM_LAYOUT);
     }
 
-    @Override
-    protected void onDetachedFromWindow() {
-        if (this.mMoveEdgeAnimator != null) {
-            this.mMoveEdgeAnimator.removeAllUpdateListeners();
-        }
-        super.onDetachedFromWindow();
+    /**
+     * 按照系统ui实际占用的区域设定状态栏高度和导航条的偏移量（需要最新的DisplayMetrics）
+     */
+    private void applySystemInsets() {
+        Rect insets = this.mSystemInsets;
+        // DisplayMetrics不含显示中的导航条，隐藏后多出来的部分作为偏移量
+        this.mStatusBarHeight = insets.top;
+        this.mNavigationBarHorizontalOffset = this.mSystemFrameWidth - insets.left - insets.right - this.mMetrics.widthPixels;
+        this.mNavigationBarVerticalOffset = this.mSystemFrameHeight - insets.bottom - this.mMetrics.heightPixels;
     }
 
-    @Override
-    public boolean dispatchTouchEvent(MotionEvent event) {
-        this.mScreenTouchX = event.getRawX();
-        this.mScreenTouchY = event.getRawY();
-        int action = event.getAction();
-        if (action == MotionEvent.ACTION_DOWN) {
-            cancelAnimation();
-            this.mScreenTouchDownX = this.mScreenTouchX;
-            this.mScreenTouchDownY = this.mScreenTouchY;
-            this.mViewTouchX = event.getX();
-            this.mViewTouchY = event.getY();
-            this.mIsMoveAccept = false;
+    /**
+     * 在下一帧重新布局，同一帧内的多次请求只执行一次
+     *
+     * @param reason RELAYOUT_*
+     */
+    private void requestRelayout(int reason) {
+        boolean isScheduled = this.mPendingRelayout != 0;
+        this.mPendingRelayout |= reason;
+        if (!isScheduled) {
+            ViewCompat.postOnAnimation(this, this.mRelayoutRunnable);
+        }
+    }
+
+    /**
+     * 执行等待中的重新布局
+     * <p>
+     * 只有屏幕或系统ui变化时才重新读取DisplayMetrics，只有显示位置的界限变化时才重新定位并提交布局。
+     *
+     * @param allowAnimation 屏幕旋转时是否可以用动画移动
+     */
+    private void performRelayout(boolean allowAnimation) {
+        int reasons = this.mPendingRelayout;
+        this.mPendingRelayout = 0;
+        if (reasons == 0) {
+            return;
         }
-        else if (action == MotionEvent.ACTION_MOVE) {
-            float moveThreshold = MOVE_THRESHOLD_DP * this.mMetrics.density;
-            if (!this.mIsMoveAccept && Math.abs(this.mScreenTouchX - this.mScreenTouchDownX) < moveThreshold && Math.abs(this.mScreenTouchY - this.mScreenTouchDownY) < moveThreshold) {
-                return true;
+
+        int oldScreenWidth = this.mMetrics.widthPixels;
+        int oldScreenHeight = this.mMetrics.heightPixels;
+        IntRect positionLimit = this.mPositionEngine.getPositionLimit();
+        int oldPositionLimitWidth = positionLimit.width();
+        int oldPositionLimitHeight = positionLimit.height();
+
+        if ((reasons & (RELAYOUT_DISPLAY | RELAYOUT_SYSTEM_LAYOUT)) != 0) {
+            loadDisplayMetrics();
+            if (this.mIsSystemInsetsTracked) {
+                applySystemInsets();
             }
-            this.mIsMoveAccept = true;
-            this.updateViewPosition(getXByTouch(), getYByTouch());
         }
-        else if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
-            if (this.mIsMoveAccept) {
-                moveToEdge(true);
+
+        // 设定移动范围，界限没有变化时不需要重新定位
+        if (updateMoveLimit()) {
+            int goalPositionX = this.mPositionEngine.repositionX(this.mParams.x, this.mMoveDirection, oldPositionLimitWidth);
+            int goalPositionY = this.mPositionEngine.repositionY(this.mParams.y, oldPositionLimitHeight);
+            boolean isRotated = oldScreenWidth != this.mMetrics.widthPixels || oldScreenHeight != this.mMetrics.heightPixels;
+            cancelAnimation();
+            if (allowAnimation && isRotated && this.mIsAnimateRotation && getVisibility() == VISIBLE && getWindowToken() != null) {
+                // 从新的移动范围内最近的位置移动过去
+                springTo(this.mPositionEngine.clampX(this.mParams.x), this.mPositionEngine.clampY(this.mParams.y), 0, 0, goalPositionX, goalPositionY);
             }
             else {
-                int size = getChildCount();
-                for (int i = 0; i < size; i++) {
-                    getChildAt(i).performClick();
+                this.mParams.x = goalPositionX;
+                this.mParams.y = goalPositionY;
+                commitLayout();
+            }
+        }
+        updateVisibilityState();
+    }
+
+    /**
+     * 读取所在显示器的DisplayMetrics（有缓存时使用缓存）
+     */
+    private void loadDisplayMetrics() {
+        if (this.mDisplayMetricsCache != null) {
+            this.mDisplayMetricsCache.getMetrics(this.mWindowManager.getDefaultDisplay(), this.mMetrics);
+        }
+        else {
+            this.mWindowManager.getDefaultDisplay().getMetrics(this.mMetrics);
+        }
+    }
+
+    /**
+     * 设置悬浮窗所在的显示器（窗口已移除或者还未添加时调用）
+     * <p>
+     * 切换显示器后按照新显示器的大小换算位置，之前跟踪的系统ui占用区域作废，等待新显示器的通知。
+     *
+     * @param windowManager 对应显示器的WindowManager
+     * @param cache         按显示器缓存的DisplayMetrics，可以为null
+     */
+    void setWindowManager(WindowManager windowManager, DisplayMetricsCache cache) {
+        this.mDisplayMetricsCache = cache;
+        if (windowManager == this.mWindowManager) {
+            return;
+        }
+        this.mWindowManager = windowManager;
+        if (this.mIsSystemInsetsTracked) {
+            this.mIsSystemInsetsTracked = false;
+            this.mStatusBarHeight = this.mBaseStatusBarHeight;
+            this.mNavigationBarHorizontalOffset = 0;
+            this.mNavigationBarVerticalOffset = 0;
+        }
+        if (this.mTouchPredictor != null) {
+            loadFrameInterval();
+        }
+        requestRelayout(RELAYOUT_DISPLAY);
+    }
+
+    /**
+     * 获取悬浮窗所在显示器的WindowManager
+     *
+     * @return
+     */
+    WindowManager getWindowManager() {
+        return this.mWindowManager;
+    }
+
+    /**
+     * 获取悬浮窗所在显示器的ID
+     *
+     * @return
+     */
+    int getDisplayId() {
+        return this.mWindowManager.getDefaultDisplay().getDisplayId();
+    }
+
+    /**
+     * 所在显示器的大小或方向发生了变化（没有配置变化通知的副显示器也会回调）
+     */
+    void onDisplayChanged() {
+        requestRelayout(RELAYOUT_DISPLAY);
+    }
+
+    /**
+     * 按照当前的屏幕大小和悬浮窗大小设定移动范围
+     *
+     * @return 显示位置的界限是否有变化
+     */
+    private boolean updateMoveLimit() {
+        return this.mPositionEngine.updateLimits(this.mMetrics.widthPixels, this.mMetrics.heightPixels, getMeasuredWidth(), getMeasuredHeight(), this.mOverMargin, this.mStatusBarHeight,
+                                                 this.mNavigationBarHorizontalOffset, this.mNavigationBarVerticalOffset);
+    }
+
+    /**
+     * 重置为刚创建时的状态，从回收池中重新使用前调用（窗口已移除）
+     *
+     * @param x 悬浮窗在屏幕上的x坐标
+     * @param y 悬浮窗在屏幕上的y坐标
+     */
+    void reset(int x, int y) {
+        cancelPendingDrag();
+        cancelAnimation();
+        removeCallbacks(this.mLongPressRunnable);
+        this.mGestureTracker.reset();
+        this.mInitX = x;
+        this.mInitY = y;
+        this.mFloatingViewId = FloatingViewManager.NO_ID;
+        this.mIsMoveSettled = true;
+        this.mParams.x = 0;
+        this.mParams.y = 0;
+        this.mParams.width = ViewGroup.LayoutParams.WRAP_CONTENT;
+        this.mParams.height = ViewGroup.LayoutParams.WRAP_CONTENT;
+        this.mParams.flags = DEFAULT_WINDOW_FLAGS;
+        this.mHost = null;
+        releaseContentSnapshot();
+        this.mViewTouchX = 0;
+        this.mViewTouchY = 0;
+        this.mIsMoveAccept = false;
+        this.mHasDeferredPosition = false;
+        this.mOnTouchListener = null;
+        this.mVisibilityListener = null;
+        this.mSnapTargets = null;
+        this.mSnapListener = null;
+        this.mSnapTarget = null;
+        this.mOnMoveSettledListener = null;
+        this.mOnPositionChangedListener = null;
+        this.mVisibilityState = VISIBILITY_STATE_VISIBLE;
+        this.mVisibleFraction = 1f;
+        this.mIsContentPaused = false;
+        this.mPausedContent = null;
+        setMetrics(null);
+        setVisibility(VISIBLE);
+        setTranslationX(0);
+        setTranslationY(0);
+        this.mLayoutCommitTracker.invalidate();
+        // 大小没有变化时不会回调onSizeChanged，回收期间屏幕可能已经旋转，显示前重新计算移动范围
+        removeCallbacks(this.mRelayoutRunnable);
+        this.mPendingRelayout = RELAYOUT_DISPLAY;
+        ViewTreeObserver observer = getViewTreeObserver();
+        observer.removeOnPreDrawListener(this);
+        observer.addOnPreDrawListener(this);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        // addView时窗口已经持有了当前的布局参数
+        this.mLayoutCommitTracker.markCommitted(this.mParams.x, this.mParams.y, this.mParams.width, this.mParams.height, this.mParams.flags);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        cancelPendingDrag();
+        cancelAnimation();
+        releaseContentSnapshot();
+        setVisibilityState(VISIBILITY_STATE_HIDDEN, 0f);
+        removeCallbacks(this.mLongPressRunnable);
+        this.mGestureTracker.reset();
+        super.onDetachedFromWindow();
+    }
+
+    /**
+     * 把触摸事件按动作拆分后交给 {@link GestureTracker}，拖动、点击等在它的回调中处理
+     * <p>
+     * 历史采样和其他手指只有View内的坐标，与主手指使用同一个偏移换算为屏幕坐标
+     *
+     * @param event
+     *
+     * @return
+     */
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent event) {
+        int action = event.getActionMasked();
+        long time = event.getEventTime();
+        float offsetX = event.getRawX() - event.getX();
+        float offsetY = event.getRawY() - event.getY();
+        switch (action) {
+            case MotionEvent.ACTION_DOWN: {
+                cancelAnimation();
+                cancelPendingDrag();
+                removeCallbacks(this.mLongPressRunnable);
+                this.mScreenTouchX = event.getRawX();
+                this.mScreenTouchY = event.getRawY();
+                this.mViewTouchX = event.getX();
+                this.mViewTouchY = event.getY();
+                this.mIsMoveAccept = false;
+                this.mHasDeferredPosition = false;
+                if (this.mFloatingViewMetrics != null) {
+                    this.mMetricsDownNanos = System.nanoTime();
+                }
+                // 在按下时准备快照，不占用开始拖动的那一帧
+                prepareContentSnapshot();
+                // 只有内容可以长按时才检测长按，否则按住再松开仍然是点击
+                View child = findChildUnder(this.mViewTouchX, this.mViewTouchY);
+                long longPressTimeout = child != null && child.isLongClickable() ? ViewConfiguration.getLongPressTimeout() : 0;
+                this.mGestureTracker.setLongPressTimeout(longPressTimeout);
+                this.mGestureTracker.onDown(time, event.getPointerId(0), this.mScreenTouchX, this.mScreenTouchY);
+                if (longPressTimeout > 0) {
+                    postDelayed(this.mLongPressRunnable, longPressTimeout);
                 }
+                if (this.mTouchPredictor != null) {
+                    this.mTouchPredictor.reset();
+                    this.mTouchPredictor.addSample(time, this.mScreenTouchX, this.mScreenTouchY);
+                    this.mTouchEventTime = time;
+                }
+                break;
+            }
+            case MotionEvent.ACTION_POINTER_DOWN: {
+                int index = event.getActionIndex();
+                this.mGestureTracker.onPointerDown(time, event.getPointerId(index), event.getX(index) + offsetX, event.getY(index) + offsetY);
+                break;
             }
+            case MotionEvent.ACTION_MOVE:
+                addMovements(event, offsetX, offsetY);
+                this.mGestureTracker.onMove(time);
+                break;
+            case MotionEvent.ACTION_POINTER_UP:
+                this.mGestureTracker.onPointerUp(time, event.getPointerId(event.getActionIndex()));
+                break;
+            case MotionEvent.ACTION_UP:
+                removeCallbacks(this.mLongPressRunnable);
+                cancelPendingDrag();
+                this.mGestureTracker.onUp(time, event.getPointerId(0), event.getRawX(), event.getRawY());
+                // 没有拖动时准备的快照已经过时
+                this.mIsSnapshotPrepared = false;
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                removeCallbacks(this.mLongPressRunnable);
+                cancelPendingDrag();
+                this.mGestureTracker.cancel();
+                this.mIsSnapshotPrepared = false;
+                break;
+            default:
+                break;
         }
         if (this.mOnTouchListener != null) {
             this.mOnTouchListener.onTouch(this, event);
@@ -460,6 +1134,130 @@ public class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreD
         return true;
     }
 
+    /**
+     * 把移动事件中所有手指的采样（包括批量送达的历史采样）交给 {@link GestureTracker}，移动的阈值和速度都基于所有的采样
+     * <p>
+     * 触摸预测使用每个采样时间的拖动点
+     *
+     * @param event   ACTION_MOVE
+     * @param offsetX View内坐标到屏幕坐标的偏移
+     * @param offsetY
+     */
+    private void addMovements(MotionEvent event, float offsetX, float offsetY) {
+        int pointerCount = event.getPointerCount();
+        int historySize = event.getHistorySize();
+        for (int h = 0; h <= historySize; h++) {
+            long time = h < historySize ? event.getHistoricalEventTime(h) : event.getEventTime();
+            for (int i = 0; i < pointerCount; i++) {
+                float x = h < historySize ? event.getHistoricalX(i, h) : event.getX(i);
+                float y = h < historySize ? event.getHistoricalY(i, h) : event.getY(i);
+                this.mGestureTracker.addMovement(time, event.getPointerId(i), x + offsetX, y + offsetY);
+            }
+            if (this.mTouchPredictor != null) {
+                this.mTouchPredictor.addSample(time, this.mGestureTracker.getDragX(), this.mGestureTracker.getDragY());
+            }
+        }
+        this.mTouchEventTime = event.getEventTime();
+    }
+
+    /**
+     * 拖动中，悬浮窗跟随拖动点移动
+     */
+    private void onTouchDrag() {
+        int x = getXByTouch();
+        int y = getYByTouch();
+        if (this.mTouchPredictor != null && this.mTouchPredictor.predict()) {
+            // 提前到窗口实际显示时手指的位置
+            x = (int) (this.mTouchPredictor.getPredictedX() - this.mViewTouchX);
+            y = (int) (this.mTouchPredictor.getPredictedY() - this.mViewTouchY);
+        }
+        if (this.mIsFrameCoalescedDrag) {
+            if (this.mDragCoalescer.offer(x, y)) {
+                ViewCompat.postOnAnimation(this, this.mDragFrameRunnable);
+            }
+        }
+        else {
+            this.updateViewPosition(x, y);
+        }
+    }
+
+    /**
+     * 拖动结束（抬起或取消），停到磁吸目标或者移动到边缘
+     *
+     * @param velocityX 释放时x方向的速度(px/s)，没有达到抛出速度时为0
+     * @param velocityY 释放时y方向的速度(px/s)
+     */
+    private void onTouchRelease(float velocityX, float velocityY) {
+        cancelPendingDrag();
+        if (this.mFloatingViewMetrics != null) {
+            this.mMetricsDownNanos = 0;
+            this.mMetricsUpNanos = System.nanoTime();
+        }
+        if (this.mHasDeferredPosition) {
+            // 拖动中设置过位置时，松开后移动到该位置，不再吸附或移动到边缘
+            this.mHasDeferredPosition = false;
+            moveTo(getXByTouch(), getYByTouch(), this.mDeferredX, this.mDeferredY, true);
+            return;
+        }
+        SnapTarget snapTarget = updateSnapTarget(getXByTouch(), getYByTouch());
+        if (snapTarget != null) {
+            snapTo(snapTarget);
+        }
+        else if (this.mIsFlingPhysics) {
+            flingToEdge(getXByTouch(), getYByTouch(), velocityX, velocityY);
+        }
+        else {
+            moveToEdge(true);
+        }
+    }
+
+    /**
+     * 查找触摸坐标下的子视图，点击和长按只交给它
+     *
+     * @param x 悬浮窗的触摸坐标
+     * @param y
+     *
+     * @return 没有时返回null
+     */
+    private View findChildUnder(float x, float y) {
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            View child = getChildAt(i);
+            if (child.getVisibility() == VISIBLE && x >= child.getLeft() && x < child.getRight() && y >= child.getTop() && y < child.getBottom()) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 双指缩放内容，宽高等比例，限制在最小尺寸和屏幕短边之间；
+     * 悬浮窗的触摸坐标同比例缩放，手指下的内容位置不变
+     *
+     * @param scale 相对开始缩放时的比例
+     */
+    private void resizeContent(float scale) {
+        View content = getChildAt(0);
+        int baseWidth = this.mPinchBaseWidth;
+        int baseHeight = this.mPinchBaseHeight;
+        if (content == null || baseWidth <= 0 || baseHeight <= 0) {
+            return;
+        }
+        float minScale = MIN_PINCH_SIZE_DP * this.mMetrics.density / Math.min(baseWidth, baseHeight);
+        float maxScale = Math.min(this.mMetrics.widthPixels, this.mMetrics.heightPixels) / (float) Math.max(baseWidth, baseHeight);
+        scale = Math.max(minScale, Math.min(scale, maxScale));
+        int width = Math.round(baseWidth * scale);
+        int height = Math.round(baseHeight * scale);
+        ViewGroup.LayoutParams params = content.getLayoutParams();
+        if (params.width == width && params.height == height) {
+            return;
+        }
+        params.width = width;
+        params.height = height;
+        content.setLayoutParams(params);
+        this.mViewTouchX = this.mPinchViewTouchX * width / baseWidth;
+        this.mViewTouchY = this.mPinchViewTouchY * height / baseHeight;
+    }
+
     @Override
     public void setOnTouchListener(OnTouchListener listener) {
         this.mOnTouchListener = listener;
@@ -484,19 +1282,47 @@ public class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreD
      * @param withAnimation
      */
     private void moveToEdge(int startX, int startY, boolean withAnimation) {
-        int goalPositionX = startX;
-        int goalPositionY = startY;
-        if (this.mMoveDirection == FloatingView.MOVE_DIRECTION_DEFAULT) {
-            boolean isMoveRightEdge = startX > (this.mMetrics.widthPixels - getWidth()) / 2;
-            goalPositionX = isMoveRightEdge ? this.mPositionLimitRect.right : this.mPositionLimitRect.left;
-        }
-        else if (this.mMoveDirection == FloatingView.MOVE_DIRECTION_LEFT) {
-            goalPositionX = this.mPositionLimitRect.left;
-        }
-        else if (this.mMoveDirection == FloatingView.MOVE_DIRECTION_RIGHT) {
-            goalPositionX = this.mPositionLimitRect.right;
-        }
-        moveTo(startX, startY, goalPositionX, goalPositionY, withAnimation);
+        moveTo(startX, startY, this.mPositionEngine.getEdgeGoalX(startX, this.mMoveDirection), startY, withAnimation);
+    }
+
+    /**
+     * 以释放时的速度用弹簧动画移动到边缘，X轴和Y轴同时运动，停止后结束
+     *
+     * @param startX    起点x坐标
+     * @param startY    起点y坐标
+     * @param velocityX x方向的速度(px/s)
+     * @param velocityY y方向的速度(px/s)
+     */
+    private void flingToEdge(int startX, int startY, float velocityX, float velocityY) {
+        int projectedX = (int) (startX + velocityX * FLING_PROJECTION_SECONDS);
+        int projectedY = (int) (startY + velocityY * FLING_PROJECTION_SECONDS);
+        int goalPositionX = this.mPositionEngine.clampX(this.mPositionEngine.getEdgeGoalX(projectedX, this.mMoveDirection));
+        int goalPositionY = this.mPositionEngine.clampY(projectedY);
+        springTo(startX, startY, velocityX, velocityY, goalPositionX, goalPositionY);
+
+        this.mViewTouchX = 0;
+        this.mViewTouchY = 0;
+        this.mIsMoveAccept = false;
+    }
+
+    /**
+     * 用弹簧动画移动到目标位置，X轴和Y轴同时运动
+     *
+     * @param startX        起点x坐标
+     * @param startY        起点y坐标
+     * @param velocityX     x方向的初速度(px/s)
+     * @param velocityY     y方向的初速度(px/s)
+     * @param goalPositionX 目标x坐标
+     * @param goalPositionY 目标y坐标
+     */
+    private void springTo(int startX, int startY, float velocityX, float velocityY, int goalPositionX, int goalPositionY) {
+        this.mSpringX.start(startX, velocityX, goalPositionX);
+        this.mSpringY.start(startY, velocityY, goalPositionY);
+        this.mIsFlinging = true;
+        this.mIsMoveSettled = false;
+        this.mFlingFrameTimeNanos = System.nanoTime();
+        startContentSnapshot();
+        ViewCompat.postOnAnimation(this, this.mFlingFrameRunnable);
     }
 
     /**
@@ -509,44 +1335,367 @@ public class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreD
      * @param withAnimation
      */
     private void moveTo(int currentX, int currentY, int goalPositionX, int goalPositionY, boolean withAnimation) {
-        goalPositionX = Math.min(Math.max(this.mPositionLimitRect.left, goalPositionX), this.mPositionLimitRect.right);
-        goalPositionY = Math.min(Math.max(this.mPositionLimitRect.top, goalPositionY), this.mPositionLimitRect.bottom);
+        goalPositionX = this.mPositionEngine.clampX(goalPositionX);
+        goalPositionY = this.mPositionEngine.clampY(goalPositionY);
+        this.mIsMoveSettled = false;
         if (withAnimation) {
             this.mParams.y = goalPositionY;
-            this.mMoveEdgeAnimator = ValueAnimator.ofInt(currentX, goalPositionX);
-            this.mMoveEdgeAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-                @Override
-                public void onAnimationUpdate(ValueAnimator animation) {
-                    mParams.x = (Integer) animation.getAnimatedValue();
-                    mWindowManager.updateViewLayout(FloatingView.this, mParams);
-                }
-            });
-            this.mMoveEdgeAnimator.setDuration(MOVE_TO_EDGE_DURATION);
-            this.mMoveEdgeAnimator.setInterpolator(this.mMoveEdgeInterpolator);
+            this.mMoveEdgeEvaluator.retarget(currentX, goalPositionX);
+            startContentSnapshot();
             this.mMoveEdgeAnimator.start();
         }
         else {
-            if (this.mParams.x != goalPositionX || this.mParams.y != goalPositionY) {
-                this.mParams.x = goalPositionX;
-                this.mParams.y = goalPositionY;
-                this.mWindowManager.updateViewLayout(FloatingView.this, this.mParams);
-            }
+            this.mParams.x = goalPositionX;
+            this.mParams.y = goalPositionY;
+            commitLayout();
+            onMoveSettled();
         }
         this.mViewTouchX = 0;
         this.mViewTouchY = 0;
-        this.mScreenTouchDownX = 0;
-        this.mScreenTouchDownY = 0;
         this.mIsMoveAccept = false;
     }
 
+    @Override
+    public void onAnimationUpdate(ValueAnimator animation) {
+        this.mParams.x = this.mMoveEdgeEvaluator.evaluate(animation.getAnimatedFraction());
+        if (this.mFloatingViewMetrics != null) {
+            recordAnimationFrame(System.nanoTime());
+        }
+        commitLayout();
+    }
+
+    /**
+     * 开始拖动
+     */
+    private void onMoveStart() {
+        this.mIsMoveSettled = false;
+        startContentSnapshot();
+    }
+
+    /**
+     * 移动已停止（拖动后的动画结束，或者直接移动到了目标位置），同一次移动只处理一次
+     */
+    private void onMoveSettled() {
+        if (this.mIsMoveSettled) {
+            return;
+        }
+        this.mIsMoveSettled = true;
+        stopContentSnapshot();
+        if (this.mFloatingViewMetrics != null) {
+            if (this.mMetricsUpNanos != 0) {
+                this.mFloatingViewMetrics.onSettled(System.nanoTime() - this.mMetricsUpNanos);
+                this.mMetricsUpNanos = 0;
+            }
+            this.mMetricsFrameNanos = 0;
+        }
+        if (this.mOnMoveSettledListener != null) {
+            this.mOnMoveSettledListener.onMoveSettled(this);
+        }
+    }
+
+    /**
+     * 开始使用快照，之后到停止为止只绘制快照，内容的重绘不再传递到窗口
+     * <p>
+     * 按下时已经准备好快照的话直接使用，否则（比如不经过触摸的移动动画）在这里绘制
+     */
+    private void startContentSnapshot() {
+        if (!this.mIsContentSnapshot || this.mIsSnapshotActive) {
+            return;
+        }
+        // 按下后内容的大小可能变化了（比如双指缩放）
+        if (!this.mIsSnapshotPrepared || this.mSnapshotBitmap.getWidth() != getWidth() || this.mSnapshotBitmap.getHeight() != getHeight()) {
+            this.mIsSnapshotPrepared = false;
+            prepareContentSnapshot();
+            if (!this.mIsSnapshotPrepared) {
+                return;
+            }
+        }
+        this.mIsSnapshotPrepared = false;
+        this.mIsSnapshotActive = true;
+        invalidate();
+    }
+
+    /**
+     * 把内容绘制到快照中，大小不变时重复使用原来的Bitmap
+     */
+    private void prepareContentSnapshot() {
+        if (!this.mIsContentSnapshot || this.mIsSnapshotActive) {
+            return;
+        }
+        int width = getWidth();
+        int height = getHeight();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        Bitmap bitmap = this.mSnapshotBitmap;
+        if (bitmap == null || bitmap.getWidth() != width || bitmap.getHeight() != height) {
+            if (bitmap != null) {
+                bitmap.recycle();
+            }
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            this.mSnapshotBitmap = bitmap;
+            if (this.mSnapshotCanvas == null) {
+                this.mSnapshotCanvas = new Canvas();
+            }
+            this.mSnapshotCanvas.setBitmap(bitmap);
+        }
+        else {
+            bitmap.eraseColor(Color.TRANSPARENT);
+        }
+        super.dispatchDraw(this.mSnapshotCanvas);
+        this.mIsSnapshotPrepared = true;
+    }
+
+    /**
+     * 恢复内容的实时绘制
+     */
+    private void stopContentSnapshot() {
+        if (this.mIsSnapshotActive) {
+            this.mIsSnapshotActive = false;
+            invalidate();
+        }
+    }
+
+    /**
+     * 释放快照
+     */
+    private void releaseContentSnapshot() {
+        stopContentSnapshot();
+        this.mIsSnapshotPrepared = false;
+        if (this.mSnapshotBitmap != null) {
+            this.mSnapshotCanvas.setBitmap(null);
+            this.mSnapshotBitmap.recycle();
+            this.mSnapshotBitmap = null;
+        }
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        if (this.mIsSnapshotActive) {
+            canvas.drawBitmap(this.mSnapshotBitmap, 0, 0, null);
+            return;
+        }
+        super.dispatchDraw(canvas);
+    }
+
+    @Override
+    public ViewParent invalidateChildInParent(int[] location, Rect dirty) {
+        if (this.mIsSnapshotActive) {
+            // 使用快照期间内容的重绘不需要传递到窗口
+            // （API 26以上硬件加速时重绘不经过这里，但dispatchDraw仍然只绘制快照）
+            return null;
+        }
+        return super.invalidateChildInParent(location, dirty);
+    }
+
+    /**
+     * 记录动画相邻两帧的间隔
+     *
+     * @param now 当前帧的时间(ns)
+     */
+    private void recordAnimationFrame(long now) {
+        if (this.mMetricsFrameNanos != 0) {
+            this.mFloatingViewMetrics.onAnimationFrame(now - this.mMetricsFrameNanos);
+        }
+        this.mMetricsFrameNanos = now;
+    }
+
+    /**
+     * 是否正在移动到目标位置（边缘动画或弹簧动画进行中）
+     *
+     * @return
+     */
+    boolean isSettling() {
+        return this.mMoveEdgeAnimator.isRunning() || this.mIsFlinging;
+    }
+
     /**
      * 取消动画
      */
     private void cancelAnimation() {
-        if (this.mMoveEdgeAnimator != null && this.mMoveEdgeAnimator.isStarted()) {
+        if (this.mMoveEdgeAnimator.isStarted()) {
             this.mMoveEdgeAnimator.cancel();
-            this.mMoveEdgeAnimator = null;
         }
+        if (this.mIsFlinging) {
+            removeCallbacks(this.mFlingFrameRunnable);
+            this.mIsFlinging = false;
+            onMoveSettled();
+        }
+    }
+
+    /**
+     * 显示或隐藏悬浮窗，窗口和视图保持不变
+     * <p>
+     * 隐藏时视图设为INVISIBLE（系统会释放窗口的Surface），窗口加上FLAG_NOT_TOUCHABLE让触摸事件传递给下层窗口
+     *
+     * @param shown
+     */
+    void setShown(boolean shown) {
+        if (shown) {
+            setVisibility(VISIBLE);
+            this.mParams.flags &= ~WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE;
+        }
+        else {
+            cancelPendingDrag();
+            cancelAnimation();
+            // 拖动中隐藏时也要结束宿主窗口的拖动状态，之后的触摸事件直到下一次按下都被忽略
+            removeCallbacks(this.mLongPressRunnable);
+            this.mGestureTracker.reset();
+            this.mIsMoveAccept = false;
+            if (this.mHasDeferredPosition) {
+                // 拖动中设置的位置在隐藏时直接生效
+                this.mHasDeferredPosition = false;
+                this.mParams.x = this.mPositionEngine.clampX(this.mDeferredX);
+                this.mParams.y = this.mPositionEngine.clampY(this.mDeferredY);
+            }
+            onMoveSettled();
+            setVisibility(INVISIBLE);
+            this.mParams.flags |= WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE;
+        }
+        commitLayout();
+        updateVisibilityState();
+    }
+
+    /**
+     * 根据位置、显示状态和屏幕状态重新计算可见状态
+     */
+    private void updateVisibilityState() {
+        if (this.mVisibilityListener == null && !this.mIsPauseContentWhenHidden) {
+            return;
+        }
+        if (getWindowToken() == null) {
+            // 还未添加窗口（移除窗口时在onDetachedFromWindow中设为不可见）
+            return;
+        }
+        float visibleFraction;
+        if (!this.mIsScreenOn || getVisibility() != VISIBLE) {
+            visibleFraction = 0f;
+        }
+        else if (getWidth() == 0 || getHeight() == 0 || this.mPendingRelayout != 0) {
+            // 还未布局，或者移动范围还未更新（重新布局后再计算）
+            return;
+        }
+        else {
+            visibleFraction = this.mPositionEngine.getVisibleFraction(this.mParams.x, this.mParams.y, getWidth(), getHeight());
+        }
+        int state;
+        if (visibleFraction <= 0f) {
+            state = VISIBILITY_STATE_HIDDEN;
+        }
+        else if (visibleFraction >= 1f) {
+            state = VISIBILITY_STATE_VISIBLE;
+        }
+        else {
+            state = VISIBILITY_STATE_PARTIAL;
+        }
+        setVisibilityState(state, visibleFraction);
+    }
+
+    private void setVisibilityState(int state, float visibleFraction) {
+        this.mVisibleFraction = visibleFraction;
+        if (state == this.mVisibilityState) {
+            return;
+        }
+        this.mVisibilityState = state;
+        boolean isContentPaused = this.mIsPauseContentWhenHidden && state == VISIBILITY_STATE_HIDDEN;
+        if (isContentPaused != this.mIsContentPaused) {
+            setContentPaused(isContentPaused);
+        }
+        if (this.mVisibilityListener != null) {
+            this.mVisibilityListener.onVisibilityStateChanged(this, state, visibleFraction);
+        }
+    }
+
+    /**
+     * 获取当前的可见状态
+     *
+     * @return
+     */
+    @VisibilityState
+    public int getVisibilityState() {
+        return this.mVisibilityState;
+    }
+
+    /**
+     * 获取当前在屏幕内的面积比例
+     *
+     * @return 0到1
+     */
+    public float getVisibleFraction() {
+        return this.mVisibleFraction;
+    }
+
+    /**
+     * 设置可见状态的监听器
+     * <p>
+     * 悬浮窗移动、隐藏或屏幕开关时，可见状态（完全可见、部分可见、不可见）变化才会回调
+     *
+     * @param listener
+     */
+    public void setVisibilityListener(FloatingViewVisibilityListener listener) {
+        this.mVisibilityListener = listener;
+        updateVisibilityState();
+    }
+
+    /**
+     * 设置不可见时是否暂停内容
+     * <p>
+     * 暂停期间内容视图设置为INVISIBLE，不再绘制，依赖可见性的计时器、动画也会停止；再次可见时恢复为VISIBLE。
+     * 自己用Handler定时更新的内容应该在 {@link FloatingViewVisibilityListener} 收到
+     * {@link #VISIBILITY_STATE_HIDDEN} 时停止更新。
+     *
+     * @param pauseContentWhenHidden
+     */
+    public void setPauseContentWhenHidden(boolean pauseContentWhenHidden) {
+        this.mIsPauseContentWhenHidden = pauseContentWhenHidden;
+        if (!pauseContentWhenHidden && this.mIsContentPaused) {
+            setContentPaused(false);
+        }
+        updateVisibilityState();
+    }
+
+    /**
+     * 暂停或恢复内容
+     * <p>
+     * 暂停时把内容视图设置为INVISIBLE：内容不再绘制，并且会收到 onVisibilityChanged，
+     * Chronometer、ProgressBar等会自己停止更新。只处理原本是VISIBLE的内容，
+     * 暂停期间调用者修改过内容的可见性时恢复时不覆盖。
+     *
+     * @param isContentPaused
+     */
+    private void setContentPaused(boolean isContentPaused) {
+        this.mIsContentPaused = isContentPaused;
+        if (isContentPaused) {
+            View content = getChildAt(0);
+            if (content != null && content.getVisibility() == VISIBLE) {
+                content.setVisibility(INVISIBLE);
+                this.mPausedContent = content;
+            }
+            return;
+        }
+        View content = this.mPausedContent;
+        this.mPausedContent = null;
+        if (content != null && content.getVisibility() == INVISIBLE) {
+            content.setVisibility(VISIBLE);
+        }
+    }
+
+    /**
+     * 移除内容视图，暂停期间隐藏的内容先恢复可见，内容视图属于调用者
+     */
+    void removeContent() {
+        if (this.mIsContentPaused) {
+            setContentPaused(false);
+        }
+        removeAllViews();
+    }
+
+    /**
+     * 丢弃尚未提交的拖动位置
+     */
+    private void cancelPendingDrag() {
+        removeCallbacks(this.mDragFrameRunnable);
+        this.mDragCoalescer.clear();
     }
 
     /**
@@ -576,6 +1725,296 @@ public class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreD
         this.mAnimateInitialMove = animateInitialMove;
     }
 
+    /**
+     * 设置屏幕旋转后是否以动画移动到新的位置（默认为false，直接移动）
+     *
+     * @param animateRotation
+     */
+    public void setAnimateRotation(boolean animateRotation) {
+        this.mIsAnimateRotation = animateRotation;
+    }
+
+    /**
+     * 设置磁吸目标
+     * <p>
+     * 拖动中进入目标的吸附范围后停在目标位置，松开后停留在目标而不是移动到边缘。
+     * 同一个索引可以由多个悬浮窗共用，屏幕大小变化时由调用者调用 {@link SnapTargetIndex#setBounds(int, int)}。
+     *
+     * @param snapTargets 为null时只移动到边缘
+     */
+    public void setSnapTargets(SnapTargetIndex snapTargets) {
+        this.mSnapTargets = snapTargets;
+        this.mSnapTarget = null;
+    }
+
+    /**
+     * 设置磁吸目标的监听器
+     *
+     * @param listener
+     */
+    public void setSnapListener(FloatingViewSnapListener listener) {
+        this.mSnapListener = listener;
+    }
+
+    /**
+     * 设置拖动时是否按帧合并位置更新
+     * <p>
+     * 开启后，同一帧内的多个 ACTION_MOVE 只会触发一次 WindowManager 更新
+     *
+     * @param frameCoalescedDrag
+     */
+    public void setFrameCoalescedDrag(boolean frameCoalescedDrag) {
+        this.mIsFrameCoalescedDrag = frameCoalescedDrag;
+        if (!frameCoalescedDrag) {
+            cancelPendingDrag();
+        }
+    }
+
+    /**
+     * 设置拖动时是否使用触摸预测
+     * <p>
+     * 开启后根据最近的触摸采样（包括历史采样）估计速度和加速度，把窗口放到显示时手指将要到达的位置，
+     * 减少窗口跟不上手指的感觉。轨迹不平滑或者停顿时不做预测，抬起后的位置不受影响。
+     *
+     * @param touchPrediction
+     * @param horizonMillis   预测的时长(ms)，{@link TouchPredictor#HORIZON_AUTO} 表示使用测得的延迟
+     */
+    public void setTouchPrediction(boolean touchPrediction, long horizonMillis) {
+        if (!touchPrediction) {
+            this.mTouchPredictor = null;
+            return;
+        }
+        if (this.mTouchPredictor == null) {
+            float density = this.mMetrics.density;
+            this.mTouchPredictor = new TouchPredictor(TOUCH_PREDICTION_MAX_DISTANCE_DP * density, TOUCH_PREDICTION_MAX_RESIDUAL_DP * density);
+        }
+        this.mTouchPredictor.setHorizonMillis(horizonMillis);
+        loadFrameInterval();
+    }
+
+    /**
+     * 读取所在显示器的帧间隔
+     */
+    private void loadFrameInterval() {
+        float refreshRate = this.mWindowManager.getDefaultDisplay().getRefreshRate();
+        this.mFrameIntervalMillis = Math.round(1000f / (refreshRate < 1f ? 60f : refreshRate));
+    }
+
+    /**
+     * 设置拖动和动画期间是否使用内容的快照
+     * <p>
+     * 开启后，从开始拖动到动画停止为止只绘制按下时的内容快照，内容（比如计时器）的重绘不会导致整个窗口重绘，停止后恢复实时绘制；
+     * 快照的Bitmap在大小不变时重复使用，离开窗口时回收
+     *
+     * @param contentSnapshot
+     */
+    public void setContentSnapshot(boolean contentSnapshot) {
+        this.mIsContentSnapshot = contentSnapshot;
+        if (!contentSnapshot) {
+            releaseContentSnapshot();
+        }
+    }
+
+    /**
+     * 内容的快照是否正在使用
+     *
+     * @return
+     */
+    boolean isContentSnapshotActive() {
+        return this.mIsSnapshotActive;
+    }
+
+    /**
+     * 获取快照的Bitmap（没有时为null）
+     *
+     * @return
+     */
+    Bitmap getContentSnapshotBitmap() {
+        return this.mSnapshotBitmap;
+    }
+
+    /**
+     * 设置悬浮窗ID
+     *
+     * @param id
+     */
+    void setFloatingViewId(int id) {
+        this.mFloatingViewId = id;
+    }
+
+    /**
+     * 获取悬浮窗ID
+     *
+     * @return 还未分配时返回 {@link FloatingViewManager#NO_ID}
+     */
+    int getFloatingViewId() {
+        return this.mFloatingViewId;
+    }
+
+    /**
+     * 设置共用的宿主窗口
+     *
+     * @param host 宿主窗口，null表示使用独立窗口
+     */
+    void setHost(FloatingViewHost host) {
+        this.mHost = host;
+    }
+
+    /**
+     * 获取共用的宿主窗口
+     *
+     * @return 使用独立窗口时返回null
+     */
+    FloatingViewHost getHost() {
+        return this.mHost;
+    }
+
+    /**
+     * 设置运行时统计
+     *
+     * @param metrics 运行时统计，null表示不统计
+     */
+    void setMetrics(FloatingViewMetrics metrics) {
+        this.mFloatingViewMetrics = metrics;
+        this.mMetricsDownNanos = 0;
+        this.mMetricsUpNanos = 0;
+        this.mMetricsFrameNanos = 0;
+    }
+
+    /**
+     * 设置悬浮窗在屏幕上的位置（不带动画）
+     * <p>
+     * 正在被手指拖动时不打断拖动，松开手指后以动画移动到该位置（多次设置时使用最后一次的位置）
+     *
+     * @param x 悬浮窗在屏幕上的x坐标
+     * @param y 悬浮窗在屏幕上的y坐标
+     */
+    public void setPosition(int x, int y) {
+        if (this.mIsMoveAccept) {
+            this.mDeferredX = x;
+            this.mDeferredY = y;
+            this.mHasDeferredPosition = true;
+            return;
+        }
+        // 还未完成初次布局时作为初始位置
+        this.mInitX = x;
+        this.mInitY = y;
+        if (this.mPositionEngine.getPositionLimit().isEmpty()) {
+            return;
+        }
+        cancelAnimation();
+        moveTo(this.mParams.x, this.mParams.y, x, y, false);
+    }
+
+    /**
+     * 以弹簧动画移动到指定位置（为其他悬浮窗让出位置时使用），还未显示时直接移动，拖动中松开后再移动
+     *
+     * @param x 悬浮窗在屏幕上的x坐标
+     * @param y 悬浮窗在屏幕上的y坐标
+     */
+    void animateTo(int x, int y) {
+        if (this.mIsMoveAccept || getWindowToken() == null || getVisibility() != VISIBLE || this.mPositionEngine.getPositionLimit().isEmpty()) {
+            setPosition(x, y);
+            return;
+        }
+        cancelAnimation();
+        springTo(this.mParams.x, this.mParams.y, 0, 0, this.mPositionEngine.clampX(x), this.mPositionEngine.clampY(y));
+    }
+
+    /**
+     * 获取显示位置的界限
+     *
+     * @return
+     */
+    IntRect getPositionLimit() {
+        return this.mPositionEngine.getPositionLimit();
+    }
+
+    /**
+     * 设置移动停止的监听器
+     *
+     * @param listener
+     */
+    void setOnMoveSettledListener(OnMoveSettledListener listener) {
+        this.mOnMoveSettledListener = listener;
+    }
+
+    /**
+     * 设置位置变化的监听器
+     *
+     * @param listener
+     */
+    void setOnPositionChangedListener(OnPositionChangedListener listener) {
+        this.mOnPositionChangedListener = listener;
+    }
+
+    /**
+     * 是否正在被手指拖动
+     *
+     * @return
+     */
+    boolean isDragging() {
+        return this.mIsMoveAccept;
+    }
+
+    /**
+     * 跟随其他悬浮窗移动到指定位置，由 {@link FloatingViewChainAnimator} 每帧调用，不限制在移动范围内
+     *
+     * @param x 悬浮窗在屏幕上的x坐标
+     * @param y 悬浮窗在屏幕上的y坐标
+     */
+    void followTo(int x, int y) {
+        if (this.mIsFlinging || this.mMoveEdgeAnimator.isStarted()) {
+            cancelAnimation();
+        }
+        this.mParams.x = x;
+        this.mParams.y = y;
+        commitLayout();
+    }
+
+    /**
+     * 设置释放后是否使用基于速度的弹簧动画
+     * <p>
+     * 开启后根据释放时的速度决定目标边缘，X轴和Y轴都以弹簧动画运动，停止后立即结束，而不是固定时长的动画
+     *
+     * @param flingPhysics
+     */
+    public void setFlingPhysics(boolean flingPhysics) {
+        this.mIsFlingPhysics = flingPhysics;
+    }
+
+    /**
+     * 设置是否允许双指缩放内容
+     * <p>
+     * 开启后第二根手指按下时开始缩放，内容的宽高按两指距离等比例变化，两指的中点继续拖动悬浮窗；
+     * 任意一根手指抬起后结束缩放，剩下的手指继续拖动。缩放后的大小保留
+     *
+     * @param pinchToResize
+     */
+    public void setPinchToResize(boolean pinchToResize) {
+        this.mGestureTracker.setPinchEnabled(pinchToResize);
+    }
+
+    /**
+     * 设置弹簧动画的刚度，越大越快到达目标位置
+     *
+     * @param stiffness 必须大于0
+     */
+    public void setSpringStiffness(float stiffness) {
+        this.mSpringX.setStiffness(stiffness);
+        this.mSpringY.setStiffness(stiffness);
+    }
+
+    /**
+     * 设置弹簧动画的阻尼比，1为临界阻尼（无回弹），小于1时会有回弹
+     *
+     * @param dampingRatio 必须大于0
+     */
+    public void setSpringDampingRatio(float dampingRatio) {
+        this.mSpringX.setDampingRatio(dampingRatio);
+        this.mSpringY.setDampingRatio(dampingRatio);
+    }
+
     /**
      * 获取WindowLayoutParams
      *
@@ -600,8 +2039,119 @@ public class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreD
      * @param y
      */
     private void updateViewPosition(int x, int y) {
+        SnapTarget snapTarget = updateSnapTarget(x, y);
+        if (snapTarget != null) {
+            // 进入吸附范围后停在目标位置
+            x = snapTarget.x;
+            y = snapTarget.y;
+        }
         this.mParams.x = x;
         this.mParams.y = y;
-        this.mWindowManager.updateViewLayout(this, this.mParams);
+        commitLayout();
+        if (this.mTouchPredictor != null) {
+            // 采样到提交的时间，再加上窗口重新布局的一帧
+            this.mTouchPredictor.recordLatency(Math.max(0, SystemClock.uptimeMillis() - this.mTouchEventTime) + this.mFrameIntervalMillis);
+        }
+    }
+
+    /**
+     * 查找位置所在的磁吸目标，目标变化时通知监听器
+     *
+     * @param x 悬浮窗的x坐标
+     * @param y 悬浮窗的y坐标
+     *
+     * @return 不在任何目标的吸附范围内时返回null
+     */
+    private SnapTarget updateSnapTarget(int x, int y) {
+        if (this.mSnapTargets == null) {
+            return null;
+        }
+        SnapTarget target = this.mSnapTargets.findNearest(x, y);
+        SnapTarget oldTarget = this.mSnapTarget;
+        if (target != oldTarget) {
+            this.mSnapTarget = target;
+            if (this.mSnapListener != null) {
+                if (oldTarget != null) {
+                    this.mSnapListener.onSnapTargetExited(this, oldTarget);
+                }
+                if (target != null) {
+                    this.mSnapListener.onSnapTargetEntered(this, target);
+                }
+            }
+        }
+        return target;
+    }
+
+    /**
+     * 在磁吸目标内松开，停在目标位置（目标可以在移动范围以外，比如屏幕底部的删除区域）
+     *
+     * @param target
+     */
+    private void snapTo(SnapTarget target) {
+        this.mSnapTarget = null;
+        this.mParams.x = target.x;
+        this.mParams.y = target.y;
+        this.mIsMoveSettled = false;
+        commitLayout();
+        onMoveSettled();
+        this.mViewTouchX = 0;
+        this.mViewTouchY = 0;
+        this.mIsMoveAccept = false;
+        if (this.mSnapListener != null) {
+            // 最后回调，监听器中可以移除悬浮窗
+            this.mSnapListener.onSnapped(this, target);
+        }
+    }
+
+    /**
+     * 把布局参数提交给WindowManager，参数与上一次提交相同时跳过
+     */
+    private void commitLayout() {
+        if (getWindowToken() == null) {
+            return;
+        }
+        WindowManager.LayoutParams params = this.mParams;
+        FloatingViewMetrics metrics = this.mFloatingViewMetrics;
+        if (this.mLayoutCommitTracker.commitIfChanged(params.x, params.y, params.width, params.height, params.flags)) {
+            if (this.mHost != null) {
+                // 使用宿主窗口时只在进程内平移
+                this.mHost.onChildLayoutChanged(this);
+            }
+            else {
+                this.mWindowManager.updateViewLayout(this, params);
+                if (metrics != null) {
+                    metrics.onUpdateViewLayout();
+                }
+            }
+            updateVisibilityState();
+            if (metrics != null && this.mMetricsDownNanos != 0 && this.mIsMoveAccept) {
+                metrics.onFirstMove(System.nanoTime() - this.mMetricsDownNanos);
+                this.mMetricsDownNanos = 0;
+            }
+            if (this.mOnPositionChangedListener != null) {
+                this.mOnPositionChangedListener.onPositionChanged(this);
+            }
+        }
+        else if (metrics != null) {
+            metrics.onLayoutSkipped();
+        }
+    }
+
+    /**
+     * 获取实际提交给WindowManager的布局更新次数
+     *
+     * @return
+     */
+    public int getLayoutUpdateCount() {
+        return this.mLayoutCommitTracker.getCommitCount();
+    }
+
+    /**
+     * 获取因布局参数未变化而跳过的布局更新次数
+     *
+     * @return
+     */
+    public int getLayoutSkipCount() {
+        return this.mLayoutCommitTracker.getSkipCount();
     }
 }
@@ -0,0 +1,448 @@
+package com.pzj.floatingview;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.RequiresApi;
+import android.view.Choreographer;
+import android.view.View;
+import android.view.WindowManager;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 悬浮窗链的动画（拖动第一个悬浮窗时，后面的悬浮窗依次以弹簧延迟跟随）
+ * <p>
+ * 所有的链共用一个帧回调（API 16以上为Choreographer，更早的版本按帧间隔post到主线程）：
+ * 每一帧先一次性计算所有跟随者的弹簧，再统一提交位置，开销只与帧数有关，而不是每个悬浮窗一个动画。
+ * 第一个悬浮窗移动时开始，所有跟随者都停止后结束。
+ */
+class FloatingViewChainAnimator {
+
+    /**
+     * 帧间隔(ms)，没有Choreographer时按这个间隔post，也作为第一帧的时长
+     */
+    private static final long FRAME_DELAY_MS = 16;
+
+    /**
+     * 单帧的最大时长(s)，卡顿后不会一步跳得太远
+     */
+    private static final float MAX_FRAME_SECONDS = 0.064f;
+
+    /**
+     * 跟随者的弹簧刚度（比释放后的弹簧更软，形成延迟）
+     */
+    static final float FOLLOWER_STIFFNESS = 300f;
+
+    /**
+     * 跟随者的弹簧阻尼比
+     */
+    static final float FOLLOWER_DAMPING_RATIO = 0.85f;
+
+    /**
+     * 悬浮窗链
+     */
+    static final class Chain {
+
+        /**
+         * 第一个悬浮窗
+         */
+        final FloatingView leader;
+
+        /**
+         * 跟随的悬浮窗（按顺序，每个跟随前一个）
+         */
+        final List<FloatingView> followers;
+
+        /**
+         * 跟随者的弹簧（与followers一一对应）
+         */
+        final List<SpringAxis> springsX, springsY;
+
+        /**
+         * 每个跟随者相对前一个悬浮窗的偏移
+         */
+        final int offsetX, offsetY;
+
+        /**
+         * 跟随者这一帧的位置
+         */
+        int[] frameX, frameY;
+
+        Chain(FloatingView leader, int offsetX, int offsetY) {
+            this.leader = leader;
+            this.followers = new ArrayList<>();
+            this.springsX = new ArrayList<>();
+            this.springsY = new ArrayList<>();
+            this.offsetX = offsetX;
+            this.offsetY = offsetY;
+        }
+
+        void addFollower(FloatingView follower) {
+            WindowManager.LayoutParams params = follower.getWindowLayoutParams();
+            this.followers.add(follower);
+            this.springsX.add(createSpring(params.x));
+            this.springsY.add(createSpring(params.y));
+        }
+
+        boolean removeFollower(FloatingView follower) {
+            int index = this.followers.indexOf(follower);
+            if (index < 0) {
+                return false;
+            }
+            this.followers.remove(index);
+            this.springsX.remove(index);
+            this.springsY.remove(index);
+            return true;
+        }
+
+        private static SpringAxis createSpring(int position) {
+            SpringAxis spring = new SpringAxis();
+            spring.setStiffness(FOLLOWER_STIFFNESS);
+            spring.setDampingRatio(FOLLOWER_DAMPING_RATIO);
+            spring.start(position, 0, position);
+            return spring;
+        }
+    }
+
+    /**
+     * 所有的链
+     */
+    private final List<Chain> mChains;
+
+    /**
+     * 共用的宿主窗口（不使用宿主窗口时为null），提交位置时合并为一次更新
+     */
+    private FloatingViewHost mHost;
+
+    /**
+     * 是否已请求下一帧
+     */
+    private boolean mIsRunning;
+
+    /**
+     * 上一帧的时间(ns)，0表示还没有开始
+     */
+    private long mFrameTimeNanos;
+
+    /**
+     * Choreographer的帧回调，API 16以下为null
+     */
+    private final Object mFrameCallback;
+
+    /**
+     * API 16以下使用的Handler
+     */
+    private final Handler mHandler;
+
+    /**
+     * API 16以下的帧回调
+     */
+    private final Runnable mFrameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            doFrame(System.nanoTime());
+        }
+    };
+
+    FloatingViewChainAnimator() {
+        this.mChains = new ArrayList<>();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            this.mFrameCallback = createFrameCallback();
+            this.mHandler = null;
+        }
+        else {
+            this.mFrameCallback = null;
+            this.mHandler = new Handler(Looper.getMainLooper());
+        }
+    }
+
+    @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN)
+    private Object createFrameCallback() {
+        return new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                FloatingViewChainAnimator.this.doFrame(frameTimeNanos);
+            }
+        };
+    }
+
+    /**
+     * 设置共用的宿主窗口
+     *
+     * @param host
+     */
+    void setHost(FloatingViewHost host) {
+        this.mHost = host;
+    }
+
+    /**
+     * 添加链，跟随者从当前位置开始跟随
+     *
+     * @param leader    第一个悬浮窗
+     * @param followers 跟随的悬浮窗
+     * @param offsetX   每个跟随者相对前一个悬浮窗的x偏移
+     * @param offsetY   每个跟随者相对前一个悬浮窗的y偏移
+     */
+    void addChain(FloatingView leader, List<FloatingView> followers, int offsetX, int offsetY) {
+        Chain chain = new Chain(leader, offsetX, offsetY);
+        for (FloatingView follower : followers) {
+            chain.addFollower(follower);
+        }
+        chain.frameX = new int[followers.size()];
+        chain.frameY = new int[followers.size()];
+        this.mChains.add(chain);
+        start();
+    }
+
+    /**
+     * 移除以指定悬浮窗开头的链
+     *
+     * @param leader
+     *
+     * @return 存在时返回true
+     */
+    boolean removeChain(FloatingView leader) {
+        Chain chain = findChain(leader);
+        if (chain == null) {
+            return false;
+        }
+        this.mChains.remove(chain);
+        if (this.mChains.isEmpty()) {
+            stop();
+        }
+        return true;
+    }
+
+    /**
+     * 从链中移除悬浮窗，第一个悬浮窗被移除时整条链解散，最后一个跟随者被移除时链也解散
+     *
+     * @param floatingView
+     */
+    void removeMember(FloatingView floatingView) {
+        if (removeChain(floatingView)) {
+            return;
+        }
+        for (int i = 0, size = this.mChains.size(); i < size; i++) {
+            Chain chain = this.mChains.get(i);
+            if (chain.removeFollower(floatingView)) {
+                if (chain.followers.isEmpty()) {
+                    removeChain(chain.leader);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * 移除所有的链
+     */
+    void clear() {
+        this.mChains.clear();
+        stop();
+    }
+
+    /**
+     * 以指定悬浮窗开头的链
+     *
+     * @param leader
+     *
+     * @return 不存在时返回null
+     */
+    Chain findChain(FloatingView leader) {
+        for (int i = 0, size = this.mChains.size(); i < size; i++) {
+            Chain chain = this.mChains.get(i);
+            if (chain.leader == leader) {
+                return chain;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 悬浮窗是否在某个链中
+     *
+     * @param floatingView
+     *
+     * @return
+     */
+    boolean contains(FloatingView floatingView) {
+        return findChain(floatingView) != null || isFollower(floatingView);
+    }
+
+    /**
+     * 悬浮窗是否是某个链的跟随者
+     *
+     * @param floatingView
+     *
+     * @return
+     */
+    boolean isFollower(FloatingView floatingView) {
+        for (int i = 0, size = this.mChains.size(); i < size; i++) {
+            if (this.mChains.get(i).followers.contains(floatingView)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 悬浮窗的位置发生了变化，是某个链的第一个悬浮窗时开始动画
+     *
+     * @param floatingView
+     */
+    void onPositionChanged(FloatingView floatingView) {
+        if (!this.mIsRunning && findChain(floatingView) != null) {
+            start();
+        }
+    }
+
+    /**
+     * 是否正在动画
+     *
+     * @return
+     */
+    boolean isRunning() {
+        return this.mIsRunning;
+    }
+
+    private void start() {
+        if (this.mIsRunning) {
+            return;
+        }
+        this.mIsRunning = true;
+        this.mFrameTimeNanos = 0;
+        postFrame();
+    }
+
+    private void stop() {
+        if (!this.mIsRunning) {
+            return;
+        }
+        this.mIsRunning = false;
+        if (this.mFrameCallback != null) {
+            removeFrameCallback();
+        }
+        else {
+            this.mHandler.removeCallbacks(this.mFrameRunnable);
+        }
+    }
+
+    private void postFrame() {
+        if (this.mFrameCallback != null) {
+            postFrameCallback();
+        }
+        else {
+            this.mHandler.postDelayed(this.mFrameRunnable, FRAME_DELAY_MS);
+        }
+    }
+
+    @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN)
+    private void postFrameCallback() {
+        Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) this.mFrameCallback);
+    }
+
+    @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN)
+    private void removeFrameCallback() {
+        Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) this.mFrameCallback);
+    }
+
+    /**
+     * 每一帧：先计算所有跟随者的弹簧，再统一提交位置
+     *
+     * @param frameTimeNanos 这一帧的时间(ns)
+     */
+    private void doFrame(long frameTimeNanos) {
+        float seconds;
+        if (this.mFrameTimeNanos == 0) {
+            // 第一帧按一个帧间隔计算
+            seconds = FRAME_DELAY_MS / 1000f;
+        }
+        else {
+            seconds = Math.max(0f, Math.min((frameTimeNanos - this.mFrameTimeNanos) / 1000000000f, MAX_FRAME_SECONDS));
+        }
+        this.mFrameTimeNanos = frameTimeNanos;
+
+        boolean isActive = false;
+        List<Chain> chains = this.mChains;
+        for (int i = 0, size = chains.size(); i < size; i++) {
+            if (stepChain(chains.get(i), seconds)) {
+                isActive = true;
+            }
+        }
+
+        FloatingViewHost host = this.mHost;
+        if (host != null) {
+            host.beginBatch();
+        }
+        for (int i = 0, size = chains.size(); i < size; i++) {
+            Chain chain = chains.get(i);
+            for (int j = 0, count = chain.followers.size(); j < count; j++) {
+                FloatingView follower = chain.followers.get(j);
+                if (isMovable(follower)) {
+                    follower.followTo(chain.frameX[j], chain.frameY[j]);
+                }
+            }
+        }
+        if (host != null) {
+            host.endBatch();
+        }
+
+        if (isActive) {
+            postFrame();
+        }
+        else {
+            this.mIsRunning = false;
+        }
+    }
+
+    /**
+     * 计算一条链的跟随者这一帧的位置
+     *
+     * @param chain
+     * @param seconds 经过的时间(s)
+     *
+     * @return 还有悬浮窗在移动时返回true
+     */
+    private boolean stepChain(Chain chain, float seconds) {
+        // 第一个悬浮窗每次移动都会重新开始动画，这里只需要判断跟随者是否已经停止
+        boolean isActive = false;
+        WindowManager.LayoutParams leaderParams = chain.leader.getWindowLayoutParams();
+        int anchorX = leaderParams.x;
+        int anchorY = leaderParams.y;
+        for (int i = 0, size = chain.followers.size(); i < size; i++) {
+            FloatingView follower = chain.followers.get(i);
+            WindowManager.LayoutParams params = follower.getWindowLayoutParams();
+            SpringAxis springX = chain.springsX.get(i);
+            SpringAxis springY = chain.springsY.get(i);
+            if (!isMovable(follower)) {
+                // 隐藏或正在被拖动的悬浮窗保持原位，后面的悬浮窗跟随它
+                springX.start(params.x, 0, params.x);
+                springY.start(params.y, 0, params.y);
+            }
+            else {
+                if (Math.round(springX.getPosition()) != params.x || Math.round(springY.getPosition()) != params.y) {
+                    // 位置被其他操作改变了，从当前位置重新开始
+                    springX.start(params.x, 0, params.x);
+                    springY.start(params.y, 0, params.y);
+                }
+                springX.start(springX.getPosition(), springX.getVelocity(), anchorX + chain.offsetX);
+                springY.start(springY.getPosition(), springY.getVelocity(), anchorY + chain.offsetY);
+                boolean isSettledX = springX.step(seconds);
+                boolean isSettledY = springY.step(seconds);
+                if (!isSettledX || !isSettledY) {
+                    isActive = true;
+                }
+            }
+            chain.frameX[i] = Math.round(springX.getPosition());
+            chain.frameY[i] = Math.round(springY.getPosition());
+            anchorX = chain.frameX[i];
+            anchorY = chain.frameY[i];
+        }
+        return isActive;
+    }
+
+    private static boolean isMovable(FloatingView floatingView) {
+        return floatingView.getVisibility() == View.VISIBLE && !floatingView.isDragging();
+    }
+}
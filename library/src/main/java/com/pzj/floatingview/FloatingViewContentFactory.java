@@ -0,0 +1,33 @@
+package com.pzj.floatingview;
+
+import android.view.LayoutInflater;
+import android.view.View;
+
+/**
+ * 悬浮窗内容视图的工厂
+ * <p>
+ * {@link #onCreateContentView(LayoutInflater)} 在后台线程调用，只能创建视图，不能启动动画、计时器或访问已显示的视图；
+ * 需要在主线程做的初始化放在 {@link #onContentViewReady(int, View)} 中。
+ */
+public abstract class FloatingViewContentFactory {
+
+    /**
+     * 创建内容视图（后台线程）
+     * <p>
+     * 抛出异常时会在主线程重新调用一次
+     *
+     * @param inflater 后台线程专用的LayoutInflater
+     *
+     * @return 内容视图
+     */
+    public abstract View onCreateContentView(LayoutInflater inflater);
+
+    /**
+     * 内容视图已创建，窗口添加之前调用（主线程）
+     *
+     * @param id          悬浮窗ID
+     * @param contentView 内容视图
+     */
+    public void onContentViewReady(int id, View contentView) {
+    }
+}
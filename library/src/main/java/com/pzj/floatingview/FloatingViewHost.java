@@ -0,0 +1,295 @@
+package com.pzj.floatingview;
+
+import android.content.Context;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.WindowManager;
+import android.widget.FrameLayout;
+
+/**
+ * 多个悬浮窗共用的宿主窗口
+ * <p>
+ * 所有悬浮窗作为子View添加到同一个窗口中，移动悬浮窗时修改子View的平移量。
+ * 窗口只覆盖所有悬浮窗的外接矩形并跟随悬浮窗移动（外接矩形变化时才需要更新窗口），外接矩形内悬浮窗之间的空白处仍然会拦截触摸事件。
+ * 不使用全屏窗口：Android 12以上全屏的悬浮窗会被当作遮挡下层应用的窗口，拦截所有的触摸事件。
+ */
+class FloatingViewHost extends FrameLayout {
+
+    /**
+     * WindowManager
+     */
+    private final WindowManager mWindowManager;
+
+    /**
+     * 宿主窗口的LayoutParams
+     */
+    private final WindowManager.LayoutParams mParams;
+
+    /**
+     * 所有悬浮窗的外接矩形
+     */
+    private final Rect mChildBounds;
+
+    /**
+     * 计算外接矩形用的悬浮窗矩形
+     */
+    private final Rect mChildRect;
+
+    /**
+     * 宿主窗口是否已添加
+     */
+    private boolean mIsWindowAdded;
+
+    /**
+     * 批量操作的嵌套层数，批量操作期间推迟更新宿主窗口
+     */
+    private int mBatchDepth;
+
+    /**
+     * 运行时统计（未开启时为null）
+     */
+    private FloatingViewMetrics mFloatingViewMetrics;
+
+    /**
+     * 构造方法
+     *
+     * @param context 上下文
+     */
+    FloatingViewHost(Context context) {
+        super(context);
+        this.mWindowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        this.mParams = new WindowManager.LayoutParams();
+        this.mParams.width = 0;
+        this.mParams.height = 0;
+        this.mParams.type = WindowManager.LayoutParams.TYPE_PHONE;
+        this.mParams.flags = WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE | WindowManager.LayoutParams.FLAG_LAYOUT_NO_LIMITS | WindowManager.LayoutParams.FLAG_NOT_TOUCH_MODAL;
+        this.mParams.format = PixelFormat.TRANSLUCENT;
+        this.mParams.gravity = Gravity.LEFT | Gravity.TOP;
+        this.mChildBounds = new Rect();
+        this.mChildRect = new Rect();
+        setClipChildren(false);
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        // 悬浮窗测量后才能计算外接矩形
+        updateWindowBounds();
+    }
+
+    /**
+     * 获取宿主窗口的LayoutParams
+     *
+     * @return
+     */
+    WindowManager.LayoutParams getWindowLayoutParams() {
+        return this.mParams;
+    }
+
+    /**
+     * 屏幕上的点是否会被宿主窗口拦截
+     *
+     * @param x 屏幕的x坐标
+     * @param y 屏幕的y坐标
+     *
+     * @return
+     */
+    boolean isTouchableAt(int x, int y) {
+        if (!this.mIsWindowAdded) {
+            return false;
+        }
+        WindowManager.LayoutParams params = this.mParams;
+        return x >= params.x && x < params.x + params.width && y >= params.y && y < params.y + params.height;
+    }
+
+    /**
+     * 获取悬浮窗在屏幕上的矩形
+     *
+     * @param index 子View的下标
+     * @param rect  结果
+     *
+     * @return 隐藏或者还未测量时返回false
+     */
+    private boolean getChildRect(int index, Rect rect) {
+        FloatingView child = (FloatingView) getChildAt(index);
+        int width = child.getMeasuredWidth();
+        int height = child.getMeasuredHeight();
+        if (child.getVisibility() != VISIBLE || width == 0 || height == 0) {
+            return false;
+        }
+        WindowManager.LayoutParams childParams = child.getWindowLayoutParams();
+        rect.set(childParams.x, childParams.y, childParams.x + width, childParams.y + height);
+        return true;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        // 宿主窗口只有外接矩形大小，悬浮窗的大小不能受宿主窗口大小的限制
+        int size = getChildCount();
+        for (int i = 0; i < size; i++) {
+            View child = getChildAt(i);
+            ViewGroup.LayoutParams lp = child.getLayoutParams();
+            child.measure(getChildUnboundedMeasureSpec(lp.width), getChildUnboundedMeasureSpec(lp.height));
+        }
+        setMeasuredDimension(getDefaultSize(0, widthMeasureSpec), getDefaultSize(0, heightMeasureSpec));
+    }
+
+    private static int getChildUnboundedMeasureSpec(int childDimension) {
+        if (childDimension >= 0) {
+            return MeasureSpec.makeMeasureSpec(childDimension, MeasureSpec.EXACTLY);
+        }
+        return MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+    }
+
+    /**
+     * 添加悬浮窗
+     *
+     * @param floatingView 悬浮窗
+     */
+    void addFloatingView(FloatingView floatingView) {
+        floatingView.setHost(this);
+        addView(floatingView, new FrameLayout.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        if (!this.mIsWindowAdded) {
+            // 添加窗口之前决定窗口的大小，避免添加后马上再更新一次
+            updateWindowBounds();
+            this.mWindowManager.addView(this, this.mParams);
+            this.mIsWindowAdded = true;
+            if (this.mFloatingViewMetrics != null) {
+                this.mFloatingViewMetrics.onAddView();
+            }
+        }
+        else {
+            onChildLayoutChanged(floatingView);
+        }
+    }
+
+    /**
+     * 移除悬浮窗
+     *
+     * @param floatingView 悬浮窗
+     */
+    void removeFloatingView(FloatingView floatingView) {
+        removeView(floatingView);
+        floatingView.setHost(null);
+        if (getChildCount() == 0) {
+            removeWindow();
+        }
+        else {
+            updateWindowBounds();
+        }
+    }
+
+    /**
+     * 移除所有的悬浮窗以及宿主窗口
+     */
+    void removeAllFloatingView() {
+        int size = getChildCount();
+        for (int i = 0; i < size; i++) {
+            ((FloatingView) getChildAt(i)).setHost(null);
+        }
+        removeAllViews();
+        removeWindow();
+    }
+
+    private void removeWindow() {
+        if (this.mIsWindowAdded) {
+            this.mWindowManager.removeViewImmediate(this);
+            this.mIsWindowAdded = false;
+            if (this.mFloatingViewMetrics != null) {
+                this.mFloatingViewMetrics.onRemoveView();
+            }
+        }
+    }
+
+    /**
+     * 悬浮窗的位置或大小发生了变化
+     *
+     * @param floatingView 悬浮窗
+     */
+    void onChildLayoutChanged(FloatingView floatingView) {
+        updateWindowBounds();
+    }
+
+    /**
+     * 设置运行时统计
+     *
+     * @param metrics 运行时统计，null表示不统计
+     */
+    void setMetrics(FloatingViewMetrics metrics) {
+        this.mFloatingViewMetrics = metrics;
+    }
+
+    /**
+     * 开始批量操作
+     */
+    void beginBatch() {
+        this.mBatchDepth++;
+    }
+
+    /**
+     * 结束批量操作，统一更新一次宿主窗口
+     */
+    void endBatch() {
+        if (this.mBatchDepth > 0 && --this.mBatchDepth == 0 && this.mIsWindowAdded) {
+            updateWindowBounds();
+        }
+    }
+
+    /**
+     * 按照所有悬浮窗的外接矩形更新宿主窗口
+     */
+    private void updateWindowBounds() {
+        if (this.mBatchDepth > 0) {
+            return;
+        }
+        Rect bounds = this.mChildBounds;
+        Rect rect = this.mChildRect;
+        bounds.setEmpty();
+        int size = getChildCount();
+        for (int i = 0; i < size; i++) {
+            // 隐藏的悬浮窗不占用宿主窗口，还未测量的悬浮窗在测量后（onLayout）再计算
+            if (getChildRect(i, rect)) {
+                bounds.union(rect);
+            }
+        }
+        if (bounds.isEmpty()) {
+            // 所有悬浮窗都已隐藏（或者还未测量），宿主窗口收缩为0，不再拦截触摸事件
+            WindowManager.LayoutParams params = this.mParams;
+            setWindowBounds(params.x, params.y, 0, 0);
+            return;
+        }
+        setWindowBounds(bounds.left, bounds.top, bounds.width(), bounds.height());
+    }
+
+    /**
+     * 更新宿主窗口的位置和大小，并重新计算所有悬浮窗的平移量
+     */
+    private void setWindowBounds(int x, int y, int width, int height) {
+        WindowManager.LayoutParams params = this.mParams;
+        if (params.x != x || params.y != y || params.width != width || params.height != height) {
+            params.x = x;
+            params.y = y;
+            params.width = width;
+            params.height = height;
+            if (this.mIsWindowAdded) {
+                this.mWindowManager.updateViewLayout(this, params);
+                if (this.mFloatingViewMetrics != null) {
+                    this.mFloatingViewMetrics.onUpdateViewLayout();
+                }
+            }
+        }
+        int size = getChildCount();
+        for (int i = 0; i < size; i++) {
+            applyChildTranslation((FloatingView) getChildAt(i));
+        }
+    }
+
+    private void applyChildTranslation(FloatingView floatingView) {
+        WindowManager.LayoutParams childParams = floatingView.getWindowLayoutParams();
+        floatingView.setTranslationX(childParams.x - this.mParams.x);
+        floatingView.setTranslationY(childParams.y - this.mParams.y);
+    }
+}
@@ -1,13 +1,35 @@
 package com.pzj.floatingview;
 
 import android.content.Context;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+import android.support.annotation.LayoutRes;
+import android.support.annotation.RequiresApi;
+import android.util.DisplayMetrics;
 import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import android.view.Display;
+import android.view.LayoutInflater;
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewGroup;
 import android.view.WindowManager;
 import android.widget.FrameLayout;
+import com.pzj.floatingview.core.CollisionGrid;
+import com.pzj.floatingview.core.IntRect;
+import com.pzj.floatingview.core.SnapTargetIndex;
+import com.pzj.floatingview.core.TouchPredictor;
+import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 悬浮窗管理器
@@ -35,9 +57,219 @@ public class FloatingViewManager implements View.OnTouchListener {
     private final WindowManager mWindowManager;
 
     /**
-     * 悬浮窗集合
+     * 无效的悬浮窗ID
      */
-    private List<FloatingView> mFloatingViewList;
+    public static final int NO_ID = 0;
+
+    /**
+     * 隐藏的悬浮窗移除窗口之前的默认等待时间(ms)
+     */
+    public static final long DEFAULT_HIDDEN_TRIM_DELAY = 60 * 1000L;
+
+    /**
+     * 悬浮窗集合（key为悬浮窗ID，保持添加顺序）
+     */
+    private Map<Integer, FloatingView> mFloatingViews;
+
+    /**
+     * 下一个分配的悬浮窗ID
+     */
+    private int mNextFloatingViewId;
+
+    /**
+     * 共用的宿主窗口（宿主窗口模式时使用）
+     */
+    private FloatingViewHost mFloatingViewHost;
+
+    /**
+     * 是否所有悬浮窗共用一个宿主窗口
+     */
+    private boolean mIsHostMode;
+
+    /**
+     * 运行时统计（未开启时为null）
+     */
+    private FloatingViewMetrics mFloatingViewMetrics;
+
+    /**
+     * 正在后台创建或已预热、还未添加窗口的悬浮窗（key为悬浮窗ID）
+     */
+    private Map<Integer, PendingContent> mPendingContents;
+
+    /**
+     * 后台线程专用的LayoutInflater
+     */
+    private LayoutInflater mBackgroundInflater;
+
+    /**
+     * 移除后的悬浮窗的回收池
+     */
+    private FloatingViewPool mFloatingViewPool;
+
+    /**
+     * 隐藏中的悬浮窗（key为悬浮窗ID）
+     */
+    private Map<Integer, HiddenState> mHiddenStates;
+
+    /**
+     * 隐藏的悬浮窗移除窗口之前的等待时间(ms)
+     */
+    private long mHiddenTrimDelay;
+
+    /**
+     * 是否已安排移除隐藏的悬浮窗的窗口
+     */
+    private boolean mIsTrimScheduled;
+
+    /**
+     * 是否跟踪状态栏和导航条的实际占用区域
+     */
+    private boolean mIsSystemInsetsTracking;
+
+    /**
+     * 已添加的跟踪窗口（key为显示器ID），每个有悬浮窗的显示器一个
+     */
+    private final SparseArray<SystemInsetsObserver> mSystemInsetsObservers;
+
+    /**
+     * 有悬浮窗的显示器（更新跟踪窗口时重复使用）
+     */
+    private final SparseBooleanArray mShownDisplayIds;
+
+    /**
+     * 显示器被移除时需要移动的悬浮窗ID（重复使用）
+     */
+    private int[] mMovingIds;
+
+    /**
+     * 系统ui占用区域变化时通知该显示器上的悬浮窗
+     */
+    private final SystemInsetsObserver.OnSystemInsetsChangedListener mSystemInsetsListener = new SystemInsetsObserver.OnSystemInsetsChangedListener() {
+        @Override
+        public void onSystemInsetsChanged(int displayId, int frameWidth, int frameHeight, Rect insets) {
+            for (FloatingView floatingView : mFloatingViews.values()) {
+                if (floatingView.getDisplayId() == displayId) {
+                    floatingView.onSystemInsetsChanged(frameWidth, frameHeight, insets);
+                }
+            }
+        }
+    };
+
+    /**
+     * 副显示器的WindowManager（key为显示器ID）
+     */
+    private final SparseArray<WindowManager> mDisplayWindowManagers;
+
+    /**
+     * 按显示器缓存的DisplayMetrics
+     */
+    private final DisplayMetricsCache mDisplayMetricsCache;
+
+    /**
+     * 显示器变化时重新布局该显示器上的悬浮窗，移除时移回默认显示器
+     */
+    private final DisplayMetricsCache.Callback mDisplayCallback = new DisplayMetricsCache.Callback() {
+        @Override
+        public void onDisplayChanged(int displayId) {
+            for (FloatingView floatingView : mFloatingViews.values()) {
+                if (floatingView.getDisplayId() == displayId) {
+                    floatingView.onDisplayChanged();
+                }
+            }
+        }
+
+        @Override
+        public void onDisplayRemoved(int displayId) {
+            // 移动时会更新悬浮窗的显示器，先记下需要移动的悬浮窗
+            int count = 0;
+            for (FloatingView floatingView : mFloatingViews.values()) {
+                if (floatingView.getDisplayId() == displayId) {
+                    if (count == mMovingIds.length) {
+                        mMovingIds = Arrays.copyOf(mMovingIds, count * 2);
+                    }
+                    mMovingIds[count++] = floatingView.getFloatingViewId();
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                moveFloatingViewToDisplay(mMovingIds[i], Display.DEFAULT_DISPLAY);
+            }
+            // 显示器上的窗口已经被系统移除
+            mSystemInsetsObservers.remove(displayId);
+            mDisplayWindowManagers.remove(displayId);
+        }
+    };
+
+    /**
+     * 避免重叠时格子的边长(dp)
+     */
+    private static final float COLLISION_CELL_SIZE_DP = 64.0f;
+
+    /**
+     * 悬浮窗位置的空间哈希，未开启避让时为null
+     */
+    private CollisionGrid mCollisionGrid;
+
+    /**
+     * 正在挪开重叠的悬浮窗（{@link CollisionGrid#resolve(int, int, int, int)} 的返回值重复使用，不能嵌套）
+     */
+    private boolean mIsResolvingCollisions;
+
+    /**
+     * 悬浮窗之间的最小间距(px)
+     */
+    private int mCollisionSpacing;
+
+    /**
+     * 悬浮窗停下后挪开与它重叠的悬浮窗
+     */
+    private final FloatingView.OnMoveSettledListener mMoveSettledListener = new FloatingView.OnMoveSettledListener() {
+        @Override
+        public void onMoveSettled(FloatingView floatingView) {
+            resolveCollisions(floatingView);
+        }
+    };
+
+    /**
+     * 悬浮窗链的动画（所有链共用一个帧回调）
+     */
+    private final FloatingViewChainAnimator mChainAnimator;
+
+    /**
+     * 链的第一个悬浮窗移动时开始带动跟随的悬浮窗
+     */
+    private final FloatingView.OnPositionChangedListener mPositionChangedListener = new FloatingView.OnPositionChangedListener() {
+        @Override
+        public void onPositionChanged(FloatingView floatingView) {
+            mChainAnimator.onPositionChanged(floatingView);
+        }
+    };
+
+    /**
+     * 主线程的Handler
+     */
+    private final Handler mHandler;
+
+    /**
+     * 等待时间到了之后，在主线程空闲时移除隐藏的悬浮窗的窗口
+     */
+    private final Runnable mTrimRunnable = new Runnable() {
+        @Override
+        public void run() {
+            Looper.myQueue().addIdleHandler(mTrimIdleHandler);
+        }
+    };
+
+    /**
+     * 主线程空闲时移除隐藏的悬浮窗的窗口
+     */
+    private final MessageQueue.IdleHandler mTrimIdleHandler = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            mIsTrimScheduled = false;
+            trimHiddenFloatingViews();
+            return false;
+        }
+    };
 
     /**
      * 构造方法
@@ -45,74 +277,1210 @@ public class FloatingViewManager implements View.OnTouchListener {
      * @param context              上下文
      * @param floatingViewListener 悬浮窗监听器
      */
-    public FloatingViewManager(Context context, FloatingViewListener floatingViewListener) {
-        this.mContext = context;
-        this.mFloatingViewListener = floatingViewListener;
-        this.mWindowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
-        this.mFloatingViewList = new ArrayList<>();
+    public FloatingViewManager(Context context, FloatingViewListener floatingViewListener) {
+        this.mContext = context;
+        this.mFloatingViewListener = floatingViewListener;
+        this.mWindowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        this.mFloatingViews = new LinkedHashMap<>();
+        this.mPendingContents = new LinkedHashMap<>();
+        this.mFloatingViewPool = new FloatingViewPool(FloatingViewPool.DEFAULT_MAX_SIZE);
+        this.mHiddenStates = new LinkedHashMap<>();
+        this.mHiddenTrimDelay = DEFAULT_HIDDEN_TRIM_DELAY;
+        this.mHandler = new Handler(Looper.getMainLooper());
+        this.mSystemInsetsObservers = new SparseArray<>();
+        this.mShownDisplayIds = new SparseBooleanArray();
+        this.mMovingIds = new int[4];
+        this.mDisplayWindowManagers = new SparseArray<>();
+        this.mDisplayMetricsCache = new DisplayMetricsCache(context, this.mDisplayCallback);
+        this.mChainAnimator = new FloatingViewChainAnimator();
+        this.mNextFloatingViewId = NO_ID + 1;
+    }
+
+    @Override
+    public boolean onTouch(View v, MotionEvent event) {
+        return false;
+    }
+
+    /**
+     * 添加悬浮窗
+     *
+     * @param view    悬浮窗视图组件
+     * @param configs 悬浮窗的配置信息
+     *
+     * @return 悬浮窗ID，用于之后查找、更新和移除该悬浮窗
+     */
+    public int addFloatingView(View view, Configs configs) {
+        int id = this.mNextFloatingViewId++;
+        addFloatingView(id, view, configs);
+        return id;
+    }
+
+    /**
+     * 使用已分配的ID添加悬浮窗
+     *
+     * @param id      悬浮窗ID
+     * @param view    悬浮窗视图组件
+     * @param configs 悬浮窗的配置信息
+     */
+    private void addFloatingView(int id, View view, Configs configs) {
+        addWindow(id, createFloatingView(id, view, configs));
+    }
+
+    /**
+     * 添加悬浮窗（内容视图在后台线程创建，创建完成后添加窗口）
+     *
+     * @param layoutResId 内容视图的布局
+     * @param configs     悬浮窗的配置信息
+     *
+     * @return 悬浮窗ID，创建完成前也可以用于更新和移除
+     */
+    public int addFloatingView(@LayoutRes int layoutResId, Configs configs) {
+        return addFloatingView(new LayoutContentFactory(layoutResId), configs);
+    }
+
+    /**
+     * 添加悬浮窗（内容视图在后台线程创建，创建完成后添加窗口）
+     *
+     * @param factory 内容视图的工厂
+     * @param configs 悬浮窗的配置信息
+     *
+     * @return 悬浮窗ID，创建完成前也可以用于更新和移除
+     */
+    public int addFloatingView(FloatingViewContentFactory factory, Configs configs) {
+        return inflateFloatingView(factory, configs, true);
+    }
+
+    /**
+     * 预热悬浮窗：在后台线程创建内容视图，回到主线程后完成测量，但不添加窗口
+     * <p>
+     * 需要显示时调用 {@link #attachFloatingView(int)}，此时只剩下添加窗口的开销
+     *
+     * @param layoutResId 内容视图的布局
+     * @param configs     悬浮窗的配置信息
+     *
+     * @return 悬浮窗ID
+     */
+    public int prewarmFloatingView(@LayoutRes int layoutResId, Configs configs) {
+        return prewarmFloatingView(new LayoutContentFactory(layoutResId), configs);
+    }
+
+    /**
+     * 预热悬浮窗：在后台线程创建内容视图，回到主线程后完成测量，但不添加窗口
+     * <p>
+     * 需要显示时调用 {@link #attachFloatingView(int)}，此时只剩下添加窗口的开销
+     *
+     * @param factory 内容视图的工厂
+     * @param configs 悬浮窗的配置信息
+     *
+     * @return 悬浮窗ID
+     */
+    public int prewarmFloatingView(FloatingViewContentFactory factory, Configs configs) {
+        return inflateFloatingView(factory, configs, false);
+    }
+
+    /**
+     * 添加预热的悬浮窗的窗口，还在创建中时会在创建完成后立即添加
+     *
+     * @param id 悬浮窗ID
+     *
+     * @return 预热的悬浮窗存在时返回true
+     */
+    public boolean attachFloatingView(int id) {
+        PendingContent pending = this.mPendingContents.get(id);
+        if (pending == null) {
+            return false;
+        }
+        if (pending.floatingView != null) {
+            this.mPendingContents.remove(id);
+            addWindow(id, pending.floatingView);
+        }
+        else {
+            pending.attachWhenReady = true;
+        }
+        return true;
+    }
+
+    /**
+     * 在后台线程创建内容视图
+     *
+     * @param factory         内容视图的工厂
+     * @param configs         悬浮窗的配置信息
+     * @param attachWhenReady 创建完成后是否立即添加窗口
+     *
+     * @return 悬浮窗ID
+     */
+    private int inflateFloatingView(FloatingViewContentFactory factory, Configs configs, boolean attachWhenReady) {
+        if (this.mBackgroundInflater == null) {
+            this.mBackgroundInflater = LayoutInflater.from(this.mContext).cloneInContext(this.mContext);
+        }
+        int id = this.mNextFloatingViewId++;
+        PendingContent pending = new PendingContent(id, configs, attachWhenReady);
+        pending.request = new ContentInflateThread.Request(factory, this.mBackgroundInflater, LayoutInflater.from(this.mContext), pending);
+        this.mPendingContents.put(id, pending);
+        ContentInflateThread.getInstance().enqueue(pending.request);
+        return id;
+    }
+
+    /**
+     * 内容视图已在后台创建完成（主线程）
+     *
+     * @param pending
+     * @param view
+     */
+    private void onContentInflated(PendingContent pending, View view) {
+        pending.request.getFactory().onContentViewReady(pending.id, view);
+        FloatingView floatingView = createFloatingView(pending.id, view, pending.configs);
+        if (pending.attachWhenReady) {
+            this.mPendingContents.remove(pending.id);
+            addWindow(pending.id, floatingView);
+        }
+        else {
+            // 预热：提前测量，添加窗口时不需要再等待内容的测量
+            DisplayMetrics metrics = this.mContext.getResources().getDisplayMetrics();
+            floatingView.measure(View.MeasureSpec.makeMeasureSpec(metrics.widthPixels, View.MeasureSpec.AT_MOST),
+                                 View.MeasureSpec.makeMeasureSpec(metrics.heightPixels, View.MeasureSpec.AT_MOST));
+            pending.floatingView = floatingView;
+        }
+    }
+
+    /**
+     * 取消还未添加窗口的悬浮窗
+     *
+     * @param id 悬浮窗ID
+     *
+     * @return 存在时返回true
+     */
+    private boolean cancelPendingContent(int id) {
+        PendingContent pending = this.mPendingContents.remove(id);
+        if (pending == null) {
+            return false;
+        }
+        pending.request.cancel();
+        if (pending.floatingView != null) {
+            this.mFloatingViewPool.release(pending.floatingView, false);
+        }
+        return true;
+    }
+
+    /**
+     * 创建悬浮窗
+     *
+     * @param id      悬浮窗ID
+     * @param view    悬浮窗视图组件
+     * @param configs 悬浮窗的配置信息
+     *
+     * @return
+     */
+    private FloatingView createFloatingView(int id, View view, Configs configs) {
+        FloatingView floatingView = this.mFloatingViewPool.acquire();
+        if (floatingView != null) {
+            floatingView.reset(configs.floatingViewX, configs.floatingViewY);
+        }
+        else {
+            floatingView = new FloatingView(this.mContext, configs.floatingViewX, configs.floatingViewY);
+        }
+        floatingView.setFloatingViewId(id);
+        floatingView.setOnTouchListener(this);
+        floatingView.setOnMoveSettledListener(this.mMoveSettledListener);
+        floatingView.setOnPositionChangedListener(this.mPositionChangedListener);
+        floatingView.setMetrics(this.mFloatingViewMetrics);
+        floatingView.setWindowManager(getWindowManager(configs.displayId), this.mDisplayMetricsCache);
+        applyConfigs(floatingView, configs);
+        applySystemInsets(floatingView);
+
+        // 设置悬浮窗的大小（重复使用的内容视图沿用原来的LayoutParams）
+        ViewGroup.LayoutParams params = view.getLayoutParams();
+        if (params instanceof FrameLayout.LayoutParams) {
+            params.width = configs.floatingViewWidth;
+            params.height = configs.floatingViewHeight;
+        }
+        else {
+            params = new FrameLayout.LayoutParams(configs.floatingViewWidth, configs.floatingViewHeight);
+        }
+        view.setLayoutParams(params);
+        floatingView.addView(view);
+        return floatingView;
+    }
+
+    /**
+     * 添加悬浮窗的窗口
+     *
+     * @param id           悬浮窗ID
+     * @param floatingView 悬浮窗
+     */
+    private void addWindow(int id, FloatingView floatingView) {
+        // 添加悬浮窗到集合
+        this.mFloatingViews.put(id, floatingView);
+
+        // 添加悬浮窗
+        attachWindow(floatingView);
+        updateDisplayTracking();
+    }
+
+    /**
+     * 获取显示器的WindowManager
+     *
+     * @param displayId 显示器ID
+     *
+     * @return
+     */
+    private WindowManager getWindowManager(int displayId) {
+        if (displayId == this.mWindowManager.getDefaultDisplay().getDisplayId()) {
+            return this.mWindowManager;
+        }
+        if (this.mIsHostMode) {
+            throw new IllegalStateException("Host mode only supports the default display");
+        }
+        WindowManager windowManager = this.mDisplayWindowManagers.get(displayId);
+        if (windowManager == null) {
+            Display display = this.mDisplayMetricsCache.getDisplay(displayId);
+            if (display == null) {
+                throw new IllegalArgumentException("Display " + displayId + " does not exist");
+            }
+            windowManager = createDisplayWindowManager(display);
+            this.mDisplayWindowManagers.put(displayId, windowManager);
+        }
+        return windowManager;
+    }
+
+    @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN_MR1)
+    private WindowManager createDisplayWindowManager(Display display) {
+        return (WindowManager) createDisplayContext(display).getSystemService(Context.WINDOW_SERVICE);
+    }
+
+    /**
+     * 把悬浮窗移动到其他显示器，悬浮窗和内容视图保持不变，只重新添加窗口
+     * <p>
+     * 位置按照新显示器的大小等比例换算，隐藏中的悬浮窗保持隐藏。显示器被移除时悬浮窗会自动移回默认显示器。
+     * 副显示器需要API 17以上，不支持宿主窗口模式。
+     *
+     * @param id        悬浮窗ID
+     * @param displayId 显示器ID
+     *
+     * @return 悬浮窗存在时返回true
+     */
+    public boolean moveFloatingViewToDisplay(int id, int displayId) {
+        FloatingView floatingView = this.mFloatingViews.get(id);
+        if (floatingView == null) {
+            return false;
+        }
+        if (floatingView.getDisplayId() == displayId) {
+            return true;
+        }
+        WindowManager windowManager = getWindowManager(displayId);
+        boolean isAttached = !isWindowTrimmed(id);
+        if (isAttached) {
+            detachWindow(floatingView, true);
+        }
+        floatingView.setWindowManager(windowManager, this.mDisplayMetricsCache);
+        updateDisplayTracking();
+        applySystemInsets(floatingView);
+        if (isAttached) {
+            attachWindow(floatingView);
+        }
+        return true;
+    }
+
+    /**
+     * 添加悬浮窗的窗口（或添加到宿主窗口中）
+     *
+     * @param floatingView
+     */
+    private void attachWindow(FloatingView floatingView) {
+        if (this.mIsHostMode) {
+            if (this.mFloatingViewHost == null) {
+                this.mFloatingViewHost = new FloatingViewHost(this.mContext);
+                this.mFloatingViewHost.setMetrics(this.mFloatingViewMetrics);
+                this.mChainAnimator.setHost(this.mFloatingViewHost);
+            }
+            this.mFloatingViewHost.addFloatingView(floatingView);
+        }
+        else {
+            floatingView.getWindowManager().addView(floatingView, floatingView.getWindowLayoutParams());
+            if (this.mFloatingViewMetrics != null) {
+                this.mFloatingViewMetrics.onAddView();
+            }
+        }
+    }
+
+    /**
+     * 应用悬浮窗的配置信息（位置和大小除外）
+     *
+     * @param floatingView
+     * @param configs
+     */
+    private void applyConfigs(FloatingView floatingView, Configs configs) {
+        floatingView.setOverMargin(configs.overMargin);
+        floatingView.setMoveDirection(configs.moveDirection);
+        floatingView.setAnimateInitialMove(configs.animateInitialMove);
+        floatingView.setAnimateRotation(configs.animateRotation);
+        floatingView.setSnapTargets(configs.snapTargets);
+        floatingView.setSnapListener(configs.snapListener);
+        floatingView.setFrameCoalescedDrag(configs.frameCoalescedDrag);
+        floatingView.setTouchPrediction(configs.touchPrediction, configs.touchPredictionHorizonMillis);
+        floatingView.setFlingPhysics(configs.flingPhysics);
+        floatingView.setPinchToResize(configs.pinchToResize);
+        floatingView.setSpringStiffness(configs.springStiffness);
+        floatingView.setSpringDampingRatio(configs.springDampingRatio);
+        floatingView.setContentSnapshot(configs.contentSnapshot);
+        floatingView.setVisibilityListener(configs.visibilityListener);
+        floatingView.setPauseContentWhenHidden(configs.pauseContentWhenHidden);
+    }
+
+    /**
+     * 查找悬浮窗
+     * <p>
+     * 开启回收池（{@link #setFloatingViewPoolSize(int)}）时，返回值只在该悬浮窗移除之前有效
+     *
+     * @param id 悬浮窗ID
+     *
+     * @return 悬浮窗，不存在时返回null
+     */
+    public FloatingView getFloatingView(int id) {
+        return this.mFloatingViews.get(id);
+    }
+
+    /**
+     * 获取悬浮窗的数量
+     *
+     * @return
+     */
+    public int getFloatingViewCount() {
+        return this.mFloatingViews.size();
+    }
+
+    /**
+     * 更新悬浮窗的配置信息
+     * <p>
+     * 位置为 {@link FloatingView#DEFAULT_X} / {@link FloatingView#DEFAULT_Y} 时保持当前位置
+     *
+     * @param id      悬浮窗ID
+     * @param configs 悬浮窗的配置信息
+     *
+     * @return 悬浮窗存在时返回true
+     */
+    public boolean updateFloatingView(int id, Configs configs) {
+        FloatingView floatingView = this.mFloatingViews.get(id);
+        if (floatingView == null) {
+            PendingContent pending = this.mPendingContents.get(id);
+            if (pending == null) {
+                return false;
+            }
+            if (pending.floatingView == null) {
+                // 还在创建中，创建完成后使用新的配置信息
+                pending.configs = configs;
+                return true;
+            }
+            floatingView = pending.floatingView;
+        }
+        applyConfigs(floatingView, configs);
+
+        // 更新悬浮窗所在的显示器
+        if (floatingView.getDisplayId() != configs.displayId) {
+            if (this.mFloatingViews.containsKey(id)) {
+                moveFloatingViewToDisplay(id, configs.displayId);
+            }
+            else {
+                floatingView.setWindowManager(getWindowManager(configs.displayId), this.mDisplayMetricsCache);
+            }
+        }
+
+        // 更新悬浮窗的大小
+        if (floatingView.getChildCount() > 0) {
+            View view = floatingView.getChildAt(0);
+            FrameLayout.LayoutParams targetParams = (FrameLayout.LayoutParams) view.getLayoutParams();
+            if (targetParams.width != configs.floatingViewWidth || targetParams.height != configs.floatingViewHeight) {
+                targetParams.width = configs.floatingViewWidth;
+                targetParams.height = configs.floatingViewHeight;
+                view.setLayoutParams(targetParams);
+            }
+        }
+
+        // 更新悬浮窗的位置
+        if (configs.floatingViewX != FloatingView.DEFAULT_X || configs.floatingViewY != FloatingView.DEFAULT_Y) {
+            WindowManager.LayoutParams params = floatingView.getWindowLayoutParams();
+            int x = configs.floatingViewX != FloatingView.DEFAULT_X ? configs.floatingViewX : params.x;
+            int y = configs.floatingViewY != FloatingView.DEFAULT_Y ? configs.floatingViewY : params.y;
+            floatingView.setPosition(x, y);
+        }
+        return true;
+    }
+
+    /**
+     * 设置是否所有悬浮窗共用一个宿主窗口
+     * <p>
+     * 开启后所有悬浮窗作为子View放在同一个窗口中，减少窗口数量和WindowManager的IPC。
+     * 宿主窗口覆盖所有悬浮窗的外接矩形，外接矩形内的空白处也会拦截触摸事件。
+     * 只能在添加悬浮窗之前设置。
+     *
+     * @param hostMode
+     */
+    public void setHostMode(boolean hostMode) {
+        if (!this.mFloatingViews.isEmpty()) {
+            throw new IllegalStateException("setHostMode must be called before addFloatingView");
+        }
+        this.mIsHostMode = hostMode;
+    }
+
+    /**
+     * 移除悬浮窗
+     * <p>
+     * 移除后没有悬浮窗（包括创建中和预热的悬浮窗）时回调 {@link FloatingViewListener#onFinishFloatingView()}
+     *
+     * @param id 悬浮窗ID
+     *
+     * @return 悬浮窗存在时返回true
+     */
+    public boolean removeFloatingView(int id) {
+        FloatingView floatingView = this.mFloatingViews.remove(id);
+        if (floatingView == null) {
+            if (!cancelPendingContent(id)) {
+                return false;
+            }
+        }
+        else {
+            removeWindow(id, floatingView, true);
+            // 可能是所在显示器上的最后一个悬浮窗
+            updateDisplayTracking();
+        }
+        if (this.mFloatingViews.isEmpty() && this.mPendingContents.isEmpty()) {
+            if (this.mFloatingViewListener != null) {
+                this.mFloatingViewListener.onFinishFloatingView();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 移除所有的悬浮窗
+     * <p>
+     * 窗口异步移除，不会逐个阻塞主线程
+     */
+    public void removeAllFloatingView() {
+        boolean isRemoved = !this.mFloatingViews.isEmpty() || !this.mPendingContents.isEmpty();
+        for (PendingContent pending : this.mPendingContents.values()) {
+            pending.request.cancel();
+        }
+        this.mPendingContents.clear();
+        if (this.mFloatingViewHost != null) {
+            this.mFloatingViewHost.removeAllFloatingView();
+            for (FloatingView floatingView : this.mFloatingViews.values()) {
+                this.mFloatingViewPool.release(floatingView, false);
+            }
+        }
+        else {
+            for (Map.Entry<Integer, FloatingView> entry : this.mFloatingViews.entrySet()) {
+                boolean removalPending = !isWindowTrimmed(entry.getKey());
+                // 先登记，窗口移除完成（离开窗口）后才放回回收池
+                this.mFloatingViewPool.release(entry.getValue(), removalPending);
+                if (removalPending) {
+                    detachWindow(entry.getValue(), false);
+                }
+            }
+        }
+        this.mFloatingViews.clear();
+        this.mHiddenStates.clear();
+        if (this.mCollisionGrid != null) {
+            this.mCollisionGrid.clear();
+        }
+        this.mChainAnimator.clear();
+        this.mHandler.removeCallbacks(this.mTrimRunnable);
+        this.mIsTrimScheduled = false;
+        updateDisplayTracking();
+        // 与逐个移除相同，移除了最后的悬浮窗时通知
+        if (isRemoved && this.mFloatingViewListener != null) {
+            this.mFloatingViewListener.onFinishFloatingView();
+        }
+    }
+
+    /**
+     * 移除悬浮窗的窗口，并把悬浮窗放回回收池
+     *
+     * @param id           悬浮窗ID
+     * @param floatingView
+     * @param immediate    是否同步移除窗口
+     */
+    private void removeWindow(int id, FloatingView floatingView, boolean immediate) {
+        if (this.mCollisionGrid != null) {
+            this.mCollisionGrid.remove(id);
+        }
+        this.mChainAnimator.removeMember(floatingView);
+        HiddenState hiddenState = this.mHiddenStates.remove(id);
+        boolean isWindowAttached = hiddenState == null || !hiddenState.isTrimmed;
+        if (isWindowAttached && !immediate && this.mFloatingViewHost == null) {
+            // 异步移除：先登记，窗口移除完成（离开窗口）后才放回回收池
+            this.mFloatingViewPool.release(floatingView, true);
+            detachWindow(floatingView, false);
+            return;
+        }
+        if (isWindowAttached) {
+            detachWindow(floatingView, immediate);
+        }
+        this.mFloatingViewPool.release(floatingView, false);
+    }
+
+    /**
+     * 移除悬浮窗的窗口（或从宿主窗口中移除）
+     *
+     * @param floatingView
+     * @param immediate    是否同步移除窗口
+     */
+    private void detachWindow(FloatingView floatingView, boolean immediate) {
+        if (this.mFloatingViewHost != null) {
+            this.mFloatingViewHost.removeFloatingView(floatingView);
+        }
+        else {
+            if (immediate) {
+                floatingView.getWindowManager().removeViewImmediate(floatingView);
+            }
+            else {
+                floatingView.getWindowManager().removeView(floatingView);
+            }
+            if (this.mFloatingViewMetrics != null) {
+                this.mFloatingViewMetrics.onRemoveView();
+            }
+        }
+    }
+
+    /**
+     * 隐藏悬浮窗
+     * <p>
+     * 窗口和测量好的视图保持不变，只把视图设为不可见并且不接收触摸事件，再次显示时不需要重新添加窗口。
+     * 隐藏超过 {@link #setHiddenTrimDelay(long)} 的时间后，在主线程空闲时移除窗口；之后显示时会重新添加窗口。
+     *
+     * @param id 悬浮窗ID
+     *
+     * @return 悬浮窗存在时返回true
+     */
+    public boolean hideFloatingView(int id) {
+        FloatingView floatingView = this.mFloatingViews.get(id);
+        if (floatingView == null) {
+            return false;
+        }
+        if (this.mHiddenStates.containsKey(id)) {
+            return true;
+        }
+        floatingView.setShown(false);
+        if (this.mCollisionGrid != null) {
+            this.mCollisionGrid.remove(id);
+        }
+        this.mHiddenStates.put(id, new HiddenState(SystemClock.uptimeMillis()));
+        scheduleTrim(this.mHiddenTrimDelay);
+        return true;
+    }
+
+    /**
+     * 显示隐藏的悬浮窗
+     *
+     * @param id 悬浮窗ID
+     *
+     * @return 悬浮窗存在时返回true
+     */
+    public boolean showFloatingView(int id) {
+        FloatingView floatingView = this.mFloatingViews.get(id);
+        if (floatingView == null) {
+            return false;
+        }
+        HiddenState hiddenState = this.mHiddenStates.remove(id);
+        if (hiddenState == null) {
+            return true;
+        }
+        floatingView.setShown(true);
+        if (hiddenState.isTrimmed) {
+            attachWindow(floatingView);
+        }
+        return true;
+    }
+
+    /**
+     * 悬浮窗是否显示中
+     *
+     * @param id 悬浮窗ID
+     *
+     * @return 悬浮窗存在并且没有隐藏时返回true
+     */
+    public boolean isFloatingViewShown(int id) {
+        return this.mFloatingViews.containsKey(id) && !this.mHiddenStates.containsKey(id);
+    }
+
+    /**
+     * 设置隐藏的悬浮窗移除窗口之前的等待时间
+     *
+     * @param delayMillis 等待时间(ms)，小于0时不移除，默认为 {@link #DEFAULT_HIDDEN_TRIM_DELAY}
+     */
+    public void setHiddenTrimDelay(long delayMillis) {
+        this.mHiddenTrimDelay = delayMillis;
+        if (!this.mHiddenStates.isEmpty()) {
+            this.mHandler.removeCallbacks(this.mTrimRunnable);
+            this.mIsTrimScheduled = false;
+            scheduleTrim(0);
+        }
+    }
+
+    /**
+     * 安排移除隐藏的悬浮窗的窗口
+     *
+     * @param delayMillis
+     */
+    private void scheduleTrim(long delayMillis) {
+        if (this.mIsTrimScheduled || this.mHiddenTrimDelay < 0) {
+            return;
+        }
+        this.mIsTrimScheduled = true;
+        this.mHandler.postDelayed(this.mTrimRunnable, delayMillis);
+    }
+
+    /**
+     * 移除隐藏时间超过等待时间的悬浮窗的窗口，还有未到时间的悬浮窗时再次安排
+     */
+    private void trimHiddenFloatingViews() {
+        if (this.mHiddenTrimDelay < 0) {
+            return;
+        }
+        long now = SystemClock.uptimeMillis();
+        long nextTrimTime = Long.MAX_VALUE;
+        for (Map.Entry<Integer, HiddenState> entry : this.mHiddenStates.entrySet()) {
+            HiddenState hiddenState = entry.getValue();
+            if (hiddenState.isTrimmed) {
+                continue;
+            }
+            long trimTime = hiddenState.hiddenTime + this.mHiddenTrimDelay;
+            if (trimTime <= now) {
+                detachWindow(this.mFloatingViews.get(entry.getKey()), true);
+                hiddenState.isTrimmed = true;
+            }
+            else {
+                nextTrimTime = Math.min(nextTrimTime, trimTime);
+            }
+        }
+        if (nextTrimTime != Long.MAX_VALUE) {
+            scheduleTrim(nextTrimTime - now);
+        }
     }
 
-    @Override
-    public boolean onTouch(View v, MotionEvent event) {
-        return false;
+    private boolean isWindowTrimmed(int id) {
+        HiddenState hiddenState = this.mHiddenStates.get(id);
+        return hiddenState != null && hiddenState.isTrimmed;
     }
 
     /**
-     * 添加悬浮窗
+     * 设置是否跟踪状态栏和导航条的实际占用区域
+     * <p>
+     * 开启后用一个不可见、不接收触摸事件的全屏窗口接收系统的WindowInsets，
+     * 状态栏或导航条显示、隐藏时自动更新所有悬浮窗的移动范围，不再需要调用 {@link FloatingView#onUpdateSystemLayout(boolean, boolean, boolean)}。
+     * 只有移动范围实际变化时才会重新定位悬浮窗。该窗口只在有悬浮窗时存在。
      *
-     * @param view    悬浮窗视图组件
-     * @param configs 悬浮窗的配置信息
+     * @param enabled
      */
-    public void addFloatingView(View view, Configs configs) {
-        // 创建悬浮窗
-        FloatingView floatingView = new FloatingView(this.mContext, configs.floatingViewX, configs.floatingViewY);
-        floatingView.setOnTouchListener(this);
-        floatingView.setOverMargin(configs.overMargin);
-        floatingView.setMoveDirection(configs.moveDirection);
-        floatingView.setAnimateInitialMove(configs.animateInitialMove);
+    public void setSystemInsetsTracking(boolean enabled) {
+        this.mIsSystemInsetsTracking = enabled;
+        updateDisplayTracking();
+    }
 
-        // 设置悬浮窗的大小
-        FrameLayout.LayoutParams targetParams = new FrameLayout.LayoutParams(configs.floatingViewWidth, configs.floatingViewHeight);
-        view.setLayoutParams(targetParams);
-        floatingView.addView(view);
+    /**
+     * 有悬浮窗时监听显示器变化，并在每个有悬浮窗的显示器上添加跟踪窗口；没有悬浮窗的显示器移除跟踪窗口
+     */
+    private void updateDisplayTracking() {
+        this.mDisplayMetricsCache.setListening(!this.mFloatingViews.isEmpty());
 
-        // 添加悬浮窗到集合
-        this.mFloatingViewList.add(floatingView);
+        SparseArray<SystemInsetsObserver> observers = this.mSystemInsetsObservers;
+        SparseBooleanArray displayIds = this.mShownDisplayIds;
+        displayIds.clear();
+        if (this.mIsSystemInsetsTracking) {
+            for (FloatingView floatingView : this.mFloatingViews.values()) {
+                displayIds.put(floatingView.getDisplayId(), true);
+            }
+        }
+        for (int i = observers.size() - 1; i >= 0; i--) {
+            if (!displayIds.get(observers.keyAt(i))) {
+                // 同一个显示器可能马上重新添加，需要同步移除
+                SystemInsetsObserver observer = observers.valueAt(i);
+                getWindowManager(observers.keyAt(i)).removeViewImmediate(observer);
+                observers.removeAt(i);
+            }
+        }
+        for (int i = 0, size = displayIds.size(); i < size; i++) {
+            int displayId = displayIds.keyAt(i);
+            if (observers.get(displayId) == null) {
+                WindowManager windowManager = getWindowManager(displayId);
+                Context context = windowManager == this.mWindowManager ? this.mContext : createDisplayContext(windowManager.getDefaultDisplay());
+                SystemInsetsObserver observer = new SystemInsetsObserver(context, displayId, this.mSystemInsetsListener);
+                windowManager.addView(observer, observer.getWindowLayoutParams());
+                observers.put(displayId, observer);
+            }
+        }
+    }
 
-        // 添加悬浮窗
-        this.mWindowManager.addView(floatingView, floatingView.getWindowLayoutParams());
+    @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN_MR1)
+    private Context createDisplayContext(Display display) {
+        return this.mContext.createDisplayContext(display);
     }
 
     /**
-     * 移除悬浮窗
+     * 把所在显示器已知的系统ui占用区域通知给悬浮窗
      *
      * @param floatingView
      */
-    private void removeFloatingView(FloatingView floatingView) {
-        int matchIndex = this.mFloatingViewList.indexOf(floatingView);
-        if (matchIndex != -1) {
-            this.mWindowManager.removeViewImmediate(floatingView);
-            this.mFloatingViewList.remove(matchIndex);
+    private void applySystemInsets(FloatingView floatingView) {
+        SystemInsetsObserver observer = this.mSystemInsetsObservers.get(floatingView.getDisplayId());
+        if (observer != null && observer.hasInsets()) {
+            floatingView.onSystemInsetsChanged(observer.getWidth(), observer.getHeight(), observer.getInsets());
         }
-        if (this.mFloatingViewList.isEmpty()) {
-            if (this.mFloatingViewListener != null) {
-                this.mFloatingViewListener.onFinishFloatingView();
+    }
+
+    /**
+     * 设置是否避免悬浮窗互相重叠
+     * <p>
+     * 开启后悬浮窗停下时保持位置，与它重叠的悬浮窗沿所在的边缘挪到最近的空位，
+     * 比如多个悬浮窗停在同一个位置时会沿边缘依次排开。只有位置变化的悬浮窗会移动。
+     *
+     * @param enabled
+     * @param spacing 悬浮窗之间的最小间距(px)
+     */
+    public void setCollisionAvoidance(boolean enabled, int spacing) {
+        this.mCollisionSpacing = spacing;
+        if (enabled == (this.mCollisionGrid != null)) {
+            return;
+        }
+        if (!enabled) {
+            this.mCollisionGrid = null;
+            return;
+        }
+        float density = this.mContext.getResources().getDisplayMetrics().density;
+        this.mCollisionGrid = new CollisionGrid(Math.max(1, (int) (COLLISION_CELL_SIZE_DP * density)));
+        // 已有的悬浮窗只登记位置，下次停下时才会挪开
+        for (Map.Entry<Integer, FloatingView> entry : this.mFloatingViews.entrySet()) {
+            FloatingView floatingView = entry.getValue();
+            if (!this.mHiddenStates.containsKey(entry.getKey()) && !floatingView.getPositionLimit().isEmpty() && !this.mChainAnimator.isFollower(floatingView)) {
+                WindowManager.LayoutParams params = floatingView.getWindowLayoutParams();
+                this.mCollisionGrid.set(entry.getKey(), params.x, params.y, floatingView.getWidth(), floatingView.getHeight());
             }
         }
     }
 
     /**
-     * 移除所有的悬浮窗
+     * 登记停下的悬浮窗的位置，挪开与它重叠的悬浮窗
+     *
+     * @param floatingView
      */
-    public void removeAllFloatingView() {
-        if (this.mFloatingViewList != null) {
-            for (FloatingView floatingView : mFloatingViewList) {
-                this.mWindowManager.removeViewImmediate(floatingView);
+    private void resolveCollisions(FloatingView floatingView) {
+        CollisionGrid grid = this.mCollisionGrid;
+        if (grid == null || this.mIsResolvingCollisions || floatingView.getVisibility() != View.VISIBLE || this.mChainAnimator.isFollower(floatingView)) {
+            // 跟随的悬浮窗由链决定位置；
+            // 挪开的悬浮窗直接移动时会同步通知停下，新位置已经是空位，不需要再检查
+            return;
+        }
+        int id = floatingView.getFloatingViewId();
+        IntRect positionLimit = floatingView.getPositionLimit();
+        if (this.mFloatingViews.get(id) != floatingView || positionLimit.isEmpty()) {
+            // 预加载中或者还未完成初次布局
+            return;
+        }
+        WindowManager.LayoutParams params = floatingView.getWindowLayoutParams();
+        grid.set(id, params.x, params.y, floatingView.getWidth(), floatingView.getHeight());
+        this.mIsResolvingCollisions = true;
+        try {
+            List<CollisionGrid.Item> moved = grid.resolve(id, positionLimit.top, positionLimit.bottom, this.mCollisionSpacing);
+            for (int i = 0, size = moved.size(); i < size; i++) {
+                CollisionGrid.Item item = moved.get(i);
+                this.mFloatingViews.get(item.id).animateTo(item.getX(), item.getY());
+            }
+        }
+        finally {
+            this.mIsResolvingCollisions = false;
+        }
+    }
+
+    /**
+     * 把悬浮窗连成一条链：拖动第一个悬浮窗时，后面的悬浮窗依次以弹簧延迟跟随前一个悬浮窗
+     * <p>
+     * 所有的链共用一个帧回调，每一帧一次性计算所有跟随者的位置并统一提交，而不是每个悬浮窗一个动画。
+     * 跟随者不受避免重叠的影响；隐藏或被单独拖动的跟随者保持原位，后面的悬浮窗跟随它。
+     * 已有以同一个悬浮窗开头的链时替换原来的链。
+     *
+     * @param leaderId    第一个悬浮窗的ID
+     * @param offsetX     每个跟随者相对前一个悬浮窗的x偏移(px)
+     * @param offsetY     每个跟随者相对前一个悬浮窗的y偏移(px)
+     * @param followerIds 跟随的悬浮窗的ID（按顺序）
+     *
+     * @return 悬浮窗都存在时返回true
+     */
+    public boolean setFloatingViewChain(int leaderId, int offsetX, int offsetY, int... followerIds) {
+        FloatingView leader = this.mFloatingViews.get(leaderId);
+        if (leader == null || followerIds.length == 0) {
+            return false;
+        }
+        List<FloatingView> followers = new ArrayList<>(followerIds.length);
+        for (int followerId : followerIds) {
+            FloatingView follower = this.mFloatingViews.get(followerId);
+            if (follower == null) {
+                return false;
+            }
+            if (follower == leader || followers.contains(follower)) {
+                throw new IllegalArgumentException("duplicate floating view in chain: " + followerId);
+            }
+            followers.add(follower);
+        }
+        if (this.mChainAnimator.isFollower(leader)) {
+            throw new IllegalArgumentException("floating view is already in a chain: " + leaderId);
+        }
+        FloatingViewChainAnimator.Chain oldChain = this.mChainAnimator.findChain(leader);
+        for (int i = 0; i < followerIds.length; i++) {
+            FloatingView follower = followers.get(i);
+            if (this.mChainAnimator.contains(follower) && (oldChain == null || !oldChain.followers.contains(follower))) {
+                throw new IllegalArgumentException("floating view is already in a chain: " + followerIds[i]);
+            }
+        }
+        this.mChainAnimator.removeChain(leader);
+        if (this.mCollisionGrid != null) {
+            for (int followerId : followerIds) {
+                this.mCollisionGrid.remove(followerId);
+            }
+        }
+        this.mChainAnimator.addChain(leader, followers, offsetX, offsetY);
+        return true;
+    }
+
+    /**
+     * 解散以指定悬浮窗开头的链，跟随者停在当前位置
+     *
+     * @param leaderId 第一个悬浮窗的ID
+     *
+     * @return 链存在时返回true
+     */
+    public boolean removeFloatingViewChain(int leaderId) {
+        FloatingView leader = this.mFloatingViews.get(leaderId);
+        return leader != null && this.mChainAnimator.removeChain(leader);
+    }
+
+    /**
+     * 悬浮窗链是否正在动画
+     *
+     * @return
+     */
+    boolean isChainAnimating() {
+        return this.mChainAnimator.isRunning();
+    }
+
+    /**
+     * 设置回收池的最大数量
+     * <p>
+     * 移除后的悬浮窗（不含内容视图）最多保留这么多个，下次添加时重新使用，频繁显示和隐藏时不再重复创建。
+     * 开启后 {@link #getFloatingView(int)} 返回的悬浮窗在移除后可能作为其他ID的悬浮窗重新使用，移除后不要再持有或操作它。
+     *
+     * @param maxSize 0表示不回收，默认为0
+     */
+    public void setFloatingViewPoolSize(int maxSize) {
+        this.mFloatingViewPool.setMaxSize(maxSize);
+    }
+
+    /**
+     * 内存紧张时释放回收池，在 {@link android.content.ComponentCallbacks2#onTrimMemory(int)} 中调用
+     *
+     * @param level TRIM_MEMORY_*
+     */
+    public void onTrimMemory(int level) {
+        this.mFloatingViewPool.trimMemory(level);
+    }
+
+    /**
+     * 设置是否开启运行时统计
+     * <p>
+     * 开启后统计WindowManager的调用次数、手势延迟以及动画的帧间隔和掉帧数，可以通过 {@link #dump(PrintWriter)} 输出。
+     * 关闭时会丢弃已有的统计。
+     *
+     * @param enabled
+     */
+    public void setMetricsEnabled(boolean enabled) {
+        if (enabled == (this.mFloatingViewMetrics != null)) {
+            return;
+        }
+        FloatingViewMetrics metrics = null;
+        if (enabled) {
+            metrics = new FloatingViewMetrics(this.mWindowManager.getDefaultDisplay().getRefreshRate());
+        }
+        this.mFloatingViewMetrics = metrics;
+        for (FloatingView floatingView : this.mFloatingViews.values()) {
+            floatingView.setMetrics(metrics);
+        }
+        if (this.mFloatingViewHost != null) {
+            this.mFloatingViewHost.setMetrics(metrics);
+        }
+    }
+
+    /**
+     * 获取运行时统计
+     *
+     * @return 未开启时返回null
+     */
+    public FloatingViewMetrics getMetrics() {
+        return this.mFloatingViewMetrics;
+    }
+
+    /**
+     * 输出文本格式的运行时统计，可以在Service的dump中调用（adb shell dumpsys activity service ...）
+     *
+     * @param writer
+     */
+    public void dump(PrintWriter writer) {
+        writer.println("FloatingViewManager: floatingViews=" + this.mFloatingViews.size() + " hostMode=" + this.mIsHostMode);
+        if (this.mFloatingViewMetrics != null) {
+            this.mFloatingViewMetrics.dump(writer);
+        }
+        else {
+            writer.println("FloatingViewMetrics: disabled");
+        }
+    }
+
+    /**
+     * 开始一个批量操作
+     * <p>
+     * 在 {@link Transaction#commit()} 时一次性执行所有的添加、更新和移除，
+     * 同一个悬浮窗的多次操作会被合并，{@link FloatingViewListener} 每次提交最多回调一次。
+     *
+     * @return
+     */
+    public Transaction beginTransaction() {
+        return new Transaction();
+    }
+
+    /**
+     * 悬浮窗的批量操作
+     */
+    public class Transaction {
+
+        /**
+         * 每个悬浮窗合并后的操作（保持操作顺序）
+         */
+        private final Map<Integer, PendingOp> mPendingOps = new LinkedHashMap<>();
+
+        /**
+         * 是否已提交
+         */
+        private boolean mIsCommitted;
+
+        private Transaction() {
+        }
+
+        /**
+         * 添加悬浮窗
+         *
+         * @param view    悬浮窗视图组件
+         * @param configs 悬浮窗的配置信息（提交时读取）
+         *
+         * @return 悬浮窗ID，提交后生效
+         */
+        public int add(View view, Configs configs) {
+            checkNotCommitted();
+            int id = mNextFloatingViewId++;
+            PendingOp op = new PendingOp();
+            op.view = view;
+            op.configs = configs;
+            this.mPendingOps.put(id, op);
+            return id;
+        }
+
+        /**
+         * 更新悬浮窗的配置信息
+         *
+         * @param id      悬浮窗ID
+         * @param configs 悬浮窗的配置信息（提交时读取）
+         *
+         * @return
+         */
+        public Transaction update(int id, Configs configs) {
+            checkNotCommitted();
+            PendingOp op = obtainOp(id);
+            if (!op.remove) {
+                // 对尚未添加的悬浮窗直接替换添加时的配置信息
+                op.configs = configs;
+            }
+            return this;
+        }
+
+        /**
+         * 移除悬浮窗
+         *
+         * @param id 悬浮窗ID
+         *
+         * @return
+         */
+        public Transaction remove(int id) {
+            checkNotCommitted();
+            PendingOp op = obtainOp(id);
+            if (op.view != null) {
+                // 同一个批量操作中添加后又移除，不需要任何窗口操作
+                this.mPendingOps.remove(id);
+            }
+            else {
+                op.remove = true;
+                op.configs = null;
+            }
+            return this;
+        }
+
+        /**
+         * 提交所有操作：先移除，再添加，最后更新
+         */
+        public void commit() {
+            checkNotCommitted();
+            this.mIsCommitted = true;
+
+            boolean isRemoved = false;
+            if (mFloatingViewHost != null) {
+                mFloatingViewHost.beginBatch();
+            }
+            for (Map.Entry<Integer, PendingOp> entry : this.mPendingOps.entrySet()) {
+                if (entry.getValue().remove) {
+                    FloatingView floatingView = mFloatingViews.remove(entry.getKey());
+                    if (floatingView != null) {
+                        removeWindow(entry.getKey(), floatingView, false);
+                        isRemoved = true;
+                    }
+                    else if (cancelPendingContent(entry.getKey())) {
+                        isRemoved = true;
+                    }
+                }
+            }
+            for (Map.Entry<Integer, PendingOp> entry : this.mPendingOps.entrySet()) {
+                PendingOp op = entry.getValue();
+                if (op.view != null) {
+                    addFloatingView(entry.getKey(), op.view, op.configs);
+                }
+            }
+            for (Map.Entry<Integer, PendingOp> entry : this.mPendingOps.entrySet()) {
+                PendingOp op = entry.getValue();
+                if (op.view == null && op.configs != null) {
+                    updateFloatingView(entry.getKey(), op.configs);
+                }
+            }
+            if (mFloatingViewHost != null) {
+                mFloatingViewHost.endBatch();
+            }
+            this.mPendingOps.clear();
+            updateDisplayTracking();
+
+            if (isRemoved && mFloatingViews.isEmpty() && mPendingContents.isEmpty()) {
+                if (mFloatingViewListener != null) {
+                    mFloatingViewListener.onFinishFloatingView();
+                }
+            }
+        }
+
+        private PendingOp obtainOp(int id) {
+            PendingOp op = this.mPendingOps.get(id);
+            if (op == null) {
+                op = new PendingOp();
+                this.mPendingOps.put(id, op);
+            }
+            return op;
+        }
+
+        private void checkNotCommitted() {
+            if (this.mIsCommitted) {
+                throw new IllegalStateException("Transaction already committed");
             }
-            this.mFloatingViewList.clear();
         }
     }
 
+    /**
+     * 还未添加窗口的悬浮窗（后台创建中或已预热）
+     */
+    private class PendingContent implements ContentInflateThread.Callback {
+        /**
+         * 悬浮窗ID
+         */
+        final int id;
+
+        /**
+         * 悬浮窗的配置信息
+         */
+        Configs configs;
+
+        /**
+         * 后台创建的请求
+         */
+        ContentInflateThread.Request request;
+
+        /**
+         * 创建完成的悬浮窗（创建中为null）
+         */
+        FloatingView floatingView;
+
+        /**
+         * 创建完成后是否立即添加窗口
+         */
+        boolean attachWhenReady;
+
+        PendingContent(int id, Configs configs, boolean attachWhenReady) {
+            this.id = id;
+            this.configs = configs;
+            this.attachWhenReady = attachWhenReady;
+        }
+
+        @Override
+        public void onContentInflated(ContentInflateThread.Request request) {
+            FloatingViewManager.this.onContentInflated(this, request.getView());
+        }
+    }
+
+    /**
+     * 隐藏中的悬浮窗的状态
+     */
+    private static class HiddenState {
+        /**
+         * 隐藏的时间(uptime ms)
+         */
+        final long hiddenTime;
+
+        /**
+         * 窗口是否已移除
+         */
+        boolean isTrimmed;
+
+        HiddenState(long hiddenTime) {
+            this.hiddenTime = hiddenTime;
+        }
+    }
+
+    /**
+     * 从布局创建内容视图的工厂
+     */
+    private static class LayoutContentFactory extends FloatingViewContentFactory {
+
+        @LayoutRes
+        private final int mLayoutResId;
+
+        LayoutContentFactory(@LayoutRes int layoutResId) {
+            this.mLayoutResId = layoutResId;
+        }
+
+        @Override
+        public View onCreateContentView(LayoutInflater inflater) {
+            return inflater.inflate(this.mLayoutResId, null, false);
+        }
+    }
+
+    /**
+     * 批量操作中单个悬浮窗合并后的操作
+     */
+    private static class PendingOp {
+        /**
+         * 要添加的悬浮窗视图组件（添加操作时不为null）
+         */
+        View view;
+
+        /**
+         * 添加或更新时的配置信息
+         */
+        Configs configs;
+
+        /**
+         * 是否移除
+         */
+        boolean remove;
+    }
+
     /**
      * 悬浮窗的配置信息
      */
@@ -153,6 +1521,76 @@ public class FloatingViewManager implements View.OnTouchListener {
          */
         public boolean animateInitialMove;
 
+        /**
+         * 屏幕旋转后是否以动画移动到新的位置（默认为false，直接移动）
+         */
+        public boolean animateRotation;
+
+        /**
+         * 拖动时是否按帧合并位置更新（每帧最多一次WindowManager更新）
+         */
+        public boolean frameCoalescedDrag;
+
+        /**
+         * 拖动时是否使用触摸预测
+         */
+        public boolean touchPrediction;
+
+        /**
+         * 触摸预测的时长(ms)，{@link TouchPredictor#HORIZON_AUTO} 表示使用测得的延迟
+         */
+        public long touchPredictionHorizonMillis;
+
+        /**
+         * 释放后是否使用基于速度的弹簧动画
+         */
+        public boolean flingPhysics;
+
+        /**
+         * 弹簧动画的刚度
+         */
+        public float springStiffness;
+
+        /**
+         * 弹簧动画的阻尼比
+         */
+        public float springDampingRatio;
+
+        /**
+         * 是否允许双指缩放内容
+         */
+        public boolean pinchToResize;
+
+        /**
+         * 拖动和动画期间是否使用内容的快照代替实时绘制
+         */
+        public boolean contentSnapshot;
+
+        /**
+         * 可见状态的监听器
+         */
+        public FloatingViewVisibilityListener visibilityListener;
+
+        /**
+         * 不可见时是否暂停内容（内容视图设置为INVISIBLE），参考 {@link FloatingView#setPauseContentWhenHidden(boolean)}
+         */
+        public boolean pauseContentWhenHidden;
+
+        /**
+         * 磁吸目标（可以由多个悬浮窗共用），为null时只移动到边缘
+         */
+        public SnapTargetIndex snapTargets;
+
+        /**
+         * 磁吸目标的监听器
+         */
+        public FloatingViewSnapListener snapListener;
+
+        /**
+         * 显示悬浮窗的显示器ID（副显示器需要API 17以上）
+         */
+        public int displayId;
+
         public Configs() {
             this.floatingViewX = FloatingView.DEFAULT_X;
             this.floatingViewY = FloatingView.DEFAULT_Y;
@@ -161,6 +1599,20 @@ public class FloatingViewManager implements View.OnTouchListener {
             this.overMargin = 0;
             this.moveDirection = FloatingView.MOVE_DIRECTION_DEFAULT;
             this.animateInitialMove = true;
+            this.animateRotation = false;
+            this.frameCoalescedDrag = true;
+            this.touchPrediction = false;
+            this.touchPredictionHorizonMillis = TouchPredictor.HORIZON_AUTO;
+            this.flingPhysics = false;
+            this.springStiffness = SpringAxis.DEFAULT_STIFFNESS;
+            this.springDampingRatio = SpringAxis.DEFAULT_DAMPING_RATIO;
+            this.pinchToResize = false;
+            this.contentSnapshot = false;
+            this.visibilityListener = null;
+            this.pauseContentWhenHidden = false;
+            this.snapTargets = null;
+            this.snapListener = null;
+            this.displayId = Display.DEFAULT_DISPLAY;
         }
     }
 }
@@ -0,0 +1,216 @@
+package com.pzj.floatingview;
+
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * 悬浮窗的运行时统计
+ * <p>
+ * 统计WindowManager的调用次数、手势延迟（按下到第一次提交移动、抬起到停止）以及动画的帧间隔和掉帧数，
+ * 用于区分卡顿来自窗口IPC、布局还是动画。
+ * 通过 {@link FloatingViewManager#setMetricsEnabled(boolean)} 开启，未开启时悬浮窗只做一次null判断。
+ * 只在主线程记录和读取。
+ */
+public class FloatingViewMetrics {
+
+    /**
+     * 期望的帧间隔(ns)
+     */
+    private final long mFrameIntervalNanos;
+
+    /**
+     * WindowManager#addView 的调用次数
+     */
+    private int mAddViewCount;
+
+    /**
+     * WindowManager#updateViewLayout 的调用次数
+     */
+    private int mUpdateViewLayoutCount;
+
+    /**
+     * WindowManager#removeView 和 removeViewImmediate 的调用次数
+     */
+    private int mRemoveViewCount;
+
+    /**
+     * 因布局参数未变化而跳过的更新次数
+     */
+    private int mLayoutSkipCount;
+
+    /**
+     * 按下到第一次提交移动的延迟
+     */
+    private final Timing mDownToFirstMove = new Timing();
+
+    /**
+     * 抬起到停止的时间
+     */
+    private final Timing mUpToSettle = new Timing();
+
+    /**
+     * 动画的帧间隔
+     */
+    private final Timing mAnimationFrame = new Timing();
+
+    /**
+     * 动画的掉帧数
+     */
+    private int mDroppedFrameCount;
+
+    /**
+     * 构造方法
+     *
+     * @param refreshRate 屏幕的刷新率(Hz)，无效时按60Hz计算
+     */
+    public FloatingViewMetrics(float refreshRate) {
+        if (refreshRate < 1f) {
+            refreshRate = 60f;
+        }
+        this.mFrameIntervalNanos = (long) (1000000000L / refreshRate);
+    }
+
+    void onAddView() {
+        this.mAddViewCount++;
+    }
+
+    void onUpdateViewLayout() {
+        this.mUpdateViewLayoutCount++;
+    }
+
+    void onRemoveView() {
+        this.mRemoveViewCount++;
+    }
+
+    void onLayoutSkipped() {
+        this.mLayoutSkipCount++;
+    }
+
+    void onFirstMove(long latencyNanos) {
+        this.mDownToFirstMove.add(latencyNanos);
+    }
+
+    void onSettled(long durationNanos) {
+        this.mUpToSettle.add(durationNanos);
+    }
+
+    /**
+     * 记录动画相邻两帧的间隔，超过期望帧间隔的部分计为掉帧
+     *
+     * @param intervalNanos
+     */
+    void onAnimationFrame(long intervalNanos) {
+        this.mAnimationFrame.add(intervalNanos);
+        long dropped = (intervalNanos + this.mFrameIntervalNanos / 2) / this.mFrameIntervalNanos - 1;
+        if (dropped > 0) {
+            this.mDroppedFrameCount += dropped;
+        }
+    }
+
+    public int getAddViewCount() {
+        return this.mAddViewCount;
+    }
+
+    public int getUpdateViewLayoutCount() {
+        return this.mUpdateViewLayoutCount;
+    }
+
+    public int getRemoveViewCount() {
+        return this.mRemoveViewCount;
+    }
+
+    public int getLayoutSkipCount() {
+        return this.mLayoutSkipCount;
+    }
+
+    public Timing getDownToFirstMove() {
+        return this.mDownToFirstMove;
+    }
+
+    public Timing getUpToSettle() {
+        return this.mUpToSettle;
+    }
+
+    public Timing getAnimationFrame() {
+        return this.mAnimationFrame;
+    }
+
+    public int getDroppedFrameCount() {
+        return this.mDroppedFrameCount;
+    }
+
+    /**
+     * 清空所有统计
+     */
+    public void reset() {
+        this.mAddViewCount = 0;
+        this.mUpdateViewLayoutCount = 0;
+        this.mRemoveViewCount = 0;
+        this.mLayoutSkipCount = 0;
+        this.mDownToFirstMove.reset();
+        this.mUpToSettle.reset();
+        this.mAnimationFrame.reset();
+        this.mDroppedFrameCount = 0;
+    }
+
+    /**
+     * 输出文本格式的统计（用于dumpsys或调试广播）
+     *
+     * @param writer
+     */
+    public void dump(PrintWriter writer) {
+        writer.println("FloatingViewMetrics:");
+        writer.println("  addView=" + this.mAddViewCount + " updateViewLayout=" + this.mUpdateViewLayoutCount + " removeView=" + this.mRemoveViewCount + " layoutSkipped="
+                       + this.mLayoutSkipCount);
+        writer.println("  downToFirstMove " + this.mDownToFirstMove);
+        writer.println("  upToSettle " + this.mUpToSettle);
+        writer.println("  animationFrame " + this.mAnimationFrame + " expected=" + formatMillis(this.mFrameIntervalNanos) + "ms dropped=" + this.mDroppedFrameCount);
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format(Locale.US, "%.2f", nanos / 1000000.0);
+    }
+
+    /**
+     * 耗时的统计（次数、平均、最大）
+     */
+    public static final class Timing {
+
+        private int mCount;
+
+        private long mTotalNanos;
+
+        private long mMaxNanos;
+
+        void add(long nanos) {
+            this.mCount++;
+            this.mTotalNanos += nanos;
+            if (nanos > this.mMaxNanos) {
+                this.mMaxNanos = nanos;
+            }
+        }
+
+        void reset() {
+            this.mCount = 0;
+            this.mTotalNanos = 0;
+            this.mMaxNanos = 0;
+        }
+
+        public int getCount() {
+            return this.mCount;
+        }
+
+        public long getAverageNanos() {
+            return this.mCount == 0 ? 0 : this.mTotalNanos / this.mCount;
+        }
+
+        public long getMaxNanos() {
+            return this.mMaxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + this.mCount + " avg=" + formatMillis(getAverageNanos()) + "ms max=" + formatMillis(this.mMaxNanos) + "ms";
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.pzj.floatingview;
+
+import android.content.ComponentCallbacks2;
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+import java.util.ArrayList;
+
+/**
+ * 悬浮窗的回收池
+ * <p>
+ * 移除后的悬浮窗（不含内容视图）放回池中，下次添加时重置后重新使用，
+ * 避免频繁显示和隐藏时重复创建LayoutParams、动画、弹簧等对象。
+ * 异步移除的悬浮窗在真正离开窗口后才放回池中（还未附加到窗口时等待附加后再离开），
+ * 避免窗口还在移除中的悬浮窗被重新添加。
+ * 默认不回收，调用者持有的悬浮窗可能在移除后被其他ID重新使用，所以需要显式开启。
+ */
+class FloatingViewPool implements View.OnAttachStateChangeListener {
+
+    /**
+     * 默认的最大数量（不回收）
+     */
+    static final int DEFAULT_MAX_SIZE = 0;
+
+    /**
+     * 池中的悬浮窗
+     */
+    private final ArrayList<FloatingView> mFloatingViews;
+
+    /**
+     * 最大数量
+     */
+    private int mMaxSize;
+
+    FloatingViewPool(int maxSize) {
+        this.mFloatingViews = new ArrayList<>(maxSize);
+        this.mMaxSize = maxSize;
+    }
+
+    /**
+     * 取出一个悬浮窗
+     *
+     * @return 池为空时返回null
+     */
+    FloatingView acquire() {
+        int size = this.mFloatingViews.size();
+        return size > 0 ? this.mFloatingViews.remove(size - 1) : null;
+    }
+
+    /**
+     * 放回已移除的悬浮窗，还未离开窗口时在离开后放回
+     *
+     * @param floatingView
+     * @param removalPending 是否即将异步移除窗口（WindowManager.removeView），需要在移除窗口之前调用
+     */
+    void release(FloatingView floatingView, boolean removalPending) {
+        if (removalPending || ViewCompat.isAttachedToWindow(floatingView)) {
+            // 异步移除时窗口可能还未附加（首次遍历之前），离开窗口的回调才表示移除完成
+            floatingView.addOnAttachStateChangeListener(this);
+            return;
+        }
+        recycle(floatingView);
+    }
+
+    private void recycle(FloatingView floatingView) {
+        // 内容视图属于调用者，不保留
+        floatingView.removeContent();
+        if (this.mFloatingViews.size() < this.mMaxSize) {
+            this.mFloatingViews.add(floatingView);
+        }
+    }
+
+    @Override
+    public void onViewAttachedToWindow(View v) {
+    }
+
+    @Override
+    public void onViewDetachedFromWindow(View v) {
+        v.removeOnAttachStateChangeListener(this);
+        recycle((FloatingView) v);
+    }
+
+    /**
+     * 设置最大数量，超出的部分立即丢弃
+     *
+     * @param maxSize 0表示不回收
+     */
+    void setMaxSize(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must not be negative");
+        }
+        this.mMaxSize = maxSize;
+        trimToSize(maxSize);
+    }
+
+    /**
+     * 根据内存紧张程度释放池中的悬浮窗
+     *
+     * @param level {@link ComponentCallbacks2} 的TRIM_MEMORY_*
+     */
+    void trimMemory(int level) {
+        if (level == ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            // 只是界面不可见，并不是内存紧张（悬浮窗通常在界面不可见时使用）
+            return;
+        }
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            trimToSize(0);
+        }
+        else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            trimToSize(this.mFloatingViews.size() / 2);
+        }
+    }
+
+    private void trimToSize(int size) {
+        for (int i = this.mFloatingViews.size() - 1; i >= size; i--) {
+            this.mFloatingViews.remove(i);
+        }
+    }
+
+    /**
+     * 池中的数量
+     *
+     * @return
+     */
+    int size() {
+        return this.mFloatingViews.size();
+    }
+}
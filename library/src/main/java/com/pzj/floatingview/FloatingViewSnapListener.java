@@ -0,0 +1,35 @@
+package com.pzj.floatingview;
+
+import com.pzj.floatingview.core.SnapTarget;
+
+/**
+ * 悬浮窗磁吸目标的监听器
+ * <p>
+ * 可以在进入删除区域时放大删除图标，在吸附到删除区域后移除悬浮窗。
+ */
+public interface FloatingViewSnapListener {
+
+    /**
+     * 拖动中进入了目标的吸附范围（悬浮窗停在目标位置）
+     *
+     * @param floatingView 悬浮窗
+     * @param target       磁吸目标
+     */
+    void onSnapTargetEntered(FloatingView floatingView, SnapTarget target);
+
+    /**
+     * 拖动中离开了目标的吸附范围
+     *
+     * @param floatingView 悬浮窗
+     * @param target       磁吸目标
+     */
+    void onSnapTargetExited(FloatingView floatingView, SnapTarget target);
+
+    /**
+     * 在目标的吸附范围内松开，悬浮窗已停在目标位置
+     *
+     * @param floatingView 悬浮窗
+     * @param target       磁吸目标
+     */
+    void onSnapped(FloatingView floatingView, SnapTarget target);
+}
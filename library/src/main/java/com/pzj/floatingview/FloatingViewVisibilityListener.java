@@ -0,0 +1,20 @@
+package com.pzj.floatingview;
+
+/**
+ * 悬浮窗可见状态的监听器
+ * <p>
+ * 可以根据可见状态降低内容的更新频率，比如完全不可见时停止计时器。
+ * 内容的计时器、动画需要在这里停止：{@link FloatingView#setPauseContentWhenHidden(boolean)} 只拦截重绘请求，
+ * 而且在API 26以上开启硬件加速时不起作用。
+ */
+public interface FloatingViewVisibilityListener {
+
+    /**
+     * 可见状态发生了变化
+     *
+     * @param floatingView    悬浮窗
+     * @param state           {@link FloatingView#VISIBILITY_STATE_VISIBLE}、{@link FloatingView#VISIBILITY_STATE_PARTIAL} 或 {@link FloatingView#VISIBILITY_STATE_HIDDEN}
+     * @param visibleFraction 屏幕内的面积比例（0到1，屏幕关闭或隐藏时为0）
+     */
+    void onVisibilityStateChanged(FloatingView floatingView, @FloatingView.VisibilityState int state, float visibleFraction);
+}
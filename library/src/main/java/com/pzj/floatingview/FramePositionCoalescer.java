@@ -0,0 +1,77 @@
+package com.pzj.floatingview;
+
+/**
+ * 按帧合并的位置更新器
+ * <p>
+ * 拖动时只保留最新的触摸位置，每一帧最多提交一次，避免每个触摸采样都触发一次 WindowManager 更新。
+ */
+class FramePositionCoalescer {
+
+    /**
+     * 待提交的坐标
+     */
+    private int mPendingX, mPendingY;
+
+    /**
+     * 是否有待提交的坐标
+     */
+    private boolean mHasPending;
+
+    /**
+     * 是否已请求下一帧
+     */
+    private boolean mFrameScheduled;
+
+    /**
+     * 记录最新的位置
+     *
+     * @param x x坐标
+     * @param y y坐标
+     *
+     * @return 需要请求下一帧时返回true
+     */
+    boolean offer(int x, int y) {
+        this.mPendingX = x;
+        this.mPendingY = y;
+        this.mHasPending = true;
+        if (this.mFrameScheduled) {
+            return false;
+        }
+        this.mFrameScheduled = true;
+        return true;
+    }
+
+    /**
+     * 帧到来时调用
+     *
+     * @return 有待提交的位置时返回true，之后通过 {@link #getPendingX()} / {@link #getPendingY()} 读取
+     */
+    boolean onFrame() {
+        this.mFrameScheduled = false;
+        if (!this.mHasPending) {
+            return false;
+        }
+        this.mHasPending = false;
+        return true;
+    }
+
+    /**
+     * 丢弃待提交的位置
+     */
+    void clear() {
+        this.mHasPending = false;
+        this.mFrameScheduled = false;
+    }
+
+    boolean hasPending() {
+        return this.mHasPending;
+    }
+
+    int getPendingX() {
+        return this.mPendingX;
+    }
+
+    int getPendingY() {
+        return this.mPendingY;
+    }
+}
@@ -0,0 +1,71 @@
+package com.pzj.floatingview;
+
+/**
+ * 窗口布局提交的脏检查
+ * <p>
+ * 记录最后一次提交给 WindowManager 的布局参数，只有参数真正变化时才需要再次提交，并统计提交和跳过的次数。
+ */
+class LayoutCommitTracker {
+
+    /**
+     * 最后一次提交的布局参数
+     */
+    private int mX, mY, mWidth, mHeight, mFlags;
+
+    /**
+     * 是否已有提交记录
+     */
+    private boolean mHasCommitted;
+
+    /**
+     * 实际提交的次数
+     */
+    private int mCommitCount;
+
+    /**
+     * 跳过的次数
+     */
+    private int mSkipCount;
+
+    /**
+     * 判断布局参数是否需要提交，需要提交时同时记录为最后一次提交的参数
+     *
+     * @return 参数有变化时返回true
+     */
+    boolean commitIfChanged(int x, int y, int width, int height, int flags) {
+        if (this.mHasCommitted && this.mX == x && this.mY == y && this.mWidth == width && this.mHeight == height && this.mFlags == flags) {
+            this.mSkipCount++;
+            return false;
+        }
+        markCommitted(x, y, width, height, flags);
+        this.mCommitCount++;
+        return true;
+    }
+
+    /**
+     * 记录窗口当前已持有的布局参数（例如 addView 之后），不计入提交次数
+     */
+    void markCommitted(int x, int y, int width, int height, int flags) {
+        this.mX = x;
+        this.mY = y;
+        this.mWidth = width;
+        this.mHeight = height;
+        this.mFlags = flags;
+        this.mHasCommitted = true;
+    }
+
+    /**
+     * 清除提交记录，下一次提交一定会执行
+     */
+    void invalidate() {
+        this.mHasCommitted = false;
+    }
+
+    int getCommitCount() {
+        return this.mCommitCount;
+    }
+
+    int getSkipCount() {
+        return this.mSkipCount;
+    }
+}
@@ -0,0 +1,145 @@
+package com.pzj.floatingview;
+
+/**
+ * 单轴的阻尼弹簧
+ * <p>
+ * 以释放时的速度作为初速度向目标位置运动，位移和速度都足够小时认为已停止，而不是固定的动画时长。
+ */
+class SpringAxis {
+
+    /**
+     * 默认的刚度
+     */
+    static final float DEFAULT_STIFFNESS = 500f;
+
+    /**
+     * 默认的阻尼比（小于1时会有回弹）
+     */
+    static final float DEFAULT_DAMPING_RATIO = 0.75f;
+
+    /**
+     * 视为停止的位移阈值(px)
+     */
+    private static final float DISPLACEMENT_THRESHOLD = 0.5f;
+
+    /**
+     * 视为停止的速度阈值(px/s)
+     */
+    private static final float VELOCITY_THRESHOLD = 20f;
+
+    /**
+     * 单次积分的最大步长(s)，保证高刚度时的稳定性
+     */
+    private static final float MAX_STEP_SECONDS = 0.004f;
+
+    /**
+     * 刚度
+     */
+    private float mStiffness = DEFAULT_STIFFNESS;
+
+    /**
+     * 阻尼系数（由刚度和阻尼比计算）
+     */
+    private float mDamping;
+
+    /**
+     * 阻尼比
+     */
+    private float mDampingRatio = DEFAULT_DAMPING_RATIO;
+
+    /**
+     * 当前位置、速度和目标位置
+     */
+    private float mPosition, mVelocity, mTarget;
+
+    SpringAxis() {
+        updateDamping();
+    }
+
+    /**
+     * 设置刚度
+     *
+     * @param stiffness 必须大于0
+     */
+    void setStiffness(float stiffness) {
+        if (stiffness <= 0) {
+            throw new IllegalArgumentException("stiffness must be positive");
+        }
+        this.mStiffness = stiffness;
+        updateDamping();
+    }
+
+    /**
+     * 设置阻尼比
+     *
+     * @param dampingRatio 必须大于0，1为临界阻尼
+     */
+    void setDampingRatio(float dampingRatio) {
+        if (dampingRatio <= 0) {
+            throw new IllegalArgumentException("dampingRatio must be positive");
+        }
+        this.mDampingRatio = dampingRatio;
+        updateDamping();
+    }
+
+    private void updateDamping() {
+        this.mDamping = 2f * this.mDampingRatio * (float) Math.sqrt(this.mStiffness);
+    }
+
+    /**
+     * 开始向目标位置运动
+     *
+     * @param position 当前位置
+     * @param velocity 初速度(px/s)
+     * @param target   目标位置
+     */
+    void start(float position, float velocity, float target) {
+        this.mPosition = position;
+        this.mVelocity = velocity;
+        this.mTarget = target;
+    }
+
+    /**
+     * 前进一段时间
+     *
+     * @param seconds 经过的时间(s)
+     *
+     * @return 已停止时返回true，此时位置等于目标位置
+     */
+    boolean step(float seconds) {
+        while (seconds > 0) {
+            float dt = Math.min(seconds, MAX_STEP_SECONDS);
+            float acceleration = -this.mStiffness * (this.mPosition - this.mTarget) - this.mDamping * this.mVelocity;
+            this.mVelocity += acceleration * dt;
+            this.mPosition += this.mVelocity * dt;
+            seconds -= dt;
+        }
+        if (isSettled()) {
+            this.mPosition = this.mTarget;
+            this.mVelocity = 0;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 是否已停止
+     *
+     * @return
+     */
+    boolean isSettled() {
+        return Math.abs(this.mPosition - this.mTarget) < DISPLACEMENT_THRESHOLD && Math.abs(this.mVelocity) < VELOCITY_THRESHOLD;
+    }
+
+    float getPosition() {
+        return this.mPosition;
+    }
+
+    float getVelocity() {
+        return this.mVelocity;
+    }
+
+    float getTarget() {
+        return this.mTarget;
+    }
+}
@@ -0,0 +1,160 @@
+package com.pzj.floatingview;
+
+import android.content.Context;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.os.Build;
+import android.support.v4.view.OnApplyWindowInsetsListener;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.view.WindowInsetsCompat;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.WindowManager;
+
+/**
+ * 跟踪状态栏和导航条实际占用区域的不可见全屏窗口
+ * <p>
+ * 不接收触摸事件也不绘制，只用来接收系统的WindowInsets（API 20以上），
+ * 更早的版本使用窗口的可见区域计算。只有占用区域变化时才回调。
+ * <p>
+ * 窗口的WindowInsets只包含与窗口重叠的部分，所以窗口必须是全屏的；
+ * 窗口完全透明（alpha为0），Android 12以上不会被当作遮挡下层应用的窗口而拦截触摸事件。
+ * 不处理刘海屏的DisplayCutout（compileSdk为25，无法引用）。
+ */
+class SystemInsetsObserver extends View implements OnApplyWindowInsetsListener {
+
+    /**
+     * 系统ui占用区域的监听器
+     */
+    interface OnSystemInsetsChangedListener {
+
+        /**
+         * 系统ui占用的区域发生了变化
+         *
+         * @param displayId   显示器ID
+         * @param frameWidth  全屏窗口的宽度
+         * @param frameHeight 全屏窗口的高度
+         * @param insets      状态栏、导航条在四个方向上占用的尺寸
+         */
+        void onSystemInsetsChanged(int displayId, int frameWidth, int frameHeight, Rect insets);
+    }
+
+    /**
+     * 窗口的LayoutParams
+     */
+    private final WindowManager.LayoutParams mParams;
+
+    /**
+     * 所在显示器的ID
+     */
+    private final int mDisplayId;
+
+    /**
+     * 监听器
+     */
+    private final OnSystemInsetsChangedListener mListener;
+
+    /**
+     * 当前的占用区域
+     */
+    private final Rect mInsets;
+
+    /**
+     * 计算用的临时区域
+     */
+    private final Rect mTempRect;
+
+    /**
+     * 是否已经收到过占用区域
+     */
+    private boolean mHasInsets;
+
+    /**
+     * 构造方法
+     *
+     * @param context   所在显示器的上下文
+     * @param displayId 所在显示器的ID
+     * @param listener
+     */
+    SystemInsetsObserver(Context context, int displayId, OnSystemInsetsChangedListener listener) {
+        super(context);
+        this.mDisplayId = displayId;
+        this.mListener = listener;
+        this.mInsets = new Rect();
+        this.mTempRect = new Rect();
+        this.mParams = new WindowManager.LayoutParams();
+        this.mParams.width = ViewGroup.LayoutParams.MATCH_PARENT;
+        this.mParams.height = ViewGroup.LayoutParams.MATCH_PARENT;
+        this.mParams.type = WindowManager.LayoutParams.TYPE_PHONE;
+        this.mParams.flags = WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE | WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE | WindowManager.LayoutParams.FLAG_LAYOUT_IN_SCREEN
+                             | WindowManager.LayoutParams.FLAG_LAYOUT_INSET_DECOR;
+        this.mParams.format = PixelFormat.TRANSLUCENT;
+        // 完全透明的不可触摸窗口不会拦截下层应用的触摸事件
+        this.mParams.alpha = 0f;
+        this.mParams.gravity = Gravity.LEFT | Gravity.TOP;
+        setWillNotDraw(true);
+        ViewCompat.setOnApplyWindowInsetsListener(this, this);
+    }
+
+    WindowManager.LayoutParams getWindowLayoutParams() {
+        return this.mParams;
+    }
+
+    @Override
+    public WindowInsetsCompat onApplyWindowInsets(View v, WindowInsetsCompat insets) {
+        setInsets(insets.getSystemWindowInsetLeft(), insets.getSystemWindowInsetTop(), insets.getSystemWindowInsetRight(), insets.getSystemWindowInsetBottom());
+        return insets;
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT_WATCH) {
+            // WindowInsets不可用，使用窗口的可见区域
+            Rect frame = this.mTempRect;
+            getWindowVisibleDisplayFrame(frame);
+            setInsets(frame.left, frame.top, getWidth() - frame.right, getHeight() - frame.bottom);
+        }
+        else if (changed && this.mHasInsets) {
+            // 旋转后窗口大小变化，占用区域相同时也需要重新计算
+            dispatchInsetsChanged();
+        }
+    }
+
+    private void setInsets(int left, int top, int right, int bottom) {
+        Rect insets = this.mInsets;
+        if (this.mHasInsets && insets.left == left && insets.top == top && insets.right == right && insets.bottom == bottom) {
+            return;
+        }
+        insets.set(left, top, right, bottom);
+        this.mHasInsets = true;
+        dispatchInsetsChanged();
+    }
+
+    private void dispatchInsetsChanged() {
+        if (getWidth() == 0 || getHeight() == 0) {
+            // 还未布局，布局后再回调
+            return;
+        }
+        this.mListener.onSystemInsetsChanged(this.mDisplayId, getWidth(), getHeight(), this.mInsets);
+    }
+
+    /**
+     * 是否已经收到过占用区域
+     *
+     * @return
+     */
+    boolean hasInsets() {
+        return this.mHasInsets && getWidth() > 0 && getHeight() > 0;
+    }
+
+    /**
+     * 获取当前的占用区域
+     *
+     * @return
+     */
+    Rect getInsets() {
+        return this.mInsets;
+    }
+}
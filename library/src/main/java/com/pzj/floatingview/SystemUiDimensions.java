@@ -0,0 +1,107 @@
+package com.pzj.floatingview;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.view.KeyCharacterMap;
+import android.view.KeyEvent;
+import android.view.ViewConfiguration;
+
+/**
+ * 系统ui尺寸和设备特性的进程级缓存
+ * <p>
+ * 第一次使用时通过资源名称查找，之后所有悬浮窗共用结果，只有屏幕密度或屏幕尺寸类别变化时才重新查找。
+ */
+final class SystemUiDimensions {
+
+    /**
+     * 缓存的实例
+     */
+    private static SystemUiDimensions sInstance;
+
+    /**
+     * 是否是平板电脑
+     */
+    final boolean isTablet;
+
+    /**
+     * 状态栏的高度
+     */
+    final int statusBarHeight;
+
+    /**
+     * 导航条的高度
+     */
+    final int navigationBarHeight;
+
+    /**
+     * 旋转后导航条的高度（平板为横屏时的高度，手机为竖直放置时的宽度）
+     */
+    final int navigationBarRotatedHeight;
+
+    /**
+     * 缓存对应的屏幕密度
+     */
+    private final int mDensityDpi;
+
+    /**
+     * 缓存对应的屏幕尺寸类别
+     */
+    private final int mScreenSize;
+
+    private SystemUiDimensions(Context context, int densityDpi, int screenSize) {
+        Resources resources = context.getResources();
+        this.mDensityDpi = densityDpi;
+        this.mScreenSize = screenSize;
+        this.isTablet = screenSize >= Configuration.SCREENLAYOUT_SIZE_LARGE;
+        this.statusBarHeight = getSystemUiDimensionPixelSize(resources, "status_bar_height");
+
+        boolean hasMenuKey = ViewConfiguration.get(context).hasPermanentMenuKey();
+        boolean hasBackKey = KeyCharacterMap.deviceHasKey(KeyEvent.KEYCODE_BACK);
+        if (hasMenuKey || hasBackKey) {
+            this.navigationBarHeight = 0;
+            this.navigationBarRotatedHeight = 0;
+        }
+        else {
+            this.navigationBarHeight = getSystemUiDimensionPixelSize(resources, "navigation_bar_height");
+            final String resName = this.isTablet ? "navigation_bar_height_landscape" : "navigation_bar_width";
+            this.navigationBarRotatedHeight = getSystemUiDimensionPixelSize(resources, resName);
+        }
+    }
+
+    /**
+     * 获取当前配置对应的系统ui尺寸
+     *
+     * @param context 上下文
+     *
+     * @return 缓存的实例，配置变化后会重新生成
+     */
+    static synchronized SystemUiDimensions get(Context context) {
+        Resources resources = context.getResources();
+        int densityDpi = resources.getDisplayMetrics().densityDpi;
+        int screenSize = resources.getConfiguration().screenLayout & Configuration.SCREENLAYOUT_SIZE_MASK;
+        SystemUiDimensions instance = sInstance;
+        if (instance == null || instance.mDensityDpi != densityDpi || instance.mScreenSize != screenSize) {
+            instance = new SystemUiDimensions(context, densityDpi, screenSize);
+            sInstance = instance;
+        }
+        return instance;
+    }
+
+    /**
+     * 获得系统ui维度(像素)
+     *
+     * @param resources {@link Resources}
+     * @param resName   dimension resource name
+     *
+     * @return pixel size
+     */
+    private static int getSystemUiDimensionPixelSize(Resources resources, String resName) {
+        int pixelSize = 0;
+        final int resId = resources.getIdentifier(resName, "dimen", "android");
+        if (resId > 0) {
+            pixelSize = resources.getDimensionPixelSize(resId);
+        }
+        return pixelSize;
+    }
+}
@@ -0,0 +1,80 @@
+package com.pzj.floatingview;
+
+import android.content.Context;
+import android.util.DisplayMetrics;
+import android.view.Display;
+import android.view.WindowManager;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowDisplay;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * {@link DisplayMetricsCache} 的测试
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25, shadows = ShadowDeviceKeys.class)
+public class DisplayMetricsCacheTest {
+
+    private Display mDisplay;
+
+    private ShadowDisplay mShadowDisplay;
+
+    private DisplayMetricsCache mCache;
+
+    @Before
+    public void setUp() throws Exception {
+        Context context = RuntimeEnvironment.application;
+        this.mDisplay = ((WindowManager) context.getSystemService(Context.WINDOW_SERVICE)).getDefaultDisplay();
+        this.mShadowDisplay = shadowOf(this.mDisplay);
+        this.mShadowDisplay.setWidth(1080);
+        this.mCache = new DisplayMetricsCache(context, new DisplayMetricsCache.Callback() {
+            @Override
+            public void onDisplayChanged(int displayId) {
+            }
+
+            @Override
+            public void onDisplayRemoved(int displayId) {
+            }
+        });
+    }
+
+    private int getWidth() {
+        DisplayMetrics metrics = new DisplayMetrics();
+        this.mCache.getMetrics(this.mDisplay, metrics);
+        return metrics.widthPixels;
+    }
+
+    @Test
+    public void listening_cachesUntilInvalidated() throws Exception {
+        this.mCache.setListening(true);
+        assertEquals(1080, getWidth());
+
+        this.mShadowDisplay.setWidth(1920);
+        assertEquals(1080, getWidth());
+
+        this.mCache.invalidate(this.mDisplay.getDisplayId());
+        assertEquals(1920, getWidth());
+    }
+
+    @Test
+    public void notListening_alwaysQueriesDisplay() throws Exception {
+        assertEquals(1080, getWidth());
+
+        this.mShadowDisplay.setWidth(1920);
+        assertEquals(1920, getWidth());
+
+        // 停止监听时丢弃缓存
+        this.mCache.setListening(true);
+        assertEquals(1920, getWidth());
+        this.mShadowDisplay.setWidth(720);
+        this.mCache.setListening(false);
+        assertEquals(720, getWidth());
+    }
+}
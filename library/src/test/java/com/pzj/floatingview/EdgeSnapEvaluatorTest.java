@@ -0,0 +1,57 @@
+package com.pzj.floatingview;
+
+import java.lang.management.ManagementFactory;
+import org.junit.Assume;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link EdgeSnapEvaluator} 的单元测试
+ */
+public class EdgeSnapEvaluatorTest {
+
+    private static final int FRAMES = 100000;
+
+    @Test
+    public void evaluate_followsFraction() throws Exception {
+        EdgeSnapEvaluator evaluator = new EdgeSnapEvaluator();
+        evaluator.retarget(100, 0);
+
+        assertEquals(100, evaluator.evaluate(0f));
+        assertEquals(50, evaluator.evaluate(0.5f));
+        assertEquals(0, evaluator.evaluate(1f));
+        assertTrue(evaluator.evaluate(1.1f) < 0);
+        assertEquals(0, evaluator.getGoalX());
+    }
+
+    @Test
+    public void evaluate_doesNotAllocatePerFrame() throws Exception {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        EdgeSnapEvaluator evaluator = new EdgeSnapEvaluator();
+        long sink = runFrames(evaluator);
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        sink += runFrames(evaluator);
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(sink != 0);
+        // 每帧哪怕只装箱一个Integer，也会远超这个上限
+        assertTrue("allocated " + allocated + " bytes", allocated < FRAMES);
+    }
+
+    private static long runFrames(EdgeSnapEvaluator evaluator) {
+        long sink = 0;
+        evaluator.retarget(540, 1080);
+        for (int i = 0; i < FRAMES; i++) {
+            sink += evaluator.evaluate(i / (float) FRAMES);
+        }
+        return sink;
+    }
+}
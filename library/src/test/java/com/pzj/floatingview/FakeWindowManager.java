@@ -0,0 +1,133 @@
+package com.pzj.floatingview;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.view.Display;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.WindowManager;
+import android.widget.FrameLayout;
+
+/**
+ * 统计调用次数的WindowManager
+ * <p>
+ * 悬浮窗被添加到测试用Activity的内容区域中（这样才会被测量、布局并拥有window token），
+ * 窗口参数的更新只计数，不做真正的窗口操作。
+ */
+class FakeWindowManager implements WindowManager {
+
+    private final WindowManager mDelegate;
+
+    private final FrameLayout mContainer;
+
+    private final Display mDisplay;
+
+    int addViewCount;
+
+    int updateViewLayoutCount;
+
+    int removeViewCount;
+
+    int removeViewImmediateCount;
+
+    /**
+     * 与真正的WindowManager相同，addView在下一次遍历时才附加到窗口，removeView异步移除
+     */
+    boolean asyncWindows;
+
+    FakeWindowManager(WindowManager delegate, FrameLayout container) {
+        this(delegate, container, null);
+    }
+
+    /**
+     * @param delegate
+     * @param container
+     * @param display   窗口所在的显示器，null表示使用delegate的显示器
+     */
+    FakeWindowManager(WindowManager delegate, FrameLayout container, Display display) {
+        this.mDelegate = delegate;
+        this.mContainer = container;
+        this.mDisplay = display;
+    }
+
+    /**
+     * 返回WindowManager替换为指定对象的Context
+     *
+     * @param base
+     * @param windowManager
+     *
+     * @return
+     */
+    static Context wrap(Context base, final WindowManager windowManager) {
+        return new ContextWrapper(base) {
+            @Override
+            public Object getSystemService(String name) {
+                if (Context.WINDOW_SERVICE.equals(name)) {
+                    return windowManager;
+                }
+                return super.getSystemService(name);
+            }
+        };
+    }
+
+    @Override
+    public Display getDefaultDisplay() {
+        return this.mDisplay != null ? this.mDisplay : this.mDelegate.getDefaultDisplay();
+    }
+
+    @Override
+    public void addView(final View view, ViewGroup.LayoutParams params) {
+        this.addViewCount++;
+        if (this.asyncWindows) {
+            this.mContainer.post(new Runnable() {
+                @Override
+                public void run() {
+                    addToContainer(view);
+                }
+            });
+            return;
+        }
+        addToContainer(view);
+    }
+
+    private void addToContainer(View view) {
+        this.mContainer.addView(view, new FrameLayout.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+    }
+
+    @Override
+    public void updateViewLayout(View view, ViewGroup.LayoutParams params) {
+        this.updateViewLayoutCount++;
+    }
+
+    @Override
+    public void removeView(final View view) {
+        this.removeViewCount++;
+        if (this.asyncWindows) {
+            this.mContainer.post(new Runnable() {
+                @Override
+                public void run() {
+                    mContainer.removeView(view);
+                }
+            });
+            return;
+        }
+        this.mContainer.removeView(view);
+    }
+
+    @Override
+    public void removeViewImmediate(View view) {
+        this.removeViewImmediateCount++;
+        this.mContainer.removeView(view);
+    }
+
+    @Override
+    public void requestAppKeyboardShortcuts(KeyboardShortcutsReceiver receiver, int deviceId) {
+    }
+
+    void reset() {
+        this.addViewCount = 0;
+        this.updateViewLayoutCount = 0;
+        this.removeViewCount = 0;
+        this.removeViewImmediateCount = 0;
+    }
+}
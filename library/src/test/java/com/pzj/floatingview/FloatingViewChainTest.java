@@ -0,0 +1,168 @@
+package com.pzj.floatingview;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.WindowManager;
+import android.widget.FrameLayout;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowChoreographer;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.*;
+
+/**
+ * 悬浮窗链的测试
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25, shadows = ShadowDeviceKeys.class)
+public class FloatingViewChainTest {
+
+    private static final int SIZE = 100;
+
+    private static final int OFFSET = 20;
+
+    private static final long FRAME_MILLIS = 16;
+
+    private Activity mActivity;
+
+    private FakeWindowManager mWindowManager;
+
+    private FloatingViewManager mManager;
+
+    private int mLeaderId, mFirstId, mSecondId;
+
+    private FloatingView mLeader, mFirst, mSecond;
+
+    private long mDownTime;
+
+    @Before
+    public void setUp() throws Exception {
+        this.mActivity = Robolectric.setupActivity(Activity.class);
+        FrameLayout container = new FrameLayout(this.mActivity);
+        this.mActivity.setContentView(container);
+        this.mWindowManager = new FakeWindowManager((WindowManager) this.mActivity.getSystemService(Context.WINDOW_SERVICE), container);
+        this.mManager = new FloatingViewManager(FakeWindowManager.wrap(this.mActivity, this.mWindowManager), null);
+
+        this.mLeaderId = add();
+        this.mFirstId = add();
+        this.mSecondId = add();
+        this.mLeader = layout(this.mLeaderId);
+        this.mFirst = layout(this.mFirstId);
+        this.mSecond = layout(this.mSecondId);
+        this.mDownTime = SystemClock.uptimeMillis();
+
+        // 暂停主线程Looper，帧回调只在每一帧推进时执行
+        ShadowLooper.pauseMainLooper();
+        ShadowChoreographer.setFrameInterval(FRAME_MILLIS * 1000000L);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ShadowLooper.unPauseMainLooper();
+    }
+
+    private static void frame() {
+        ShadowLooper.idleMainLooper(FRAME_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private int add() {
+        FloatingViewManager.Configs configs = new FloatingViewManager.Configs();
+        configs.floatingViewX = 0;
+        configs.floatingViewY = 100;
+        configs.floatingViewWidth = SIZE;
+        configs.floatingViewHeight = SIZE;
+        configs.animateInitialMove = false;
+        configs.frameCoalescedDrag = false;
+        return this.mManager.addFloatingView(new View(this.mActivity), configs);
+    }
+
+    private FloatingView layout(int id) {
+        FloatingView floatingView = this.mManager.getFloatingView(id);
+        ShadowLooper.idleMainLooper();
+        floatingView.measure(View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED), View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        floatingView.layout(0, 0, SIZE, SIZE);
+        floatingView.getViewTreeObserver().dispatchOnPreDraw();
+        return floatingView;
+    }
+
+    private void touch(int action, float x, float y) {
+        MotionEvent event = MotionEvent.obtain(this.mDownTime, SystemClock.uptimeMillis(), action, x, y, 0);
+        this.mLeader.dispatchTouchEvent(event);
+        event.recycle();
+    }
+
+    private void settle() {
+        for (int i = 0; i < 300 && (this.mLeader.isSettling() || this.mManager.isChainAnimating()); i++) {
+            frame();
+        }
+        assertFalse(this.mManager.isChainAnimating());
+    }
+
+    @Test
+    public void dragLeader_followersTrailWithLag() throws Exception {
+        assertTrue(this.mManager.setFloatingViewChain(this.mLeaderId, OFFSET, OFFSET, this.mFirstId, this.mSecondId));
+        settle();
+        assertEquals(OFFSET, this.mFirst.getWindowLayoutParams().x);
+        assertEquals(100 + OFFSET, this.mFirst.getWindowLayoutParams().y);
+        assertEquals(OFFSET * 2, this.mSecond.getWindowLayoutParams().x);
+        assertEquals(100 + OFFSET * 2, this.mSecond.getWindowLayoutParams().y);
+
+        touch(MotionEvent.ACTION_DOWN, 0, 0);
+        touch(MotionEvent.ACTION_MOVE, 300, 600);
+
+        // 跟随者在下一帧才开始移动
+        assertEquals(100 + OFFSET, this.mFirst.getWindowLayoutParams().y);
+        this.mWindowManager.reset();
+        settle();
+        assertEquals(600 + OFFSET, this.mFirst.getWindowLayoutParams().y);
+        assertEquals(600 + OFFSET * 2, this.mSecond.getWindowLayoutParams().y);
+        // 以弹簧动画逐帧跟随，而不是直接跳到目标位置
+        assertTrue(this.mWindowManager.updateViewLayoutCount > 2 * 5);
+
+        touch(MotionEvent.ACTION_UP, 300, 600);
+        settle();
+        int leaderX = this.mLeader.getWindowLayoutParams().x;
+        int leaderY = this.mLeader.getWindowLayoutParams().y;
+        assertEquals(leaderX + OFFSET, this.mFirst.getWindowLayoutParams().x);
+        assertEquals(leaderY + OFFSET * 2, this.mSecond.getWindowLayoutParams().y);
+    }
+
+    @Test
+    public void removeChain_followersStayInPlace() throws Exception {
+        this.mManager.setFloatingViewChain(this.mLeaderId, OFFSET, OFFSET, this.mFirstId, this.mSecondId);
+        settle();
+        assertTrue(this.mManager.removeFloatingViewChain(this.mLeaderId));
+        assertFalse(this.mManager.removeFloatingViewChain(this.mLeaderId));
+
+        this.mLeader.setPosition(0, 300);
+        settle();
+        assertEquals(100 + OFFSET, this.mFirst.getWindowLayoutParams().y);
+    }
+
+    @Test
+    public void removeFollower_restOfChainFollowsLeader() throws Exception {
+        this.mManager.setFloatingViewChain(this.mLeaderId, OFFSET, OFFSET, this.mFirstId, this.mSecondId);
+        settle();
+        this.mManager.removeFloatingView(this.mFirstId);
+
+        this.mLeader.setPosition(0, 300);
+        settle();
+        assertEquals(this.mLeader.getWindowLayoutParams().y + OFFSET, this.mSecond.getWindowLayoutParams().y);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void followerInAnotherChain_rejected() throws Exception {
+        this.mManager.setFloatingViewChain(this.mLeaderId, OFFSET, OFFSET, this.mFirstId);
+        this.mManager.setFloatingViewChain(this.mSecondId, OFFSET, OFFSET, this.mFirstId);
+    }
+}
@@ -0,0 +1,96 @@
+package com.pzj.floatingview;
+
+import android.app.Activity;
+import android.content.Context;
+import android.view.View;
+import android.view.WindowManager;
+import android.widget.FrameLayout;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.*;
+
+/**
+ * 避免悬浮窗重叠的测试
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25, shadows = ShadowDeviceKeys.class)
+public class FloatingViewCollisionTest {
+
+    private static final int SIZE = 100;
+
+    private static final int SPACING = 10;
+
+    private static final int Y = 500;
+
+    private Activity mActivity;
+
+    private FloatingViewManager mManager;
+
+    @Before
+    public void setUp() throws Exception {
+        this.mActivity = Robolectric.setupActivity(Activity.class);
+        FrameLayout container = new FrameLayout(this.mActivity);
+        this.mActivity.setContentView(container);
+        FakeWindowManager windowManager = new FakeWindowManager((WindowManager) this.mActivity.getSystemService(Context.WINDOW_SERVICE), container);
+        this.mManager = new FloatingViewManager(FakeWindowManager.wrap(this.mActivity, windowManager), null);
+        this.mManager.setCollisionAvoidance(true, SPACING);
+    }
+
+    private FloatingView addAt(int x, int y) {
+        FloatingViewManager.Configs configs = new FloatingViewManager.Configs();
+        configs.floatingViewX = x;
+        configs.floatingViewY = y;
+        configs.floatingViewWidth = SIZE;
+        configs.floatingViewHeight = SIZE;
+        configs.moveDirection = FloatingView.MOVE_DIRECTION_NONE;
+        configs.animateInitialMove = false;
+        FloatingView floatingView = this.mManager.getFloatingView(this.mManager.addFloatingView(new View(this.mActivity), configs));
+        ShadowLooper.idleMainLooper();
+        floatingView.measure(View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED), View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        floatingView.layout(0, 0, SIZE, SIZE);
+        floatingView.getViewTreeObserver().dispatchOnPreDraw();
+        return floatingView;
+    }
+
+    private static void settle(FloatingView floatingView) {
+        for (int i = 0; i < 200 && floatingView.isSettling(); i++) {
+            ShadowLooper.idleMainLooper(16, TimeUnit.MILLISECONDS);
+        }
+        assertFalse(floatingView.isSettling());
+    }
+
+    @Test
+    public void bubblesAtSamePosition_stackAlongEdge() throws Exception {
+        FloatingView first = addAt(0, Y);
+        FloatingView second = addAt(0, Y);
+        settle(first);
+
+        assertEquals(Y, second.getWindowLayoutParams().y);
+        assertEquals(Y - SIZE - SPACING, first.getWindowLayoutParams().y);
+        assertEquals(0, first.getWindowLayoutParams().x);
+
+        FloatingView third = addAt(0, Y);
+        settle(second);
+
+        assertEquals(Y, third.getWindowLayoutParams().y);
+        // 上方的空位更远，挪到下方
+        assertEquals(Y + SIZE + SPACING, second.getWindowLayoutParams().y);
+        assertEquals(Y - SIZE - SPACING, first.getWindowLayoutParams().y);
+    }
+
+    @Test
+    public void separatedBubbles_stayInPlace() throws Exception {
+        FloatingView first = addAt(0, Y);
+        addAt(0, Y + SIZE + SPACING);
+
+        assertFalse(first.isSettling());
+        assertEquals(Y, first.getWindowLayoutParams().y);
+    }
+}
@@ -0,0 +1,182 @@
+package com.pzj.floatingview;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.graphics.Point;
+import android.hardware.display.DisplayManager;
+import android.view.Display;
+import android.view.View;
+import android.view.WindowManager;
+import android.widget.FrameLayout;
+import java.lang.reflect.Field;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowDisplay;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 把悬浮窗移动到其他显示器（{@link FloatingViewManager#moveFloatingViewToDisplay(int, int)}）的测试
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25, shadows = ShadowDeviceKeys.class)
+public class FloatingViewDisplayTest {
+
+    private static final int SIZE = 100;
+
+    private static final int SECONDARY_DISPLAY_ID = 1;
+
+    private Activity mActivity;
+
+    private FakeWindowManager mWindowManager;
+
+    private FakeWindowManager mSecondaryWindowManager;
+
+    private FloatingViewManager mManager;
+
+    @Before
+    public void setUp() throws Exception {
+        this.mActivity = Robolectric.setupActivity(Activity.class);
+        FrameLayout container = new FrameLayout(this.mActivity);
+        this.mActivity.setContentView(container);
+        WindowManager windowManager = (WindowManager) this.mActivity.getSystemService(Context.WINDOW_SERVICE);
+        this.mWindowManager = new FakeWindowManager(windowManager, container);
+
+        // 副显示器是默认显示器的两倍大小
+        Display defaultDisplay = windowManager.getDefaultDisplay();
+        Display display = ((DisplayManager) this.mActivity.getSystemService(Context.DISPLAY_SERVICE)).getDisplay(SECONDARY_DISPLAY_ID);
+        ShadowDisplay shadowDisplay = shadowOf(display);
+        shadowDisplay.setDisplayId(SECONDARY_DISPLAY_ID);
+        Point size = new Point();
+        defaultDisplay.getSize(size);
+        shadowDisplay.setWidth(size.x * 2);
+        shadowDisplay.setHeight(size.y * 2);
+        this.mSecondaryWindowManager = new FakeWindowManager(windowManager, container, display);
+
+        final Context secondaryContext = FakeWindowManager.wrap(this.mActivity, this.mSecondaryWindowManager);
+        Context context = new ContextWrapper(FakeWindowManager.wrap(this.mActivity, this.mWindowManager)) {
+            @Override
+            public Context createDisplayContext(Display display) {
+                assertEquals(SECONDARY_DISPLAY_ID, display.getDisplayId());
+                return secondaryContext;
+            }
+        };
+        this.mManager = new FloatingViewManager(context, null);
+    }
+
+    private int add(int x, int y) {
+        FloatingViewManager.Configs configs = new FloatingViewManager.Configs();
+        configs.floatingViewX = x;
+        configs.floatingViewY = y;
+        configs.floatingViewWidth = SIZE;
+        configs.floatingViewHeight = SIZE;
+        configs.moveDirection = FloatingView.MOVE_DIRECTION_NONE;
+        configs.animateInitialMove = false;
+        int id = this.mManager.addFloatingView(new View(this.mActivity), configs);
+        layout(this.mManager.getFloatingView(id));
+        return id;
+    }
+
+    private static void layout(FloatingView floatingView) {
+        ShadowLooper.idleMainLooper();
+        floatingView.measure(View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED), View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        floatingView.layout(0, 0, SIZE, SIZE);
+        floatingView.getViewTreeObserver().dispatchOnPreDraw();
+        ShadowLooper.idleMainLooper();
+    }
+
+    @Test
+    public void move_reAddsThroughTargetWindowManager() throws Exception {
+        int id = add(100, 200);
+        FloatingView floatingView = this.mManager.getFloatingView(id);
+
+        assertTrue(this.mManager.moveFloatingViewToDisplay(id, SECONDARY_DISPLAY_ID));
+
+        assertEquals(1, this.mWindowManager.addViewCount);
+        assertEquals(1, this.mWindowManager.removeViewImmediateCount);
+        assertEquals(1, this.mSecondaryWindowManager.addViewCount);
+        assertSame(this.mSecondaryWindowManager, floatingView.getWindowManager());
+        assertEquals(SECONDARY_DISPLAY_ID, floatingView.getDisplayId());
+        assertSame(floatingView, this.mManager.getFloatingView(id));
+
+        // 已经在目标显示器上时不做任何窗口操作
+        assertTrue(this.mManager.moveFloatingViewToDisplay(id, SECONDARY_DISPLAY_ID));
+        assertEquals(1, this.mSecondaryWindowManager.addViewCount);
+        assertFalse(this.mManager.moveFloatingViewToDisplay(id + 1, SECONDARY_DISPLAY_ID));
+    }
+
+    @Test
+    public void move_rescalesPosition() throws Exception {
+        int id = add(100, 200);
+        FloatingView floatingView = this.mManager.getFloatingView(id);
+        int oldLimitWidth = floatingView.getPositionLimit().width();
+        int oldLimitHeight = floatingView.getPositionLimit().height();
+        int x = floatingView.getWindowLayoutParams().x;
+        int y = floatingView.getWindowLayoutParams().y;
+
+        this.mManager.moveFloatingViewToDisplay(id, SECONDARY_DISPLAY_ID);
+        layout(floatingView);
+
+        int newLimitWidth = floatingView.getPositionLimit().width();
+        int newLimitHeight = floatingView.getPositionLimit().height();
+        assertTrue(newLimitWidth > oldLimitWidth);
+        assertEquals(Math.round(x * newLimitWidth / (float) oldLimitWidth), floatingView.getWindowLayoutParams().x);
+        assertEquals(Math.round(y * newLimitHeight / (float) oldLimitHeight), floatingView.getWindowLayoutParams().y);
+    }
+
+    @Test
+    public void displayRemoved_fallsBackToDefaultDisplay() throws Exception {
+        int id = add(100, 200);
+        FloatingView floatingView = this.mManager.getFloatingView(id);
+        FloatingView other = this.mManager.getFloatingView(add(0, 400));
+        this.mManager.moveFloatingViewToDisplay(id, SECONDARY_DISPLAY_ID);
+        layout(floatingView);
+
+        Field field = FloatingViewManager.class.getDeclaredField("mDisplayCallback");
+        field.setAccessible(true);
+        ((DisplayMetricsCache.Callback) field.get(this.mManager)).onDisplayRemoved(SECONDARY_DISPLAY_ID);
+
+        assertSame(this.mWindowManager, floatingView.getWindowManager());
+        assertEquals(Display.DEFAULT_DISPLAY, floatingView.getDisplayId());
+        assertSame(floatingView, this.mManager.getFloatingView(id));
+        assertEquals(3, this.mWindowManager.addViewCount);
+        // 默认显示器上的悬浮窗不受影响
+        assertSame(this.mWindowManager, other.getWindowManager());
+    }
+
+    @Test
+    public void systemInsetsTracking_followsBubblesAcrossDisplays() throws Exception {
+        this.mManager.setSystemInsetsTracking(true);
+        int id = add(100, 200);
+        int other = add(0, 400);
+        // 悬浮窗和跟踪窗口
+        assertEquals(3, this.mWindowManager.addViewCount);
+
+        this.mManager.moveFloatingViewToDisplay(id, SECONDARY_DISPLAY_ID);
+        assertEquals(2, this.mSecondaryWindowManager.addViewCount);
+        // 默认显示器上还有悬浮窗，跟踪窗口保留
+        assertEquals(1, this.mWindowManager.removeViewImmediateCount);
+
+        // 显示器上的最后一个悬浮窗移除后，跟踪窗口也移除
+        this.mManager.removeFloatingView(other);
+        assertEquals(3, this.mWindowManager.removeViewCount + this.mWindowManager.removeViewImmediateCount);
+
+        this.mManager.removeFloatingView(id);
+        assertEquals(2, this.mSecondaryWindowManager.removeViewCount + this.mSecondaryWindowManager.removeViewImmediateCount);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void move_inHostMode_throws() throws Exception {
+        this.mManager.setHostMode(true);
+        int id = add(100, 200);
+
+        this.mManager.moveFloatingViewToDisplay(id, SECONDARY_DISPLAY_ID);
+    }
+}
@@ -0,0 +1,184 @@
+package com.pzj.floatingview;
+
+import android.animation.ValueAnimator;
+import android.app.Activity;
+import android.content.Context;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.WindowManager;
+import android.widget.FrameLayout;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.*;
+
+/**
+ * 移动到画面端的动画（重复使用的 ValueAnimator 和 {@link EdgeSnapEvaluator}）的测试
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25, shadows = ShadowDeviceKeys.class)
+public class FloatingViewEdgeAnimationTest {
+
+    private static final int SIZE = 100;
+
+    private static final int FRAMES = 10000;
+
+    private FakeWindowManager mWindowManager;
+
+    private FloatingView mFloatingView;
+
+    private ValueAnimator mAnimator;
+
+    private long mDownTime;
+
+    @Before
+    public void setUp() throws Exception {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        FrameLayout container = new FrameLayout(activity);
+        activity.setContentView(container);
+        this.mWindowManager = new FakeWindowManager((WindowManager) activity.getSystemService(Context.WINDOW_SERVICE), container);
+        FloatingViewManager manager = new FloatingViewManager(FakeWindowManager.wrap(activity, this.mWindowManager), null);
+
+        FloatingViewManager.Configs configs = new FloatingViewManager.Configs();
+        configs.floatingViewX = 0;
+        configs.floatingViewY = 100;
+        configs.floatingViewWidth = SIZE;
+        configs.floatingViewHeight = SIZE;
+        configs.animateInitialMove = false;
+        configs.frameCoalescedDrag = false;
+        this.mFloatingView = manager.getFloatingView(manager.addFloatingView(new View(activity), configs));
+
+        ShadowLooper.idleMainLooper();
+        this.mFloatingView.measure(View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED), View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        this.mFloatingView.layout(0, 0, SIZE, SIZE);
+        this.mFloatingView.getViewTreeObserver().dispatchOnPreDraw();
+        this.mDownTime = SystemClock.uptimeMillis();
+
+        Field field = FloatingView.class.getDeclaredField("mMoveEdgeAnimator");
+        field.setAccessible(true);
+        this.mAnimator = (ValueAnimator) field.get(this.mFloatingView);
+
+        // 动画只通过setCurrentFraction逐帧推进
+        ShadowLooper.pauseMainLooper();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ShadowLooper.unPauseMainLooper();
+    }
+
+    private void touch(int action, float x, float y) {
+        MotionEvent event = MotionEvent.obtain(this.mDownTime, SystemClock.uptimeMillis(), action, x, y, 0);
+        this.mFloatingView.dispatchTouchEvent(event);
+        event.recycle();
+    }
+
+    /**
+     * 拖到左边缘附近松开，开始移动到左边缘的动画
+     */
+    private void dragAndRelease() {
+        touch(MotionEvent.ACTION_DOWN, 10, 10);
+        touch(MotionEvent.ACTION_MOVE, 110, 10);
+        touch(MotionEvent.ACTION_UP, 110, 10);
+        assertTrue(this.mAnimator.isStarted());
+    }
+
+    /**
+     * 推进动画（onAnimationUpdate → commitLayout）
+     *
+     * @return 最后一帧的x坐标
+     */
+    private int stepFrames() {
+        for (int i = 1; i <= FRAMES; i++) {
+            this.mAnimator.setCurrentFraction(i / (float) FRAMES);
+        }
+        return this.mFloatingView.getWindowLayoutParams().x;
+    }
+
+    @Test
+    public void step_commitsEachChangedFrame() throws Exception {
+        dragAndRelease();
+        int startX = this.mFloatingView.getWindowLayoutParams().x;
+        int updates = this.mWindowManager.updateViewLayoutCount;
+
+        this.mAnimator.setCurrentFraction(0.5f);
+        assertTrue(this.mFloatingView.getWindowLayoutParams().x < startX);
+        assertEquals(updates + 1, this.mWindowManager.updateViewLayoutCount);
+
+        // 位置没有变化的帧不更新窗口
+        this.mAnimator.setCurrentFraction(0.5f);
+        assertEquals(updates + 1, this.mWindowManager.updateViewLayoutCount);
+    }
+
+    @Test
+    public void downDuringAnimation_settlesOnce() throws Exception {
+        final int[] settled = new int[1];
+        this.mFloatingView.setOnMoveSettledListener(new FloatingView.OnMoveSettledListener() {
+            @Override
+            public void onMoveSettled(FloatingView floatingView) {
+                settled[0]++;
+            }
+        });
+        dragAndRelease();
+        this.mAnimator.setCurrentFraction(0.5f);
+
+        // 取消动画时onAnimationEnd也会通知停止，只通知一次
+        touch(MotionEvent.ACTION_DOWN, 10, 10);
+        assertFalse(this.mAnimator.isStarted());
+        assertEquals(1, settled[0]);
+
+        // 按下后没有移动，隐藏时不再通知
+        this.mFloatingView.setShown(false);
+        assertEquals(1, settled[0]);
+    }
+
+    @Test
+    public void hideDuringAnimation_settlesOnce() throws Exception {
+        final int[] settled = new int[1];
+        this.mFloatingView.setOnMoveSettledListener(new FloatingView.OnMoveSettledListener() {
+            @Override
+            public void onMoveSettled(FloatingView floatingView) {
+                settled[0]++;
+            }
+        });
+        dragAndRelease();
+
+        this.mFloatingView.setShown(false);
+        assertEquals(1, settled[0]);
+    }
+
+    @Test
+    public void step_doesNotAllocatePerFrame() throws Exception {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        // 第一次拖动预热，第二次拖动时动画对象已经重复使用
+        dragAndRelease();
+        stepFrames();
+        dragAndRelease();
+        int updates = this.mWindowManager.updateViewLayoutCount;
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        int x = stepFrames();
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(0, x);
+        assertTrue(this.mWindowManager.updateViewLayoutCount > updates);
+        // 每帧哪怕只装箱一个Integer，也会远超这个上限
+        assertTrue("allocated " + allocated + " bytes", allocated < FRAMES);
+    }
+}
@@ -0,0 +1,260 @@
+package com.pzj.floatingview;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.ColorDrawable;
+import android.os.SystemClock;
+import android.view.Gravity;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.WindowManager;
+import android.widget.FrameLayout;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.shadows.ShadowMotionEvent;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 悬浮窗手势（点击、长按、多指拖动、双指缩放）的测试
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25, shadows = ShadowDeviceKeys.class)
+public class FloatingViewGestureTest {
+
+    private static final int SIZE = 100;
+
+    private Activity mActivity;
+
+    private FloatingViewManager mManager;
+
+    private FloatingView mFloatingView;
+
+    private View mContent;
+
+    private long mDownTime;
+
+    private int mContentClicks, mBadgeClicks, mLongClicks;
+
+    private int mContentDraws;
+
+    private boolean mContentSnapshot;
+
+    @Before
+    public void setUp() throws Exception {
+        this.mActivity = Robolectric.setupActivity(Activity.class);
+        FrameLayout container = new FrameLayout(this.mActivity);
+        this.mActivity.setContentView(container);
+        FakeWindowManager windowManager = new FakeWindowManager((WindowManager) this.mActivity.getSystemService(Context.WINDOW_SERVICE), container);
+        this.mManager = new FloatingViewManager(FakeWindowManager.wrap(this.mActivity, windowManager), null);
+        this.mContent = new View(this.mActivity);
+        this.mContent.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                mContentClicks++;
+            }
+        });
+    }
+
+    private void add(boolean pinchToResize) {
+        FloatingViewManager.Configs configs = new FloatingViewManager.Configs();
+        configs.floatingViewX = 0;
+        configs.floatingViewY = 100;
+        configs.floatingViewWidth = SIZE;
+        configs.floatingViewHeight = SIZE;
+        configs.animateInitialMove = false;
+        configs.frameCoalescedDrag = false;
+        configs.pinchToResize = pinchToResize;
+        configs.contentSnapshot = this.mContentSnapshot;
+        this.mFloatingView = this.mManager.getFloatingView(this.mManager.addFloatingView(this.mContent, configs));
+        ShadowLooper.idleMainLooper();
+        layout();
+        this.mDownTime = SystemClock.uptimeMillis();
+    }
+
+    private void layout() {
+        this.mFloatingView.measure(View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED), View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        this.mFloatingView.layout(0, 0, this.mFloatingView.getMeasuredWidth(), this.mFloatingView.getMeasuredHeight());
+        this.mFloatingView.getViewTreeObserver().dispatchOnPreDraw();
+    }
+
+    private void touch(int action, float x, float y) {
+        touch(action, 0, x, y);
+    }
+
+    /**
+     * 单指事件
+     */
+    private void touch(int action, int pointerId, float x, float y) {
+        MotionEvent event = MotionEvent.obtain(this.mDownTime, SystemClock.uptimeMillis(), action, x, y, 0);
+        shadowOf(event).setPointerIds(pointerId, 0);
+        this.mFloatingView.dispatchTouchEvent(event);
+        event.recycle();
+    }
+
+    /**
+     * 双指事件
+     *
+     * @param index 多指按下、抬起时动作的手指下标（Robolectric的getActionMasked不去除下标，只通过setPointerIndex设置）
+     */
+    private void touch2(int action, int index, float x0, float y0, float x1, float y1) {
+        MotionEvent event = MotionEvent.obtain(this.mDownTime, SystemClock.uptimeMillis(), action, x0, y0, 0);
+        ShadowMotionEvent shadow = shadowOf(event);
+        shadow.setPointer2(x1, y1);
+        shadow.setPointerIndex(index);
+        this.mFloatingView.dispatchTouchEvent(event);
+        event.recycle();
+    }
+
+    @Test
+    public void tap_clicksOnlyChildUnderFinger() throws Exception {
+        add(false);
+        View badge = new View(this.mActivity);
+        badge.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                mBadgeClicks++;
+            }
+        });
+        this.mFloatingView.addView(badge, new FrameLayout.LayoutParams(SIZE / 4, SIZE / 4, Gravity.RIGHT | Gravity.BOTTOM));
+        layout();
+
+        touch(MotionEvent.ACTION_DOWN, 10, 10);
+        touch(MotionEvent.ACTION_UP, 10, 10);
+        assertEquals(1, this.mContentClicks);
+        assertEquals(0, this.mBadgeClicks);
+
+        touch(MotionEvent.ACTION_DOWN, 90, 90);
+        touch(MotionEvent.ACTION_UP, 90, 90);
+        assertEquals(1, this.mContentClicks);
+        assertEquals(1, this.mBadgeClicks);
+    }
+
+    @Test
+    public void cancel_doesNotClick() throws Exception {
+        add(false);
+        touch(MotionEvent.ACTION_DOWN, 10, 10);
+        touch(MotionEvent.ACTION_CANCEL, 10, 10);
+        assertEquals(0, this.mContentClicks);
+    }
+
+    @Test
+    public void longPress_longClicksInsteadOfClick() throws Exception {
+        this.mContent.setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) {
+                mLongClicks++;
+                return true;
+            }
+        });
+        add(false);
+
+        touch(MotionEvent.ACTION_DOWN, 10, 10);
+        ShadowLooper.idleMainLooper(ViewConfiguration.getLongPressTimeout(), TimeUnit.MILLISECONDS);
+        touch(MotionEvent.ACTION_UP, 10, 10);
+
+        assertEquals(1, this.mLongClicks);
+        assertEquals(0, this.mContentClicks);
+    }
+
+    @Test
+    public void secondFinger_takesOverDragWithoutJump() throws Exception {
+        add(false);
+        WindowManager.LayoutParams params = this.mFloatingView.getWindowLayoutParams();
+
+        touch(MotionEvent.ACTION_DOWN, 10, 10);
+        touch(MotionEvent.ACTION_MOVE, 110, 110);
+        assertEquals(100, params.x);
+        assertEquals(100, params.y);
+
+        // 第二根手指不影响拖动
+        touch2(MotionEvent.ACTION_POINTER_DOWN, 1, 110, 110, 400, 400);
+        touch2(MotionEvent.ACTION_MOVE, 0, 120, 120, 500, 500);
+        assertEquals(110, params.x);
+        assertEquals(110, params.y);
+
+        // 主手指抬起，第二根手指从所在位置接着拖动
+        touch2(MotionEvent.ACTION_POINTER_UP, 0, 120, 120, 500, 500);
+        touch(MotionEvent.ACTION_MOVE, 1, 530, 510);
+        assertEquals(140, params.x);
+        assertEquals(120, params.y);
+
+        touch(MotionEvent.ACTION_UP, 1, 530, 510);
+        assertEquals(0, this.mContentClicks);
+    }
+
+    @Test
+    public void pinch_resizesContent() throws Exception {
+        add(true);
+
+        touch(MotionEvent.ACTION_DOWN, 20, 50);
+        touch2(MotionEvent.ACTION_POINTER_DOWN, 1, 20, 50, 80, 50);
+        touch2(MotionEvent.ACTION_MOVE, 0, -10, 50, 110, 50);
+
+        assertEquals(SIZE * 2, this.mContent.getLayoutParams().width);
+        assertEquals(SIZE * 2, this.mContent.getLayoutParams().height);
+
+        touch2(MotionEvent.ACTION_POINTER_UP, 1, -10, 50, 110, 50);
+        touch(MotionEvent.ACTION_UP, -10, 50);
+        assertEquals(SIZE * 2, this.mContent.getLayoutParams().width);
+        assertEquals(0, this.mContentClicks);
+    }
+
+    @Test
+    public void drag_snapshotRenderedOnDownAndReused() throws Exception {
+        // Robolectric绘制视图时只绘制背景
+        this.mContent.setBackground(new ColorDrawable() {
+            @Override
+            public void draw(Canvas canvas) {
+                super.draw(canvas);
+                mContentDraws++;
+            }
+        });
+        this.mContentSnapshot = true;
+        add(false);
+
+        touch(MotionEvent.ACTION_DOWN, 10, 10);
+        Bitmap bitmap = this.mFloatingView.getContentSnapshotBitmap();
+        assertNotNull(bitmap);
+        assertEquals(1, this.mContentDraws);
+        assertFalse(this.mFloatingView.isContentSnapshotActive());
+
+        // 开始拖动的那一帧不再分配、绘制快照
+        touch(MotionEvent.ACTION_MOVE, 110, 110);
+        assertTrue(this.mFloatingView.isContentSnapshotActive());
+        assertEquals(1, this.mContentDraws);
+        touch(MotionEvent.ACTION_UP, 110, 110);
+
+        // 大小不变时重复使用
+        touch(MotionEvent.ACTION_DOWN, 10, 10);
+        assertSame(bitmap, this.mFloatingView.getContentSnapshotBitmap());
+        assertEquals(2, this.mContentDraws);
+        touch(MotionEvent.ACTION_UP, 10, 10);
+
+        this.mManager.removeAllFloatingView();
+        ShadowLooper.idleMainLooper();
+        assertTrue(bitmap.isRecycled());
+        assertNull(this.mFloatingView.getContentSnapshotBitmap());
+    }
+
+    @Test
+    public void pinchDisabled_keepsSize() throws Exception {
+        add(false);
+
+        touch(MotionEvent.ACTION_DOWN, 20, 50);
+        touch2(MotionEvent.ACTION_POINTER_DOWN, 1, 20, 50, 80, 50);
+        touch2(MotionEvent.ACTION_MOVE, 0, 20, 50, 200, 50);
+
+        assertEquals(SIZE, this.mContent.getLayoutParams().width);
+    }
+}
@@ -0,0 +1,117 @@
+package com.pzj.floatingview;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.view.View;
+import android.view.WindowManager;
+import android.widget.FrameLayout;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.*;
+
+/**
+ * 隐藏和显示悬浮窗的测试
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25, shadows = ShadowDeviceKeys.class)
+public class FloatingViewHideShowTest {
+
+    private Activity mActivity;
+
+    private FakeWindowManager mWindowManager;
+
+    private FloatingViewManager mManager;
+
+    @Before
+    public void setUp() throws Exception {
+        this.mActivity = Robolectric.setupActivity(Activity.class);
+        FrameLayout container = new FrameLayout(this.mActivity);
+        this.mActivity.setContentView(container);
+        this.mWindowManager = new FakeWindowManager((WindowManager) this.mActivity.getSystemService(Context.WINDOW_SERVICE), container);
+        this.mManager = new FloatingViewManager(FakeWindowManager.wrap(this.mActivity, this.mWindowManager), null);
+    }
+
+    /**
+     * 推进主线程Looper，然后执行空闲回调（Robolectric 3.3不会执行IdleHandler）
+     */
+    @SuppressWarnings("unchecked")
+    private static void idleMainLooper(long millis) throws Exception {
+        ShadowLooper.idleMainLooper(millis, TimeUnit.MILLISECONDS);
+        MessageQueue queue = Looper.getMainLooper().getQueue();
+        Field field = MessageQueue.class.getDeclaredField("mIdleHandlers");
+        field.setAccessible(true);
+        List<MessageQueue.IdleHandler> idleHandlers = (List<MessageQueue.IdleHandler>) field.get(queue);
+        for (MessageQueue.IdleHandler idleHandler : new ArrayList<>(idleHandlers)) {
+            if (!idleHandler.queueIdle()) {
+                queue.removeIdleHandler(idleHandler);
+            }
+        }
+    }
+
+    @Test
+    public void hideAndShow_keepWindow() throws Exception {
+        int id = this.mManager.addFloatingView(new View(this.mActivity), new FloatingViewManager.Configs());
+        FloatingView floatingView = this.mManager.getFloatingView(id);
+
+        assertTrue(this.mManager.hideFloatingView(id));
+
+        assertFalse(this.mManager.isFloatingViewShown(id));
+        assertEquals(View.INVISIBLE, floatingView.getVisibility());
+        assertTrue((floatingView.getWindowLayoutParams().flags & WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE) != 0);
+
+        assertTrue(this.mManager.showFloatingView(id));
+
+        assertTrue(this.mManager.isFloatingViewShown(id));
+        assertEquals(View.VISIBLE, floatingView.getVisibility());
+        assertEquals(0, floatingView.getWindowLayoutParams().flags & WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE);
+        assertEquals(1, this.mWindowManager.addViewCount);
+        assertEquals(0, this.mWindowManager.removeViewImmediateCount);
+    }
+
+    @Test
+    public void hiddenWindow_isTrimmedAfterDelayAndReattachedOnShow() throws Exception {
+        this.mManager.setHiddenTrimDelay(1000);
+        int id = this.mManager.addFloatingView(new View(this.mActivity), new FloatingViewManager.Configs());
+        FloatingView floatingView = this.mManager.getFloatingView(id);
+        this.mManager.hideFloatingView(id);
+
+        idleMainLooper(500);
+        assertEquals(0, this.mWindowManager.removeViewImmediateCount);
+
+        idleMainLooper(600);
+        assertEquals(1, this.mWindowManager.removeViewImmediateCount);
+        assertNull(floatingView.getWindowToken());
+
+        this.mManager.showFloatingView(id);
+
+        assertEquals(2, this.mWindowManager.addViewCount);
+        assertSame(floatingView, this.mManager.getFloatingView(id));
+        assertNotNull(floatingView.getWindowToken());
+    }
+
+    @Test
+    public void removeFloatingView_trimmedWindowIsNotRemovedAgain() throws Exception {
+        this.mManager.setHiddenTrimDelay(0);
+        int id = this.mManager.addFloatingView(new View(this.mActivity), new FloatingViewManager.Configs());
+        this.mManager.hideFloatingView(id);
+        idleMainLooper(0);
+        assertEquals(1, this.mWindowManager.removeViewImmediateCount);
+
+        assertTrue(this.mManager.removeFloatingView(id));
+
+        assertEquals(1, this.mWindowManager.removeViewImmediateCount);
+        assertFalse(this.mManager.showFloatingView(id));
+    }
+}
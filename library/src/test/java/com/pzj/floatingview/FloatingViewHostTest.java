@@ -0,0 +1,130 @@
+package com.pzj.floatingview;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.WindowManager;
+import android.widget.FrameLayout;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.*;
+
+/**
+ * 宿主窗口模式的测试：窗口大小和触摸事件的传递
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25, shadows = ShadowDeviceKeys.class)
+public class FloatingViewHostTest {
+
+    private static final int SIZE = 100;
+
+    private static final int Y = 100;
+
+    private static final int RIGHT_X = 300;
+
+    private Activity mActivity;
+
+    private FakeWindowManager mWindowManager;
+
+    private FloatingViewManager mManager;
+
+    private FloatingView mLeft, mRight;
+
+    private FloatingViewHost mHost;
+
+    @Before
+    public void setUp() throws Exception {
+        this.mActivity = Robolectric.setupActivity(Activity.class);
+        FrameLayout container = new FrameLayout(this.mActivity);
+        this.mActivity.setContentView(container);
+        this.mWindowManager = new FakeWindowManager((WindowManager) this.mActivity.getSystemService(Context.WINDOW_SERVICE), container);
+        this.mManager = new FloatingViewManager(FakeWindowManager.wrap(this.mActivity, this.mWindowManager), null);
+        this.mManager.setHostMode(true);
+
+        this.mLeft = add(0);
+        this.mRight = add(RIGHT_X);
+        this.mHost = (FloatingViewHost) this.mLeft.getParent();
+        layout();
+    }
+
+    private FloatingView add(int x) {
+        FloatingViewManager.Configs configs = new FloatingViewManager.Configs();
+        configs.floatingViewX = x;
+        configs.floatingViewY = Y;
+        configs.floatingViewWidth = SIZE;
+        configs.floatingViewHeight = SIZE;
+        configs.moveDirection = FloatingView.MOVE_DIRECTION_NONE;
+        configs.animateInitialMove = false;
+        configs.frameCoalescedDrag = false;
+        return this.mManager.getFloatingView(this.mManager.addFloatingView(new View(this.mActivity), configs));
+    }
+
+    private void layout() {
+        ShadowLooper.idleMainLooper();
+        this.mHost.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(1920, View.MeasureSpec.EXACTLY));
+        this.mHost.layout(0, 0, 1080, 1920);
+        this.mLeft.getViewTreeObserver().dispatchOnPreDraw();
+    }
+
+    private void drag(FloatingView floatingView, float toX, float toY) {
+        long downTime = SystemClock.uptimeMillis();
+        MotionEvent event = MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN, 0, 0, 0);
+        floatingView.dispatchTouchEvent(event);
+        event.recycle();
+        event = MotionEvent.obtain(downTime, SystemClock.uptimeMillis(), MotionEvent.ACTION_MOVE, toX, toY, 0);
+        floatingView.dispatchTouchEvent(event);
+        event.recycle();
+    }
+
+    @Test
+    public void boundingBox_neverFullScreen() throws Exception {
+        WindowManager.LayoutParams params = this.mHost.getWindowLayoutParams();
+        assertTrue(params.width > 0);
+        assertTrue(params.height > 0);
+        assertTrue(params.width != ViewGroup.LayoutParams.MATCH_PARENT);
+        assertTrue(params.height != ViewGroup.LayoutParams.MATCH_PARENT);
+
+        assertTrue(this.mHost.isTouchableAt(SIZE / 2, Y + SIZE / 2));
+        assertTrue(this.mHost.isTouchableAt(RIGHT_X + SIZE / 2, Y + SIZE / 2));
+        // 外接矩形以外的位置
+        assertFalse(this.mHost.isTouchableAt(SIZE / 2, 700));
+    }
+
+    @Test
+    public void boundingBox_followsBubblesWithoutFullScreen() throws Exception {
+        WindowManager.LayoutParams params = this.mHost.getWindowLayoutParams();
+        assertEquals(0, params.x);
+        assertEquals(Y, params.y);
+        assertEquals(RIGHT_X + SIZE, params.width);
+        assertEquals(SIZE, params.height);
+        assertFalse(this.mHost.isTouchableAt(SIZE / 2, 700));
+
+        drag(this.mLeft, 150, 400);
+
+        // 拖动中窗口不会扩大到全屏，只覆盖外接矩形
+        assertEquals(150, params.x);
+        assertEquals(Y, params.y);
+        assertEquals(RIGHT_X + SIZE - 150, params.width);
+        assertEquals(400 + SIZE - Y, params.height);
+        assertFalse(this.mHost.isTouchableAt(SIZE / 2, Y + SIZE / 2));
+    }
+
+    @Test
+    public void boundingBox_allHiddenShrinksToZero() throws Exception {
+        this.mLeft.setShown(false);
+        this.mRight.setShown(false);
+
+        assertEquals(0, this.mHost.getWindowLayoutParams().width);
+        assertEquals(0, this.mHost.getWindowLayoutParams().height);
+        assertFalse(this.mHost.isTouchableAt(SIZE / 2, Y + SIZE / 2));
+    }
+}
@@ -0,0 +1,233 @@
+package com.pzj.floatingview;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.Looper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.WindowManager;
+import android.widget.FrameLayout;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.*;
+
+/**
+ * 后台创建内容视图和预热的测试
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25, shadows = ShadowDeviceKeys.class)
+public class FloatingViewManagerAsyncTest {
+
+    private FakeWindowManager mWindowManager;
+
+    private FloatingViewManager mManager;
+
+    private CountDownLatch mInflated;
+
+    private volatile Thread mInflateThread;
+
+    private volatile Thread mMeasureThread;
+
+    private int mFinishCount;
+
+    private int mReadyId = FloatingViewManager.NO_ID;
+
+    @Before
+    public void setUp() throws Exception {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        FrameLayout container = new FrameLayout(activity);
+        activity.setContentView(container);
+        this.mWindowManager = new FakeWindowManager((WindowManager) activity.getSystemService(Context.WINDOW_SERVICE), container);
+        this.mManager = new FloatingViewManager(FakeWindowManager.wrap(activity, this.mWindowManager), new FloatingViewListener() {
+            @Override
+            public void onFinishFloatingView() {
+                mFinishCount++;
+            }
+        });
+        this.mInflated = new CountDownLatch(1);
+    }
+
+    private FloatingViewContentFactory newFactory() {
+        return new FloatingViewContentFactory() {
+            @Override
+            public View onCreateContentView(LayoutInflater inflater) {
+                mInflateThread = Thread.currentThread();
+                View view = new View(inflater.getContext()) {
+                    @Override
+                    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+                        mMeasureThread = Thread.currentThread();
+                        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+                    }
+                };
+                mInflated.countDown();
+                return view;
+            }
+
+            @Override
+            public void onContentViewReady(int id, View contentView) {
+                mReadyId = id;
+            }
+        };
+    }
+
+    /**
+     * 等待后台线程创建完成，并执行主线程的回调
+     */
+    private void awaitInflated() throws Exception {
+        assertTrue(this.mInflated.await(5, TimeUnit.SECONDS));
+        // 后台线程在创建后把回调post到主线程
+        long deadline = System.currentTimeMillis() + 5000;
+        while (this.mReadyId == FloatingViewManager.NO_ID && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+            ShadowLooper.idleMainLooper();
+        }
+    }
+
+    @Test
+    public void addFloatingView_factoryRunsInBackgroundAndAttachesWhenReady() throws Exception {
+        int id = this.mManager.addFloatingView(newFactory(), new FloatingViewManager.Configs());
+
+        assertNull(this.mManager.getFloatingView(id));
+        awaitInflated();
+
+        assertNotSame(Thread.currentThread(), this.mInflateThread);
+        assertEquals(id, this.mReadyId);
+        assertNotNull(this.mManager.getFloatingView(id));
+        assertEquals(1, this.mWindowManager.addViewCount);
+    }
+
+    @Test
+    public void prewarmFloatingView_measuresWithoutAttaching() throws Exception {
+        FloatingViewManager.Configs configs = new FloatingViewManager.Configs();
+        configs.floatingViewWidth = 100;
+        configs.floatingViewHeight = 50;
+        int id = this.mManager.prewarmFloatingView(newFactory(), configs);
+        awaitInflated();
+
+        assertNull(this.mManager.getFloatingView(id));
+        assertEquals(0, this.mWindowManager.addViewCount);
+
+        assertTrue(this.mManager.attachFloatingView(id));
+
+        FloatingView floatingView = this.mManager.getFloatingView(id);
+        assertNotNull(floatingView);
+        assertEquals(100, floatingView.getChildAt(0).getMeasuredWidth());
+        // 后台线程只创建，测量在主线程
+        assertSame(Thread.currentThread(), this.mMeasureThread);
+        assertEquals(1, this.mWindowManager.addViewCount);
+        assertFalse(this.mManager.attachFloatingView(id));
+    }
+
+    @Test
+    public void removeFloatingView_beforeReadyNeverAttaches() throws Exception {
+        int id = this.mManager.addFloatingView(newFactory(), new FloatingViewManager.Configs());
+
+        assertTrue(this.mManager.removeFloatingView(id));
+        // 取消后后台线程可能已经创建，也可能直接跳过
+        this.mInflated.await(200, TimeUnit.MILLISECONDS);
+        Thread.sleep(50);
+        ShadowLooper.idleMainLooper();
+
+        assertNull(this.mManager.getFloatingView(id));
+        assertEquals(0, this.mWindowManager.addViewCount);
+        assertFalse(this.mManager.removeFloatingView(id));
+        // 移除的是唯一的悬浮窗
+        assertEquals(1, this.mFinishCount);
+    }
+
+    @Test
+    public void removeFloatingView_pendingWithOthersLeftDoesNotFinish() throws Exception {
+        int attachedId = this.mManager.addFloatingView(new View(RuntimeEnvironment.application), new FloatingViewManager.Configs());
+        int pendingId = this.mManager.prewarmFloatingView(newFactory(), new FloatingViewManager.Configs());
+        awaitInflated();
+
+        assertTrue(this.mManager.removeFloatingView(pendingId));
+        assertEquals(0, this.mFinishCount);
+
+        assertTrue(this.mManager.removeFloatingView(attachedId));
+        assertEquals(1, this.mFinishCount);
+    }
+
+    @Test
+    public void transactionRemovingOnlyPending_finishes() throws Exception {
+        int id = this.mManager.prewarmFloatingView(newFactory(), new FloatingViewManager.Configs());
+        awaitInflated();
+
+        FloatingViewManager.Transaction transaction = this.mManager.beginTransaction();
+        transaction.remove(id);
+        transaction.commit();
+
+        assertEquals(1, this.mFinishCount);
+    }
+
+    @Test
+    public void mainThreadFallback_doesNotShareBackgroundInflater() throws Exception {
+        final CountDownLatch backgroundStarted = new CountDownLatch(1);
+        final CountDownLatch releaseBackground = new CountDownLatch(1);
+        final LayoutInflater[] inflaters = new LayoutInflater[2];
+        final Thread[] threads = new Thread[2];
+        // 第一个请求在后台创建失败，回到主线程重新创建
+        int fallbackId = this.mManager.prewarmFloatingView(new FloatingViewContentFactory() {
+            @Override
+            public View onCreateContentView(LayoutInflater inflater) {
+                if (Looper.myLooper() != Looper.getMainLooper()) {
+                    throw new RuntimeException("needs a Looper");
+                }
+                inflaters[0] = inflater;
+                threads[0] = Thread.currentThread();
+                return new View(inflater.getContext());
+            }
+
+            @Override
+            public void onContentViewReady(int id, View contentView) {
+            }
+        }, new FloatingViewManager.Configs());
+        // 第二个请求在后台线程创建中，与主线程的重新创建同时进行
+        int backgroundId = this.mManager.prewarmFloatingView(new FloatingViewContentFactory() {
+            @Override
+            public View onCreateContentView(LayoutInflater inflater) {
+                inflaters[1] = inflater;
+                threads[1] = Thread.currentThread();
+                backgroundStarted.countDown();
+                try {
+                    releaseBackground.await(5, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new View(inflater.getContext());
+            }
+
+            @Override
+            public void onContentViewReady(int id, View contentView) {
+                mReadyId = id;
+            }
+        }, new FloatingViewManager.Configs());
+
+        assertTrue(backgroundStarted.await(5, TimeUnit.SECONDS));
+        ShadowLooper.idleMainLooper();
+
+        assertSame(Thread.currentThread(), threads[0]);
+        assertNotSame(Thread.currentThread(), threads[1]);
+        assertNotNull(inflaters[0]);
+        assertNotSame(inflaters[1], inflaters[0]);
+
+        releaseBackground.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (this.mReadyId != backgroundId && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+            ShadowLooper.idleMainLooper();
+        }
+        assertTrue(this.mManager.attachFloatingView(fallbackId));
+        assertTrue(this.mManager.attachFloatingView(backgroundId));
+    }
+}
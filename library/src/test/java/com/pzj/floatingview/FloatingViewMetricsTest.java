@@ -0,0 +1,87 @@
+package com.pzj.floatingview;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Locale;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link FloatingViewMetrics} 的单元测试
+ */
+public class FloatingViewMetricsTest {
+
+    private static final long FRAME_NANOS = 16666666L;
+
+    @Test
+    public void onAnimationFrame_countsDroppedFrames() throws Exception {
+        FloatingViewMetrics metrics = new FloatingViewMetrics(60f);
+
+        metrics.onAnimationFrame(FRAME_NANOS);
+        metrics.onAnimationFrame(FRAME_NANOS + 2000000L);
+        assertEquals(0, metrics.getDroppedFrameCount());
+
+        // 3帧的间隔，掉了2帧
+        metrics.onAnimationFrame(FRAME_NANOS * 3);
+        assertEquals(2, metrics.getDroppedFrameCount());
+        assertEquals(3, metrics.getAnimationFrame().getCount());
+        assertEquals(FRAME_NANOS * 3, metrics.getAnimationFrame().getMaxNanos());
+    }
+
+    @Test
+    public void constructor_invalidRefreshRateFallsBackTo60Hz() throws Exception {
+        FloatingViewMetrics metrics = new FloatingViewMetrics(0f);
+
+        metrics.onAnimationFrame(FRAME_NANOS * 2);
+
+        assertEquals(1, metrics.getDroppedFrameCount());
+    }
+
+    @Test
+    public void timing_averagesAndResets() throws Exception {
+        FloatingViewMetrics metrics = new FloatingViewMetrics(60f);
+        metrics.onFirstMove(10);
+        metrics.onFirstMove(30);
+        metrics.onUpdateViewLayout();
+
+        assertEquals(2, metrics.getDownToFirstMove().getCount());
+        assertEquals(20, metrics.getDownToFirstMove().getAverageNanos());
+        assertEquals(30, metrics.getDownToFirstMove().getMaxNanos());
+
+        metrics.reset();
+
+        assertEquals(0, metrics.getDownToFirstMove().getCount());
+        assertEquals(0, metrics.getUpdateViewLayoutCount());
+    }
+
+    @Test
+    public void dump_writesCounters() throws Exception {
+        FloatingViewMetrics metrics = new FloatingViewMetrics(60f);
+        metrics.onAddView();
+        metrics.onUpdateViewLayout();
+        metrics.onUpdateViewLayout();
+
+        StringWriter out = new StringWriter();
+        metrics.dump(new PrintWriter(out));
+
+        assertTrue(out.toString(), out.toString().contains("addView=1 updateViewLayout=2"));
+    }
+
+    @Test
+    public void dump_ignoresDefaultLocale() throws Exception {
+        FloatingViewMetrics metrics = new FloatingViewMetrics(60f);
+        StringWriter out = new StringWriter();
+        Locale defaultLocale = Locale.getDefault();
+        // 小数点是逗号的语言
+        Locale.setDefault(Locale.GERMANY);
+        try {
+            metrics.dump(new PrintWriter(out));
+        }
+        finally {
+            Locale.setDefault(defaultLocale);
+        }
+
+        assertTrue(out.toString(), out.toString().contains("expected=16.67ms"));
+    }
+}
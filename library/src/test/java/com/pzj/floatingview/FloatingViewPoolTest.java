@@ -0,0 +1,196 @@
+package com.pzj.floatingview;
+
+import android.app.Activity;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.WindowManager;
+import android.widget.FrameLayout;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.*;
+
+/**
+ * 悬浮窗回收池的测试
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25, shadows = ShadowDeviceKeys.class)
+public class FloatingViewPoolTest {
+
+    private static final int POOL_SIZE = 2;
+
+    private Activity mActivity;
+
+    private FakeWindowManager mWindowManager;
+
+    private FloatingViewManager mManager;
+
+    @Before
+    public void setUp() throws Exception {
+        this.mActivity = Robolectric.setupActivity(Activity.class);
+        FrameLayout container = new FrameLayout(this.mActivity);
+        this.mActivity.setContentView(container);
+        this.mWindowManager = new FakeWindowManager((WindowManager) this.mActivity.getSystemService(Context.WINDOW_SERVICE), container);
+        this.mManager = new FloatingViewManager(FakeWindowManager.wrap(this.mActivity, this.mWindowManager), null);
+        this.mManager.setFloatingViewPoolSize(POOL_SIZE);
+    }
+
+    private int show(View content) {
+        FloatingViewManager.Configs configs = new FloatingViewManager.Configs();
+        configs.floatingViewX = 10;
+        configs.floatingViewY = 20;
+        return this.mManager.addFloatingView(content, configs);
+    }
+
+    @Test
+    public void addFloatingView_reusesRemovedShell() throws Exception {
+        View content = new View(this.mActivity);
+        int id = show(content);
+        FloatingView first = this.mManager.getFloatingView(id);
+        this.mManager.removeFloatingView(id);
+
+        assertNull(content.getParent());
+
+        int secondId = show(content);
+        FloatingView second = this.mManager.getFloatingView(secondId);
+
+        assertSame(first, second);
+        assertSame(second, content.getParent());
+        assertEquals(1, second.getChildCount());
+    }
+
+    @Test
+    public void onTrimMemory_dropsPooledShells() throws Exception {
+        int id = show(new View(this.mActivity));
+        FloatingView first = this.mManager.getFloatingView(id);
+        this.mManager.removeFloatingView(id);
+
+        this.mManager.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+
+        assertNotSame(first, this.mManager.getFloatingView(show(new View(this.mActivity))));
+    }
+
+    @Test
+    public void onTrimMemory_uiHiddenKeepsPool() throws Exception {
+        FloatingView a = this.mManager.getFloatingView(show(new View(this.mActivity)));
+        FloatingView b = this.mManager.getFloatingView(show(new View(this.mActivity)));
+        this.mManager.removeAllFloatingView();
+
+        // 界面不可见不是内存紧张
+        this.mManager.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+
+        FloatingView reused1 = this.mManager.getFloatingView(show(new View(this.mActivity)));
+        FloatingView reused2 = this.mManager.getFloatingView(show(new View(this.mActivity)));
+        assertTrue(reused1 == a || reused1 == b);
+        assertTrue(reused2 == a || reused2 == b);
+    }
+
+    @Test
+    public void onTrimMemory_runningLowHalvesPool() throws Exception {
+        FloatingView a = this.mManager.getFloatingView(show(new View(this.mActivity)));
+        FloatingView b = this.mManager.getFloatingView(show(new View(this.mActivity)));
+        this.mManager.removeAllFloatingView();
+
+        this.mManager.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+
+        FloatingView reused = this.mManager.getFloatingView(show(new View(this.mActivity)));
+        FloatingView created = this.mManager.getFloatingView(show(new View(this.mActivity)));
+        assertTrue(reused == a || reused == b);
+        assertNotSame(a, created);
+        assertNotSame(b, created);
+    }
+
+    @Test
+    public void setFloatingViewPoolSize_zeroDisablesReuse() throws Exception {
+        this.mManager.setFloatingViewPoolSize(0);
+        int id = show(new View(this.mActivity));
+        FloatingView first = this.mManager.getFloatingView(id);
+        this.mManager.removeFloatingView(id);
+
+        assertNotSame(first, this.mManager.getFloatingView(show(new View(this.mActivity))));
+    }
+
+    @Test
+    public void defaultPool_doesNotReuse() throws Exception {
+        FrameLayout container = new FrameLayout(this.mActivity);
+        FakeWindowManager windowManager = new FakeWindowManager((WindowManager) this.mActivity.getSystemService(Context.WINDOW_SERVICE), container);
+        FloatingViewManager manager = new FloatingViewManager(FakeWindowManager.wrap(this.mActivity, windowManager), null);
+        int id = manager.addFloatingView(new View(this.mActivity), new FloatingViewManager.Configs());
+        FloatingView first = manager.getFloatingView(id);
+        manager.removeFloatingView(id);
+
+        assertNotSame(first, manager.getFloatingView(manager.addFloatingView(new View(this.mActivity), new FloatingViewManager.Configs())));
+    }
+
+    @Test
+    public void reusedShell_restoresWindowSizeAndHost() throws Exception {
+        this.mManager.setHostMode(true);
+        int id = show(new View(this.mActivity));
+        ShadowLooper.idleMainLooper();
+        FloatingView first = this.mManager.getFloatingView(id);
+        assertNotNull(first.getHost());
+        first.getWindowLayoutParams().width = 123;
+        first.getWindowLayoutParams().height = 45;
+        this.mManager.removeFloatingView(id);
+        this.mManager.setHostMode(false);
+
+        FloatingView second = this.mManager.getFloatingView(show(new View(this.mActivity)));
+
+        assertSame(first, second);
+        assertNull(second.getHost());
+        assertFalse(second.isContentSnapshotActive());
+        assertEquals(ViewGroup.LayoutParams.WRAP_CONTENT, second.getWindowLayoutParams().width);
+        assertEquals(ViewGroup.LayoutParams.WRAP_CONTENT, second.getWindowLayoutParams().height);
+    }
+
+    @Test
+    public void removeAllFloatingView_recyclesUpToPoolSize() throws Exception {
+        FloatingView a = this.mManager.getFloatingView(show(new View(this.mActivity)));
+        FloatingView b = this.mManager.getFloatingView(show(new View(this.mActivity)));
+        FloatingView c = this.mManager.getFloatingView(show(new View(this.mActivity)));
+        this.mManager.removeAllFloatingView();
+
+        FloatingView reused1 = this.mManager.getFloatingView(show(new View(this.mActivity)));
+        FloatingView reused2 = this.mManager.getFloatingView(show(new View(this.mActivity)));
+        FloatingView created = this.mManager.getFloatingView(show(new View(this.mActivity)));
+
+        assertTrue(reused1 == a || reused1 == b);
+        assertTrue(reused2 == a || reused2 == b);
+        assertNotSame(c, created);
+        assertNotSame(a, created);
+        assertNotSame(b, created);
+    }
+
+    @Test
+    public void asyncRemoval_releasesShellAfterWindowRemoved() throws Exception {
+        this.mWindowManager.asyncWindows = true;
+        ShadowLooper.pauseMainLooper();
+        try {
+            // 添加后马上移除：窗口还未附加，移除也还未完成
+            FloatingView first = this.mManager.getFloatingView(show(new View(this.mActivity)));
+            this.mManager.removeAllFloatingView();
+
+            FloatingView second = this.mManager.getFloatingView(show(new View(this.mActivity)));
+            assertNotSame(first, second);
+
+            ShadowLooper.idleMainLooper();
+            assertNull(first.getParent());
+            this.mManager.removeAllFloatingView();
+            ShadowLooper.idleMainLooper();
+
+            // 窗口移除完成后才放回池中
+            FloatingView third = this.mManager.getFloatingView(show(new View(this.mActivity)));
+            assertTrue(third == first || third == second);
+        }
+        finally {
+            ShadowLooper.unPauseMainLooper();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.pzj.floatingview;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.WindowManager;
+import android.widget.FrameLayout;
+import com.pzj.floatingview.core.SnapTarget;
+import com.pzj.floatingview.core.SnapTargetIndex;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.*;
+
+/**
+ * 磁吸目标的测试
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25, shadows = ShadowDeviceKeys.class)
+public class FloatingViewSnapTest {
+
+    private static final int SIZE = 100;
+
+    private FloatingView mFloatingView;
+
+    private SnapTarget mDismissTarget;
+
+    private final List<String> mEvents = new ArrayList<>();
+
+    private long mDownTime;
+
+    @Before
+    public void setUp() throws Exception {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        FrameLayout container = new FrameLayout(activity);
+        activity.setContentView(container);
+        FakeWindowManager windowManager = new FakeWindowManager((WindowManager) activity.getSystemService(Context.WINDOW_SERVICE), container);
+        FloatingViewManager manager = new FloatingViewManager(FakeWindowManager.wrap(activity, windowManager), null);
+
+        SnapTargetIndex snapTargets = new SnapTargetIndex(1080, 1920);
+        // 移动范围以外的删除区域
+        this.mDismissTarget = new SnapTarget(1, 200, 2000, 80);
+        snapTargets.add(this.mDismissTarget);
+
+        FloatingViewManager.Configs configs = new FloatingViewManager.Configs();
+        configs.floatingViewX = 0;
+        configs.floatingViewY = 100;
+        configs.floatingViewWidth = SIZE;
+        configs.floatingViewHeight = SIZE;
+        configs.animateInitialMove = false;
+        configs.frameCoalescedDrag = false;
+        configs.snapTargets = snapTargets;
+        configs.snapListener = new FloatingViewSnapListener() {
+            @Override
+            public void onSnapTargetEntered(FloatingView floatingView, SnapTarget target) {
+                mEvents.add("enter " + target.id);
+            }
+
+            @Override
+            public void onSnapTargetExited(FloatingView floatingView, SnapTarget target) {
+                mEvents.add("exit " + target.id);
+            }
+
+            @Override
+            public void onSnapped(FloatingView floatingView, SnapTarget target) {
+                mEvents.add("snap " + target.id);
+            }
+        };
+        this.mFloatingView = manager.getFloatingView(manager.addFloatingView(new View(activity), configs));
+
+        ShadowLooper.idleMainLooper();
+        this.mFloatingView.measure(View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED), View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        this.mFloatingView.layout(0, 0, SIZE, SIZE);
+        this.mFloatingView.getViewTreeObserver().dispatchOnPreDraw();
+        this.mDownTime = SystemClock.uptimeMillis();
+    }
+
+    private void touch(int action, float x, float y) {
+        MotionEvent event = MotionEvent.obtain(this.mDownTime, SystemClock.uptimeMillis(), action, x, y, 0);
+        this.mFloatingView.dispatchTouchEvent(event);
+        event.recycle();
+    }
+
+    @Test
+    public void dragThroughTarget_holdsThenReleases() throws Exception {
+        touch(MotionEvent.ACTION_DOWN, 0, 0);
+        touch(MotionEvent.ACTION_MOVE, 250, 1960);
+
+        assertEquals(200, this.mFloatingView.getWindowLayoutParams().x);
+        assertEquals(2000, this.mFloatingView.getWindowLayoutParams().y);
+
+        touch(MotionEvent.ACTION_MOVE, 250, 1500);
+        touch(MotionEvent.ACTION_UP, 250, 1500);
+
+        assertEquals("[enter 1, exit 1]", this.mEvents.toString());
+        assertNotEquals(2000, this.mFloatingView.getWindowLayoutParams().y);
+    }
+
+    @Test
+    public void releaseInsideTarget_snapsOutsideMoveLimit() throws Exception {
+        touch(MotionEvent.ACTION_DOWN, 0, 0);
+        touch(MotionEvent.ACTION_MOVE, 250, 1960);
+        touch(MotionEvent.ACTION_UP, 250, 1960);
+
+        assertEquals("[enter 1, snap 1]", this.mEvents.toString());
+        assertEquals(200, this.mFloatingView.getWindowLayoutParams().x);
+        assertEquals(2000, this.mFloatingView.getWindowLayoutParams().y);
+        assertFalse(this.mFloatingView.isSettling());
+    }
+}
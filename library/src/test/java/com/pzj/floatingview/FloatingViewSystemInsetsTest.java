@@ -0,0 +1,138 @@
+package com.pzj.floatingview;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Rect;
+import android.util.DisplayMetrics;
+import android.view.View;
+import android.view.WindowManager;
+import android.widget.FrameLayout;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.*;
+
+/**
+ * 跟踪系统ui占用区域的测试
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25, shadows = ShadowDeviceKeys.class)
+public class FloatingViewSystemInsetsTest {
+
+    private static final int SIZE = 100;
+
+    private static final int STATUS_BAR_HEIGHT = 24;
+
+    private static final int NAVIGATION_BAR_HEIGHT = 48;
+
+    private FakeWindowManager mWindowManager;
+
+    private FloatingViewManager mManager;
+
+    private FloatingView mFloatingView;
+
+    private int mId;
+
+    private int mScreenWidth;
+
+    private int mScreenHeight;
+
+    @Before
+    public void setUp() throws Exception {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        FrameLayout container = new FrameLayout(activity);
+        activity.setContentView(container);
+        this.mWindowManager = new FakeWindowManager((WindowManager) activity.getSystemService(Context.WINDOW_SERVICE), container);
+        this.mManager = new FloatingViewManager(FakeWindowManager.wrap(activity, this.mWindowManager), null);
+        this.mManager.setSystemInsetsTracking(true);
+
+        DisplayMetrics metrics = new DisplayMetrics();
+        this.mWindowManager.getDefaultDisplay().getMetrics(metrics);
+        this.mScreenWidth = metrics.widthPixels;
+        this.mScreenHeight = metrics.heightPixels;
+
+        FloatingViewManager.Configs configs = new FloatingViewManager.Configs();
+        configs.floatingViewX = 0;
+        configs.floatingViewY = 0;
+        configs.floatingViewWidth = SIZE;
+        configs.floatingViewHeight = SIZE;
+        configs.overMargin = 0;
+        configs.moveDirection = FloatingView.MOVE_DIRECTION_NONE;
+        configs.animateInitialMove = false;
+        this.mId = this.mManager.addFloatingView(new View(activity), configs);
+        this.mFloatingView = this.mManager.getFloatingView(this.mId);
+
+        ShadowLooper.idleMainLooper();
+        this.mFloatingView.measure(View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED), View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        this.mFloatingView.layout(0, 0, SIZE, SIZE);
+        this.mFloatingView.getViewTreeObserver().dispatchOnPreDraw();
+
+        // 状态栏和导航条都显示
+        dispatchInsets(new Rect(0, STATUS_BAR_HEIGHT, 0, NAVIGATION_BAR_HEIGHT));
+        this.mFloatingView.setPosition(0, this.mScreenHeight - STATUS_BAR_HEIGHT - SIZE);
+        this.mWindowManager.reset();
+    }
+
+    private void dispatchInsets(Rect insets) {
+        this.mFloatingView.onSystemInsetsChanged(this.mScreenWidth, this.mScreenHeight + NAVIGATION_BAR_HEIGHT, insets);
+    }
+
+    @Test
+    public void observerWindow_existsOnlyWhileFloatingViewsShown() throws Exception {
+        this.mManager.removeFloatingView(this.mId);
+
+        // 悬浮窗和跟踪窗口
+        assertEquals(2, this.mWindowManager.removeViewImmediateCount);
+
+        this.mManager.setSystemInsetsTracking(false);
+        assertEquals(2, this.mWindowManager.removeViewImmediateCount);
+    }
+
+    @Test
+    public void observerWindow_isTransparentAndNotTouchable() throws Exception {
+        SystemInsetsObserver observer = new SystemInsetsObserver(this.mFloatingView.getContext(), 0, null);
+        WindowManager.LayoutParams params = observer.getWindowLayoutParams();
+
+        assertEquals(0f, params.alpha, 0f);
+        assertTrue((params.flags & WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE) != 0);
+        assertTrue((params.flags & WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE) != 0);
+    }
+
+    @Test
+    public void unchangedInsets_skipLayout() throws Exception {
+        dispatchInsets(new Rect(0, STATUS_BAR_HEIGHT, 0, NAVIGATION_BAR_HEIGHT));
+
+        assertEquals(0, this.mWindowManager.updateViewLayoutCount);
+    }
+
+    @Test
+    public void navigationBarHidden_extendsBottomLimit() throws Exception {
+        dispatchInsets(new Rect(0, STATUS_BAR_HEIGHT, 0, 0));
+
+        assertEquals(1, this.mWindowManager.updateViewLayoutCount);
+        assertEquals(this.mScreenHeight - STATUS_BAR_HEIGHT - SIZE + NAVIGATION_BAR_HEIGHT, this.mFloatingView.getWindowLayoutParams().y);
+    }
+
+    @Test
+    public void changesWithinFrame_coalescedIntoOneRelayout() throws Exception {
+        ShadowLooper.pauseMainLooper();
+        dispatchInsets(new Rect(0, 0, 0, 0));
+        dispatchInsets(new Rect(0, STATUS_BAR_HEIGHT, 0, 0));
+        this.mFloatingView.onConfigurationChanged(this.mFloatingView.getResources().getConfiguration());
+
+        assertEquals(0, this.mWindowManager.updateViewLayoutCount);
+
+        ShadowLooper.unPauseMainLooper();
+        ShadowLooper.idleMainLooper(16, TimeUnit.MILLISECONDS);
+
+        // 只有最后的状态生效
+        assertEquals(1, this.mWindowManager.updateViewLayoutCount);
+        assertEquals(this.mScreenHeight - STATUS_BAR_HEIGHT - SIZE + NAVIGATION_BAR_HEIGHT, this.mFloatingView.getWindowLayoutParams().y);
+    }
+}
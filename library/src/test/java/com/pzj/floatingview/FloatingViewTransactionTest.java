@@ -0,0 +1,176 @@
+package com.pzj.floatingview;
+
+import android.app.Activity;
+import android.content.Context;
+import android.view.View;
+import android.view.WindowManager;
+import android.widget.FrameLayout;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.*;
+
+/**
+ * 批量操作（{@link FloatingViewManager.Transaction}）合并操作的测试
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25, shadows = ShadowDeviceKeys.class)
+public class FloatingViewTransactionTest {
+
+    private static final int SIZE = 100;
+
+    private Activity mActivity;
+
+    private FakeWindowManager mWindowManager;
+
+    private FloatingViewManager mManager;
+
+    private int mFinishCount;
+
+    @Before
+    public void setUp() throws Exception {
+        this.mActivity = Robolectric.setupActivity(Activity.class);
+        FrameLayout container = new FrameLayout(this.mActivity);
+        this.mActivity.setContentView(container);
+        this.mWindowManager = new FakeWindowManager((WindowManager) this.mActivity.getSystemService(Context.WINDOW_SERVICE), container);
+        this.mManager = new FloatingViewManager(FakeWindowManager.wrap(this.mActivity, this.mWindowManager), new FloatingViewListener() {
+            @Override
+            public void onFinishFloatingView() {
+                mFinishCount++;
+            }
+        });
+    }
+
+    private FloatingViewManager.Configs newConfigs(int size) {
+        FloatingViewManager.Configs configs = new FloatingViewManager.Configs();
+        configs.floatingViewX = 0;
+        configs.floatingViewY = 100;
+        configs.floatingViewWidth = size;
+        configs.floatingViewHeight = size;
+        configs.animateInitialMove = false;
+        return configs;
+    }
+
+    private int addNow() {
+        int id = this.mManager.addFloatingView(new View(this.mActivity), newConfigs(SIZE));
+        ShadowLooper.idleMainLooper();
+        return id;
+    }
+
+    private static int contentWidth(FloatingView floatingView) {
+        return floatingView.getChildAt(0).getLayoutParams().width;
+    }
+
+    @Test
+    public void addThenRemove_neverAddsWindow() throws Exception {
+        FloatingViewManager.Transaction transaction = this.mManager.beginTransaction();
+        int id = transaction.add(new View(this.mActivity), newConfigs(SIZE));
+        transaction.remove(id);
+        transaction.commit();
+        ShadowLooper.idleMainLooper();
+
+        assertEquals(0, this.mWindowManager.addViewCount);
+        assertEquals(0, this.mWindowManager.removeViewCount + this.mWindowManager.removeViewImmediateCount);
+        assertNull(this.mManager.getFloatingView(id));
+        assertEquals(0, this.mManager.getFloatingViewCount());
+        // 没有移除过已添加的悬浮窗，不通知结束
+        assertEquals(0, this.mFinishCount);
+    }
+
+    @Test
+    public void updateAfterAdd_replacesPendingConfigs() throws Exception {
+        FloatingViewManager.Transaction transaction = this.mManager.beginTransaction();
+        int id = transaction.add(new View(this.mActivity), newConfigs(SIZE));
+        transaction.update(id, newConfigs(SIZE * 2));
+        assertNull(this.mManager.getFloatingView(id));
+        transaction.commit();
+        ShadowLooper.idleMainLooper();
+
+        FloatingView floatingView = this.mManager.getFloatingView(id);
+        assertNotNull(floatingView);
+        assertEquals(SIZE * 2, contentWidth(floatingView));
+        // 添加时直接使用新的配置信息，不会再单独更新
+        assertEquals(1, this.mWindowManager.addViewCount);
+    }
+
+    @Test
+    public void remove_dropsPendingUpdates() throws Exception {
+        int id = addNow();
+        FloatingView floatingView = this.mManager.getFloatingView(id);
+        View content = floatingView.getChildAt(0);
+
+        FloatingViewManager.Transaction transaction = this.mManager.beginTransaction();
+        transaction.update(id, newConfigs(SIZE * 2));
+        transaction.remove(id);
+        // 移除之后的更新也被忽略
+        transaction.update(id, newConfigs(SIZE * 3));
+        transaction.commit();
+        ShadowLooper.idleMainLooper();
+
+        assertNull(this.mManager.getFloatingView(id));
+        assertEquals(SIZE, content.getLayoutParams().width);
+        assertEquals(1, this.mWindowManager.removeViewCount + this.mWindowManager.removeViewImmediateCount);
+    }
+
+    @Test
+    public void removeLastInBatch_finishesExactlyOnce() throws Exception {
+        int id1 = addNow();
+        int id2 = addNow();
+        int id3 = addNow();
+
+        FloatingViewManager.Transaction transaction = this.mManager.beginTransaction();
+        transaction.remove(id1);
+        transaction.commit();
+        assertEquals(0, this.mFinishCount);
+
+        transaction = this.mManager.beginTransaction();
+        transaction.remove(id2);
+        transaction.remove(id3);
+        transaction.commit();
+        ShadowLooper.idleMainLooper();
+
+        assertEquals(0, this.mManager.getFloatingViewCount());
+        assertEquals(1, this.mFinishCount);
+    }
+
+    @Test
+    public void removeAndAddInBatch_doesNotFinish() throws Exception {
+        int id = addNow();
+
+        FloatingViewManager.Transaction transaction = this.mManager.beginTransaction();
+        transaction.remove(id);
+        int newId = transaction.add(new View(this.mActivity), newConfigs(SIZE));
+        transaction.commit();
+        ShadowLooper.idleMainLooper();
+
+        assertNotNull(this.mManager.getFloatingView(newId));
+        assertEquals(1, this.mManager.getFloatingViewCount());
+        assertEquals(0, this.mFinishCount);
+    }
+
+    @Test
+    public void removeAll_finishesOnce() throws Exception {
+        addNow();
+        addNow();
+
+        this.mManager.removeAllFloatingView();
+        ShadowLooper.idleMainLooper();
+        assertEquals(1, this.mFinishCount);
+
+        // 没有悬浮窗时不再通知
+        this.mManager.removeAllFloatingView();
+        assertEquals(1, this.mFinishCount);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void commitTwice_throws() throws Exception {
+        FloatingViewManager.Transaction transaction = this.mManager.beginTransaction();
+        transaction.commit();
+        transaction.commit();
+    }
+}
@@ -0,0 +1,194 @@
+package com.pzj.floatingview;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.WindowManager;
+import android.widget.FrameLayout;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowChoreographer;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.*;
+
+/**
+ * 更新悬浮窗的配置信息（{@link FloatingViewManager#updateFloatingView(int, FloatingViewManager.Configs)}）
+ * 和设置位置（{@link FloatingView#setPosition(int, int)}）的测试
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25, shadows = ShadowDeviceKeys.class)
+public class FloatingViewUpdateTest {
+
+    private static final int SIZE = 100;
+
+    private static final long FRAME_MILLIS = 16;
+
+    private Activity mActivity;
+
+    private FakeWindowManager mWindowManager;
+
+    private FloatingViewManager mManager;
+
+    private long mDownTime;
+
+    @Before
+    public void setUp() throws Exception {
+        this.mActivity = Robolectric.setupActivity(Activity.class);
+        FrameLayout container = new FrameLayout(this.mActivity);
+        this.mActivity.setContentView(container);
+        this.mWindowManager = new FakeWindowManager((WindowManager) this.mActivity.getSystemService(Context.WINDOW_SERVICE), container);
+        this.mManager = new FloatingViewManager(FakeWindowManager.wrap(this.mActivity, this.mWindowManager), null);
+
+        // 暂停主线程Looper，动画只在每一帧推进时执行
+        ShadowLooper.pauseMainLooper();
+        ShadowChoreographer.setFrameInterval(FRAME_MILLIS * 1000000L);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ShadowLooper.unPauseMainLooper();
+    }
+
+    private static FloatingViewManager.Configs newConfigs(int x, int y, int size) {
+        FloatingViewManager.Configs configs = new FloatingViewManager.Configs();
+        configs.floatingViewX = x;
+        configs.floatingViewY = y;
+        configs.floatingViewWidth = size;
+        configs.floatingViewHeight = size;
+        configs.animateInitialMove = false;
+        configs.frameCoalescedDrag = false;
+        return configs;
+    }
+
+    private int add(int x, int y) {
+        int id = this.mManager.addFloatingView(new View(this.mActivity), newConfigs(x, y, SIZE));
+        ShadowLooper.idleMainLooper();
+        FloatingView floatingView = this.mManager.getFloatingView(id);
+        floatingView.measure(View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED), View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        floatingView.layout(0, 0, floatingView.getMeasuredWidth(), floatingView.getMeasuredHeight());
+        floatingView.getViewTreeObserver().dispatchOnPreDraw();
+        this.mDownTime = SystemClock.uptimeMillis();
+        return id;
+    }
+
+    private void touch(FloatingView floatingView, int action, float x, float y) {
+        MotionEvent event = MotionEvent.obtain(this.mDownTime, SystemClock.uptimeMillis(), action, x, y, 0);
+        floatingView.dispatchTouchEvent(event);
+        event.recycle();
+    }
+
+    private static void settle(FloatingView floatingView) {
+        for (int i = 0; i < 200 && floatingView.isSettling(); i++) {
+            ShadowLooper.idleMainLooper(FRAME_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        assertFalse(floatingView.isSettling());
+    }
+
+    @Test
+    public void update_unknownId_returnsFalse() throws Exception {
+        int id = add(0, 100);
+
+        assertFalse(this.mManager.updateFloatingView(id + 1, newConfigs(200, 300, SIZE)));
+        assertFalse(this.mManager.updateFloatingView(FloatingViewManager.NO_ID, newConfigs(200, 300, SIZE)));
+
+        WindowManager.LayoutParams params = this.mManager.getFloatingView(id).getWindowLayoutParams();
+        assertEquals(0, params.x);
+        assertEquals(100, params.y);
+    }
+
+    @Test
+    public void update_appliesToViewWithId() throws Exception {
+        int id1 = add(0, 100);
+        int id2 = add(0, 300);
+        FloatingView floatingView1 = this.mManager.getFloatingView(id1);
+        FloatingView floatingView2 = this.mManager.getFloatingView(id2);
+
+        assertTrue(this.mManager.updateFloatingView(id2, newConfigs(200, 400, SIZE * 2)));
+
+        assertEquals(200, floatingView2.getWindowLayoutParams().x);
+        assertEquals(400, floatingView2.getWindowLayoutParams().y);
+        assertEquals(SIZE * 2, floatingView2.getChildAt(0).getLayoutParams().width);
+        assertEquals(0, floatingView1.getWindowLayoutParams().x);
+        assertEquals(100, floatingView1.getWindowLayoutParams().y);
+        assertEquals(SIZE, floatingView1.getChildAt(0).getLayoutParams().width);
+    }
+
+    @Test
+    public void update_defaultPositionKeepsCurrent() throws Exception {
+        int id = add(0, 100);
+        FloatingView floatingView = this.mManager.getFloatingView(id);
+        assertTrue(this.mManager.updateFloatingView(id, newConfigs(200, 300, SIZE)));
+
+        // 再次应用相同的配置信息不改变任何东西
+        View content = floatingView.getChildAt(0);
+        FrameLayout.LayoutParams contentParams = (FrameLayout.LayoutParams) content.getLayoutParams();
+        assertTrue(this.mManager.updateFloatingView(id, newConfigs(200, 300, SIZE)));
+        assertSame(contentParams, content.getLayoutParams());
+        assertEquals(200, floatingView.getWindowLayoutParams().x);
+
+        // 只更新y坐标
+        assertTrue(this.mManager.updateFloatingView(id, newConfigs(FloatingView.DEFAULT_X, 350, SIZE)));
+        assertEquals(200, floatingView.getWindowLayoutParams().x);
+        assertEquals(350, floatingView.getWindowLayoutParams().y);
+    }
+
+    @Test
+    public void setPosition_whileDragging_isDeferredUntilRelease() throws Exception {
+        int id = add(0, 100);
+        FloatingView floatingView = this.mManager.getFloatingView(id);
+        WindowManager.LayoutParams params = floatingView.getWindowLayoutParams();
+
+        touch(floatingView, MotionEvent.ACTION_DOWN, 10, 10);
+        touch(floatingView, MotionEvent.ACTION_MOVE, 110, 110);
+        assertTrue(floatingView.isDragging());
+        assertEquals(100, params.x);
+
+        // 拖动中不打断手指
+        assertTrue(this.mManager.updateFloatingView(id, newConfigs(300, 400, SIZE)));
+        assertEquals(100, params.x);
+        assertEquals(100, params.y);
+        touch(floatingView, MotionEvent.ACTION_MOVE, 120, 130);
+        assertEquals(110, params.x);
+        assertEquals(120, params.y);
+
+        // 松开后移动到设置的位置，而不是边缘
+        touch(floatingView, MotionEvent.ACTION_UP, 120, 130);
+        settle(floatingView);
+        assertFalse(floatingView.isDragging());
+        assertEquals(300, params.x);
+        assertEquals(400, params.y);
+    }
+
+    @Test
+    public void setPosition_afterDrag_isNotDeferred() throws Exception {
+        int id = add(0, 100);
+        FloatingView floatingView = this.mManager.getFloatingView(id);
+        WindowManager.LayoutParams params = floatingView.getWindowLayoutParams();
+
+        touch(floatingView, MotionEvent.ACTION_DOWN, 10, 10);
+        touch(floatingView, MotionEvent.ACTION_MOVE, 110, 110);
+        touch(floatingView, MotionEvent.ACTION_UP, 110, 110);
+        settle(floatingView);
+        int edgeX = params.x;
+
+        floatingView.setPosition(200, 300);
+        assertEquals(200, params.x);
+        assertEquals(300, params.y);
+
+        // 没有残留的位置，下一次拖动松开后照常移动到边缘
+        touch(floatingView, MotionEvent.ACTION_DOWN, 10, 10);
+        touch(floatingView, MotionEvent.ACTION_MOVE, 110, 110);
+        touch(floatingView, MotionEvent.ACTION_UP, 110, 110);
+        settle(floatingView);
+        assertEquals(edgeX, params.x);
+    }
+}
@@ -0,0 +1,162 @@
+package com.pzj.floatingview;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.ColorDrawable;
+import android.view.View;
+import android.view.WindowManager;
+import android.widget.FrameLayout;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.*;
+
+/**
+ * 悬浮窗可见状态的测试
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25, shadows = ShadowDeviceKeys.class)
+public class FloatingViewVisibilityTest {
+
+    private static final int SIZE = 100;
+
+    private FloatingViewManager mManager;
+
+    private FloatingView mFloatingView;
+
+    private int mId;
+
+    private DrawCountingView mContent;
+
+    private final List<Integer> mStates = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        FrameLayout container = new FrameLayout(activity);
+        activity.setContentView(container);
+        FakeWindowManager windowManager = new FakeWindowManager((WindowManager) activity.getSystemService(Context.WINDOW_SERVICE), container);
+        this.mManager = new FloatingViewManager(FakeWindowManager.wrap(activity, windowManager), null);
+
+        FloatingViewManager.Configs configs = new FloatingViewManager.Configs();
+        configs.floatingViewX = 0;
+        configs.floatingViewY = 100;
+        configs.floatingViewWidth = SIZE;
+        configs.floatingViewHeight = SIZE;
+        // 停靠在左边缘时一半在屏幕外
+        configs.overMargin = SIZE / 2;
+        configs.moveDirection = FloatingView.MOVE_DIRECTION_LEFT;
+        configs.animateInitialMove = false;
+        configs.pauseContentWhenHidden = true;
+        configs.visibilityListener = new FloatingViewVisibilityListener() {
+            @Override
+            public void onVisibilityStateChanged(FloatingView floatingView, int state, float visibleFraction) {
+                mStates.add(state);
+            }
+        };
+        this.mContent = new DrawCountingView(activity);
+        this.mId = this.mManager.addFloatingView(this.mContent, configs);
+        this.mFloatingView = this.mManager.getFloatingView(this.mId);
+
+        ShadowLooper.idleMainLooper();
+        this.mFloatingView.measure(View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED), View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        this.mFloatingView.layout(0, 0, SIZE, SIZE);
+        this.mFloatingView.getViewTreeObserver().dispatchOnPreDraw();
+    }
+
+    @Test
+    public void dockedOffScreen_isPartiallyVisible() throws Exception {
+        assertEquals(-SIZE / 2, this.mFloatingView.getWindowLayoutParams().x);
+        assertEquals(FloatingView.VISIBILITY_STATE_PARTIAL, this.mFloatingView.getVisibilityState());
+        assertEquals(0.5f, this.mFloatingView.getVisibleFraction(), 0.0001f);
+
+        this.mFloatingView.setPosition(200, 100);
+
+        assertEquals(FloatingView.VISIBILITY_STATE_VISIBLE, this.mFloatingView.getVisibilityState());
+        assertEquals(FloatingView.VISIBILITY_STATE_VISIBLE, (int) this.mStates.get(this.mStates.size() - 1));
+    }
+
+    @Test
+    public void hide_pausesContentUntilShown() throws Exception {
+        this.mManager.hideFloatingView(this.mId);
+
+        assertEquals(FloatingView.VISIBILITY_STATE_HIDDEN, this.mFloatingView.getVisibilityState());
+        assertFalse(this.mContent.isShown());
+        assertEquals(View.INVISIBLE, this.mContent.mLastVisibility);
+        // 内容的重绘请求不再绘制内容
+        int drawCount = this.mContent.mDrawCount;
+        this.mContent.invalidate();
+        drawFloatingView();
+        assertEquals(drawCount, this.mContent.mDrawCount);
+
+        this.mManager.showFloatingView(this.mId);
+
+        assertEquals(FloatingView.VISIBILITY_STATE_PARTIAL, this.mFloatingView.getVisibilityState());
+        assertEquals(this.mStates.toString(), 3, this.mStates.size());
+        assertEquals(View.VISIBLE, this.mContent.getVisibility());
+        assertEquals(View.VISIBLE, this.mContent.mLastVisibility);
+        drawFloatingView();
+        assertEquals(drawCount + 1, this.mContent.mDrawCount);
+    }
+
+    @Test
+    public void hide_keepsContentHiddenByCaller() throws Exception {
+        this.mContent.setVisibility(View.GONE);
+        this.mManager.hideFloatingView(this.mId);
+        this.mManager.showFloatingView(this.mId);
+
+        assertEquals(View.GONE, this.mContent.getVisibility());
+    }
+
+    @Test
+    public void removeWhileHidden_restoresContentVisibility() throws Exception {
+        this.mManager.hideFloatingView(this.mId);
+        this.mManager.removeFloatingView(this.mId);
+        ShadowLooper.idleMainLooper();
+
+        assertNull(this.mContent.getParent());
+        assertEquals(View.VISIBLE, this.mContent.getVisibility());
+    }
+
+    private void drawFloatingView() {
+        Bitmap bitmap = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        this.mFloatingView.dispatchDraw(new Canvas(bitmap));
+    }
+
+    /**
+     * 记录绘制次数和可见性变化的内容视图
+     */
+    private static class DrawCountingView extends View {
+
+        int mDrawCount;
+
+        int mLastVisibility = VISIBLE;
+
+        DrawCountingView(Context context) {
+            super(context);
+            // Robolectric绘制视图时只绘制背景
+            setBackground(new ColorDrawable() {
+                @Override
+                public void draw(Canvas canvas) {
+                    super.draw(canvas);
+                    mDrawCount++;
+                }
+            });
+        }
+
+        @Override
+        protected void onVisibilityChanged(View changedView, int visibility) {
+            super.onVisibilityChanged(changedView, visibility);
+            this.mLastVisibility = visibility;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.pzj.floatingview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link FramePositionCoalescer} 的单元测试
+ */
+public class FramePositionCoalescerTest {
+
+    private static final long FRAME_INTERVAL_NANOS = 16666667L;
+
+    /**
+     * 以给定的触摸采样率回放一段拖动，返回提交次数
+     */
+    private static int replayDrag(FramePositionCoalescer coalescer, int touchRateHz, long durationNanos, int[] lastCommitted) {
+        long sampleInterval = 1000000000L / touchRateHz;
+        long nextFrame = FRAME_INTERVAL_NANOS;
+        boolean frameRequested = false;
+        int commits = 0;
+        int sample = 0;
+        for (long t = 0; t <= durationNanos; t += sampleInterval) {
+            while (t >= nextFrame) {
+                if (frameRequested && coalescer.onFrame()) {
+                    commits++;
+                    lastCommitted[0] = coalescer.getPendingX();
+                    lastCommitted[1] = coalescer.getPendingY();
+                }
+                frameRequested = false;
+                nextFrame += FRAME_INTERVAL_NANOS;
+            }
+            if (coalescer.offer(sample, sample * 2)) {
+                frameRequested = true;
+            }
+            sample++;
+        }
+        if (frameRequested && coalescer.onFrame()) {
+            commits++;
+            lastCommitted[0] = coalescer.getPendingX();
+            lastCommitted[1] = coalescer.getPendingY();
+        }
+        return commits;
+    }
+
+    @Test
+    public void denseTouchStream_isBoundedByFrameCount() throws Exception {
+        long duration = 1000000000L;
+        long frames = duration / FRAME_INTERVAL_NANOS + 1;
+        int[] last = new int[2];
+
+        int commits = replayDrag(new FramePositionCoalescer(), 240, duration, last);
+
+        assertTrue("commits=" + commits + " frames=" + frames, commits <= frames);
+        assertTrue(commits > 0);
+        assertEquals(240, last[0]);
+        assertEquals(480, last[1]);
+    }
+
+    @Test
+    public void offer_requestsOneFramePerBatch() throws Exception {
+        FramePositionCoalescer coalescer = new FramePositionCoalescer();
+        assertTrue(coalescer.offer(1, 1));
+        assertFalse(coalescer.offer(2, 2));
+        assertFalse(coalescer.offer(3, 3));
+
+        assertTrue(coalescer.onFrame());
+        assertEquals(3, coalescer.getPendingX());
+        assertEquals(3, coalescer.getPendingY());
+        assertFalse(coalescer.hasPending());
+
+        assertTrue(coalescer.offer(4, 4));
+    }
+
+    @Test
+    public void clear_dropsPendingPosition() throws Exception {
+        FramePositionCoalescer coalescer = new FramePositionCoalescer();
+        coalescer.offer(5, 5);
+        coalescer.clear();
+
+        assertFalse(coalescer.onFrame());
+        assertTrue(coalescer.offer(6, 6));
+    }
+}
@@ -0,0 +1,90 @@
+package com.pzj.floatingview;
+
+import android.view.WindowManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link LayoutCommitTracker} 的单元测试（{@link FloatingView#getLayoutUpdateCount()}、{@link FloatingView#getLayoutSkipCount()} 的计数）
+ */
+public class LayoutCommitTrackerTest {
+
+    private static final int FLAGS = WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE;
+
+    private LayoutCommitTracker mTracker;
+
+    @Before
+    public void setUp() throws Exception {
+        this.mTracker = new LayoutCommitTracker();
+    }
+
+    @Test
+    public void firstCommit_isSent() throws Exception {
+        assertTrue(this.mTracker.commitIfChanged(10, 20, 100, 100, FLAGS));
+
+        assertEquals(1, this.mTracker.getCommitCount());
+        assertEquals(0, this.mTracker.getSkipCount());
+    }
+
+    @Test
+    public void unchanged_isSkipped() throws Exception {
+        this.mTracker.commitIfChanged(10, 20, 100, 100, FLAGS);
+
+        assertFalse(this.mTracker.commitIfChanged(10, 20, 100, 100, FLAGS));
+        assertFalse(this.mTracker.commitIfChanged(10, 20, 100, 100, FLAGS));
+
+        assertEquals(1, this.mTracker.getCommitCount());
+        assertEquals(2, this.mTracker.getSkipCount());
+    }
+
+    @Test
+    public void changedFlagsOnly_isSent() throws Exception {
+        this.mTracker.commitIfChanged(10, 20, 100, 100, FLAGS);
+
+        assertTrue(this.mTracker.commitIfChanged(10, 20, 100, 100, FLAGS | WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE));
+        // 恢复原来的flags也是变化
+        assertTrue(this.mTracker.commitIfChanged(10, 20, 100, 100, FLAGS));
+        assertFalse(this.mTracker.commitIfChanged(10, 20, 100, 100, FLAGS));
+
+        assertEquals(3, this.mTracker.getCommitCount());
+        assertEquals(1, this.mTracker.getSkipCount());
+    }
+
+    @Test
+    public void changedPositionOrSize_isSent() throws Exception {
+        this.mTracker.commitIfChanged(10, 20, 100, 100, FLAGS);
+
+        assertTrue(this.mTracker.commitIfChanged(11, 20, 100, 100, FLAGS));
+        assertTrue(this.mTracker.commitIfChanged(11, 21, 100, 100, FLAGS));
+        assertTrue(this.mTracker.commitIfChanged(11, 21, 101, 100, FLAGS));
+        assertTrue(this.mTracker.commitIfChanged(11, 21, 101, 101, FLAGS));
+
+        assertEquals(5, this.mTracker.getCommitCount());
+        assertEquals(0, this.mTracker.getSkipCount());
+    }
+
+    @Test
+    public void invalidate_forcesNextCommit() throws Exception {
+        this.mTracker.commitIfChanged(10, 20, 100, 100, FLAGS);
+
+        this.mTracker.invalidate();
+        assertTrue(this.mTracker.commitIfChanged(10, 20, 100, 100, FLAGS));
+        // 只影响下一次提交
+        assertFalse(this.mTracker.commitIfChanged(10, 20, 100, 100, FLAGS));
+
+        assertEquals(2, this.mTracker.getCommitCount());
+        assertEquals(1, this.mTracker.getSkipCount());
+    }
+
+    @Test
+    public void markCommitted_isNotCounted() throws Exception {
+        this.mTracker.markCommitted(10, 20, 100, 100, FLAGS);
+
+        assertFalse(this.mTracker.commitIfChanged(10, 20, 100, 100, FLAGS));
+
+        assertEquals(0, this.mTracker.getCommitCount());
+        assertEquals(1, this.mTracker.getSkipCount());
+    }
+}
@@ -0,0 +1,18 @@
+package com.pzj.floatingview;
+
+import android.view.KeyCharacterMap;
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowKeyCharacterMap;
+
+/**
+ * Robolectric没有模拟InputManager，这里假设设备有实体按键（即没有导航条）
+ */
+@Implements(KeyCharacterMap.class)
+public class ShadowDeviceKeys extends ShadowKeyCharacterMap {
+
+    @Implementation
+    public static boolean deviceHasKey(int keyCode) {
+        return true;
+    }
+}
@@ -0,0 +1,78 @@
+package com.pzj.floatingview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link SpringAxis} 的单元测试
+ */
+public class SpringAxisTest {
+
+    private static final float FRAME_SECONDS = 1 / 60f;
+
+    /**
+     * 按60fps运行到停止，返回经过的帧数
+     */
+    private static int runUntilSettled(SpringAxis spring, int maxFrames) {
+        for (int frame = 1; frame <= maxFrames; frame++) {
+            if (spring.step(FRAME_SECONDS)) {
+                return frame;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void step_settlesExactlyOnTarget() throws Exception {
+        SpringAxis spring = new SpringAxis();
+        spring.start(500, 0, 0);
+
+        int frames = runUntilSettled(spring, 600);
+
+        assertTrue(frames > 0);
+        assertEquals(0f, spring.getPosition(), 0f);
+        assertEquals(0f, spring.getVelocity(), 0f);
+    }
+
+    @Test
+    public void step_stiffSpringSettlesSooner() throws Exception {
+        SpringAxis soft = new SpringAxis();
+        soft.setStiffness(200f);
+        soft.setDampingRatio(1f);
+        soft.start(500, 0, 0);
+
+        SpringAxis stiff = new SpringAxis();
+        stiff.setStiffness(1500f);
+        stiff.setDampingRatio(1f);
+        stiff.start(500, 0, 0);
+
+        assertTrue(runUntilSettled(stiff, 600) < runUntilSettled(soft, 600));
+    }
+
+    @Test
+    public void step_gentleReleaseSettlesWellBeforeFixedDuration() throws Exception {
+        SpringAxis spring = new SpringAxis();
+        spring.setDampingRatio(1f);
+        spring.start(20, 0, 0);
+
+        // 固定时长的动画需要 450ms（27帧）
+        assertTrue(runUntilSettled(spring, 600) < 27);
+    }
+
+    @Test
+    public void step_usesReleaseVelocity() throws Exception {
+        SpringAxis spring = new SpringAxis();
+        spring.start(0, 3000, 0);
+
+        spring.step(FRAME_SECONDS);
+
+        assertTrue(spring.getPosition() > 0);
+        assertFalse(spring.isSettled());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setStiffness_rejectsNonPositive() throws Exception {
+        new SpringAxis().setStiffness(0f);
+    }
+}
@@ -0,0 +1,136 @@
+package com.pzj.floatingview;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 录制的触摸轨迹
+ * <p>
+ * 文件格式为每行一个事件，#开头的行是注释：
+ * <pre>
+ * down   &lt;time(ms)&gt; &lt;rawX&gt; &lt;rawY&gt;
+ * move   &lt;time(ms)&gt; &lt;rawX&gt; &lt;rawY&gt;
+ * up     &lt;time(ms)&gt; &lt;rawX&gt; &lt;rawY&gt;
+ * cancel &lt;time(ms)&gt; &lt;rawX&gt; &lt;rawY&gt;
+ * rotate &lt;time(ms)&gt; &lt;screenWidth&gt; &lt;screenHeight&gt;
+ * </pre>
+ */
+class TouchTrace {
+
+    static final String DOWN = "down";
+
+    static final String MOVE = "move";
+
+    static final String UP = "up";
+
+    static final String CANCEL = "cancel";
+
+    static final String ROTATE = "rotate";
+
+    /**
+     * 轨迹中的一个事件
+     */
+    static class Event {
+        final String type;
+
+        final long timeMillis;
+
+        final int a;
+
+        final int b;
+
+        Event(String type, long timeMillis, int a, int b) {
+            this.type = type;
+            this.timeMillis = timeMillis;
+            this.a = a;
+            this.b = b;
+        }
+    }
+
+    final String name;
+
+    final List<Event> events;
+
+    private TouchTrace(String name, List<Event> events) {
+        this.name = name;
+        this.events = Collections.unmodifiableList(events);
+    }
+
+    /**
+     * 从测试资源中读取轨迹
+     *
+     * @param name 轨迹名称（traces/&lt;name&gt;.trace）
+     *
+     * @return
+     */
+    static TouchTrace load(String name) throws IOException {
+        InputStream in = TouchTrace.class.getClassLoader().getResourceAsStream("traces/" + name + ".trace");
+        if (in == null) {
+            throw new IOException("trace not found: " + name);
+        }
+        List<Event> events = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+        try {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\\s+");
+                if (fields.length != 4) {
+                    throw new IOException(name + ":" + lineNumber + ": expected 4 fields");
+                }
+                events.add(new Event(fields[0], Long.parseLong(fields[1]), Integer.parseInt(fields[2]), Integer.parseInt(fields[3])));
+            }
+        }
+        finally {
+            reader.close();
+        }
+        return new TouchTrace(name, events);
+    }
+
+    /**
+     * 按时间插值手指的位置
+     *
+     * @param timeMillis 时间(ms)
+     * @param out        位置（x, y）
+     *
+     * @return 时间不在按下到抬起之间时返回false
+     */
+    boolean getTouchPosition(long timeMillis, float[] out) {
+        Event previous = null;
+        for (Event event : this.events) {
+            if (ROTATE.equals(event.type)) {
+                continue;
+            }
+            if (event.timeMillis >= timeMillis) {
+                if (event.timeMillis == timeMillis) {
+                    out[0] = event.a;
+                    out[1] = event.b;
+                    return true;
+                }
+                if (previous == null || UP.equals(previous.type) || CANCEL.equals(previous.type)) {
+                    return false;
+                }
+                float fraction = (float) (timeMillis - previous.timeMillis) / (event.timeMillis - previous.timeMillis);
+                out[0] = previous.a + (event.a - previous.a) * fraction;
+                out[1] = previous.b + (event.b - previous.b) * fraction;
+                return true;
+            }
+            previous = event;
+        }
+        return false;
+    }
+
+    long getDurationMillis() {
+        return this.events.isEmpty() ? 0 : this.events.get(this.events.size() - 1).timeMillis;
+    }
+}
@@ -0,0 +1,149 @@
+package com.pzj.floatingview;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * 触摸轨迹回放的性能回归测试
+ * <p>
+ * 回放轨迹后检查WindowManager调用次数、每帧的窗口更新次数、移动到窗口更新的帧数和拖动中的内存分配，失败时输出该轨迹的统计。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25, shadows = ShadowDeviceKeys.class)
+public class TouchTraceReplayTest {
+
+    private static FloatingViewManager.Configs newConfigs() {
+        FloatingViewManager.Configs configs = new FloatingViewManager.Configs();
+        // 初始位置在左上角，轨迹的按下坐标就落在悬浮窗内
+        configs.floatingViewX = 0;
+        configs.floatingViewY = 0;
+        configs.animateInitialMove = false;
+        return configs;
+    }
+
+    private static TouchTraceReplayer.Result replay(String traceName, FloatingViewManager.Configs configs) throws Exception {
+        return new TouchTraceReplayer(configs).replay(TouchTrace.load(traceName));
+    }
+
+    @Test
+    public void tap_doesNotMoveWindow() throws Exception {
+        TouchTraceReplayer.Result result = replay("tap", newConfigs());
+
+        assertEquals(1, result.clickCount);
+        assertEquals(0, result.updateViewLayoutCount);
+        assertEquals(0, result.animationFrameCount);
+    }
+
+    @Test
+    public void drag_updatesAtMostOncePerFrame() throws Exception {
+        TouchTraceReplayer.Result result = replay("drag", newConfigs());
+
+        assertTrue(result.toString(), result.dragUpdateCount <= result.dragFrameCount);
+        assertTrue(result.toString(), result.dragUpdateCount < result.eventCount / 2);
+        assertTrue(result.toString(), result.maxFrameUpdateCount <= 1);
+        // 移动事件所在的帧内就提交了窗口位置
+        assertEquals(result.toString(), 0, result.maxMoveLatencyFrames);
+        assertEquals(0, result.clickCount);
+        assertEquals(1, result.addViewCount);
+    }
+
+    @Test
+    public void drag_moveEventsDoNotAllocate() throws Exception {
+        // 逐个事件更新窗口，不经过帧回调（Robolectric的Choreographer每次post都会分配，真机上是对象池）
+        FloatingViewManager.Configs configs = newConfigs();
+        configs.frameCoalescedDrag = false;
+        TouchTraceReplayer.Result result = replay("drag", configs);
+        Assume.assumeTrue(result.dragAllocatedBytes >= 0);
+
+        assertTrue(result.toString(), result.dragMoveCount > 100);
+        // 每个事件哪怕只分配一个对象，也会远超这个上限
+        assertTrue(result.toString(), result.dragAllocatedBytes < result.dragMoveCount);
+    }
+
+    @Test
+    public void drag_withoutCoalescingUpdatesPerEvent() throws Exception {
+        FloatingViewManager.Configs configs = newConfigs();
+        configs.frameCoalescedDrag = false;
+        TouchTraceReplayer.Result coalesced = replay("drag", newConfigs());
+        TouchTraceReplayer.Result perEvent = replay("drag", configs);
+
+        assertTrue(perEvent.dragUpdateCount > coalesced.dragUpdateCount);
+        assertEquals(coalesced.finalX, perEvent.finalX);
+        assertEquals(coalesced.finalY, perEvent.finalY);
+    }
+
+    @Test
+    public void drag_touchPredictionReducesError() throws Exception {
+        FloatingViewManager.Configs configs = newConfigs();
+        configs.touchPrediction = true;
+        TouchTraceReplayer.Result plain = replay("drag", newConfigs());
+        TouchTraceReplayer.Result predicted = replay("drag", configs);
+
+        assertTrue(predicted.toString(), predicted.meanDragError < plain.meanDragError / 2);
+        assertTrue(predicted.toString(), predicted.maxDragError <= plain.maxDragError);
+        // 抬起后的位置不受预测影响
+        assertEquals(plain.finalX, predicted.finalX);
+        assertEquals(plain.finalY, predicted.finalY);
+    }
+
+    @Test
+    public void fling_touchPredictionReducesError() throws Exception {
+        FloatingViewManager.Configs configs = newConfigs();
+        configs.frameCoalescedDrag = false;
+        TouchTraceReplayer.Result plain = replay("fling", configs);
+        configs = newConfigs();
+        configs.frameCoalescedDrag = false;
+        configs.touchPrediction = true;
+        TouchTraceReplayer.Result predicted = replay("fling", configs);
+
+        assertTrue(predicted.toString(), predicted.meanDragError < plain.meanDragError);
+    }
+
+    @Test
+    public void drag_metricsMatchWindowManagerCalls() throws Exception {
+        TouchTraceReplayer replayer = new TouchTraceReplayer(newConfigs());
+        replayer.setMetricsEnabled(true);
+        TouchTraceReplayer.Result result = replayer.replay(TouchTrace.load("drag"));
+
+        FloatingViewMetrics metrics = result.metrics;
+        assertNotNull(metrics);
+        assertEquals(result.addViewCount, metrics.getAddViewCount());
+        assertEquals(result.updateViewLayoutCount, metrics.getUpdateViewLayoutCount());
+        assertEquals(1, metrics.getDownToFirstMove().getCount());
+        assertEquals(1, metrics.getUpToSettle().getCount());
+        assertTrue(metrics.getAnimationFrame().getCount() > 0);
+    }
+
+    @Test
+    public void drag_contentSnapshotHeldUntilSettled() throws Exception {
+        FloatingViewManager.Configs configs = newConfigs();
+        configs.contentSnapshot = true;
+        TouchTraceReplayer.Result result = replay("drag", configs);
+
+        assertTrue(result.snapshotActiveAfterUp);
+        assertFalse(result.snapshotActiveAtEnd);
+    }
+
+    @Test
+    public void fling_settlesOnEdge() throws Exception {
+        FloatingViewManager.Configs configs = newConfigs();
+        configs.flingPhysics = true;
+        TouchTraceReplayer.Result result = replay("fling", configs);
+
+        assertTrue(result.toString(), result.finalX == 0 || result.finalX == TouchTraceReplayer.SCREEN_WIDTH - TouchTraceReplayer.BUBBLE_SIZE);
+        assertTrue(result.toString(), result.animationFrameCount > 0);
+    }
+
+    @Test
+    public void rotateMidDrag_staysInsideScreen() throws Exception {
+        TouchTraceReplayer.Result result = replay("rotate_mid_drag", newConfigs());
+
+        assertTrue(result.toString(), result.finalX >= 0 && result.finalX <= 1920 - TouchTraceReplayer.BUBBLE_SIZE);
+        assertTrue(result.toString(), result.finalY >= 0 && result.finalY <= 1080);
+    }
+}
@@ -0,0 +1,413 @@
+package com.pzj.floatingview;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.SystemClock;
+import android.view.Display;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.WindowManager;
+import android.widget.FrameLayout;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.robolectric.Robolectric;
+import org.robolectric.shadows.ShadowChoreographer;
+import org.robolectric.shadows.ShadowDisplay;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 触摸轨迹的回放
+ * <p>
+ * 把轨迹按帧（16ms）分组，每一帧先派发这一帧内到达的所有事件，再推进主线程Looper执行这一帧的动画回调，
+ * 统计每个手势产生的WindowManager调用次数、内存分配和动画帧数。
+ */
+class TouchTraceReplayer {
+
+    static final long FRAME_MILLIS = 16;
+
+    static final long FRAME_NANOS = FRAME_MILLIS * 1000000L;
+
+    static final int SCREEN_WIDTH = 1080;
+
+    static final int SCREEN_HEIGHT = 1920;
+
+    static final int BUBBLE_SIZE = 168;
+
+    /**
+     * 抬起后等待停止的最长时间
+     */
+    private static final long MAX_SETTLE_MILLIS = 5000;
+
+    /**
+     * 回放结果
+     */
+    static class Result {
+        String traceName;
+
+        int eventCount;
+
+        /**
+         * 抬起之前经过的帧数
+         */
+        int dragFrameCount;
+
+        /**
+         * 抬起之前的窗口更新次数
+         */
+        int dragUpdateCount;
+
+        /**
+         * 抬起后到停止为止产生了窗口更新的动画帧数
+         * （Robolectric的Choreographer会在一次推进中连续执行动画回调，因此按窗口更新次数统计）
+         */
+        int animationFrameCount;
+
+        /**
+         * 第一次移动事件到第一次窗口更新的帧数（没有移动时为-1）
+         */
+        int firstMoveLatencyFrames = -1;
+
+        /**
+         * 拖动中每个有移动事件的帧到下一次窗口更新的最大帧数（没有拖动时为-1）
+         */
+        int maxMoveLatencyFrames = -1;
+
+        /**
+         * 抬起之前一帧内窗口更新的最大次数
+         */
+        int maxFrameUpdateCount;
+
+        /**
+         * 拖动期间窗口显示时（提交后的下一帧）与手指位置的平均距离和最大距离(px)，没有拖动时为-1
+         */
+        float meanDragError = -1;
+
+        float maxDragError = -1;
+
+        int addViewCount;
+
+        int updateViewLayoutCount;
+
+        int removeViewImmediateCount;
+
+        /**
+         * 回放期间测试线程分配的字节数（不支持时为-1）
+         */
+        long allocatedBytes = -1;
+
+        /**
+         * 拖动开始后派发移动事件时分配的字节数，不含帧回调（不支持时为-1）
+         */
+        long dragAllocatedBytes = -1;
+
+        /**
+         * 拖动开始后派发的移动事件数
+         */
+        int dragMoveCount;
+
+        int clickCount;
+
+        int finalX;
+
+        int finalY;
+
+        /**
+         * 管理器的运行时统计（未开启时为null）
+         */
+        FloatingViewMetrics metrics;
+
+        /**
+         * 抬起后（动画中）内容的快照是否在使用
+         */
+        boolean snapshotActiveAfterUp;
+
+        /**
+         * 停止后内容的快照是否在使用
+         */
+        boolean snapshotActiveAtEnd;
+
+        @Override
+        public String toString() {
+            return String.format("%-16s events=%3d dragFrames=%3d dragUpdates=%3d maxFrameUpdates=%d animFrames=%3d moveLatency=%2d/%2d dragError=%.1f/%.1fpx updateViewLayout=%3d addView=%d removeViewImmediate=%d allocated=%dB dragAllocated=%dB/%d clicks=%d final=(%d,%d)",
+                                 this.traceName, this.eventCount, this.dragFrameCount, this.dragUpdateCount, this.maxFrameUpdateCount, this.animationFrameCount, this.firstMoveLatencyFrames, this.maxMoveLatencyFrames, this.meanDragError,
+                                 this.maxDragError, this.updateViewLayoutCount, this.addViewCount, this.removeViewImmediateCount, this.allocatedBytes, this.dragAllocatedBytes, this.dragMoveCount, this.clickCount, this.finalX, this.finalY);
+        }
+    }
+
+    private final FloatingViewManager.Configs mConfigs;
+
+    private FakeWindowManager mWindowManager;
+
+    private Display mDisplay;
+
+    private FloatingView mFloatingView;
+
+    private int mClickCount;
+
+    private boolean mIsMetricsEnabled;
+
+    TouchTraceReplayer(FloatingViewManager.Configs configs) {
+        this.mConfigs = configs;
+    }
+
+    /**
+     * 设置回放时是否开启管理器的运行时统计
+     *
+     * @param enabled
+     */
+    void setMetricsEnabled(boolean enabled) {
+        this.mIsMetricsEnabled = enabled;
+    }
+
+    /**
+     * 回放轨迹
+     *
+     * @param trace 轨迹
+     *
+     * @return 回放结果
+     */
+    Result replay(TouchTrace trace) {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        FrameLayout container = new FrameLayout(activity);
+        activity.setContentView(container);
+        WindowManager realWindowManager = (WindowManager) activity.getSystemService(Context.WINDOW_SERVICE);
+        this.mDisplay = realWindowManager.getDefaultDisplay();
+        setUpDisplay(SCREEN_WIDTH, SCREEN_HEIGHT);
+        this.mWindowManager = new FakeWindowManager(realWindowManager, container);
+        Context context = FakeWindowManager.wrap(activity, this.mWindowManager);
+
+        View content = new View(activity);
+        content.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                mClickCount++;
+            }
+        });
+        this.mConfigs.floatingViewWidth = BUBBLE_SIZE;
+        this.mConfigs.floatingViewHeight = BUBBLE_SIZE;
+        FloatingViewManager manager = new FloatingViewManager(context, null);
+        manager.setMetricsEnabled(this.mIsMetricsEnabled);
+        int id = manager.addFloatingView(content, this.mConfigs);
+        this.mFloatingView = manager.getFloatingView(id);
+        layoutAndPreDraw();
+
+        Result result = new Result();
+        result.traceName = trace.name;
+        result.eventCount = trace.events.size();
+        int initialUpdateCount = this.mWindowManager.updateViewLayoutCount;
+
+        // 暂停主线程Looper，回调只在每一帧推进时执行
+        ShadowLooper.pauseMainLooper();
+        ShadowChoreographer.setFrameInterval(FRAME_NANOS);
+
+        // 事先生成所有的MotionEvent，不计入回放期间的内存分配
+        List<MotionEvent> motionEvents = obtainMotionEvents(trace);
+
+        com.sun.management.ThreadMXBean threadBean = getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threadBean != null ? threadBean.getThreadAllocatedBytes(threadId) : 0;
+        long measureOverhead = threadBean != null ? getMeasureOverhead(threadBean, threadId) : 0;
+        long dragAllocated = 0;
+
+        int frame = 0;
+        int index = 0;
+        int upFrame = -1;
+        int updatesAtUp = 0;
+        int firstMoveFrame = -1;
+        int updatesAtFirstMove = 0;
+        long frameEnd = FRAME_MILLIS;
+        float touchOffsetX = 0;
+        float touchOffsetY = 0;
+        float[] finger = new float[2];
+        float dragErrorSum = 0;
+        int dragErrorCount = 0;
+        int pendingMoveFrame = -1;
+        while (index < trace.events.size() || (upFrame >= 0 && this.mFloatingView.isSettling() && (frame - upFrame) * FRAME_MILLIS < MAX_SETTLE_MILLIS)) {
+            int updatesAtFrameStart = this.mWindowManager.updateViewLayoutCount;
+            // 派发这一帧内到达的事件
+            while (index < trace.events.size() && trace.events.get(index).timeMillis < frameEnd) {
+                TouchTrace.Event event = trace.events.get(index);
+                MotionEvent motionEvent = motionEvents.get(index);
+                if (motionEvent != null) {
+                    if (TouchTrace.DOWN.equals(event.type)) {
+                        // 手指相对于悬浮窗的位置
+                        touchOffsetX = event.a - this.mFloatingView.getWindowLayoutParams().x;
+                        touchOffsetY = event.b - this.mFloatingView.getWindowLayoutParams().y;
+                    }
+                    if (TouchTrace.MOVE.equals(event.type) && this.mFloatingView.isDragging()) {
+                        if (pendingMoveFrame < 0) {
+                            pendingMoveFrame = frame;
+                        }
+                        result.dragMoveCount++;
+                        if (threadBean != null) {
+                            long before = threadBean.getThreadAllocatedBytes(threadId);
+                            this.mFloatingView.dispatchTouchEvent(motionEvent);
+                            dragAllocated += Math.max(0, threadBean.getThreadAllocatedBytes(threadId) - before - measureOverhead);
+                        }
+                        else {
+                            this.mFloatingView.dispatchTouchEvent(motionEvent);
+                        }
+                    }
+                    else {
+                        this.mFloatingView.dispatchTouchEvent(motionEvent);
+                    }
+                    if (firstMoveFrame < 0 && TouchTrace.MOVE.equals(event.type)) {
+                        firstMoveFrame = frame;
+                        updatesAtFirstMove = this.mWindowManager.updateViewLayoutCount;
+                    }
+                    if (TouchTrace.UP.equals(event.type) || TouchTrace.CANCEL.equals(event.type)) {
+                        upFrame = frame;
+                        updatesAtUp = this.mWindowManager.updateViewLayoutCount;
+                        result.snapshotActiveAfterUp = this.mFloatingView.isContentSnapshotActive();
+                    }
+                }
+                else if (TouchTrace.ROTATE.equals(event.type)) {
+                    rotate(event.a, event.b);
+                }
+                index++;
+            }
+
+            // 这一帧的动画回调
+            ShadowLooper.idleMainLooper(FRAME_MILLIS, TimeUnit.MILLISECONDS);
+            int frameUpdateCount = this.mWindowManager.updateViewLayoutCount - updatesAtFrameStart;
+            if (upFrame < 0) {
+                result.maxFrameUpdateCount = Math.max(result.maxFrameUpdateCount, frameUpdateCount);
+            }
+            if (pendingMoveFrame >= 0 && frameUpdateCount > 0) {
+                result.maxMoveLatencyFrames = Math.max(result.maxMoveLatencyFrames, frame - pendingMoveFrame);
+                pendingMoveFrame = -1;
+            }
+            if (firstMoveFrame >= 0 && result.firstMoveLatencyFrames < 0 && this.mWindowManager.updateViewLayoutCount > updatesAtFirstMove) {
+                result.firstMoveLatencyFrames = frame - firstMoveFrame;
+            }
+            // 这一帧提交的位置在下一帧显示，与那时的手指位置比较
+            if (result.firstMoveLatencyFrames >= 0 && upFrame < 0 && trace.getTouchPosition(frameEnd + FRAME_MILLIS, finger)) {
+                WindowManager.LayoutParams params = this.mFloatingView.getWindowLayoutParams();
+                float error = (float) Math.hypot(params.x + touchOffsetX - finger[0], params.y + touchOffsetY - finger[1]);
+                dragErrorSum += error;
+                dragErrorCount++;
+                result.maxDragError = Math.max(result.maxDragError, error);
+            }
+            frame++;
+            frameEnd += FRAME_MILLIS;
+        }
+
+        if (dragErrorCount > 0) {
+            result.meanDragError = dragErrorSum / dragErrorCount;
+        }
+        if (threadBean != null) {
+            result.allocatedBytes = threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+            result.dragAllocatedBytes = dragAllocated;
+        }
+        ShadowLooper.unPauseMainLooper();
+        for (MotionEvent motionEvent : motionEvents) {
+            if (motionEvent != null) {
+                motionEvent.recycle();
+            }
+        }
+
+        int updateCount = this.mWindowManager.updateViewLayoutCount;
+        if (upFrame < 0) {
+            upFrame = frame;
+            updatesAtUp = updateCount;
+        }
+        result.dragFrameCount = upFrame + 1;
+        result.dragUpdateCount = updatesAtUp - initialUpdateCount;
+        result.animationFrameCount = updateCount - updatesAtUp;
+        result.addViewCount = this.mWindowManager.addViewCount;
+        result.updateViewLayoutCount = updateCount - initialUpdateCount;
+        result.removeViewImmediateCount = this.mWindowManager.removeViewImmediateCount;
+        result.clickCount = this.mClickCount;
+        result.finalX = this.mFloatingView.getWindowLayoutParams().x;
+        result.finalY = this.mFloatingView.getWindowLayoutParams().y;
+        result.metrics = manager.getMetrics();
+        result.snapshotActiveAtEnd = this.mFloatingView.isContentSnapshotActive();
+        return result;
+    }
+
+    FloatingView getFloatingView() {
+        return this.mFloatingView;
+    }
+
+    private List<MotionEvent> obtainMotionEvents(TouchTrace trace) {
+        List<MotionEvent> motionEvents = new ArrayList<>(trace.events.size());
+        long downTime = SystemClock.uptimeMillis();
+        for (TouchTrace.Event event : trace.events) {
+            int action;
+            if (TouchTrace.DOWN.equals(event.type)) {
+                action = MotionEvent.ACTION_DOWN;
+            }
+            else if (TouchTrace.MOVE.equals(event.type)) {
+                action = MotionEvent.ACTION_MOVE;
+            }
+            else if (TouchTrace.UP.equals(event.type)) {
+                action = MotionEvent.ACTION_UP;
+            }
+            else if (TouchTrace.CANCEL.equals(event.type)) {
+                action = MotionEvent.ACTION_CANCEL;
+            }
+            else {
+                motionEvents.add(null);
+                continue;
+            }
+            motionEvents.add(MotionEvent.obtain(downTime, downTime + event.timeMillis, action, event.a, event.b, 0));
+        }
+        return motionEvents;
+    }
+
+    /**
+     * 执行一次布局和绘制前的回调（悬浮窗在onPreDraw中决定初始位置）
+     */
+    private void layoutAndPreDraw() {
+        ShadowLooper.idleMainLooper();
+        this.mFloatingView.measure(View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED), View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        this.mFloatingView.layout(0, 0, this.mFloatingView.getMeasuredWidth(), this.mFloatingView.getMeasuredHeight());
+        this.mFloatingView.getViewTreeObserver().dispatchOnPreDraw();
+        ShadowLooper.idleMainLooper();
+    }
+
+    private void rotate(int screenWidth, int screenHeight) {
+        setUpDisplay(screenWidth, screenHeight);
+        Configuration configuration = new Configuration(this.mFloatingView.getResources().getConfiguration());
+        configuration.orientation = screenWidth > screenHeight ? Configuration.ORIENTATION_LANDSCAPE : Configuration.ORIENTATION_PORTRAIT;
+        this.mFloatingView.dispatchConfigurationChanged(configuration);
+    }
+
+    private void setUpDisplay(int screenWidth, int screenHeight) {
+        ShadowDisplay shadowDisplay = shadowOf(this.mDisplay);
+        shadowDisplay.setWidth(screenWidth);
+        shadowDisplay.setHeight(screenHeight);
+        shadowDisplay.setRealWidth(screenWidth);
+        shadowDisplay.setRealHeight(screenHeight);
+    }
+
+    /**
+     * 连续两次读取分配字节数之间的差（读取本身会分配数组），取多次中的最小值
+     */
+    private static long getMeasureOverhead(com.sun.management.ThreadMXBean threadBean, long threadId) {
+        long overhead = Long.MAX_VALUE;
+        for (int i = 0; i < 16; i++) {
+            long before = threadBean.getThreadAllocatedBytes(threadId);
+            overhead = Math.min(overhead, threadBean.getThreadAllocatedBytes(threadId) - before);
+        }
+        return overhead;
+    }
+
+    private static com.sun.management.ThreadMXBean getThreadMXBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        if (!threadBean.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        return threadBean;
+    }
+}